@@ -0,0 +1,318 @@
+package ru.oldzoomer.pingtower.common.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Компактный бинарный формат результата проверки для топика pingtower.check.results.
+ * <p>
+ * Структура записи:
+ * <pre>
+ * magic (1 байт, 0xB7) | version (1 байт) | presence (varint) | поля...
+ * </pre>
+ * Поля следуют в фиксированном порядке, необязательные поля записываются только при
+ * установленном бите в {@code presence}. Целые числа кодируются varint (со знаком — zigzag),
+ * строки — длиной varint и байтами UTF-8, время — миллисекундами эпохи, где LocalDateTime
+ * трактуется как UTC (значение восстанавливается без изменений). Статус кодируется одним байтом,
+ * неизвестный статус передается строкой.
+ * <p>
+ * Совместимость версий: новые поля добавляются только в конец записи с новыми битами presence.
+ * Старый читатель игнорирует неизвестные биты и оставшиеся байты, новый читатель
+ * не находит битов новых полей в старых записях. Поэтому pinger и statistics обновляются независимо.
+ * Версия увеличивается только при несовместимом изменении формата; записи неизвестных версий
+ * не читаются, а отклоняются с ошибкой.
+ * <p>
+ * Кодек общий для модулей pinger (кодирование) и statistics (декодирование) и работает
+ * с {@link CheckResultMessage}, в который модули переводят свои DTO.
+ */
+public final class CheckResultBinaryCodec {
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 1;
+
+    // Биты presence
+    private static final int HAS_CHECK_ID = 1;
+    private static final int HAS_RESOURCE_URL = 1 << 1;
+    private static final int HAS_TIMESTAMP = 1 << 2;
+    private static final int HAS_STATUS = 1 << 3;
+    private static final int HAS_HTTP_STATUS = 1 << 4;
+    private static final int HAS_ERROR = 1 << 5;
+    private static final int HAS_METRICS = 1 << 6;
+    private static final int HAS_SSL_VALID = 1 << 7;
+    private static final int HAS_SSL_EXPIRATION = 1 << 8;
+    private static final int HAS_DNS = 1 << 9;
+    private static final int HAS_TCP = 1 << 10;
+    private static final int HAS_TLS = 1 << 11;
+    private static final int HAS_REQUEST_WRITE = 1 << 12;
+    private static final int HAS_TTFB_NANOS = 1 << 13;
+    private static final int HAS_DOWNLOAD = 1 << 14;
+
+    // Коды статусов, 0 — статус передан строкой
+    private static final String[] STATUSES = {null, "UP", "DOWN", "SUCCESS", "FAILURE", "TIMEOUT", "ERROR"};
+
+    private CheckResultBinaryCodec() {
+    }
+
+    /**
+     * Проверка, что данные начинаются с заголовка бинарного формата
+     * @param data сериализованные данные
+     * @return true, если это бинарная запись
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 2 && data[0] == MAGIC;
+    }
+
+    /**
+     * Кодирование результата проверки
+     * @param result результат проверки
+     * @return бинарное представление
+     */
+    public static byte[] encode(CheckResultMessage result) {
+        CheckResultMessage.Metrics metrics = result.metrics();
+        int presence = 0;
+        presence |= result.checkId() != null ? HAS_CHECK_ID : 0;
+        presence |= result.resourceUrl() != null ? HAS_RESOURCE_URL : 0;
+        presence |= result.timestamp() != null ? HAS_TIMESTAMP : 0;
+        presence |= result.status() != null ? HAS_STATUS : 0;
+        presence |= result.httpStatusCode() != null ? HAS_HTTP_STATUS : 0;
+        presence |= result.errorMessage() != null ? HAS_ERROR : 0;
+        if (metrics != null) {
+            presence |= HAS_METRICS;
+            presence |= metrics.sslValid() != null ? HAS_SSL_VALID : 0;
+            presence |= metrics.sslExpirationDate() != null ? HAS_SSL_EXPIRATION : 0;
+            presence |= metrics.dnsLookupNanos() != null ? HAS_DNS : 0;
+            presence |= metrics.tcpConnectNanos() != null ? HAS_TCP : 0;
+            presence |= metrics.tlsHandshakeNanos() != null ? HAS_TLS : 0;
+            presence |= metrics.requestWriteNanos() != null ? HAS_REQUEST_WRITE : 0;
+            presence |= metrics.timeToFirstByteNanos() != null ? HAS_TTFB_NANOS : 0;
+            presence |= metrics.downloadNanos() != null ? HAS_DOWNLOAD : 0;
+        }
+
+        Writer out = new Writer(64 + length(result.resourceUrl()) + length(result.errorMessage()));
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarLong(presence);
+
+        if ((presence & HAS_CHECK_ID) != 0) {
+            out.writeString(result.checkId());
+        }
+        if ((presence & HAS_RESOURCE_URL) != 0) {
+            out.writeString(result.resourceUrl());
+        }
+        if ((presence & HAS_TIMESTAMP) != 0) {
+            out.writeSignedVarLong(toEpochMillis(result.timestamp()));
+        }
+        if ((presence & HAS_STATUS) != 0) {
+            int code = statusCode(result.status());
+            out.writeByte((byte) code);
+            if (code == 0) {
+                out.writeString(result.status());
+            }
+        }
+        out.writeSignedVarLong(result.responseTime());
+        if ((presence & HAS_HTTP_STATUS) != 0) {
+            out.writeSignedVarLong(result.httpStatusCode());
+        }
+        if ((presence & HAS_ERROR) != 0) {
+            out.writeString(result.errorMessage());
+        }
+        if ((presence & HAS_METRICS) != 0) {
+            out.writeSignedVarLong(metrics.connectionTime());
+            out.writeSignedVarLong(metrics.timeToFirstByte());
+            if ((presence & HAS_SSL_VALID) != 0) {
+                out.writeByte((byte) (metrics.sslValid() ? 1 : 0));
+            }
+            if ((presence & HAS_SSL_EXPIRATION) != 0) {
+                out.writeSignedVarLong(toEpochMillis(metrics.sslExpirationDate()));
+            }
+            writeOptional(out, presence, HAS_DNS, metrics.dnsLookupNanos());
+            writeOptional(out, presence, HAS_TCP, metrics.tcpConnectNanos());
+            writeOptional(out, presence, HAS_TLS, metrics.tlsHandshakeNanos());
+            writeOptional(out, presence, HAS_REQUEST_WRITE, metrics.requestWriteNanos());
+            writeOptional(out, presence, HAS_TTFB_NANOS, metrics.timeToFirstByteNanos());
+            writeOptional(out, presence, HAS_DOWNLOAD, metrics.downloadNanos());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Декодирование результата проверки
+     * @param data бинарное представление
+     * @return результат проверки
+     * @throws IllegalArgumentException если данные не являются записью поддерживаемого формата
+     */
+    public static CheckResultMessage decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary check result record");
+        }
+        if (data[1] != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary check result record version: " + (data[1] & 0xFF));
+        }
+        Reader in = new Reader(data, 2);
+        long presence = in.readVarLong();
+
+        String checkId = (presence & HAS_CHECK_ID) != 0 ? in.readString() : null;
+        String resourceUrl = (presence & HAS_RESOURCE_URL) != 0 ? in.readString() : null;
+        LocalDateTime timestamp = (presence & HAS_TIMESTAMP) != 0 ? fromEpochMillis(in.readSignedVarLong()) : null;
+        String status = null;
+        if ((presence & HAS_STATUS) != 0) {
+            int code = in.readByte() & 0xFF;
+            if (code == 0) {
+                status = in.readString();
+            } else {
+                // Неизвестный код — статус, добавленный после этой версии кодека
+                status = code < STATUSES.length ? STATUSES[code] : "UNKNOWN";
+            }
+        }
+        long responseTime = in.readSignedVarLong();
+        Integer httpStatusCode = (presence & HAS_HTTP_STATUS) != 0 ? (int) in.readSignedVarLong() : null;
+        String errorMessage = (presence & HAS_ERROR) != 0 ? in.readString() : null;
+        CheckResultMessage.Metrics metrics = null;
+        if ((presence & HAS_METRICS) != 0) {
+            long connectionTime = in.readSignedVarLong();
+            long timeToFirstByte = in.readSignedVarLong();
+            Boolean sslValid = (presence & HAS_SSL_VALID) != 0 ? in.readByte() != 0 : null;
+            LocalDateTime sslExpirationDate = (presence & HAS_SSL_EXPIRATION) != 0
+                    ? fromEpochMillis(in.readSignedVarLong()) : null;
+            // Аргументы вычисляются слева направо, то есть в порядке полей записи
+            metrics = new CheckResultMessage.Metrics(connectionTime, timeToFirstByte, sslValid, sslExpirationDate,
+                    readOptional(in, presence, HAS_DNS),
+                    readOptional(in, presence, HAS_TCP),
+                    readOptional(in, presence, HAS_TLS),
+                    readOptional(in, presence, HAS_REQUEST_WRITE),
+                    readOptional(in, presence, HAS_TTFB_NANOS),
+                    readOptional(in, presence, HAS_DOWNLOAD));
+        }
+        // Поля, добавленные после этой версии кодека, если они есть, игнорируются
+        return new CheckResultMessage(checkId, resourceUrl, timestamp, status, responseTime, httpStatusCode,
+                errorMessage, metrics);
+    }
+
+    private static void writeOptional(Writer out, int presence, int bit, Long value) {
+        if ((presence & bit) != 0) {
+            out.writeSignedVarLong(value);
+        }
+    }
+
+    private static Long readOptional(Reader in, long presence, int bit) {
+        return (presence & bit) != 0 ? in.readSignedVarLong() : null;
+    }
+
+    private static int statusCode(String status) {
+        for (int i = 1; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Буфер записи с автоматическим расширением
+     */
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (position + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    /**
+     * Последовательное чтение записи
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated binary check result record");
+            }
+            return data[position++];
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary check result record");
+        }
+
+        private long readSignedVarLong() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalArgumentException("Truncated binary check result record");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
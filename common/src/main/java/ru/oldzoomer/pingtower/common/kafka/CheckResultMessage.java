@@ -0,0 +1,39 @@
+package ru.oldzoomer.pingtower.common.kafka;
+
+import java.time.LocalDateTime;
+
+/**
+ * Результат проверки в том виде, в котором он передается через топик pingtower.check.results.
+ * <p>
+ * Общее представление для {@link CheckResultBinaryCodec}: модули pinger и statistics
+ * переводят в него и из него свои DTO результата проверки.
+ *
+ * @param checkId идентификатор проверки
+ * @param resourceUrl URL ресурса
+ * @param timestamp время выполнения проверки (UTC)
+ * @param status статус проверки
+ * @param responseTime время ответа в миллисекундах
+ * @param httpStatusCode HTTP статус код ответа
+ * @param errorMessage сообщение об ошибке
+ * @param metrics метрики проверки
+ */
+public record CheckResultMessage(String checkId, String resourceUrl, LocalDateTime timestamp, String status,
+                                 long responseTime, Integer httpStatusCode, String errorMessage, Metrics metrics) {
+
+    /**
+     * @param connectionTime время установления соединения в миллисекундах
+     * @param timeToFirstByte время до первого байта в миллисекундах
+     * @param sslValid валидность SSL сертификата
+     * @param sslExpirationDate дата истечения SSL сертификата (UTC)
+     * @param dnsLookupNanos время разрешения DNS имени в наносекундах
+     * @param tcpConnectNanos время установления TCP соединения в наносекундах
+     * @param tlsHandshakeNanos время TLS рукопожатия в наносекундах
+     * @param requestWriteNanos время отправки запроса в наносекундах
+     * @param timeToFirstByteNanos время от отправки запроса до первого байта ответа в наносекундах
+     * @param downloadNanos время загрузки тела ответа в наносекундах
+     */
+    public record Metrics(long connectionTime, long timeToFirstByte, Boolean sslValid, LocalDateTime sslExpirationDate,
+                          Long dnsLookupNanos, Long tcpConnectNanos, Long tlsHandshakeNanos, Long requestWriteNanos,
+                          Long timeToFirstByteNanos, Long downloadNanos) {
+    }
+}
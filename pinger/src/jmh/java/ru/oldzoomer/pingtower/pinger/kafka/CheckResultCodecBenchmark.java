@@ -0,0 +1,102 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultBinaryCodec;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultMessage;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сравнение JSON и бинарного формата результатов проверок по скорости кодирования
+ * и декодирования. Размер записи в каждом формате выводится при запуске.
+ * <p>
+ * Запуск: {@code ./gradlew :pinger:jmh}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CheckResultCodecBenchmark {
+    private static final String TOPIC = "pingtower.check.results";
+
+    private CheckResult result;
+    private JsonSerializer<CheckResult> jsonSerializer;
+    private JsonDeserializer<CheckResult> jsonDeserializer;
+    private CheckResultSerializer binarySerializer;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        result = new CheckResult();
+        result.setCheckId("3f2b8c1e-5a4d-4e7f-9b6a-1c2d3e4f5a6b");
+        result.setResourceUrl("https://api.example.com/health");
+        result.setTimestamp(LocalDateTime.now());
+        result.setStatus("UP");
+        result.setResponseTime(153L);
+        result.setHttpStatusCode(200);
+
+        CheckResult.Metrics metrics = new CheckResult.Metrics();
+        metrics.setConnectionTime(41L);
+        metrics.setTimeToFirstByte(118L);
+        metrics.setSslValid(true);
+        metrics.setSslExpirationDate(LocalDateTime.now().plusDays(90));
+        metrics.setDnsLookupNanos(1_250_000L);
+        metrics.setTcpConnectNanos(14_800_000L);
+        metrics.setTlsHandshakeNanos(26_300_000L);
+        metrics.setRequestWriteNanos(180_000L);
+        metrics.setTimeToFirstByteNanos(76_500_000L);
+        metrics.setDownloadNanos(4_900_000L);
+        result.setMetrics(metrics);
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        jsonSerializer = new JsonSerializer<>(objectMapper);
+        jsonSerializer.setAddTypeInfo(false);
+        jsonDeserializer = new JsonDeserializer<>(CheckResult.class, objectMapper, false);
+
+        json = jsonSerializer.serialize(TOPIC, result);
+        binarySerializer = new CheckResultSerializer();
+        binary = binarySerializer.serialize(TOPIC, result);
+        System.out.printf("%nRecord size: json=%d bytes, binary=%d bytes%n", json.length, binary.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jsonSerializer.close();
+        jsonDeserializer.close();
+        binarySerializer.close();
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(TOPIC, result);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binarySerializer.serialize(TOPIC, result);
+    }
+
+    @Benchmark
+    public CheckResult decodeJson() {
+        return jsonDeserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public CheckResultMessage decodeBinary() {
+        return CheckResultBinaryCodec.decode(binary);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение движков планирования при большом количестве зарегистрированных проверок.
+ * <p>
+ * Для колеса дополнительно выводится отставание тиков от расчетного времени (tickLag*):
+ * оно показывает неравномерность запусков, вызванную работой потока колеса под нагрузкой.
+ * <p>
+ * Запуск: {@code ./gradlew :pinger:jmh}
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScheduleEngineBenchmark {
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"10000", "100000", "1000000"})
+    private int registeredChecks;
+
+    @Param({"WHEEL", "EXECUTOR"})
+    private String engineType;
+
+    private ScheduleEngine engine;
+    private ExecutorService dispatcherPool;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcherPool = Executors.newFixedThreadPool(4);
+        TaskDispatcher dispatcher = task -> CompletableFuture.runAsync(task::run, dispatcherPool);
+        engine = "WHEEL".equals(engineType)
+                ? new HashedWheelScheduleEngine(Duration.ofMillis(10), 1024, dispatcher)
+                : new ExecutorScheduleEngine(1, dispatcher);
+        for (int i = 0; i < registeredChecks; i++) {
+            // Распределяем первые запуски по всему часу, чтобы не было всплеска
+            engine.schedule("check-" + i, i % HOUR_MILLIS, HOUR_MILLIS, NOOP);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+        dispatcherPool.shutdownNow();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean scheduleAndCancel(TickLag tickLag) {
+        String id = "bench-" + sequence++;
+        engine.schedule(id, HOUR_MILLIS, HOUR_MILLIS, NOOP);
+        tickLag.sample(engine);
+        return engine.cancel(id);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void reschedule(TickLag tickLag) {
+        String id = "check-" + (sequence++ % registeredChecks);
+        engine.schedule(id, HOUR_MILLIS, HOUR_MILLIS, NOOP);
+        tickLag.sample(engine);
+    }
+
+    /**
+     * Задержка срабатывания: время от постановки задачи с минимальной задержкой до ее запуска
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void fireLatency(TickLag tickLag) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        String id = "latency-" + sequence++;
+        engine.schedule(id, 1, HOUR_MILLIS, latch::countDown);
+        latch.await();
+        tickLag.sample(engine);
+        engine.cancel(id);
+    }
+
+    /**
+     * Отставание последнего тика колеса, снимаемое после каждой операции
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TickLag {
+        public long tickLagSamples;
+        public long tickLagMaxMicros;
+        private long totalNanos;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tickLagSamples = 0;
+            tickLagMaxMicros = 0;
+            totalNanos = 0;
+        }
+
+        public double tickLagMeanMicros() {
+            return tickLagSamples == 0 ? 0 : totalNanos / 1_000.0 / tickLagSamples;
+        }
+
+        void sample(ScheduleEngine engine) {
+            if (engine instanceof HashedWheelScheduleEngine wheel) {
+                long lag = wheel.getLastTickLagNanos();
+                tickLagSamples++;
+                totalNanos += lag;
+                tickLagMaxMicros = Math.max(tickLagMaxMicros, TimeUnit.NANOSECONDS.toMicros(lag));
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.security.Security;
+
 @SpringBootApplication
 @EnableScheduling
 @EnableCaching
@@ -13,6 +15,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class PingerApplication {
 
 	public static void main(String[] args) {
+		// Адреса хранит кэш DnsResolver с учетом TTL записей; кэш InetAddress (30 с) отключается
+		// до первого разрешения имени, иначе он продлевал бы устаревшие адреса
+		Security.setProperty("networkaddress.cache.ttl", "0");
 		SpringApplication.run(PingerApplication.class, args);
 	}
 
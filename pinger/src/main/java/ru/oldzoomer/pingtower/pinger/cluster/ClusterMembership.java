@@ -0,0 +1,140 @@
+package ru.oldzoomer.pingtower.pinger.cluster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.config.ClusterProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Состав кластера pinger и распределение проверок между экземплярами.
+ * <p>
+ * Каждый экземпляр периодически записывает в sorted set Redis время своего последнего сигнала
+ * и читает участников, сигналы которых не старше таймаута. Время берется командой Redis TIME,
+ * поэтому расхождение часов экземпляров не исключает участников раньше таймаута. По составу
+ * строится кольцо согласованного хеширования, и экземпляр выполняет только проверки,
+ * принадлежащие ему на кольце; при изменении состава публикуется {@link MembershipChangedEvent}.
+ * <p>
+ * До первого обновления состава экземпляр не выполняет проверок. Если Redis недоступен, используется
+ * последний известный состав, а если недоступен уже при первом обновлении, экземпляр считает себя
+ * единственным участником: проверка может выполниться дважды, но не пропускается.
+ */
+@Slf4j
+@Component
+public class ClusterMembership {
+    private final StringRedisTemplate redisTemplate;
+    private final ClusterProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String instanceId;
+
+    // null до первого обновления состава
+    private volatile HashRing ring;
+
+    public ClusterMembership(StringRedisTemplate redisTemplate,
+                             ClusterProperties properties,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.instanceId = properties.getInstanceId() != null && !properties.getInstanceId().isBlank()
+                ? properties.getInstanceId()
+                : UUID.randomUUID().toString();
+
+        Gauge.builder("pinger.cluster.members", this, m -> m.ring != null ? m.ring.members().size() : 0)
+                .description("Pinger instances in the cluster as seen by this instance")
+                .register(meterRegistry);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Проверка, выполняет ли проверку этот экземпляр
+     * @param checkId идентификатор проверки
+     * @return true, если распределение выключено или проверка принадлежит этому экземпляру;
+     * false до первого обновления состава кластера; если при первом обновлении Redis недоступен,
+     * экземпляру принадлежат все проверки
+     */
+    public boolean owns(String checkId) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        HashRing current = ring;
+        return current != null && instanceId.equals(current.owner(checkId));
+    }
+
+    /**
+     * Сигнал присутствия и обновление состава кластера
+     */
+    @Scheduled(fixedDelayString = "${pinger.cluster.heartbeat-interval:5s}")
+    public void heartbeat() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Set<String> members;
+        try {
+            long now = redisTime();
+            long expiredBefore = now - properties.getMemberTimeout().toMillis();
+            String key = properties.getMembersKey();
+            redisTemplate.opsForZSet().add(key, instanceId, now);
+            redisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY, expiredBefore);
+            Set<String> alive = redisTemplate.opsForZSet().rangeByScore(key, expiredBefore, Double.POSITIVE_INFINITY);
+            members = alive != null ? new HashSet<>(alive) : new HashSet<>();
+            members.add(instanceId);
+        } catch (Exception e) {
+            log.warn("Failed to refresh pinger cluster membership: {}", e.getMessage());
+            if (ring != null) {
+                return;
+            }
+            members = Set.of(instanceId);
+        }
+        updateRing(members);
+    }
+
+    /**
+     * Выход из кластера при остановке, чтобы проверки перешли к другим экземплярам без ожидания таймаута
+     */
+    @PreDestroy
+    public void leave() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(properties.getMembersKey(), instanceId);
+        } catch (Exception e) {
+            log.warn("Failed to leave pinger cluster: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Время сервера Redis в миллисекундах, общее для всех экземпляров
+     */
+    private long redisTime() {
+        Long time = redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().time());
+        if (time == null) {
+            throw new IllegalStateException("Redis returned no server time");
+        }
+        return time;
+    }
+
+    private void updateRing(Set<String> members) {
+        HashRing current = ring;
+        if (current != null && current.members().equals(members)) {
+            return;
+        }
+        ring = new HashRing(members, properties.getVirtualNodes());
+        log.info("Pinger cluster membership changed: {} instances, this instance: {}", members.size(), instanceId);
+        eventPublisher.publishEvent(new MembershipChangedEvent(Set.copyOf(members)));
+    }
+}
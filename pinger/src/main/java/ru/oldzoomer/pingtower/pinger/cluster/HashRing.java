@@ -0,0 +1,70 @@
+package ru.oldzoomer.pingtower.pinger.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемое кольцо согласованного хеширования.
+ * <p>
+ * Каждый участник занимает на кольце несколько виртуальных узлов; ключ принадлежит участнику
+ * первого узла по часовой стрелке от хеша ключа. При добавлении или удалении участника
+ * владельца меняет только доля ключей, пропорциональная его доле узлов.
+ */
+public final class HashRing {
+    private final Set<String> members;
+    private final NavigableMap<Long, String> nodes = new TreeMap<>();
+
+    /**
+     * @param members участники кольца
+     * @param virtualNodes количество виртуальных узлов на участника
+     */
+    public HashRing(Collection<String> members, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.members = Set.copyOf(members);
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // Совпадение хешей разрешается в пользу меньшего идентификатора, чтобы кольцо не зависело от порядка
+                nodes.merge(hash(member + "#" + i), member, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    /**
+     * @param key ключ, например идентификатор проверки
+     * @return участник, которому принадлежит ключ, или null, если кольцо пусто
+     */
+    public String owner(String key) {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> node = nodes.ceilingEntry(hash(key));
+        return node != null ? node.getValue() : nodes.firstEntry().getValue();
+    }
+
+    public Set<String> members() {
+        return members;
+    }
+
+    /**
+     * 64-битный FNV-1a с финальным перемешиванием MurmurHash3 для равномерного распределения коротких ключей
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
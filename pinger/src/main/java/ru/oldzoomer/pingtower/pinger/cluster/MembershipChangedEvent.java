@@ -0,0 +1,10 @@
+package ru.oldzoomer.pingtower.pinger.cluster;
+
+import java.util.Set;
+
+/**
+ * Событие изменения состава кластера pinger, после которого владельцы части проверок меняются
+ * @param members текущие участники кластера
+ */
+public record MembershipChangedEvent(Set<String> members) {
+}
@@ -0,0 +1,34 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки оповещений о смене статуса проверок
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.alerts")
+public class AlertProperties {
+    /**
+     * Количество неуспешных проверок подряд, после которого ресурс считается недоступным
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * Количество успешных проверок подряд, после которого ресурс считается восстановленным
+     */
+    private int recoveryThreshold = 1;
+
+    /**
+     * Префикс ключей Redis с подтвержденным статусом проверок, по которым восстанавливается
+     * состояние после перезапуска или перехода проверки к другому экземпляру
+     */
+    private String stateKeyPrefix = "pinger:alert-state:";
+
+    /**
+     * Время хранения подтвержденного статуса в Redis после его последней смены
+     */
+    private Duration stateTtl = Duration.ofDays(30);
+}
@@ -0,0 +1,45 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки топика конфигураций проверок pingtower.check.configs
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.kafka.configs")
+public class CheckConfigProperties {
+    /**
+     * Количество партиций топика; используется только при его создании
+     */
+    private int topicPartitions = 6;
+
+    /**
+     * Максимальное время чтения топика при запуске. Если топик не прочитан до конца за это время,
+     * проверки планируются по уже прочитанным конфигурациям, остальные добавляются по мере чтения
+     */
+    private Duration bootstrapTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Максимальное время ожидания новых записей за один опрос
+     */
+    private Duration pollTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Максимальное время отправки записи в топик. За это время запись либо подтверждается брокером,
+     * либо отправка завершается ошибкой и изменение проверки в БД отменяется
+     */
+    private Duration publishTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Начальная пауза перед перезапуском чтения топика после ошибки; удваивается при повторных ошибках
+     */
+    private Duration restartBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Максимальная пауза перед перезапуском чтения топика
+     */
+    private Duration maxRestartBackoff = Duration.ofMinutes(1);
+}
@@ -0,0 +1,44 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки распределения проверок между экземплярами pinger
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.cluster")
+public class ClusterProperties {
+    /**
+     * Распределять проверки между экземплярами; если выключено, экземпляр выполняет все проверки
+     */
+    private boolean enabled = false;
+
+    /**
+     * Идентификатор экземпляра. Должен быть стабильным между перезапусками (например, имя пода),
+     * иначе после перезапуска проверки перераспределяются; если не задан, генерируется случайно
+     */
+    private String instanceId;
+
+    /**
+     * Ключ Redis с участниками кластера (sorted set: идентификатор экземпляра — время последнего сигнала)
+     */
+    private String membersKey = "pinger:members";
+
+    /**
+     * Интервал сигналов присутствия и обновления состава кластера
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(5);
+
+    /**
+     * Время без сигналов, после которого экземпляр исключается из кластера
+     */
+    private Duration memberTimeout = Duration.ofSeconds(20);
+
+    /**
+     * Количество виртуальных узлов экземпляра на кольце хешей
+     */
+    private int virtualNodes = 160;
+}
@@ -0,0 +1,35 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.oldzoomer.pingtower.pinger.dns.TcpDnsClient;
+import ru.oldzoomer.pingtower.pinger.dns.UdpDnsClient;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties(DnsProperties.class)
+public class DnsConfig {
+
+    /**
+     * Общие UDP сокеты для всех DNS запросов: ответы сопоставляются с запросами по сокету и идентификатору
+     */
+    @Bean(destroyMethod = "close")
+    UdpDnsClient udpDnsClient(DnsProperties properties,
+                              @Qualifier("dnsLookupExecutor") ExecutorService dnsLookupExecutor) throws IOException {
+        return new UdpDnsClient(properties.getSockets(), new TcpDnsClient(), dnsLookupExecutor);
+    }
+
+    /**
+     * Потоки для обращений к системному резолверу, который блокирует поток на время запроса,
+     * и для обработки полученных DNS ответов вне потока чтения сокетов
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    ExecutorService dnsLookupExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dns-lookup-", 0).factory());
+    }
+}
@@ -0,0 +1,56 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки разрешения имен
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.dns")
+public class DnsProperties {
+    /**
+     * DNS серверы (IP[:порт]), которым запросы отправляются по UDP. Если список пуст, имена
+     * разрешаются системным резолвером, а проверки DNS без явного сервера в URL невозможны
+     */
+    private List<String> servers = new ArrayList<>();
+
+    /**
+     * Таймаут запроса к одному серверу; после таймаута запрос повторяется к следующему серверу
+     */
+    private Duration queryTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Время хранения адресов, полученных от системного резолвера (TTL записей ему неизвестен)
+     */
+    private Duration systemTtl = Duration.ofSeconds(30);
+
+    /**
+     * Нижняя граница времени хранения адресов, полученных от DNS сервера
+     */
+    private Duration minTtl = Duration.ofSeconds(1);
+
+    /**
+     * Верхняя граница времени хранения адресов, полученных от DNS сервера
+     */
+    private Duration maxTtl = Duration.ofMinutes(5);
+
+    /**
+     * Время хранения отрицательного ответа (имя не существует или не имеет адресов)
+     */
+    private Duration negativeTtl = Duration.ofSeconds(10);
+
+    /**
+     * Максимальное количество имен в кэше; при переполнении вытесняются редко запрашиваемые имена
+     */
+    private int maxEntries = 10_000;
+
+    /**
+     * Количество UDP сокетов, по которым распределяются все DNS запросы
+     */
+    private int sockets = 4;
+}
@@ -0,0 +1,55 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Ограничения проверок одного целевого хоста
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.host-limits")
+public class HostLimitProperties {
+    /**
+     * Включение ограничений. По умолчанию выключено: ограничения рассчитаны на хосты с большим
+     * количеством проверок и должны подбираться под конфигурации проверок
+     */
+    private boolean enabled = false;
+
+    /**
+     * Максимальное количество одновременно выполняемых проверок одного хоста
+     */
+    private int maxConcurrent = 4;
+
+    /**
+     * Скорость запуска проверок одного хоста в секунду (пополнение корзины токенов)
+     */
+    private double ratePerSecond = 5.0;
+
+    /**
+     * Емкость корзины токенов: количество проверок хоста, которые можно запустить подряд без ожидания
+     */
+    private int burst = 10;
+
+    /**
+     * Максимальное количество хостов, для которых хранится состояние ограничений
+     */
+    private long maxHosts = 100_000;
+
+    /**
+     * Время, после которого состояние хоста без проверок удаляется
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Задержка повторной попытки проверки, отложенной из-за ограничения одновременных проверок
+     */
+    private Duration retryDelay = Duration.ofMillis(100);
+
+    /**
+     * Максимальное время ожидания отложенной проверки; дольше ее период проверка не откладывается никогда.
+     * Проверка, не дождавшаяся запуска, получает результат UNKNOWN
+     */
+    private Duration maxDeferral = Duration.ofSeconds(30);
+}
@@ -0,0 +1,36 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties(HttpProbeProperties.class)
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    ExecutorService httpClientExecutor(HttpProbeProperties properties) {
+        return Executors.newFixedThreadPool(properties.getClientThreads(), new CustomizableThreadFactory("http-client-"));
+    }
+
+    /**
+     * Общий HTTP клиент для всех проверок: keep-alive соединения переиспользуются
+     * между проверками одного хоста. По умолчанию используется HTTP/1.1, чтобы http:// проверки
+     * не пытались перейти на h2c; версия HTTP/2 задается в запросах https проверок
+     * (см. {@link HttpProbeProperties#isHttp2()}) и согласуется через ALPN
+     */
+    @Bean
+    HttpClient probeHttpClient(HttpProbeProperties properties, ExecutorService httpClientExecutor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(httpClientExecutor)
+                .build();
+    }
+}
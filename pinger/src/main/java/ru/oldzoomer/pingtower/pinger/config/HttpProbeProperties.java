@@ -0,0 +1,62 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Настройки HTTP проверок
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.http")
+public class HttpProbeProperties {
+    public static final String ENGINE_BLOCKING = "blocking";
+    public static final String ENGINE_ASYNC = "async";
+
+    /**
+     * Движок HTTP проверок по умолчанию: blocking - HttpURLConnection,
+     * async - неблокирующий java.net.http.HttpClient с пулом соединений
+     */
+    private String engine = ENGINE_BLOCKING;
+
+    /**
+     * Движок для отдельных типов проверок (HTTP, HTTPS), переопределяет engine
+     */
+    private Map<String, String> engineOverrides = new HashMap<>();
+
+    /**
+     * Таймаут установления соединения для асинхронного клиента
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Количество потоков асинхронного клиента (обработка ответов, а не ожидание)
+     */
+    private int clientThreads = 4;
+
+    /**
+     * Запрашивать HTTP/2 у https ресурсов асинхронного клиента (согласуется через ALPN,
+     * сервер без поддержки отвечает по HTTP/1.1). Проверки по http:// всегда выполняются
+     * по HTTP/1.1 без попытки перехода на h2c
+     */
+    private boolean http2 = true;
+
+    /**
+     * Получение движка для типа проверки
+     * @param type тип проверки
+     * @return имя движка
+     */
+    public String engineFor(String type) {
+        if (type != null) {
+            String override = engineOverrides.get(type.toUpperCase(Locale.ROOT));
+            if (override != null) {
+                return override;
+            }
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import ru.oldzoomer.pingtower.pinger.kafka.CheckConfigConsumer;
+import ru.oldzoomer.pingtower.pinger.kafka.CheckResultSerializer;
+
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties({ResultPublishingProperties.class, AlertProperties.class, CheckConfigProperties.class})
+public class KafkaConfig {
+
+    /**
+     * Шаблон по умолчанию (JSON) для всех сообщений, кроме результатов проверок
+     */
+    @Bean
+    @Primary
+    KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<Object, Object> kafkaProducerFactory) {
+        return template(kafkaProducerFactory);
+    }
+
+    /**
+     * Шаблон для топика результатов проверок, формат значения задается pinger.kafka.results.format
+     */
+    @Bean
+    KafkaTemplate<String, Object> checkResultKafkaTemplate(ProducerFactory<Object, Object> kafkaProducerFactory,
+                                                           ResultPublishingProperties properties) {
+        if (properties.getFormat() == ResultPublishingProperties.Format.BINARY
+                && kafkaProducerFactory instanceof DefaultKafkaProducerFactory<Object, Object> defaultFactory) {
+            return template(defaultFactory.copyWithConfigurationOverride(
+                    Map.of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, CheckResultSerializer.class)));
+        }
+        return template(kafkaProducerFactory);
+    }
+
+    /**
+     * Шаблон для топика конфигураций: отправка завершается подтверждением или ошибкой не позже
+     * pinger.kafka.configs.publish-timeout, поэтому после ошибки запись уже не попадет в топик
+     * и изменение проверки можно отменить
+     */
+    @Bean
+    KafkaTemplate<String, Object> checkConfigKafkaTemplate(ProducerFactory<Object, Object> kafkaProducerFactory,
+                                                           CheckConfigProperties properties) {
+        if (kafkaProducerFactory instanceof DefaultKafkaProducerFactory<Object, Object> defaultFactory) {
+            int timeout = Math.toIntExact(properties.getPublishTimeout().toMillis());
+            return template(defaultFactory.copyWithConfigurationOverride(Map.of(
+                    // Записи отправляются по одной, ожидание пакета только задерживает ответ
+                    ProducerConfig.LINGER_MS_CONFIG, 0,
+                    ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, timeout,
+                    ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, timeout,
+                    ProducerConfig.MAX_BLOCK_MS_CONFIG, timeout)));
+        }
+        return template(kafkaProducerFactory);
+    }
+
+    /**
+     * Топик конфигураций проверок с компакцией: для каждой проверки хранится последняя конфигурация,
+     * удаление записывается пустым значением. Создается, только если еще не существует
+     */
+    @Bean
+    NewTopic checkConfigsTopic(CheckConfigProperties properties) {
+        return TopicBuilder.name(CheckConfigConsumer.CHECK_CONFIGS_TOPIC)
+                .partitions(properties.getTopicPartitions())
+                .compact()
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static KafkaTemplate<String, Object> template(ProducerFactory<?, ?> producerFactory) {
+        return new KafkaTemplate<>((ProducerFactory<String, Object>) producerFactory);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки публикации результатов проверок в Kafka.
+ * Пакетирование, сжатие, идемпотентность и повторы отправки задаются параметрами продюсера
+ * в spring.kafka.producer.
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.kafka.results")
+public class ResultPublishingProperties {
+    /**
+     * Формат сообщений: JSON - JsonSerializer, BINARY - компактный бинарный формат.
+     * Statistics принимает оба формата, поэтому переключение возможно после его обновления.
+     */
+    private Format format = Format.JSON;
+
+    public enum Format {
+        JSON,
+        BINARY
+    }
+}
@@ -0,0 +1,41 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import ru.oldzoomer.pingtower.pinger.scheduler.CheckDispatcher;
+import ru.oldzoomer.pingtower.pinger.scheduler.ExecutorScheduleEngine;
+import ru.oldzoomer.pingtower.pinger.scheduler.HashedWheelScheduleEngine;
+import ru.oldzoomer.pingtower.pinger.scheduler.ScheduleEngine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties({SchedulerProperties.class, HostLimitProperties.class})
+public class SchedulerConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    CheckDispatcher checkDispatcher(SchedulerProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getExecutionMode() == SchedulerProperties.ExecutionMode.VIRTUAL) {
+            ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("check-vt-", 0).factory());
+            return new CheckDispatcher(executor, properties.getMaxConcurrentChecks(),
+                    properties.getMaxQueuedChecks(), meterRegistry, "virtual");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getWorkerThreads(),
+                new CustomizableThreadFactory("check-worker-"));
+        return new CheckDispatcher(executor, properties.getWorkerThreads(),
+                properties.getMaxQueuedChecks(), meterRegistry, "platform");
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    ScheduleEngine scheduleEngine(SchedulerProperties properties, CheckDispatcher checkDispatcher) {
+        if (properties.getEngine() == SchedulerProperties.Engine.EXECUTOR) {
+            return new ExecutorScheduleEngine(1, checkDispatcher);
+        }
+        return new HashedWheelScheduleEngine(properties.getTickDuration(), properties.getWheelSize(), checkDispatcher);
+    }
+}
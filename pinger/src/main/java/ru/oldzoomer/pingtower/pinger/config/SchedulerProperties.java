@@ -0,0 +1,78 @@
+package ru.oldzoomer.pingtower.pinger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки планировщика проверок
+ */
+@Data
+@ConfigurationProperties(prefix = "pinger.scheduler")
+public class SchedulerProperties {
+    /**
+     * Движок планирования: WHEEL - хешированное колесо таймеров,
+     * EXECUTOR - ScheduledThreadPoolExecutor с отдельной задачей на каждую проверку
+     */
+    private Engine engine = Engine.WHEEL;
+
+    /**
+     * Длительность одного тика колеса
+     */
+    private Duration tickDuration = Duration.ofMillis(10);
+
+    /**
+     * Количество корзин колеса (округляется до степени двойки)
+     */
+    private int wheelSize = 1024;
+
+    /**
+     * Количество потоков, выполняющих проверки
+     */
+    private int workerThreads = 10;
+
+    /**
+     * Режим выполнения проверок: PLATFORM - фиксированный пул из workerThreads потоков,
+     * VIRTUAL - отдельный виртуальный поток на каждую наступившую проверку
+     */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /**
+     * Максимальное количество одновременно выполняемых проверок в режиме VIRTUAL
+     */
+    private int maxConcurrentChecks = 10_000;
+
+    /**
+     * Максимальное количество наступивших проверок, ожидающих выполнения.
+     * При превышении очередной запуск проверки пропускается.
+     */
+    private int maxQueuedChecks = 100_000;
+
+    /**
+     * Интервал периодической сверки проверок, конфигурации которых изменились
+     * (изменения применяются и сразу по событию, сверка повторяет неудавшиеся)
+     */
+    private Duration reconcileInterval = Duration.ofSeconds(60);
+
+    /**
+     * Интервал полной сверки всех проверок, исправляющей расхождения из-за пропущенных событий
+     */
+    private Duration fullReconcileInterval = Duration.ofMinutes(15);
+
+    /**
+     * Верхняя граница сдвига фазы новой проверки. Сдвиг вычисляется по ID проверки и одинаков
+     * на всех экземплярах; разносит проверки, фазы которых совпали; 0 - без сдвига
+     */
+    private Duration maxStartJitter = Duration.ofMillis(500);
+
+    public enum Engine {
+        WHEEL,
+        EXECUTOR
+    }
+
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL
+    }
+}
@@ -0,0 +1,82 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Резолвер JVM, отдающий адреса из кэша {@link DnsResolver}.
+ * <p>
+ * HttpURLConnection и HttpClient разрешают имя сами, а не принимают готовый адрес. Исполнители
+ * проверок разрешают имя через {@link DnsResolver} перед подключением, и последующий поиск внутри
+ * клиента получает тот же адрес из кэша без повторного запроса. Имена, которых нет в кэше
+ * (Kafka, Redis, БД), и обратные запросы передаются встроенному резолверу JVM, поэтому
+ * резолвер сам не выполняет запросов и не может зациклиться.
+ * <p>
+ * Кэш InetAddress перед резолвером отключается при запуске (networkaddress.cache.ttl=0
+ * в {@code PingerApplication}), поэтому адреса устаревают по TTL кэша {@link DnsResolver}.
+ * Провайдер подключается через META-INF/services при первом разрешении имени в JVM.
+ */
+public class CachedInetAddressResolverProvider extends InetAddressResolverProvider {
+    private static volatile DnsResolver installed;
+
+    static void install(DnsResolver resolver) {
+        installed = resolver;
+    }
+
+    static void uninstall(DnsResolver resolver) {
+        if (installed == resolver) {
+            installed = null;
+        }
+    }
+
+    @Override
+    public InetAddressResolver get(Configuration configuration) {
+        InetAddressResolver builtin = configuration.builtinResolver();
+        return new InetAddressResolver() {
+            @Override
+            public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+                DnsResolver resolver = installed;
+                List<InetAddress> addresses = resolver != null ? resolver.cached(host) : null;
+                if (addresses != null) {
+                    List<InetAddress> filtered = filter(addresses, lookupPolicy.characteristics());
+                    if (!filtered.isEmpty()) {
+                        return filtered.stream();
+                    }
+                }
+                return builtin.lookupByName(host, lookupPolicy);
+            }
+
+            @Override
+            public String lookupByAddress(byte[] addr) throws UnknownHostException {
+                return builtin.lookupByAddress(addr);
+            }
+        };
+    }
+
+    @Override
+    public String name() {
+        return "pinger-dns-cache";
+    }
+
+    /**
+     * Отбор и упорядочивание адресов по политике поиска JVM (java.net.preferIPv4Stack и т.д.)
+     */
+    static List<InetAddress> filter(List<InetAddress> addresses, int characteristics) {
+        boolean ipv4 = (characteristics & InetAddressResolver.LookupPolicy.IPV4) != 0;
+        boolean ipv6 = (characteristics & InetAddressResolver.LookupPolicy.IPV6) != 0;
+        List<InetAddress> v4 = ipv4 ? addresses.stream().filter(a -> a.getAddress().length == 4).toList() : List.of();
+        List<InetAddress> v6 = ipv6 ? addresses.stream().filter(a -> a.getAddress().length == 16).toList() : List.of();
+        if ((characteristics & InetAddressResolver.LookupPolicy.IPV6_FIRST) != 0) {
+            return Stream.concat(v6.stream(), v4.stream()).toList();
+        }
+        if ((characteristics & InetAddressResolver.LookupPolicy.IPV4_FIRST) != 0) {
+            return Stream.concat(v4.stream(), v6.stream()).toList();
+        }
+        // Порядок ответа сервера, если предпочтение не задано
+        return addresses.stream().filter(a -> v4.contains(a) || v6.contains(a)).toList();
+    }
+}
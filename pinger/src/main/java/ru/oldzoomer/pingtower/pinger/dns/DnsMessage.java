@@ -0,0 +1,332 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import java.net.IDN;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Кодирование DNS запросов и разбор ответов (RFC 1035).
+ * <p>
+ * Запрос содержит один вопрос класса IN с флагом рекурсии. В ответе разбираются заголовок,
+ * секция вопроса и секция ответа; секции authority и additional пропускаются. Имена в ответе
+ * могут быть сжаты ссылками на предыдущие позиции сообщения.
+ * <p>
+ * Сообщение одинаково для UDP и TCP; по TCP перед ним передается двухбайтовая длина.
+ */
+public final class DnsMessage {
+    public static final int TYPE_A = 1;
+    public static final int TYPE_CNAME = 5;
+    public static final int TYPE_MX = 15;
+    public static final int TYPE_TXT = 16;
+    public static final int TYPE_AAAA = 28;
+
+    public static final int RCODE_NOERROR = 0;
+    public static final int RCODE_SERVFAIL = 2;
+    public static final int RCODE_NXDOMAIN = 3;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int CLASS_IN = 1;
+    private static final int FLAG_RD = 0x0100;
+    private static final int FLAG_TC = 0x0200;
+    private static final int FLAG_QR = 0x8000;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    private DnsMessage() {
+    }
+
+    /**
+     * @param id идентификатор запроса (16 бит)
+     * @param name запрашиваемое имя, завершающая точка необязательна
+     * @param type тип записи
+     * @return запрос в формате RFC 1035
+     * @throws IllegalArgumentException если имя не может быть закодировано
+     */
+    public static byte[] encodeQuery(int id, String name, int type) {
+        byte[] qname = encodeName(name);
+        byte[] message = new byte[HEADER_SIZE + qname.length + 4];
+        putShort(message, 0, id);
+        putShort(message, 2, FLAG_RD);
+        putShort(message, 4, 1);
+        System.arraycopy(qname, 0, message, HEADER_SIZE, qname.length);
+        int offset = HEADER_SIZE + qname.length;
+        putShort(message, offset, type);
+        putShort(message, offset + 2, CLASS_IN);
+        return message;
+    }
+
+    /**
+     * @param type мнемоника типа записи (A, AAAA, CNAME, MX, TXT) без учета регистра
+     * @return код типа записи
+     * @throws IllegalArgumentException если тип не поддерживается
+     */
+    public static int typeOf(String type) {
+        return switch (type.toUpperCase(Locale.ROOT)) {
+            case "A" -> TYPE_A;
+            case "AAAA" -> TYPE_AAAA;
+            case "CNAME" -> TYPE_CNAME;
+            case "MX" -> TYPE_MX;
+            case "TXT" -> TYPE_TXT;
+            default -> throw new IllegalArgumentException("Unsupported DNS record type: " + type);
+        };
+    }
+
+    /**
+     * @param type код типа записи
+     * @return мнемоника типа или TYPEnnn для неизвестных типов (RFC 3597)
+     */
+    public static String typeName(int type) {
+        return switch (type) {
+            case TYPE_A -> "A";
+            case TYPE_AAAA -> "AAAA";
+            case TYPE_CNAME -> "CNAME";
+            case TYPE_MX -> "MX";
+            case TYPE_TXT -> "TXT";
+            default -> "TYPE" + type;
+        };
+    }
+
+    /**
+     * @param rcode код ответа
+     * @return мнемоника кода ответа (RFC 1035, раздел 4.1.1)
+     */
+    public static String rcodeName(int rcode) {
+        return switch (rcode) {
+            case RCODE_NOERROR -> "NOERROR";
+            case 1 -> "FORMERR";
+            case RCODE_SERVFAIL -> "SERVFAIL";
+            case RCODE_NXDOMAIN -> "NXDOMAIN";
+            case 4 -> "NOTIMP";
+            case 5 -> "REFUSED";
+            default -> "RCODE" + rcode;
+        };
+    }
+
+    /**
+     * @param data буфер с сообщением
+     * @param length длина сообщения в буфере
+     * @return разобранный ответ
+     * @throws IllegalArgumentException если данные не являются корректным DNS ответом
+     */
+    public static DnsResponse decode(byte[] data, int length) {
+        Reader in = new Reader(data, length);
+        int id = in.readShort();
+        int flags = in.readShort();
+        if ((flags & FLAG_QR) == 0) {
+            throw new IllegalArgumentException("Not a DNS response");
+        }
+        int questions = in.readShort();
+        int answers = in.readShort();
+        in.readShort(); // authority
+        in.readShort(); // additional
+        if (questions != 1) {
+            throw new IllegalArgumentException("Unexpected number of questions: " + questions);
+        }
+        String question = in.readName();
+        int questionType = in.readShort();
+        in.readShort(); // class
+
+        List<DnsRecord> records = new ArrayList<>(answers);
+        for (int i = 0; i < answers; i++) {
+            String name = in.readName();
+            int type = in.readShort();
+            int recordClass = in.readShort();
+            long ttl = in.readInt() & 0xffffffffL;
+            int rdLength = in.readShort();
+            int rdStart = in.position;
+            in.skip(rdLength);
+            if (recordClass == CLASS_IN) {
+                records.add(new DnsRecord(name, type, ttl, decodeData(in, type, rdStart, rdLength)));
+            }
+        }
+        return new DnsResponse(id, flags & 0x0f, (flags & FLAG_TC) != 0, question, questionType,
+                List.copyOf(records), 0);
+    }
+
+    /**
+     * Сравнение имен без учета регистра и завершающей точки
+     */
+    static boolean sameName(String a, String b) {
+        return trimDot(a).equalsIgnoreCase(trimDot(b));
+    }
+
+    private static String trimDot(String name) {
+        return name.endsWith(".") && name.length() > 1 ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private static String decodeData(Reader in, int type, int offset, int length) {
+        return switch (type) {
+            case TYPE_A, TYPE_AAAA -> {
+                if (length != (type == TYPE_A ? 4 : 16)) {
+                    throw new IllegalArgumentException("Invalid address length: " + length);
+                }
+                byte[] address = new byte[length];
+                System.arraycopy(in.data, offset, address, 0, length);
+                try {
+                    yield InetAddress.getByAddress(address).getHostAddress();
+                } catch (UnknownHostException e) {
+                    throw new IllegalArgumentException("Invalid address", e);
+                }
+            }
+            case TYPE_CNAME -> in.nameAt(offset);
+            case TYPE_MX -> {
+                // Приоритет и имя почтового сервера через пробел, как в файле зоны
+                if (length < 3) {
+                    throw new IllegalArgumentException("Invalid MX record length: " + length);
+                }
+                int preference = ((in.data[offset] & 0xff) << 8) | (in.data[offset + 1] & 0xff);
+                yield preference + " " + in.nameAt(offset + 2);
+            }
+            case TYPE_TXT -> {
+                // Строки записи склеиваются без разделителя (RFC 7208, раздел 3.3)
+                StringBuilder text = new StringBuilder();
+                int current = offset;
+                while (current < offset + length) {
+                    int stringLength = in.data[current] & 0xff;
+                    if (current + 1 + stringLength > offset + length) {
+                        throw new IllegalArgumentException("Invalid TXT record");
+                    }
+                    text.append(new String(in.data, current + 1, stringLength, StandardCharsets.UTF_8));
+                    current += 1 + stringLength;
+                }
+                yield text.toString();
+            }
+            default -> HexFormat.of().formatHex(in.data, offset, offset + length);
+        };
+    }
+
+    private static byte[] encodeName(String name) {
+        String normalized = name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+        if (normalized.isEmpty()) {
+            // Корневое имя кодируется одним нулевым байтом
+            return new byte[]{0};
+        }
+        byte[] ascii = IDN.toASCII(normalized, IDN.ALLOW_UNASSIGNED).getBytes(StandardCharsets.US_ASCII);
+        if (ascii.length + 2 > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("DNS name is too long: " + name);
+        }
+        byte[] encoded = new byte[ascii.length + 2];
+        int out = 0;
+        int labelStart = 0;
+        for (int i = 0; i <= ascii.length; i++) {
+            if (i == ascii.length || ascii[i] == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0) {
+                    throw new IllegalArgumentException("Empty label in DNS name: " + name);
+                }
+                if (labelLength > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("DNS label is too long: " + name);
+                }
+                encoded[out++] = (byte) labelLength;
+                System.arraycopy(ascii, labelStart, encoded, out, labelLength);
+                out += labelLength;
+                labelStart = i + 1;
+            }
+        }
+        encoded[out] = 0;
+        return encoded;
+    }
+
+    private static void putShort(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final int length;
+        private int position;
+
+        private Reader(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        private int readShort() {
+            require(position + 2);
+            int value = ((data[position] & 0xff) << 8) | (data[position + 1] & 0xff);
+            position += 2;
+            return value;
+        }
+
+        private int readInt() {
+            return (readShort() << 16) | readShort();
+        }
+
+        private void skip(int count) {
+            require(position + count);
+            position += count;
+        }
+
+        private String readName() {
+            String name = nameAt(position);
+            position = nameEnd(position);
+            return name;
+        }
+
+        /**
+         * Чтение имени с учетом сжатия. Ссылка может указывать только назад, поэтому цикл ссылок невозможен
+         */
+        private String nameAt(int offset) {
+            StringBuilder name = new StringBuilder();
+            int current = offset;
+            int limit = offset;
+            while (true) {
+                require(current + 1);
+                int labelLength = data[current] & 0xff;
+                if ((labelLength & 0xc0) == 0xc0) {
+                    require(current + 2);
+                    int pointer = ((labelLength & 0x3f) << 8) | (data[current + 1] & 0xff);
+                    if (pointer >= limit) {
+                        throw new IllegalArgumentException("Invalid DNS name compression pointer");
+                    }
+                    current = pointer;
+                    limit = pointer;
+                } else if (labelLength == 0) {
+                    return name.isEmpty() ? "." : name.toString();
+                } else if (labelLength > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("Invalid DNS label length: " + labelLength);
+                } else {
+                    require(current + 1 + labelLength);
+                    if (!name.isEmpty()) {
+                        name.append('.');
+                    }
+                    name.append(new String(data, current + 1, labelLength, StandardCharsets.US_ASCII));
+                    if (name.length() > MAX_NAME_LENGTH) {
+                        throw new IllegalArgumentException("DNS name is too long");
+                    }
+                    current += 1 + labelLength;
+                }
+            }
+        }
+
+        /**
+         * Позиция сразу после имени, записанного с позиции offset (ссылка занимает два байта)
+         */
+        private int nameEnd(int offset) {
+            int current = offset;
+            while (true) {
+                require(current + 1);
+                int labelLength = data[current] & 0xff;
+                if ((labelLength & 0xc0) == 0xc0) {
+                    return current + 2;
+                }
+                if (labelLength == 0) {
+                    return current + 1;
+                }
+                current += 1 + labelLength;
+            }
+        }
+
+        private void require(int end) {
+            if (end > length) {
+                throw new IllegalArgumentException("Truncated DNS message");
+            }
+        }
+    }
+}
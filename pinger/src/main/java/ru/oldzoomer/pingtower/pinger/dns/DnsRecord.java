@@ -0,0 +1,12 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+/**
+ * Запись из секции ответа DNS сообщения
+ * @param name имя, к которому относится запись
+ * @param type тип записи ({@link DnsMessage#TYPE_A} и т.д.)
+ * @param ttl время жизни записи в секундах
+ * @param value значение в текстовом виде: IP адрес для A/AAAA, имя для CNAME, "приоритет имя" для MX,
+ *              склеенные строки для TXT, шестнадцатеричные данные для остальных типов
+ */
+public record DnsRecord(String name, int type, long ttl, String value) {
+}
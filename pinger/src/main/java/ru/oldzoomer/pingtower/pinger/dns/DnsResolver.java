@@ -0,0 +1,428 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.config.DnsProperties;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Общий для всех исполнителей проверок асинхронный резолвер имен с кэшем.
+ * <p>
+ * Если заданы DNS серверы, адреса запрашиваются у них по UDP (записи A и AAAA параллельно)
+ * и хранятся в кэше в течение TTL записей, ограниченного снизу и сверху настройками; иначе имена
+ * разрешаются системным резолвером в отдельных потоках и хранятся фиксированное время. Отсутствие
+ * имени или адресов кэшируется на negativeTtl, временные ошибки (таймаут, SERVFAIL) не кэшируются.
+ * Кэш ограничен maxEntries именами: при переполнении вытесняются редко запрашиваемые имена, каждая
+ * запись устаревает в свой срок. Одновременные запросы одного имени объединяются в один запрос к серверу.
+ * <p>
+ * Имена разрешаются без поисковых доменов системы, поэтому при заданных серверах в проверках
+ * нужны полные имена.
+ */
+@Component
+public class DnsResolver {
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final DnsProperties properties;
+    private final UdpDnsClient udpDnsClient;
+    private final Executor lookupExecutor;
+    private final HostLookup systemLookup;
+    private final LongSupplier nanoTime;
+    private final List<InetSocketAddress> servers;
+
+    private final Cache<String, CacheEntry> cache;
+    private final Map<String, CompletableFuture<List<InetAddress>>> inflight = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter negativeHitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+    private final Timer udpLookupTimer;
+    private final Timer systemLookupTimer;
+
+    @Autowired
+    public DnsResolver(DnsProperties properties,
+                       UdpDnsClient udpDnsClient,
+                       @Qualifier("dnsLookupExecutor") Executor lookupExecutor,
+                       MeterRegistry meterRegistry) {
+        this(properties, udpDnsClient, lookupExecutor, InetAddress::getAllByName, meterRegistry, System::nanoTime);
+    }
+
+    DnsResolver(DnsProperties properties,
+                UdpDnsClient udpDnsClient,
+                Executor lookupExecutor,
+                HostLookup systemLookup,
+                MeterRegistry meterRegistry,
+                LongSupplier nanoTime) {
+        this.properties = properties;
+        this.udpDnsClient = udpDnsClient;
+        this.lookupExecutor = lookupExecutor;
+        this.systemLookup = systemLookup;
+        this.nanoTime = nanoTime;
+        this.servers = properties.getServers().stream().map(UdpDnsClient::parseServer).toList();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfter(new CacheEntryExpiry())
+                .ticker(nanoTime::getAsLong)
+                .build();
+
+        this.hitCounter = cacheCounter(meterRegistry, "hit");
+        this.negativeHitCounter = cacheCounter(meterRegistry, "negative_hit");
+        this.missCounter = cacheCounter(meterRegistry, "miss");
+        this.coalescedCounter = cacheCounter(meterRegistry, "coalesced");
+        this.udpLookupTimer = lookupTimer(meterRegistry, "udp");
+        this.systemLookupTimer = lookupTimer(meterRegistry, "system");
+        Gauge.builder("pinger.dns.cache.size", cache, Cache::estimatedSize)
+                .description("Host names in the DNS cache")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void install() {
+        CachedInetAddressResolverProvider.install(this);
+    }
+
+    @PreDestroy
+    public void uninstall() {
+        CachedInetAddressResolverProvider.uninstall(this);
+    }
+
+    /**
+     * Разрешение имени с использованием кэша
+     * @param host имя хоста или IP литерал
+     * @return будущий список адресов; завершается с {@link UnknownHostException}, если имя не существует
+     */
+    public CompletableFuture<List<InetAddress>> resolve(String host) {
+        if (isIpLiteral(host)) {
+            return literal(host);
+        }
+        String key = normalize(host);
+        CompletableFuture<List<InetAddress>> cached = fromCache(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<List<InetAddress>> created = new CompletableFuture<>();
+        CompletableFuture<List<InetAddress>> existing = inflight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedCounter.increment();
+            // Копия, чтобы таймаут одного вызывающего не завершал общий запрос
+            return existing.copy();
+        }
+        // Запрос, завершившийся между чтением кэша и putIfAbsent, уже сохранил результат
+        cached = fromCache(key);
+        if (cached != null) {
+            inflight.remove(key, created);
+            // Вызывающие, успевшие присоединиться к запросу, получают тот же результат
+            cached.whenComplete((result, error) -> {
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(result);
+                }
+            });
+            return cached;
+        }
+        missCounter.increment();
+        lookup(key).whenComplete((result, error) -> {
+            store(key, result, error);
+            inflight.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(unwrap(error));
+            } else {
+                created.complete(result.addresses());
+            }
+        });
+        return created.copy();
+    }
+
+    private CompletableFuture<List<InetAddress>> fromCache(String key) {
+        CacheEntry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.error() != null) {
+            negativeHitCounter.increment();
+            return CompletableFuture.failedFuture(entry.error());
+        }
+        hitCounter.increment();
+        return CompletableFuture.completedFuture(entry.addresses());
+    }
+
+    /**
+     * Разрешение имени с ожиданием результата, для блокирующих исполнителей
+     * @param host имя хоста или IP литерал
+     * @param timeoutMillis время ожидания; 0 — без ограничения
+     * @return список адресов
+     * @throws UnknownHostException если имя не существует
+     * @throws SocketTimeoutException если имя не разрешено за timeoutMillis
+     * @throws IOException при других ошибках разрешения
+     */
+    public List<InetAddress> resolveBlocking(String host, long timeoutMillis) throws IOException {
+        try {
+            CompletableFuture<List<InetAddress>> addresses = resolve(host);
+            return timeoutMillis > 0 ? addresses.get(timeoutMillis, TimeUnit.MILLISECONDS) : addresses.get();
+        } catch (ExecutionException e) {
+            throw asIOException(host, e.getCause());
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("DNS lookup of " + host + " timed out after " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while resolving " + host, e);
+        }
+    }
+
+    /**
+     * Запрос записей у DNS сервера мимо кэша (для DNS проверок)
+     * @param name запрашиваемое имя
+     * @param type тип записи
+     * @param server DNS сервер или null для серверов из настроек
+     * @return будущий ответ сервера с временем запроса
+     */
+    public CompletableFuture<DnsResponse> query(String name, int type, InetSocketAddress server) {
+        List<InetSocketAddress> targets = server != null ? List.of(server) : servers;
+        if (targets.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No DNS server configured"));
+        }
+        return query(normalize(name), type, targets, 0);
+    }
+
+    /**
+     * Адреса из кэша без обращения к серверам
+     * @param host имя хоста
+     * @return адреса или null, если в кэше нет действительных адресов имени
+     */
+    public List<InetAddress> cached(String host) {
+        CacheEntry entry = cache.getIfPresent(normalize(host));
+        return entry != null && entry.error() == null ? entry.addresses() : null;
+    }
+
+    private CompletableFuture<CacheEntry> lookup(String host) {
+        long start = nanoTime.getAsLong();
+        if (!servers.isEmpty()) {
+            return queryAddresses(host, servers)
+                    .whenComplete((result, error) -> udpLookupTimer.record(nanoTime.getAsLong() - start, TimeUnit.NANOSECONDS));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    List<InetAddress> addresses = List.of(systemLookup.lookup(host));
+                    return positive(addresses, properties.getSystemTtl());
+                } catch (UnknownHostException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    systemLookupTimer.record(nanoTime.getAsLong() - start, TimeUnit.NANOSECONDS);
+                }
+            }, lookupExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<CacheEntry> queryAddresses(String host, List<InetSocketAddress> targets) {
+        CompletableFuture<DnsResponse> a = query(host, DnsMessage.TYPE_A, targets, 0);
+        CompletableFuture<DnsResponse> aaaa = query(host, DnsMessage.TYPE_AAAA, targets, 0);
+        return CompletableFuture.allOf(a, aaaa)
+                .handle((ignored, error) -> combine(host, a, aaaa));
+    }
+
+    /**
+     * Запрос к серверам по очереди: следующий сервер опрашивается, если предыдущий не ответил
+     * или ответил ошибкой, не являющейся окончательным ответом об имени
+     */
+    private CompletableFuture<DnsResponse> query(String host, int type, List<InetSocketAddress> targets, int index) {
+        return udpDnsClient.query(targets.get(index), host, type, properties.getQueryTimeout())
+                .handle((response, error) -> {
+                    boolean answered = error == null && (response.rcode() == DnsMessage.RCODE_NOERROR
+                            || response.rcode() == DnsMessage.RCODE_NXDOMAIN);
+                    if (answered || index + 1 >= targets.size()) {
+                        return error != null
+                                ? CompletableFuture.<DnsResponse>failedFuture(unwrap(error))
+                                : CompletableFuture.completedFuture(response);
+                    }
+                    return query(host, type, targets, index + 1);
+                })
+                .thenCompose(next -> next);
+    }
+
+    private CacheEntry combine(String host, CompletableFuture<DnsResponse> a, CompletableFuture<DnsResponse> aaaa) {
+        List<InetAddress> addresses = new ArrayList<>();
+        long minTtl = Long.MAX_VALUE;
+        boolean definitive = true;
+        Throwable failure = null;
+        for (CompletableFuture<DnsResponse> future : List.of(a, aaaa)) {
+            if (future.isCompletedExceptionally()) {
+                definitive = false;
+                failure = future.handle((response, error) -> unwrap(error)).join();
+                continue;
+            }
+            DnsResponse response = future.join();
+            if (response.rcode() != DnsMessage.RCODE_NOERROR && response.rcode() != DnsMessage.RCODE_NXDOMAIN) {
+                definitive = false;
+                continue;
+            }
+            for (DnsRecord record : response.answers()) {
+                if (record.type() == DnsMessage.TYPE_A || record.type() == DnsMessage.TYPE_AAAA) {
+                    addresses.add(toAddress(host, record.value()));
+                    minTtl = Math.min(minTtl, record.ttl());
+                }
+            }
+        }
+        if (!addresses.isEmpty()) {
+            Duration ttl = Duration.ofSeconds(minTtl);
+            if (ttl.compareTo(properties.getMinTtl()) < 0) {
+                ttl = properties.getMinTtl();
+            } else if (ttl.compareTo(properties.getMaxTtl()) > 0) {
+                ttl = properties.getMaxTtl();
+            }
+            return positive(List.copyOf(addresses), ttl);
+        }
+        if (definitive) {
+            throw new CompletionException(new UnknownHostException(host));
+        }
+        throw new CompletionException(failure != null
+                ? asIOException(host, failure)
+                : new IOException("DNS server failed to resolve " + host));
+    }
+
+    private void store(String key, CacheEntry entry, Throwable error) {
+        if (entry != null) {
+            cache.put(key, entry);
+        } else if (unwrap(error) instanceof UnknownHostException unknownHost) {
+            cache.put(key, new CacheEntry(null, unknownHost,
+                    nanoTime.getAsLong() + properties.getNegativeTtl().toNanos()));
+        }
+    }
+
+    private CacheEntry positive(List<InetAddress> addresses, Duration ttl) {
+        return new CacheEntry(addresses, null, nanoTime.getAsLong() + ttl.toNanos());
+    }
+
+    private static InetAddress toAddress(String host, String literal) {
+        try {
+            // Адрес из литерала без обращения к резолверу, с именем для SNI и логов
+            return InetAddress.getByAddress(host, InetAddress.getByName(literal).getAddress());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid address literal: " + literal, e);
+        }
+    }
+
+    private static CompletableFuture<List<InetAddress>> literal(String host) {
+        try {
+            return CompletableFuture.completedFuture(List.of(InetAddress.getByName(host)));
+        } catch (UnknownHostException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Литерал IPv4 или IPv6 (двоеточие в имени хоста возможно только в IPv6 адресе) не требует разрешения
+     */
+    public static boolean isIpLiteral(String host) {
+        return host.indexOf(':') >= 0 || IPV4_LITERAL.matcher(host).matches();
+    }
+
+    private static String normalize(String host) {
+        String name = host.toLowerCase(Locale.ROOT);
+        return name.endsWith(".") && name.length() > 1 ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static IOException asIOException(String host, Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IOException e) {
+            return e;
+        }
+        if (cause instanceof TimeoutException) {
+            return new SocketTimeoutException("DNS lookup of " + host + " timed out");
+        }
+        return new IOException("Failed to resolve " + host + ": " + cause.getMessage(), cause);
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pinger.dns.cache.requests")
+                .description("Host name resolutions by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("pinger.dns.lookup")
+                .description("Host name lookups that missed the cache")
+                .tag("source", source)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Блокирующее разрешение имени системным резолвером
+     */
+    @FunctionalInterface
+    interface HostLookup {
+        InetAddress[] lookup(String host) throws UnknownHostException;
+    }
+
+    /**
+     * @param addresses адреса имени или null для отрицательной записи
+     * @param error ошибка отрицательной записи
+     * @param expiresAtNanos момент устаревания записи
+     */
+    private record CacheEntry(List<InetAddress> addresses, UnknownHostException error, long expiresAtNanos) {
+    }
+
+    /**
+     * Срок хранения записи по TTL, с которым она создана; чтение срок не продлевает
+     */
+    private static class CacheEntryExpiry implements Expiry<String, CacheEntry> {
+        @Override
+        public long expireAfterCreate(String key, CacheEntry entry, long currentTime) {
+            return Math.max(0, entry.expiresAtNanos() - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CacheEntry entry, long currentTime, long currentDuration) {
+            return Math.max(0, entry.expiresAtNanos() - currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CacheEntry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
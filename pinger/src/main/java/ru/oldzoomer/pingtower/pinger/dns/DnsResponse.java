@@ -0,0 +1,21 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import java.util.List;
+
+/**
+ * Разобранный ответ DNS сервера
+ * @param id идентификатор запроса
+ * @param rcode код ответа ({@link DnsMessage#RCODE_NOERROR}, {@link DnsMessage#RCODE_NXDOMAIN} и т.д.)
+ * @param truncated ответ не поместился в UDP датаграмму и обрезан
+ * @param question имя из секции вопроса
+ * @param questionType тип записи из секции вопроса
+ * @param answers записи секции ответа
+ * @param rttNanos время от отправки запроса до получения ответа; 0 для ответа, разобранного вне клиента
+ */
+public record DnsResponse(int id, int rcode, boolean truncated, String question, int questionType,
+                          List<DnsRecord> answers, long rttNanos) {
+
+    DnsResponse withRtt(long rttNanos) {
+        return new DnsResponse(id, rcode, truncated, question, questionType, answers, rttNanos);
+    }
+}
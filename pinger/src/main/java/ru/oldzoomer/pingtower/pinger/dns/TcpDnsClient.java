@@ -0,0 +1,118 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Неблокирующий DNS клиент поверх TCP (RFC 7766).
+ * <p>
+ * Используется для повторения запроса, ответ на который не поместился в UDP датаграмму.
+ * Каждый запрос открывает отдельное соединение; операции выполняются асинхронно через
+ * {@link AsynchronousSocketChannel}, поток на время ожидания ответа не занимается.
+ */
+public class TcpDnsClient {
+    // Ответ по TCP ограничен двухбайтовой длиной
+    private static final int LENGTH_PREFIX_SIZE = 2;
+
+    /**
+     * Отправка запроса
+     * @param server DNS сервер
+     * @param name запрашиваемое имя
+     * @param type тип записи
+     * @param timeout время ожидания ответа, включая установление соединения
+     * @return будущий ответ со временем от начала соединения до получения ответа
+     */
+    public CompletableFuture<DnsResponse> query(InetSocketAddress server, String name, int type, Duration timeout) {
+        int id = ThreadLocalRandom.current().nextInt(0x10000);
+        byte[] message;
+        AsynchronousSocketChannel channel;
+        try {
+            message = DnsMessage.encodeQuery(id, name, type);
+            channel = AsynchronousSocketChannel.open();
+        } catch (IllegalArgumentException | IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ByteBuffer request = ByteBuffer.allocate(LENGTH_PREFIX_SIZE + message.length);
+        request.putShort((short) message.length).put(message).flip();
+
+        long start = System.nanoTime();
+        CompletableFuture<DnsResponse> response = CompletableFuture.<Void>completedFuture(null)
+                .thenCompose(ignored -> this.<Void>async(handler -> channel.connect(server, null, handler)))
+                .thenCompose(ignored -> writeFully(channel, request))
+                .thenCompose(ignored -> readFully(channel, ByteBuffer.allocate(LENGTH_PREFIX_SIZE)))
+                .thenCompose(length -> readFully(channel, ByteBuffer.allocate(length.getShort(0) & 0xffff)))
+                .thenApply(data -> {
+                    long rtt = System.nanoTime() - start;
+                    DnsResponse decoded = DnsMessage.decode(data.array(), data.limit());
+                    if (decoded.id() != id || decoded.questionType() != type
+                            || !DnsMessage.sameName(decoded.question(), name)) {
+                        throw new IllegalStateException("DNS response does not match the query for " + name);
+                    }
+                    return decoded.withRtt(rtt);
+                });
+        return response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> closeQuietly(channel));
+    }
+
+    private CompletableFuture<Void> writeFully(AsynchronousSocketChannel channel, ByteBuffer buffer) {
+        return this.<Integer>async(handler -> channel.write(buffer, null, handler))
+                .thenCompose(written -> buffer.hasRemaining()
+                        ? writeFully(channel, buffer)
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    private CompletableFuture<ByteBuffer> readFully(AsynchronousSocketChannel channel, ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return CompletableFuture.completedFuture(buffer.flip());
+        }
+        return this.<Integer>async(handler -> channel.read(buffer, null, handler))
+                .thenCompose(read -> {
+                    if (read < 0) {
+                        return CompletableFuture.failedFuture(new EOFException("DNS server closed the connection"));
+                    }
+                    return readFully(channel, buffer);
+                });
+    }
+
+    /**
+     * Асинхронная операция канала в виде {@link CompletableFuture}
+     */
+    private <T> CompletableFuture<T> async(Consumer<CompletionHandler<T, Void>> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            operation.accept(new CompletionHandler<>() {
+                @Override
+                public void completed(T result, Void attachment) {
+                    future.complete(result);
+                }
+
+                @Override
+                public void failed(Throwable error, Void attachment) {
+                    future.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Например, ShutdownChannelGroupException или канал уже закрыт по таймауту
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Соединение уже не используется
+        }
+    }
+}
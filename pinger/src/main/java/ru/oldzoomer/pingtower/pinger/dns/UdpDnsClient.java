@@ -0,0 +1,272 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Неблокирующий DNS клиент поверх нескольких UDP сокетов.
+ * <p>
+ * Запросы к любым серверам распределяются по небольшому набору {@link DatagramChannel}, ответы со всех
+ * сокетов читает один поток по готовности и сопоставляет с ожидающими запросами по сокету и идентификатору.
+ * Несколько сокетов со случайными портами расширяют пространство идентификаторов и затрудняют подмену ответа.
+ * Ответ принимается, только если он пришел с адреса сервера, которому отправлен запрос, и его вопрос
+ * совпадает с запрошенным; остальные датаграммы (опоздавшие после таймаута или подложные) отбрасываются.
+ * <p>
+ * Обрезанный ответ (флаг TC) повторяется по TCP. Ответы передаются вызывающему через callbackExecutor,
+ * чтобы обработка результата не задерживала чтение сокетов.
+ */
+@Slf4j
+public class UdpDnsClient implements Closeable {
+    public static final int DEFAULT_PORT = 53;
+
+    // Без EDNS ответ по UDP не превышает 512 байт, буфер с запасом
+    private static final int RECEIVE_BUFFER_SIZE = 4096;
+    // Номер сокета занимает биты ключа ожидающего запроса над 16-битным идентификатором
+    private static final int MAX_SOCKETS = 256;
+
+    private final DatagramChannel[] channels;
+    private final Selector selector;
+    private final TcpDnsClient tcpDnsClient;
+    private final Executor callbackExecutor;
+    private final Map<Integer, PendingQuery> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param sockets количество UDP сокетов
+     * @param tcpDnsClient клиент для повторения обрезанных ответов или null, чтобы возвращать обрезанный ответ
+     * @param callbackExecutor исполнитель, в котором завершаются запросы
+     */
+    public UdpDnsClient(int sockets, TcpDnsClient tcpDnsClient, Executor callbackExecutor) throws IOException {
+        if (sockets < 1 || sockets > MAX_SOCKETS) {
+            throw new IllegalArgumentException("Number of DNS sockets must be between 1 and " + MAX_SOCKETS);
+        }
+        this.tcpDnsClient = tcpDnsClient;
+        this.callbackExecutor = callbackExecutor;
+        this.channels = new DatagramChannel[sockets];
+        this.selector = Selector.open();
+        try {
+            for (int i = 0; i < sockets; i++) {
+                channels[i] = DatagramChannel.open();
+                channels[i].configureBlocking(false);
+                channels[i].bind(null);
+                channels[i].register(selector, SelectionKey.OP_READ, i);
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+        Thread.ofPlatform().name("dns-udp-reader").daemon().start(this::readLoop);
+    }
+
+    /**
+     * Отправка запроса
+     * @param server DNS сервер
+     * @param name запрашиваемое имя
+     * @param type тип записи
+     * @param timeout время ожидания ответа, включая повторение по TCP
+     * @return будущий ответ; завершается с {@link java.util.concurrent.TimeoutException},
+     * если ответ не получен за timeout
+     */
+    public CompletableFuture<DnsResponse> query(InetSocketAddress server, String name, int type, Duration timeout) {
+        CompletableFuture<DnsResponse> future = new CompletableFuture<>();
+        byte[] message;
+        try {
+            message = DnsMessage.encodeQuery(0, name, type);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (closed) {
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+        }
+
+        // Случайные сокет и идентификатор затрудняют подмену ответа
+        int socket = ThreadLocalRandom.current().nextInt(channels.length);
+        PendingQuery query = new PendingQuery(server, name, type, timeout, future);
+        int key;
+        int id;
+        do {
+            id = ThreadLocalRandom.current().nextInt(0x10000);
+            key = socket << 16 | id;
+        } while (pending.putIfAbsent(key, query) != null);
+        message[0] = (byte) (id >>> 8);
+        message[1] = (byte) id;
+
+        int queryKey = key;
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> pending.remove(queryKey, query));
+        try {
+            query.sentAtNanos = System.nanoTime();
+            if (channels[socket].send(ByteBuffer.wrap(message), server) == 0) {
+                throw new IOException("DNS socket send buffer is full");
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * @return количество запросов, ожидающих ответа
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            closeChannels();
+        } finally {
+            ClosedChannelException error = new ClosedChannelException();
+            pending.values().forEach(query -> query.future.completeExceptionally(error));
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        try {
+            selector.close();
+        } finally {
+            for (DatagramChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+        while (!closed) {
+            try {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    DatagramChannel channel = (DatagramChannel) key.channel();
+                    int socket = (Integer) key.attachment();
+                    SocketAddress source;
+                    while ((source = channel.receive(buffer.clear())) != null) {
+                        dispatch(socket, source, buffer.array(), buffer.position(), System.nanoTime());
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (ClosedSelectorException | ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Error reading DNS responses: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void dispatch(int socket, SocketAddress source, byte[] data, int length, long receivedAtNanos) {
+        if (length < 2) {
+            return;
+        }
+        int key = socket << 16 | ((data[0] & 0xff) << 8) | (data[1] & 0xff);
+        PendingQuery query = pending.get(key);
+        if (query == null || !query.server.equals(source)) {
+            return;
+        }
+        DnsResponse response;
+        try {
+            response = DnsMessage.decode(data, length);
+        } catch (IllegalArgumentException e) {
+            log.debug("Dropping malformed DNS response from {}: {}", source, e.getMessage());
+            return;
+        }
+        if (response.questionType() != query.type || !DnsMessage.sameName(response.question(), query.name)) {
+            log.debug("Dropping DNS response from {} for unexpected question {}", source, response.question());
+            return;
+        }
+        if (!pending.remove(key, query)) {
+            return;
+        }
+        long rtt = receivedAtNanos - query.sentAtNanos;
+        if (response.truncated() && tcpDnsClient != null) {
+            // Время ответа складывается из UDP и TCP обменов
+            tcpDnsClient.query(query.server, query.name, query.type, query.timeout)
+                    .thenApply(tcpResponse -> tcpResponse.withRtt(rtt + tcpResponse.rttNanos()))
+                    .whenComplete((tcpResponse, error) -> {
+                        if (error != null) {
+                            query.future.completeExceptionally(error);
+                        } else {
+                            query.future.complete(tcpResponse);
+                        }
+                    });
+            return;
+        }
+        DnsResponse measured = response.withRtt(rtt);
+        try {
+            callbackExecutor.execute(() -> query.future.complete(measured));
+        } catch (RejectedExecutionException e) {
+            query.future.complete(measured);
+        }
+    }
+
+    /**
+     * Разбор адреса сервера вида IP, IP:порт или [IPv6]:порт
+     * @param server адрес сервера
+     * @return адрес сокета сервера
+     * @throws IllegalArgumentException если адрес не разбирается
+     */
+    public static InetSocketAddress parseServer(String server) {
+        String host = server.trim();
+        int port = DEFAULT_PORT;
+        if (host.startsWith("[")) {
+            int end = host.indexOf(']');
+            if (end < 0) {
+                throw new IllegalArgumentException("Invalid DNS server address: " + server);
+            }
+            if (end + 1 < host.length()) {
+                if (host.charAt(end + 1) != ':') {
+                    throw new IllegalArgumentException("Invalid DNS server address: " + server);
+                }
+                port = Integer.parseInt(host.substring(end + 2));
+            }
+            host = host.substring(1, end);
+        } else if (host.indexOf(':') >= 0 && host.indexOf(':') == host.lastIndexOf(':')) {
+            port = Integer.parseInt(host.substring(host.indexOf(':') + 1));
+            host = host.substring(0, host.indexOf(':'));
+        }
+        return new InetSocketAddress(host, port);
+    }
+
+    private static final class PendingQuery {
+        private final InetSocketAddress server;
+        private final String name;
+        private final int type;
+        private final Duration timeout;
+        private final CompletableFuture<DnsResponse> future;
+        // Записывается до отправки, читается потоком чтения после получения ответа
+        private volatile long sentAtNanos;
+
+        private PendingQuery(InetSocketAddress server, String name, int type, Duration timeout,
+                             CompletableFuture<DnsResponse> future) {
+            this.server = server;
+            this.name = name;
+            this.type = type;
+            this.timeout = timeout;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.oldzoomer.pingtower.pinger.exception;
+
+/**
+ * Конфигурация проверки не опубликована в топик pingtower.check.configs;
+ * изменение проверки в БД при этом отменяется
+ */
+public class CheckConfigPublishException extends RuntimeException {
+    public CheckConfigPublishException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -44,6 +44,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    // Изменение проверки не сохранено, потому что его не удалось опубликовать для экземпляров pinger
+    @ExceptionHandler(CheckConfigPublishException.class)
+    public ResponseEntity<Map<String, String>> handleCheckConfigPublishException(CheckConfigPublishException ex) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Service unavailable");
+        errorResponse.put("message", "The check configuration could not be published, changes were not saved");
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // Обработчик для 404 ошибок
     @ExceptionHandler(NoHandlerFoundException.class)
     public ResponseEntity<Map<String, String>> handleNotFoundException(NoHandlerFoundException ex) {
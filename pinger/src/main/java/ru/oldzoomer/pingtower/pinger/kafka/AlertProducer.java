@@ -0,0 +1,57 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.dto.AlertMessage;
+
+@Slf4j
+@Component
+public class AlertProducer {
+    static final String CHECK_ALERTS_TOPIC = "pingtower.check.alerts";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public AlertProducer(KafkaTemplate<String, Object> kafkaTemplate, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+
+        this.sentCounter = Counter.builder("pinger.kafka.alerts.sent")
+                .description("Alerts acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("pinger.kafka.alerts.failed")
+                .description("Alerts that failed to send")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отправка оповещения о смене статуса проверки в Kafka топик для Notificator модуля.
+     * Ключ сообщения — идентификатор проверки, поэтому оповещения одной проверки приходят по порядку
+     * @param alert оповещение
+     */
+    public void sendAlert(AlertMessage alert) {
+        try {
+            kafkaTemplate.send(CHECK_ALERTS_TOPIC, alert.getCheckId(), alert)
+                    .whenComplete((sendResult, error) -> {
+                        if (error == null) {
+                            sentCounter.increment();
+                            log.debug("Sent alert to Kafka topic: {} for checkId: {}", CHECK_ALERTS_TOPIC, alert.getCheckId());
+                        } else {
+                            handleSendFailure(alert, error);
+                        }
+                    });
+        } catch (Exception e) {
+            handleSendFailure(alert, e);
+        }
+    }
+
+    private void handleSendFailure(AlertMessage alert, Throwable error) {
+        failedCounter.increment();
+        log.error("Failed to send alert to Kafka topic: {} for checkId: {}, status: {}",
+                CHECK_ALERTS_TOPIC, alert.getCheckId(), alert.getStatus(), error);
+    }
+}
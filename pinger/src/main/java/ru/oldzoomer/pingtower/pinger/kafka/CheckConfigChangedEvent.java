@@ -0,0 +1,9 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+/**
+ * Событие изменения конфигурации проверки (создание, изменение или удаление)
+ * @param checkId идентификатор проверки
+ * @param revision номер изменения в журнале {@link SettingsConsumer}
+ */
+public record CheckConfigChangedEvent(String checkId, long revision) {
+}
@@ -0,0 +1,201 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.config.CheckConfigProperties;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.service.CheckManagementService;
+import ru.oldzoomer.pingtower.pinger.service.CheckSchedulerService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Чтение топика конфигураций проверок pingtower.check.configs.
+ * <p>
+ * Каждому экземпляру нужны все конфигурации, поэтому топик читается без группы потребителей:
+ * все партиции назначаются вручную и при каждом запуске читаются с начала. После компакции в топике
+ * остается по одной записи на проверку, так что чтение занимает секунды. Когда прочитаны все записи,
+ * существовавшие на момент запуска, проверки планируются сразу, не дожидаясь периодического
+ * планирования. Если топик пуст, он заполняется конфигурациями из БД.
+ * <p>
+ * Записи, которые не удалось десериализовать или применить, пропускаются. При ошибке самого чтения
+ * (недоступен брокер и т.п.) потребитель пересоздается с нарастающей паузой, топик читается заново.
+ */
+@Slf4j
+@Component
+public class CheckConfigConsumer {
+    public static final String CHECK_CONFIGS_TOPIC = "pingtower.check.configs";
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final SettingsConsumer settingsConsumer;
+    private final CheckSchedulerService checkSchedulerService;
+    private final CheckManagementService checkManagementService;
+    private final CheckConfigProperties properties;
+
+    private volatile Consumer<Object, Object> consumer;
+    // Сбрасывается только при остановке приложения
+    private volatile boolean running = true;
+    private volatile boolean bootstrapped;
+
+    public CheckConfigConsumer(ConsumerFactory<Object, Object> consumerFactory,
+                               SettingsConsumer settingsConsumer,
+                               CheckSchedulerService checkSchedulerService,
+                               CheckManagementService checkManagementService,
+                               CheckConfigProperties properties) {
+        this.consumerFactory = consumerFactory;
+        this.settingsConsumer = settingsConsumer;
+        this.checkSchedulerService = checkSchedulerService;
+        this.checkManagementService = checkManagementService;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofPlatform().name("check-configs-consumer").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Consumer<Object, Object> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    /**
+     * @return true, если конфигурации, существовавшие при запуске, прочитаны и проверки запланированы
+     */
+    public boolean isBootstrapped() {
+        return bootstrapped;
+    }
+
+    void run() {
+        Duration backoff = properties.getRestartBackoff();
+        while (running) {
+            try {
+                consume();
+                return;
+            } catch (WakeupException e) {
+                // Остановка приложения
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Check configuration consumer failed, restarting in {} ms", backoff.toMillis(), e);
+            } finally {
+                consumer = null;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = backoff.multipliedBy(2);
+            if (backoff.compareTo(properties.getMaxRestartBackoff()) > 0) {
+                backoff = properties.getMaxRestartBackoff();
+            }
+        }
+    }
+
+    private void consume() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Ошибка десериализации передается в заголовке записи, а не останавливает чтение
+        overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        overrides.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        try (Consumer<Object, Object> kafkaConsumer = consumerFactory.createConsumer(null, null, "-check-configs", overrides)) {
+            consumer = kafkaConsumer;
+            if (!running) {
+                // stop() вызван до появления потребителя
+                return;
+            }
+            long startTime = System.nanoTime();
+            List<TopicPartition> partitions = kafkaConsumer.partitionsFor(CHECK_CONFIGS_TOPIC).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            kafkaConsumer.assign(partitions);
+            kafkaConsumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = kafkaConsumer.endOffsets(partitions);
+
+            if (endOffsets.values().stream().allMatch(offset -> offset == 0)) {
+                seedFromDatabase();
+            }
+
+            long deadline = startTime + properties.getBootstrapTimeout().toNanos();
+            while (running) {
+                for (ConsumerRecord<Object, Object> record : kafkaConsumer.poll(properties.getPollTimeout())) {
+                    try {
+                        apply(record);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to apply check configuration at {}-{}@{}",
+                                record.topic(), record.partition(), record.offset(), e);
+                    }
+                }
+                if (!bootstrapped && (caughtUp(kafkaConsumer, endOffsets) || System.nanoTime() > deadline)) {
+                    completeBootstrap(startTime);
+                }
+            }
+        }
+    }
+
+    private void seedFromDatabase() {
+        log.info("Topic {} is empty, publishing check configurations from the database", CHECK_CONFIGS_TOPIC);
+        for (CheckConfiguration config : checkManagementService.publishAllChecks()) {
+            settingsConsumer.updateCheckConfiguration(config);
+        }
+    }
+
+    private void apply(ConsumerRecord<Object, Object> record) {
+        if (record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+            // Значение null здесь означает ошибку десериализации, а не удаление проверки
+            log.warn("Skipping undeserializable check configuration at {}-{}@{}",
+                    record.topic(), record.partition(), record.offset());
+            return;
+        }
+        if (!(record.key() instanceof String checkId)) {
+            log.warn("Skipping check configuration without key at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            return;
+        }
+        if (record.value() == null) {
+            settingsConsumer.removeCheckConfiguration(checkId);
+        } else if (record.value() instanceof CheckConfiguration config) {
+            settingsConsumer.updateCheckConfiguration(config);
+        } else {
+            log.warn("Skipping unexpected check configuration value for checkId: {}", checkId);
+        }
+    }
+
+    private static boolean caughtUp(Consumer<Object, Object> kafkaConsumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            if (kafkaConsumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void completeBootstrap(long startTime) {
+        bootstrapped = true;
+        log.info("Loaded {} check configurations in {} ms",
+                settingsConsumer.currentCheckIds().size(), (System.nanoTime() - startTime) / 1_000_000);
+        checkSchedulerService.completeBootstrap();
+    }
+}
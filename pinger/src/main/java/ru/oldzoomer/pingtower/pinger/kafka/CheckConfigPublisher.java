@@ -0,0 +1,76 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+
+import java.util.concurrent.CompletableFuture;
+
+import static ru.oldzoomer.pingtower.pinger.kafka.CheckConfigConsumer.CHECK_CONFIGS_TOPIC;
+
+/**
+ * Публикация конфигураций проверок в топик с компакцией. Ключ записи — идентификатор проверки,
+ * поэтому после компакции в топике остается последняя конфигурация каждой проверки.
+ * Отправка завершается не позже pinger.kafka.configs.publish-timeout
+ */
+@Slf4j
+@Component
+public class CheckConfigPublisher {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final Counter failedCounter;
+
+    public CheckConfigPublisher(@Qualifier("checkConfigKafkaTemplate") KafkaTemplate<String, Object> kafkaTemplate,
+                                MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+
+        this.failedCounter = Counter.builder("pinger.kafka.configs.failed")
+                .description("Check configuration records that failed to send")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Публикация созданной или измененной конфигурации
+     * @param config конфигурация проверки
+     * @return future, завершающийся после подтверждения записи брокером или с ошибкой отправки
+     */
+    public CompletableFuture<Void> publish(CheckConfiguration config) {
+        return send(config.getId(), config);
+    }
+
+    /**
+     * Публикация удаления проверки (tombstone-запись с пустым значением)
+     * @param checkId идентификатор проверки
+     * @return future, завершающийся после подтверждения записи брокером или с ошибкой отправки
+     */
+    public CompletableFuture<Void> publishDeletion(String checkId) {
+        return send(checkId, null);
+    }
+
+    private CompletableFuture<Void> send(String checkId, CheckConfiguration config) {
+        CompletableFuture<Void> sent;
+        try {
+            sent = kafkaTemplate.send(CHECK_CONFIGS_TOPIC, checkId, config).thenApply(sendResult -> null);
+        } catch (Exception e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.whenComplete((ignored, error) -> {
+            if (error == null) {
+                log.debug("Published check configuration {} for checkId: {}",
+                        config != null ? "update" : "deletion", checkId);
+            } else {
+                handleSendFailure(checkId, error);
+            }
+        });
+    }
+
+    private void handleSendFailure(String checkId, Throwable error) {
+        // Изменение проверки в БД отменяется вызывающим кодом
+        failedCounter.increment();
+        log.error("Failed to publish check configuration to Kafka topic: {} for checkId: {}", CHECK_CONFIGS_TOPIC, checkId, error);
+    }
+}
@@ -1,21 +1,59 @@
 package ru.oldzoomer.pingtower.pinger.kafka;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.stereotype.Component;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
 
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class CheckResultProducer {
     private final KafkaTemplate<String, Object> kafkaTemplate;
-    
+
     private static final String CHECK_RESULTS_TOPIC = "pingtower.check.results";
-    
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Timer sendLatencyTimer;
+
+    public CheckResultProducer(@Qualifier("checkResultKafkaTemplate") KafkaTemplate<String, Object> kafkaTemplate,
+                               MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+
+        this.sentCounter = Counter.builder("pinger.kafka.results.sent")
+                .description("Check results acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("pinger.kafka.results.failed")
+                .description("Check results dropped after all send attempts")
+                .register(meterRegistry);
+        this.sendLatencyTimer = Timer.builder("pinger.kafka.results.send.latency")
+                .description("Time from send call to broker acknowledgement")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("pinger.kafka.results.batch.fill.ratio", this, CheckResultProducer::batchFillRatio)
+                .description("Average producer batch size relative to batch.size")
+                .register(meterRegistry);
+    }
+
     /**
-     * Отправка результата проверки в Kafka топик для Statistics модуля
+     * Отправка результата проверки в Kafka топик для Statistics модуля.
+     * Результат отправки обрабатывается асинхронно. Временные ошибки повторяет сам идемпотентный
+     * продюсер в пределах delivery.timeout.ms без дублей и с сохранением порядка по проверке;
+     * ошибка отправки после этого окончательна и только учитывается и логируется.
+     * Повторная отправка новой записью могла бы продублировать уже записанный результат
+     * и поставить его после более новых.
      * @param checkResult результат проверки
      */
     public void sendCheckResult(CheckResult checkResult) {
@@ -23,12 +61,53 @@ public class CheckResultProducer {
             log.warn("Attempted to send null check result to Kafka");
             return;
         }
-        
+
+        long startTime = System.nanoTime();
+        try {
+            kafkaTemplate.send(CHECK_RESULTS_TOPIC, checkResult.getCheckId(), checkResult)
+                    .whenComplete((sendResult, error) -> {
+                        if (error == null) {
+                            sendLatencyTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                            sentCounter.increment();
+                            log.debug("Sent check result to Kafka topic: {} for checkId: {}", CHECK_RESULTS_TOPIC, checkResult.getCheckId());
+                        } else {
+                            handleSendFailure(checkResult, error);
+                        }
+                    });
+        } catch (Exception e) {
+            handleSendFailure(checkResult, e);
+        }
+    }
+
+    private void handleSendFailure(CheckResult checkResult, Throwable error) {
+        failedCounter.increment();
+        log.error("Failed to send check result to Kafka topic: {} for checkId: {}", CHECK_RESULTS_TOPIC, checkResult.getCheckId(), error);
+    }
+
+    /**
+     * Отношение среднего размера пакета продюсера к настроенному batch.size
+     */
+    private double batchFillRatio() {
         try {
-            kafkaTemplate.send(CHECK_RESULTS_TOPIC, checkResult.getCheckId(), checkResult);
-            log.info("Sent check result to Kafka topic: {} for checkId: {}", CHECK_RESULTS_TOPIC, checkResult.getCheckId());
+            ProducerFactory<String, Object> producerFactory = kafkaTemplate.getProducerFactory();
+            if (producerFactory == null) {
+                return Double.NaN;
+            }
+            Object batchSize = producerFactory.getConfigurationProperties().get(ProducerConfig.BATCH_SIZE_CONFIG);
+            if (batchSize == null) {
+                return Double.NaN;
+            }
+            double configured = Double.parseDouble(batchSize.toString());
+            for (Map.Entry<MetricName, ? extends Metric> entry : kafkaTemplate.metrics().entrySet()) {
+                MetricName name = entry.getKey();
+                if ("batch-size-avg".equals(name.name()) && "producer-metrics".equals(name.group())) {
+                    Object value = entry.getValue().metricValue();
+                    return value instanceof Number number && configured > 0 ? number.doubleValue() / configured : Double.NaN;
+                }
+            }
         } catch (Exception e) {
-            log.error("Failed to send check result to Kafka topic: {} for checkId: {}", CHECK_RESULTS_TOPIC, checkResult.getCheckId(), e);
+            log.debug("Failed to read producer batch metrics: {}", e.getMessage());
         }
+        return Double.NaN;
     }
-}
\ No newline at end of file
+}
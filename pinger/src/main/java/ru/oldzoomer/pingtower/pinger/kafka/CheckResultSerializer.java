@@ -0,0 +1,32 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import org.apache.kafka.common.serialization.Serializer;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultBinaryCodec;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultMessage;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+/**
+ * Kafka сериализатор результатов проверок в бинарный формат {@link CheckResultBinaryCodec}
+ */
+public class CheckResultSerializer implements Serializer<CheckResult> {
+
+    @Override
+    public byte[] serialize(String topic, CheckResult data) {
+        return data != null ? CheckResultBinaryCodec.encode(toMessage(data)) : null;
+    }
+
+    /**
+     * Перевод результата проверки в представление кодека
+     * @param result результат проверки
+     * @return представление для {@link CheckResultBinaryCodec}
+     */
+    static CheckResultMessage toMessage(CheckResult result) {
+        CheckResult.Metrics metrics = result.getMetrics();
+        return new CheckResultMessage(result.getCheckId(), result.getResourceUrl(), result.getTimestamp(),
+                result.getStatus(), result.getResponseTime(), result.getHttpStatusCode(), result.getErrorMessage(),
+                metrics == null ? null : new CheckResultMessage.Metrics(metrics.getConnectionTime(),
+                        metrics.getTimeToFirstByte(), metrics.getSslValid(), metrics.getSslExpirationDate(),
+                        metrics.getDnsLookupNanos(), metrics.getTcpConnectNanos(), metrics.getTlsHandshakeNanos(),
+                        metrics.getRequestWriteNanos(), metrics.getTimeToFirstByteNanos(), metrics.getDownloadNanos()));
+    }
+}
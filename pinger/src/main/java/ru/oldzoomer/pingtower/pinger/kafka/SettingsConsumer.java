@@ -1,23 +1,37 @@
 package ru.oldzoomer.pingtower.pinger.kafka;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SettingsConsumer {
+    private final ApplicationEventPublisher eventPublisher;
+
     // Временное хранилище конфигураций проверок
     private final Map<String, CheckConfiguration> checkConfigurations = new ConcurrentHashMap<>();
 
+    // Журнал изменений: номер изменения -> идентификатор проверки; хранится до обработки планировщиком
+    private final AtomicLong revision = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, String> changeLog = new ConcurrentSkipListMap<>();
+
     /**
      * Слушатель Kafka для получения обновлений настроек проверок от Settings Manager
      * @param settingsUpdate обновление настроек
@@ -67,7 +81,9 @@ public class SettingsConsumer {
                             // Для DELETE action достаточно только ID
                             String checkId = (String) configMap.get("id");
                             if (checkId != null) {
-                                checkConfigurations.remove(checkId);
+                                if (checkConfigurations.remove(checkId) != null) {
+                                    recordChange(checkId);
+                                }
                                 log.info("Removed check configuration: {}", checkId);
                             } else {
                                 log.warn("DELETE action requires 'id' field in value");
@@ -85,7 +101,9 @@ public class SettingsConsumer {
                             config.setValidateSsl((Boolean) configMap.get("validateSsl"));
                             
                             // Обновляем хранилище конфигураций
-                            checkConfigurations.put(config.getId(), config);
+                            if (!config.equals(checkConfigurations.put(config.getId(), config))) {
+                                recordChange(config.getId());
+                            }
                             log.info("Added/Updated check configuration: {}", config.getId());
                         }
                     }
@@ -123,20 +141,75 @@ public class SettingsConsumer {
     }
     
     /**
-     * Обновление конфигурации проверки
+     * Обновление конфигурации проверки. Сбрасывается весь кеш, так как в нем хранится и полная карта конфигураций
      * @param config конфигурация проверки
      */
-    @CacheEvict(value = "check-configurations", key = "#config.getId()")
+    @CacheEvict(value = "check-configurations", allEntries = true)
     public void updateCheckConfiguration(CheckConfiguration config) {
-        checkConfigurations.put(config.getId(), config);
+        if (!config.equals(checkConfigurations.put(config.getId(), config))) {
+            recordChange(config.getId());
+        }
     }
     
     /**
      * Удаление конфигурации проверки
      * @param checkId ID проверки
      */
-    @CacheEvict(value = "check-configurations", key = "#checkId")
+    @CacheEvict(value = "check-configurations", allEntries = true)
     public void removeCheckConfiguration(String checkId) {
-        checkConfigurations.remove(checkId);
+        if (checkConfigurations.remove(checkId) != null) {
+            recordChange(checkId);
+        }
+    }
+
+    /**
+     * Текущая конфигурация проверки без обращения к кешу
+     * @param checkId ID проверки
+     * @return конфигурация проверки или null, если проверка удалена
+     */
+    public CheckConfiguration currentConfiguration(String checkId) {
+        return checkConfigurations.get(checkId);
+    }
+
+    /**
+     * Идентификаторы всех проверок без обращения к кешу
+     * @return снимок идентификаторов
+     */
+    public Set<String> currentCheckIds() {
+        return Set.copyOf(checkConfigurations.keySet());
+    }
+
+    /**
+     * @return номер последнего изменения конфигураций
+     */
+    public long getRevision() {
+        return revision.get();
+    }
+
+    /**
+     * Проверки, конфигурации которых изменились после указанного изменения
+     * @param afterRevision номер последнего учтенного изменения
+     * @return идентификаторы проверок в порядке изменений, без повторов
+     */
+    public Set<String> changedSince(long afterRevision) {
+        return new LinkedHashSet<>(changeLog.tailMap(afterRevision, false).values());
+    }
+
+    /**
+     * Удаление из журнала учтенных изменений
+     * @param upToRevision номер последнего учтенного изменения
+     */
+    public void discardChanges(long upToRevision) {
+        changeLog.headMap(upToRevision, true).clear();
+    }
+
+    private void recordChange(String checkId) {
+        long current;
+        // Номер и запись в журнал под одной блокировкой, чтобы журнал не содержал пропусков перед номером
+        synchronized (changeLog) {
+            current = revision.incrementAndGet();
+            changeLog.put(current, checkId);
+        }
+        eventPublisher.publishEvent(new CheckConfigChangedEvent(checkId, current));
     }
 }
\ No newline at end of file
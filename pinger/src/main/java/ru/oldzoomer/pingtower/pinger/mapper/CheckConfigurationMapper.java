@@ -3,6 +3,7 @@ package ru.oldzoomer.pingtower.pinger.mapper;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfigurationDTO;
 import ru.oldzoomer.pingtower.pinger.entity.CheckConfigurationEntity;
 
@@ -32,4 +33,14 @@ public interface CheckConfigurationMapper {
     @Mapping(target = "createdAt", source = "createdAt")
     @Mapping(target = "updatedAt", source = "updatedAt")
     CheckConfigurationEntity toEntity(CheckConfigurationDTO dto);
+    
+    @Mapping(target = "id", source = "id")
+    @Mapping(target = "type", source = "type")
+    @Mapping(target = "resourceUrl", source = "resourceUrl")
+    @Mapping(target = "frequency", source = "frequency")
+    @Mapping(target = "timeout", source = "timeout")
+    @Mapping(target = "expectedStatusCode", source = "expectedStatusCode")
+    @Mapping(target = "expectedResponseTime", source = "expectedResponseTime")
+    @Mapping(target = "validateSsl", source = "validateSsl")
+    CheckConfiguration toConfiguration(CheckConfigurationEntity entity);
 }
\ No newline at end of file
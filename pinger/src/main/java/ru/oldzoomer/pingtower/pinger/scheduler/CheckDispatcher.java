@@ -0,0 +1,184 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнитель наступивших проверок.
+ * <p>
+ * Проверки запускаются на переданном пуле (платформенные или виртуальные потоки),
+ * а количество одновременно выполняемых проверок ограничивается семафором. Разрешение
+ * освобождается по завершении стадии проверки, а не по возврату из нее, поэтому ограничение
+ * действует и на асинхронные проверки. Проверки, ожидающие разрешения семафора, считаются
+ * стоящими в очереди; при переполнении очереди новые запуски отклоняются.
+ */
+@Slf4j
+public class CheckDispatcher implements Executor, TaskDispatcher {
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxQueued;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<PendingCheck> waiting = new ConcurrentLinkedQueue<>();
+
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+    private final StartRateRecorder startRateRecorder;
+
+    /**
+     * @param delegate пул, на котором выполняются проверки
+     * @param maxConcurrent максимальное количество одновременно выполняемых проверок
+     * @param maxQueued максимальное количество проверок, ожидающих выполнения
+     * @param meterRegistry реестр метрик
+     * @param mode режим выполнения (используется как тег метрик)
+     */
+    public CheckDispatcher(ExecutorService delegate, int maxConcurrent, int maxQueued,
+                           MeterRegistry meterRegistry, String mode) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Max concurrent checks must be positive: " + maxConcurrent);
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxQueued = maxQueued;
+
+        Gauge.builder("pinger.checks.in_flight", inFlight, AtomicInteger::get)
+                .description("Number of checks currently executing")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        Gauge.builder("pinger.checks.queued", queued, AtomicInteger::get)
+                .description("Number of due checks waiting for an execution permit")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("pinger.checks.queue.wait")
+                .description("Time between a check becoming due and its execution start")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("pinger.checks.rejected")
+                .description("Checks dropped because the dispatch queue was full")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.startRateRecorder = new StartRateRecorder(meterRegistry, mode, System::currentTimeMillis);
+    }
+
+    /**
+     * Выполнение продолжения уже запущенной проверки (например, повторной попытки после ожидания
+     * ограничений хоста) на пуле проверок. Продолжение не занимает отдельного разрешения:
+     * разрешение удерживает сама проверка до завершения своей стадии.
+     */
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(task);
+    }
+
+    /**
+     * Запуск проверки. Разрешение удерживается до завершения возвращенной задачей стадии,
+     * поэтому асинхронные проверки учитываются в ограничении и в in_flight до получения результата.
+     * Ожидание разрешения не занимает поток пула: проверка ставится в очередь и запускается
+     * при освобождении разрешения.
+     */
+    @Override
+    public CompletionStage<?> dispatch(ScheduledTask task) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejectedCounter.increment();
+            throw new RejectedExecutionException("Check dispatch queue is full (" + maxQueued + ")");
+        }
+        PendingCheck check = new PendingCheck(task, System.nanoTime(), new CompletableFuture<>());
+        waiting.add(check);
+        startWaiting();
+        return check.completion();
+    }
+
+    /**
+     * Запуск ожидающих проверок, пока есть свободные разрешения
+     */
+    private void startWaiting() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            PendingCheck check = waiting.poll();
+            if (check == null) {
+                // Очередь опустошена другим потоком; условие цикла перепроверяется после возврата разрешения
+                permits.release();
+                continue;
+            }
+            try {
+                delegate.execute(() -> run(check));
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                rejectedCounter.increment();
+                permits.release();
+                check.completion().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void run(PendingCheck check) {
+        queued.decrementAndGet();
+        queueWaitTimer.record(System.nanoTime() - check.enqueuedAt(), TimeUnit.NANOSECONDS);
+        startRateRecorder.record();
+        inFlight.incrementAndGet();
+        CompletionStage<?> stage;
+        try {
+            stage = check.task().run();
+        } catch (Exception e) {
+            log.error("Unhandled error in dispatched check: {}", e.getMessage());
+            stage = CompletableFuture.failedFuture(e);
+        }
+        stage.whenComplete((result, error) -> {
+            inFlight.decrementAndGet();
+            permits.release();
+            startWaiting();
+            if (error != null) {
+                check.completion().completeExceptionally(error);
+            } else {
+                check.completion().complete(result);
+            }
+        });
+    }
+
+    /**
+     * @return количество выполняемых в данный момент проверок
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return количество проверок, ожидающих выполнения
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public void shutdown() {
+        delegate.shutdownNow();
+        PendingCheck check;
+        while ((check = waiting.poll()) != null) {
+            queued.decrementAndGet();
+            check.completion().completeExceptionally(new RejectedExecutionException("Check dispatcher is shut down"));
+        }
+    }
+
+    /**
+     * @param task проверка
+     * @param enqueuedAt момент постановки в очередь по System.nanoTime()
+     * @param completion стадия, возвращенная вызывающему
+     */
+    private record PendingCheck(ScheduledTask task, long enqueuedAt, CompletableFuture<Object> completion) {
+    }
+}
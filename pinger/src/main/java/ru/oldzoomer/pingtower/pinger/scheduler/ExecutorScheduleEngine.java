@@ -0,0 +1,105 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Движок планирования на основе {@link ScheduledThreadPoolExecutor}.
+ * <p>
+ * Каждая задача получает собственный {@link ScheduledFuture} в куче планировщика,
+ * а при наступлении передается исполнителю проверок. Оставлен для небольших инсталляций
+ * и для сравнения с {@link HashedWheelScheduleEngine}. Запуск, наступивший до завершения
+ * предыдущего запуска той же задачи, пропускается.
+ */
+@Slf4j
+public class ExecutorScheduleEngine implements ScheduleEngine {
+    private final ScheduledThreadPoolExecutor executor;
+    private final TaskDispatcher dispatcher;
+    private final Map<String, Scheduled> scheduledTasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param poolSize количество потоков планировщика
+     * @param dispatcher исполнитель, на котором запускаются наступившие задачи
+     */
+    public ExecutorScheduleEngine(int poolSize, TaskDispatcher dispatcher) {
+        this.executor = new ScheduledThreadPoolExecutor(poolSize);
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void schedule(String id, long initialDelayMillis, long periodMillis, ScheduledTask task) {
+        // Признак выполняющегося запуска переходит к заменяющей задаче
+        Scheduled current = scheduledTasks.get(id);
+        AtomicBoolean inProgress = current != null ? current.inProgress() : new AtomicBoolean();
+        Runnable dispatch = () -> dispatch(id, task, inProgress);
+        ScheduledFuture<?> future = executor.scheduleAtFixedRate(dispatch, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS);
+        Scheduled previous = scheduledTasks.put(id, new Scheduled(future, inProgress));
+        if (previous != null) {
+            previous.future().cancel(false);
+        }
+    }
+
+    private void dispatch(String id, ScheduledTask task, AtomicBoolean inProgress) {
+        if (!inProgress.compareAndSet(false, true)) {
+            log.debug("Skipping run of scheduled task {}: previous run is still in progress", id);
+            return;
+        }
+        // Исключение из периодической задачи отменило бы все последующие запуски
+        try {
+            dispatcher.dispatch(task).whenComplete((result, error) -> inProgress.set(false));
+        } catch (RejectedExecutionException e) {
+            inProgress.set(false);
+            log.warn("Dispatcher rejected scheduled task {}: {}", id, e.getMessage());
+        } catch (Exception e) {
+            inProgress.set(false);
+            log.error("Failed to dispatch scheduled task {}", id, e);
+        }
+    }
+
+    @Override
+    public boolean cancel(String id) {
+        Scheduled scheduled = scheduledTasks.remove(id);
+        if (scheduled == null) {
+            return false;
+        }
+        scheduled.future().cancel(false);
+        return true;
+    }
+
+    @Override
+    public boolean isScheduled(String id) {
+        return scheduledTasks.containsKey(id);
+    }
+
+    @Override
+    public Set<String> scheduledIds() {
+        return Set.copyOf(scheduledTasks.keySet());
+    }
+
+    @Override
+    public int size() {
+        return scheduledTasks.size();
+    }
+
+    @Override
+    public void shutdown() {
+        scheduledTasks.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param future запланированные запуски
+     * @param inProgress признак выполняющегося запуска
+     */
+    private record Scheduled(ScheduledFuture<?> future, AtomicBoolean inProgress) {
+    }
+}
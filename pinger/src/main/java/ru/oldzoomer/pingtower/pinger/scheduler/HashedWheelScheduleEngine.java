@@ -0,0 +1,365 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Движок планирования на основе хешированного колеса таймеров.
+ * <p>
+ * Колесо состоит из {@code wheelSize} корзин, каждая из которых соответствует одному тику.
+ * Задачи добавляются и отменяются через неблокирующие очереди за O(1),
+ * а единственный поток колеса раз в тик переносит их в корзины и передает наступившие
+ * задачи исполнителю. Поток колеса никогда не выполняет сами проверки.
+ * <p>
+ * Следующий запуск размещается в колесе в момент срабатывания, а не по окончании выполнения,
+ * поэтому у каждой задачи есть признак выполняющегося запуска: пока он установлен, наступившие
+ * запуски пропускаются, и проверка, выполняющаяся дольше своего периода, не накладывается сама на себя.
+ * Признак переходит к задаче, заменяющей прежнюю с тем же идентификатором.
+ */
+@Slf4j
+public class HashedWheelScheduleEngine implements ScheduleEngine {
+    // Максимальное количество новых задач, переносимых в колесо за один тик
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final TaskDispatcher dispatcher;
+
+    private final Map<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Thread workerThread;
+    private final long startTime;
+    private volatile boolean running = true;
+    private volatile long lastTickLagNanos;
+    private final LongAdder skippedRuns = new LongAdder();
+
+    // Номер текущего тика, изменяется только потоком колеса
+    private long tick;
+
+    /**
+     * @param tickDuration длительность одного тика
+     * @param wheelSize количество корзин колеса (округляется до степени двойки)
+     * @param dispatcher исполнитель, на котором запускаются наступившие задачи
+     */
+    public HashedWheelScheduleEngine(Duration tickDuration, int wheelSize, TaskDispatcher dispatcher) {
+        if (tickDuration.isZero() || tickDuration.isNegative()) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be in range (0, 2^30]: " + wheelSize);
+        }
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = createWheel(wheelSize);
+        this.mask = wheel.length - 1;
+        this.dispatcher = dispatcher;
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(this::runWorker, "check-scheduler-wheel");
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    @Override
+    public void schedule(String id, long initialDelayMillis, long periodMillis, ScheduledTask task) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+        }
+        if (!running) {
+            throw new RejectedExecutionException("Schedule engine is shut down");
+        }
+        long deadline = System.nanoTime() - startTime + Math.max(0, initialDelayMillis) * 1_000_000L;
+        Timeout timeout = timeouts.compute(id, (key, previous) -> {
+            if (previous == null) {
+                return new Timeout(id, task, periodMillis * 1_000_000L, deadline, new AtomicBoolean());
+            }
+            previous.cancel();
+            return new Timeout(id, task, periodMillis * 1_000_000L, deadline, previous.inProgress);
+        });
+        pendingTimeouts.add(timeout);
+    }
+
+    @Override
+    public boolean cancel(String id) {
+        Timeout timeout = timeouts.remove(id);
+        if (timeout == null) {
+            return false;
+        }
+        timeout.cancel();
+        return true;
+    }
+
+    @Override
+    public boolean isScheduled(String id) {
+        return timeouts.containsKey(id);
+    }
+
+    @Override
+    public Set<String> scheduledIds() {
+        return Set.copyOf(timeouts.keySet());
+    }
+
+    @Override
+    public int size() {
+        return timeouts.size();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        workerThread.interrupt();
+        try {
+            workerThread.join(tickNanos / 1_000_000L + 1_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timeouts.clear();
+        pendingTimeouts.clear();
+        cancelledTimeouts.clear();
+    }
+
+    /**
+     * @return отставание последнего тика от расчетного времени в наносекундах
+     */
+    public long getLastTickLagNanos() {
+        return lastTickLagNanos;
+    }
+
+    /**
+     * @return количество запусков, пропущенных из-за незавершенного предыдущего запуска той же задачи
+     */
+    public long getSkippedRuns() {
+        return skippedRuns.sum();
+    }
+
+    private void runWorker() {
+        List<Timeout> fired = new ArrayList<>();
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+            Bucket bucket = wheel[(int) (tick & mask)];
+            processCancelledTimeouts();
+            transferPendingTimeouts();
+            bucket.expireTimeouts(deadline, fired);
+            tick++;
+            rescheduleFired(fired, deadline);
+        }
+        log.debug("Hashed wheel worker stopped at tick {}", tick);
+    }
+
+    /**
+     * Ожидание начала следующего тика
+     * @return текущее время относительно старта колеса или -1 при остановке
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        for (;;) {
+            long currentTime = System.nanoTime() - startTime;
+            long sleepNanos = deadline - currentTime;
+            if (sleepNanos <= 0) {
+                lastTickLagNanos = -sleepNanos;
+                return currentTime;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (!running) {
+                return -1;
+            }
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (!timeout.isCancelled()) {
+                place(timeout, tick);
+            }
+        }
+    }
+
+    /**
+     * Повторное размещение периодических задач после срабатывания.
+     * Пропущенные из-за перегрузки периоды не выполняются пачкой, а пропускаются.
+     */
+    private void rescheduleFired(List<Timeout> fired, long currentTime) {
+        for (Timeout timeout : fired) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            timeout.deadline += timeout.periodNanos;
+            if (timeout.deadline <= currentTime) {
+                long missed = (currentTime - timeout.deadline) / timeout.periodNanos + 1;
+                timeout.deadline += missed * timeout.periodNanos;
+            }
+            place(timeout, tick);
+        }
+        fired.clear();
+    }
+
+    /**
+     * Размещение задачи в корзине колеса
+     * @param timeout задача
+     * @param baseTick ближайший еще не обработанный тик
+     */
+    private void place(Timeout timeout, long baseTick) {
+        long calculated = timeout.deadline / tickNanos;
+        long ticks = Math.max(calculated, baseTick);
+        timeout.remainingRounds = (ticks - baseTick) / wheel.length;
+        wheel[(int) (ticks & mask)].add(timeout);
+    }
+
+    private void fire(Timeout timeout) {
+        AtomicBoolean inProgress = timeout.inProgress;
+        if (!inProgress.compareAndSet(false, true)) {
+            skippedRuns.increment();
+            log.debug("Skipping run of scheduled task {}: previous run is still in progress", timeout.id);
+            return;
+        }
+        try {
+            dispatcher.dispatch(timeout.task).whenComplete((result, error) -> inProgress.set(false));
+        } catch (RejectedExecutionException e) {
+            inProgress.set(false);
+            log.warn("Dispatcher rejected scheduled task {}: {}", timeout.id, e.getMessage());
+        } catch (Exception e) {
+            inProgress.set(false);
+            log.error("Failed to dispatch scheduled task {}", timeout.id, e);
+        }
+    }
+
+    private Bucket[] createWheel(int wheelSize) {
+        int normalized = Integer.highestOneBit(wheelSize);
+        if (normalized < wheelSize) {
+            normalized <<= 1;
+        }
+        Bucket[] wheel = new Bucket[normalized];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        return wheel;
+    }
+
+    /**
+     * Запланированная задача. Поля связного списка и счетчик кругов
+     * изменяются только потоком колеса.
+     */
+    private final class Timeout {
+        private static final int ST_ACTIVE = 0;
+        private static final int ST_CANCELLED = 1;
+
+        private final String id;
+        private final ScheduledTask task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(ST_ACTIVE);
+        // Признак выполняющегося запуска, общий для задач с одним идентификатором
+        private final AtomicBoolean inProgress;
+
+        private long deadline;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(String id, ScheduledTask task, long periodNanos, long deadline, AtomicBoolean inProgress) {
+            this.id = id;
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.deadline = deadline;
+            this.inProgress = inProgress;
+        }
+
+        private void cancel() {
+            if (state.compareAndSet(ST_ACTIVE, ST_CANCELLED)) {
+                cancelledTimeouts.add(this);
+            }
+        }
+
+        private boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+    }
+
+    /**
+     * Корзина колеса — двусвязный список задач
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expireTimeouts(long deadline, List<Timeout> fired) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    fire(timeout);
+                    fired.add(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
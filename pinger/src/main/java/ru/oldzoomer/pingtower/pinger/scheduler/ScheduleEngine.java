@@ -0,0 +1,59 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import java.util.Set;
+
+/**
+ * Движок планирования периодических проверок.
+ * <p>
+ * Движок отвечает только за то, когда задача должна быть выполнена;
+ * само выполнение передается исполнителю, заданному при создании движка. Очередной запуск задачи
+ * пропускается, если предыдущий запуск той же задачи еще не завершился.
+ */
+public interface ScheduleEngine {
+    /**
+     * Планирует периодическое выполнение задачи. Если задача с таким идентификатором
+     * уже запланирована, она заменяется новой.
+     * @param id идентификатор задачи
+     * @param initialDelayMillis задержка перед первым запуском в миллисекундах
+     * @param periodMillis период выполнения в миллисекундах
+     * @param task задача
+     */
+    void schedule(String id, long initialDelayMillis, long periodMillis, ScheduledTask task);
+
+    /**
+     * Планирует периодическое выполнение синхронной задачи
+     * @see #schedule(String, long, long, ScheduledTask)
+     */
+    default void schedule(String id, long initialDelayMillis, long periodMillis, Runnable task) {
+        schedule(id, initialDelayMillis, periodMillis, ScheduledTask.of(task));
+    }
+
+    /**
+     * Отменяет запланированную задачу
+     * @param id идентификатор задачи
+     * @return true, если задача была запланирована и отменена
+     */
+    boolean cancel(String id);
+
+    /**
+     * Проверяет, запланирована ли задача
+     * @param id идентификатор задачи
+     * @return true, если задача запланирована
+     */
+    boolean isScheduled(String id);
+
+    /**
+     * @return идентификаторы запланированных задач (снимок)
+     */
+    Set<String> scheduledIds();
+
+    /**
+     * @return количество запланированных задач
+     */
+    int size();
+
+    /**
+     * Останавливает движок и отменяет все задачи
+     */
+    void shutdown();
+}
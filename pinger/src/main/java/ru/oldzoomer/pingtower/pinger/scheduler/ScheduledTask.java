@@ -0,0 +1,31 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Периодическая задача движка планирования.
+ * <p>
+ * Задача может завершаться асинхронно: запуск считается выполняющимся, пока не завершится
+ * возвращенная стадия, и следующий запуск той же задачи до этого момента не начинается.
+ */
+@FunctionalInterface
+public interface ScheduledTask {
+    /**
+     * Запуск задачи
+     * @return стадия, завершающаяся по окончании выполнения задачи
+     */
+    CompletionStage<?> run();
+
+    /**
+     * Синхронная задача, выполнение которой заканчивается с возвратом из {@link Runnable#run()}
+     * @param runnable задача
+     * @return периодическая задача
+     */
+    static ScheduledTask of(Runnable runnable) {
+        return () -> {
+            runnable.run();
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Распределение запусков проверок по секундам.
+ * <p>
+ * Запуски считаются в пределах текущей секунды; при переходе к следующей секунде количество
+ * записывается в распределение, секунды без запусков записываются нулями. При равномерно
+ * распределенных запусках максимум и высокие перцентили близки к среднему, при пачках — намного выше.
+ */
+final class StartRateRecorder {
+    // Пропуск длиннее не заполняется нулями, чтобы простой не искажал распределение
+    private static final int MAX_IDLE_SECONDS = 60;
+
+    private final DistributionSummary startsPerSecond;
+    private final LongSupplier currentTimeMillis;
+
+    // Изменяются только под блокировкой this
+    private long second = Long.MIN_VALUE;
+    private int count;
+
+    StartRateRecorder(MeterRegistry meterRegistry, String mode, LongSupplier currentTimeMillis) {
+        this.startsPerSecond = DistributionSummary.builder("pinger.checks.starts.per_second")
+                .description("Number of check starts within each second")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    synchronized void record() {
+        long now = Math.floorDiv(currentTimeMillis.getAsLong(), 1000L);
+        if (now != second) {
+            if (second != Long.MIN_VALUE) {
+                startsPerSecond.record(count);
+                long idle = Math.min(now - second - 1, MAX_IDLE_SECONDS);
+                for (long i = 0; i < idle; i++) {
+                    startsPerSecond.record(0);
+                }
+            }
+            second = now;
+            count = 0;
+        }
+        count++;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Исполнитель наступивших задач движка планирования
+ */
+@FunctionalInterface
+public interface TaskDispatcher {
+    /**
+     * Передача задачи на выполнение
+     * @param task задача
+     * @return стадия, завершающаяся по окончании выполнения задачи, в том числе с ошибкой
+     * @throws RejectedExecutionException если задачу не удалось принять
+     */
+    CompletionStage<?> dispatch(ScheduledTask task);
+}
@@ -0,0 +1,192 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.config.AlertProperties;
+import ru.oldzoomer.pingtower.pinger.dto.AlertMessage;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Определение смен статуса проверок для оповещений.
+ * <p>
+ * Для каждой проверки в памяти хранится подтвержденный статус и серия результатов с другим статусом.
+ * Статус меняется только после серии из заданного количества результатов подряд, поэтому одиночные
+ * сбои не приводят к оповещениям. Оповещение формируется при переходах UP→DOWN и DOWN→UP, а также
+ * при первом подтвержденном статусе DOWN; первый подтвержденный статус UP оповещения не вызывает.
+ * Результаты старше последнего учтенного не учитываются.
+ * <p>
+ * Подтвержденный статус сохраняется в Redis при каждой смене, и состояние проверки, которой нет
+ * в памяти (после перезапуска или перехода от другого экземпляра), начинается с него. Если Redis
+ * недоступен, состояние начинается с пустого: оповещение о простое может повториться, но не теряется.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertDetector {
+    static final String UP = "UP";
+    static final String DOWN = "DOWN";
+    static final String UNKNOWN = "UNKNOWN";
+
+    private final AlertProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, CheckState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Учет результата проверки
+     * @param result результат проверки; UNKNOWN (проверка не выполнялась) не учитывается,
+     * остальные статусы, кроме UP, считаются неуспешными
+     * @return оповещение, если результат подтвердил смену статуса
+     */
+    public Optional<AlertMessage> onResult(CheckResult result) {
+        if (result == null || result.getCheckId() == null || UNKNOWN.equals(result.getStatus())) {
+            return Optional.empty();
+        }
+        // Сохраненное состояние читается вне compute, чтобы не держать блокировку ключа на время запроса
+        CheckState seed = states.containsKey(result.getCheckId()) ? null : loadState(result.getCheckId());
+        AlertMessage[] alert = new AlertMessage[1];
+        CheckState[] changed = new CheckState[1];
+        states.compute(result.getCheckId(), (checkId, state) -> {
+            CheckState current = state != null ? state : seed != null ? seed : new CheckState();
+            String confirmed = current.confirmed;
+            alert[0] = current.apply(result);
+            if (!Objects.equals(confirmed, current.confirmed)) {
+                changed[0] = current.copyConfirmed();
+            }
+            return current;
+        });
+        if (changed[0] != null) {
+            saveState(result.getCheckId(), changed[0]);
+        }
+        return Optional.ofNullable(alert[0]);
+    }
+
+    /**
+     * Удаление состояния проверки из памяти, например после отмены ее планирования.
+     * Сохраненный в Redis статус остается для экземпляра, к которому перешла проверка
+     * @param checkId идентификатор проверки
+     */
+    public void forget(String checkId) {
+        states.remove(checkId);
+    }
+
+    /**
+     * Чтение сохраненного состояния: "UP" или "DOWN время-начала-простоя"
+     * @return состояние с подтвержденным статусом или null, если оно не сохранено или недоступно
+     */
+    private CheckState loadState(String checkId) {
+        try {
+            String saved = redisTemplate.opsForValue().get(properties.getStateKeyPrefix() + checkId);
+            if (saved == null) {
+                return null;
+            }
+            String[] parts = saved.split(" ", 2);
+            if (!UP.equals(parts[0]) && !DOWN.equals(parts[0])) {
+                return null;
+            }
+            CheckState state = new CheckState();
+            state.confirmed = parts[0];
+            state.downSince = DOWN.equals(parts[0]) && parts.length == 2 ? LocalDateTime.parse(parts[1]) : null;
+            return state;
+        } catch (Exception e) {
+            log.warn("Failed to load alert state of check {}: {}", checkId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveState(String checkId, CheckState state) {
+        String value = state.downSince != null ? state.confirmed + " " + state.downSince : state.confirmed;
+        try {
+            redisTemplate.opsForValue().set(properties.getStateKeyPrefix() + checkId, value, properties.getStateTtl());
+        } catch (Exception e) {
+            log.warn("Failed to save alert state of check {}: {}", checkId, e.getMessage());
+        }
+    }
+
+    /**
+     * Состояние проверки; изменяется только внутри compute, то есть под блокировкой ключа
+     */
+    private final class CheckState {
+        private String confirmed;
+        private String candidate;
+        private int streak;
+        private LocalDateTime streakStart;
+        // Время первого неуспешного результата текущего простоя
+        private LocalDateTime downSince;
+        // Время последнего учтенного результата
+        private LocalDateTime lastTimestamp;
+
+        private AlertMessage apply(CheckResult result) {
+            String status = UP.equals(result.getStatus()) ? UP : DOWN;
+            LocalDateTime timestamp = result.getTimestamp() != null ? result.getTimestamp() : LocalDateTime.now();
+            if (lastTimestamp != null && timestamp.isBefore(lastTimestamp)) {
+                // Результат, пришедший после более нового, не должен прерывать или продлевать серию
+                return null;
+            }
+            lastTimestamp = timestamp;
+            if (status.equals(confirmed)) {
+                candidate = null;
+                streak = 0;
+                return null;
+            }
+            if (!status.equals(candidate)) {
+                candidate = status;
+                streak = 0;
+                streakStart = timestamp;
+            }
+            streak++;
+            int threshold = DOWN.equals(status) ? properties.getFailureThreshold() : properties.getRecoveryThreshold();
+            if (streak < Math.max(1, threshold)) {
+                return null;
+            }
+
+            String previous = confirmed;
+            confirmed = status;
+            candidate = null;
+            streak = 0;
+            if (DOWN.equals(status)) {
+                downSince = streakStart;
+            }
+            // О простое новой проверки сообщается сразу, исходный статус UP оповещения не вызывает
+            AlertMessage alert = previous != null || DOWN.equals(status)
+                    ? toAlert(result, previous, status, timestamp)
+                    : null;
+            if (UP.equals(status)) {
+                downSince = null;
+            }
+            return alert;
+        }
+
+        private CheckState copyConfirmed() {
+            CheckState copy = new CheckState();
+            copy.confirmed = confirmed;
+            copy.downSince = downSince;
+            return copy;
+        }
+
+        private AlertMessage toAlert(CheckResult result, String previous, String status, LocalDateTime timestamp) {
+            AlertMessage alert = new AlertMessage();
+            alert.setCheckId(result.getCheckId());
+            alert.setResourceUrl(result.getResourceUrl());
+            alert.setTimestamp(timestamp);
+            alert.setStatus(status);
+            alert.setPreviousStatus(previous);
+            // При восстановлении — длительность простоя, при его начале — время до подтверждения
+            if (downSince != null) {
+                alert.setDowntimeDuration(Math.max(0, Duration.between(downSince, timestamp).toMillis()));
+            }
+            if (DOWN.equals(status)) {
+                alert.setErrorMessage(result.getErrorMessage());
+            }
+            return alert;
+        }
+    }
+}
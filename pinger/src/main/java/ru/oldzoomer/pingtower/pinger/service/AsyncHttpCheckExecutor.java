@@ -0,0 +1,206 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.pinger.config.HttpProbeProperties;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import javax.net.ssl.SSLSession;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий исполнитель HTTP проверок на основе общего {@link HttpClient}.
+ * <p>
+ * Соединения с хостом переиспользуются между проверками, поток не занимается
+ * на время ожидания ответа. Имя хоста разрешается заранее через общий {@link DnsResolver},
+ * клиент получает адрес из его кэша. Таймаут проверки — общий срок для разрешения имени, запроса
+ * и чтения ответа: запрос получает время, оставшееся после разрешения имени.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AsyncHttpCheckExecutor implements CheckExecutor {
+    private final HttpClient probeHttpClient;
+    private final DnsResolver dnsResolver;
+    private final HttpProbeProperties httpProbeProperties;
+
+    @Override
+    public CheckResult execute(CheckConfiguration config) {
+        return executeAsync(config).join();
+    }
+
+    @Override
+    public CompletableFuture<CheckResult> executeAsync(CheckConfiguration config) {
+        CheckResult result = new CheckResult();
+        result.setCheckId(config.getId());
+        result.setResourceUrl(config.getResourceUrl());
+        result.setTimestamp(LocalDateTime.now());
+
+        long startTime = System.nanoTime();
+        AtomicLong firstByteTime = new AtomicLong();
+
+        URI uri;
+        HttpRequest.Builder requestBuilder;
+        try {
+            uri = URI.create(config.getResourceUrl());
+            requestBuilder = HttpRequest.newBuilder(uri)
+                    .version(versionFor(uri))
+                    .GET();
+        } catch (Exception e) {
+            result.setStatus("DOWN");
+            result.setErrorMessage(e.getMessage());
+            result.setMetrics(new CheckResult.Metrics());
+            log.error("Invalid HTTP check URL {}: {}", config.getResourceUrl(), e.getMessage());
+            return CompletableFuture.completedFuture(result);
+        }
+
+        // Обработчик вызывается при получении заголовков ответа, тело читается без сохранения
+        HttpResponse.BodyHandler<Void> bodyHandler = responseInfo -> {
+            firstByteTime.set(System.nanoTime());
+            return HttpResponse.BodySubscribers.discarding();
+        };
+
+        // Время разрешения имени; -1, если имя не разрешалось
+        AtomicLong dnsLookupNanos = new AtomicLong(-1);
+        String host = uri.getHost();
+        CompletableFuture<?> resolved = CompletableFuture.completedFuture(null);
+        if (host != null) {
+            CompletableFuture<List<InetAddress>> lookup = dnsResolver.resolve(host);
+            resolved = lookup.whenComplete((addresses, error) -> dnsLookupNanos.set(System.nanoTime() - startTime));
+        }
+
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(config.getTimeout());
+        CompletableFuture<HttpResponse<Void>> exchange = resolved.thenCompose(addresses -> {
+            if (config.getTimeout() > 0) {
+                // Запрос получает только время, оставшееся после разрешения имени
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return CompletableFuture.failedFuture(new HttpTimeoutException("request timed out"));
+                }
+                requestBuilder.timeout(Duration.ofNanos(remaining));
+            }
+            return probeHttpClient.sendAsync(requestBuilder.build(), bodyHandler);
+        });
+        if (config.getTimeout() > 0) {
+            // Общий срок покрывает и разрешение имени, и чтение тела, которое таймаут запроса не ограничивает
+            exchange = exchange.orTimeout(config.getTimeout(), TimeUnit.MILLISECONDS);
+        }
+
+        return exchange
+                .handle((response, error) -> {
+                    long endTime = System.nanoTime();
+                    result.setResponseTime(TimeUnit.NANOSECONDS.toMillis(endTime - startTime));
+
+                    // HttpClient не раскрывает время TCP и TLS фаз, поэтому они остаются пустыми
+                    CheckResult.Metrics metrics = new CheckResult.Metrics();
+                    if (dnsLookupNanos.get() >= 0) {
+                        metrics.setDnsLookupNanos(dnsLookupNanos.get());
+                    }
+                    if (firstByteTime.get() > 0) {
+                        metrics.setTimeToFirstByte(TimeUnit.NANOSECONDS.toMillis(firstByteTime.get() - startTime));
+                        metrics.setTimeToFirstByteNanos(firstByteTime.get() - startTime);
+                        if (error == null) {
+                            metrics.setDownloadNanos(endTime - firstByteTime.get());
+                        }
+                    }
+                    result.setMetrics(metrics);
+
+                    if (error != null) {
+                        handleError(config, result, error);
+                    } else {
+                        handleResponse(config, result, response);
+                    }
+                    return result;
+                });
+    }
+
+    @Override
+    public boolean supports(String type) {
+        return "HTTP".equalsIgnoreCase(type) || "HTTPS".equalsIgnoreCase(type);
+    }
+
+    @Override
+    public String getEngine() {
+        return HttpProbeProperties.ENGINE_ASYNC;
+    }
+
+    /**
+     * Версия протокола запроса: HTTP/2 только для https, чтобы http:// проверки не выполняли h2c upgrade
+     */
+    private HttpClient.Version versionFor(URI uri) {
+        return httpProbeProperties.isHttp2() && "https".equalsIgnoreCase(uri.getScheme())
+                ? HttpClient.Version.HTTP_2
+                : HttpClient.Version.HTTP_1_1;
+    }
+
+    private void handleResponse(CheckConfiguration config, CheckResult result, HttpResponse<Void> response) {
+        int responseCode = response.statusCode();
+        result.setHttpStatusCode(responseCode);
+
+        // Проверка кода ответа
+        if (responseCode >= 200 && responseCode < 300) {
+            result.setStatus("UP");
+            // Проверка на соответствие ожидаемому коду (если указан)
+            if (config.getExpectedStatusCode() != null && responseCode != config.getExpectedStatusCode()) {
+                result.setStatus("DOWN");
+                result.setErrorMessage("Expected status code " + config.getExpectedStatusCode() + ", but got " + responseCode);
+            }
+        } else {
+            result.setStatus("DOWN");
+            result.setErrorMessage("HTTP error code: " + responseCode);
+        }
+
+        response.sslSession().ifPresent(session -> checkSslCertificate(session, result));
+    }
+
+    private void handleError(CheckConfiguration config, CheckResult result, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        result.setStatus("DOWN");
+        // TimeoutException — истек общий срок проверки
+        if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException) {
+            result.setErrorMessage("Request timed out after " + config.getTimeout() + " ms");
+        } else {
+            result.setErrorMessage(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+        }
+        log.error("Error during HTTP check for {}: {}", config.getResourceUrl(), result.getErrorMessage());
+    }
+
+    /**
+     * Проверка SSL сертификата по сессии, через которую получен ответ
+     * @param session SSL сессия
+     * @param result результат проверки
+     */
+    private void checkSslCertificate(SSLSession session, CheckResult result) {
+        try {
+            Certificate[] certificates = session.getPeerCertificates();
+            if (certificates.length > 0 && certificates[0] instanceof X509Certificate x509Cert) {
+                result.getMetrics().setSslValid(true);
+                result.getMetrics().setSslExpirationDate(
+                        x509Cert.getNotAfter().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+            }
+        } catch (Exception e) {
+            result.getMetrics().setSslValid(false);
+            result.setErrorMessage("SSL certificate error: " + e.getMessage());
+            log.error("SSL certificate error for {}: {}", result.getResourceUrl(), e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,8 @@ package ru.oldzoomer.pingtower.pinger.service;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Интерфейс для выполнения проверок доступности ресурсов
  */
@@ -14,6 +16,24 @@ public interface CheckExecutor {
      */
     CheckResult execute(CheckConfiguration config);
     
+    /**
+     * Асинхронно выполняет проверку доступности ресурса.
+     * По умолчанию проверка выполняется синхронно в вызывающем потоке.
+     * @param config конфигурация проверки
+     * @return будущий результат проверки
+     */
+    default CompletableFuture<CheckResult> executeAsync(CheckConfiguration config) {
+        return CompletableFuture.completedFuture(execute(config));
+    }
+    
+    /**
+     * Имя движка исполнителя, используется для выбора между исполнителями одного типа проверок
+     * @return имя движка
+     */
+    default String getEngine() {
+        return "blocking";
+    }
+    
     /**
      * Проверяет, поддерживает ли данный исполнитель указанный тип проверки
      * @param type тип проверки
@@ -1,28 +1,50 @@
 package ru.oldzoomer.pingtower.pinger.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.config.HttpProbeProperties;
+
 import java.util.List;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class CheckExecutorFactory {
     private final List<CheckExecutor> checkExecutors;
-    
+    private final HttpProbeProperties httpProbeProperties;
+
+    @Autowired
+    public CheckExecutorFactory(List<CheckExecutor> checkExecutors, HttpProbeProperties httpProbeProperties) {
+        this.checkExecutors = checkExecutors;
+        this.httpProbeProperties = httpProbeProperties;
+    }
+
+    CheckExecutorFactory(List<CheckExecutor> checkExecutors) {
+        this(checkExecutors, new HttpProbeProperties());
+    }
+
     /**
-     * Получение исполнителя проверки по типу
+     * Получение исполнителя проверки по типу.
+     * Если тип поддерживается несколькими исполнителями, выбирается исполнитель
+     * с движком из настроек, иначе первый подходящий.
      * @param type тип проверки
      * @return исполнитель проверки
      * @throws IllegalArgumentException если исполнитель для указанного типа не найден
      */
     @Cacheable("check-executors")
     public CheckExecutor getExecutor(String type) {
-        return checkExecutors.stream()
+        List<CheckExecutor> candidates = checkExecutors.stream()
                 .filter(executor -> executor.supports(type))
+                .toList();
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No executor found for check type: " + type);
+        }
+
+        String engine = httpProbeProperties.engineFor(type);
+        return candidates.stream()
+                .filter(executor -> engine.equals(executor.getEngine()))
                 .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("No executor found for check type: " + type));
+                .orElse(candidates.get(0));
     }
-}
\ No newline at end of file
+}
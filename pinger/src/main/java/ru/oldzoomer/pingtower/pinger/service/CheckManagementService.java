@@ -6,23 +6,38 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfigurationDTO;
 import ru.oldzoomer.pingtower.pinger.entity.CheckConfigurationEntity;
+import ru.oldzoomer.pingtower.pinger.exception.CheckConfigPublishException;
+import ru.oldzoomer.pingtower.pinger.kafka.CheckConfigPublisher;
 import ru.oldzoomer.pingtower.pinger.mapper.CheckConfigurationMapper;
 import ru.oldzoomer.pingtower.pinger.repository.CheckConfigurationRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Управление настройками проверок. Изменение сохраняется в БД и публикуется в топик конфигураций
+ * в одной транзакции: если запись не подтверждена брокером, транзакция отменяется и вызывающий
+ * получает {@link CheckConfigPublishException}, поэтому БД и топик не расходятся
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CheckManagementService {
+    private static final int SNAPSHOT_PAGE_SIZE = 500;
 
     private final CheckConfigurationRepository checkConfigurationRepository;
     private final CheckConfigurationMapper checkConfigurationMapper;
+    private final CheckConfigPublisher checkConfigPublisher;
 
     /**
      * Получить список настроек проверок
@@ -66,7 +81,9 @@ public class CheckManagementService {
      *
      * @param check настройка проверки
      * @return созданная настройка проверки
+     * @throws CheckConfigPublishException если настройку не удалось опубликовать; проверка не создается
      */
+    @Transactional
     public CheckConfigurationDTO createCheck(CheckConfigurationDTO check) {
         log.info("Создание новой настройки проверки: {}", check);
         
@@ -82,7 +99,9 @@ public class CheckManagementService {
         entity.setCreatedAt(now);
         entity.setUpdatedAt(now);
         
-        CheckConfigurationEntity savedEntity = checkConfigurationRepository.save(entity);
+        // Ошибки БД выявляются до публикации, а не при фиксации транзакции
+        CheckConfigurationEntity savedEntity = checkConfigurationRepository.saveAndFlush(entity);
+        awaitPublished(checkConfigPublisher.publish(checkConfigurationMapper.toConfiguration(savedEntity)), savedEntity.getId());
         return checkConfigurationMapper.toDto(savedEntity);
     }
 
@@ -92,7 +111,9 @@ public class CheckManagementService {
      * @param checkId идентификатор проверки
      * @param check обновленная настройка проверки
      * @return обновленная настройка проверки
+     * @throws CheckConfigPublishException если настройку не удалось опубликовать; проверка не изменяется
      */
+    @Transactional
     public CheckConfigurationDTO updateCheck(String checkId, CheckConfigurationDTO check) {
         log.info("Обновление настройки проверки с ID: {}, данные: {}", checkId, check);
         
@@ -107,7 +128,9 @@ public class CheckManagementService {
         // Keep the original createdAt value
         entity.setCreatedAt(existingEntity.get().getCreatedAt());
         
-        CheckConfigurationEntity savedEntity = checkConfigurationRepository.save(entity);
+        // Ошибки БД выявляются до публикации, а не при фиксации транзакции
+        CheckConfigurationEntity savedEntity = checkConfigurationRepository.saveAndFlush(entity);
+        awaitPublished(checkConfigPublisher.publish(checkConfigurationMapper.toConfiguration(savedEntity)), savedEntity.getId());
         return checkConfigurationMapper.toDto(savedEntity);
     }
 
@@ -116,13 +139,52 @@ public class CheckManagementService {
      *
      * @param checkId идентификатор проверки
      * @return true, если настройка была удалена, false в противном случае
+     * @throws CheckConfigPublishException если удаление не удалось опубликовать; проверка не удаляется
      */
+    @Transactional
     public boolean deleteCheck(String checkId) {
         log.info("Удаление настройки проверки с ID: {}", checkId);
         if (checkConfigurationRepository.existsById(checkId)) {
             checkConfigurationRepository.deleteById(checkId);
+            checkConfigurationRepository.flush();
+            awaitPublished(checkConfigPublisher.publishDeletion(checkId), checkId);
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Публикация всех настроек проверок из БД в топик конфигураций, например при первом запуске
+     * с пустым топиком
+     *
+     * @return опубликованные конфигурации проверок
+     * @throws CheckConfigPublishException если часть конфигураций не удалось опубликовать
+     */
+    public List<CheckConfiguration> publishAllChecks() {
+        List<CheckConfiguration> configs = new ArrayList<>();
+        List<CompletableFuture<Void>> publications = new ArrayList<>();
+        Page<CheckConfigurationEntity> page;
+        Pageable pageable = PageRequest.of(0, SNAPSHOT_PAGE_SIZE);
+        do {
+            page = checkConfigurationRepository.findAll(pageable);
+            for (CheckConfigurationEntity entity : page.getContent()) {
+                CheckConfiguration config = checkConfigurationMapper.toConfiguration(entity);
+                publications.add(checkConfigPublisher.publish(config));
+                configs.add(config);
+            }
+            pageable = page.nextPageable();
+        } while (page.hasNext());
+        awaitPublished(CompletableFuture.allOf(publications.toArray(CompletableFuture[]::new)), "all checks");
+        log.info("Published {} check configurations from the database", configs.size());
+        return configs;
+    }
+
+    private static void awaitPublished(CompletableFuture<Void> publication, String checkId) {
+        try {
+            publication.join();
+        } catch (CompletionException | CancellationException e) {
+            throw new CheckConfigPublishException("Failed to publish check configuration for checkId: " + checkId,
+                    e.getCause() != null ? e.getCause() : e);
+        }
+    }
+}
@@ -1,75 +1,182 @@
 package ru.oldzoomer.pingtower.pinger.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.pinger.cluster.ClusterMembership;
+import ru.oldzoomer.pingtower.pinger.cluster.MembershipChangedEvent;
+import ru.oldzoomer.pingtower.pinger.config.SchedulerProperties;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
-import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+import ru.oldzoomer.pingtower.pinger.kafka.AlertProducer;
+import ru.oldzoomer.pingtower.pinger.kafka.CheckConfigChangedEvent;
 import ru.oldzoomer.pingtower.pinger.kafka.CheckResultProducer;
 import ru.oldzoomer.pingtower.pinger.kafka.SettingsConsumer;
+import ru.oldzoomer.pingtower.pinger.scheduler.ScheduleEngine;
+import ru.oldzoomer.pingtower.pinger.scheduler.ScheduledTask;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Планирование проверок по их конфигурациям.
+ * <p>
+ * Изменения конфигураций применяются к планировщику по событиям: созданная проверка планируется,
+ * измененная перепланируется с сохранением фазы, удаленная снимается с планирования. Периодическая
+ * сверка обрабатывает только проверки, изменившиеся после предыдущей сверки (по журналу изменений
+ * {@link SettingsConsumer}), и повторяет изменения, которые не удалось применить по событию.
+ * Полная сверка всех проверок выполняется после загрузки конфигураций, при изменении состава
+ * кластера и с большим интервалом на случай потерянных событий. До загрузки конфигураций
+ * ({@link #completeBootstrap()}) события и сверки не применяются: частично прочитанный топик
+ * не дает снять с планирования проверки, конфигурации которых еще не прочитаны.
+ * <p>
+ * Фаза новой проверки (смещение запусков внутри периода) вычисляется по хешу ее ID с небольшим
+ * сдвигом по второму, независимому хешу ID, поэтому проверки, созданные или загруженные одновременно,
+ * запускаются равномерно в течение периода, а не пачкой, а одна и та же проверка на любом экземпляре
+ * получает одну и ту же фазу.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CheckSchedulerService {
     private final SettingsConsumer settingsConsumer;
     private final CheckExecutorFactory checkExecutorFactory;
     private final CheckResultProducer checkResultProducer;
+    private final AlertDetector alertDetector;
+    private final AlertProducer alertProducer;
+    private final ClusterMembership clusterMembership;
+    private final HostProbeLimiter hostProbeLimiter;
     
-    // Пул потоков для выполнения проверок
-    private final ScheduledExecutorService executorService = new ScheduledThreadPoolExecutor(10);
-    
-    // Карта запланированных задач
-    private final Map<String, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    // Движок планирования, хранящий все запланированные проверки
+    private final ScheduleEngine scheduleEngine;
+
+    private final SchedulerProperties schedulerProperties;
+    private final Clock clock;
+
+    // Конфигурации, с которыми запланированы проверки
+    private final Map<String, ScheduledCheck> scheduledChecks = new ConcurrentHashMap<>();
+
+    // Номер последнего изменения конфигураций, учтенного периодической сверкой; изменяется под блокировкой this
+    private long appliedRevision;
+
+    // Конфигурации, существовавшие при запуске, прочитаны
+    private volatile boolean bootstrapped;
+
+    @Autowired
+    public CheckSchedulerService(SettingsConsumer settingsConsumer,
+                                 CheckExecutorFactory checkExecutorFactory,
+                                 CheckResultProducer checkResultProducer,
+                                 AlertDetector alertDetector,
+                                 AlertProducer alertProducer,
+                                 ClusterMembership clusterMembership,
+                                 HostProbeLimiter hostProbeLimiter,
+                                 ScheduleEngine scheduleEngine,
+                                 SchedulerProperties schedulerProperties) {
+        this(settingsConsumer, checkExecutorFactory, checkResultProducer, alertDetector, alertProducer,
+                clusterMembership, hostProbeLimiter, scheduleEngine, schedulerProperties, Clock.systemUTC());
+    }
+
+    CheckSchedulerService(SettingsConsumer settingsConsumer,
+                          CheckExecutorFactory checkExecutorFactory,
+                          CheckResultProducer checkResultProducer,
+                          AlertDetector alertDetector,
+                          AlertProducer alertProducer,
+                          ClusterMembership clusterMembership,
+                          HostProbeLimiter hostProbeLimiter,
+                          ScheduleEngine scheduleEngine,
+                          SchedulerProperties schedulerProperties,
+                          Clock clock) {
+        this.settingsConsumer = settingsConsumer;
+        this.checkExecutorFactory = checkExecutorFactory;
+        this.checkResultProducer = checkResultProducer;
+        this.alertDetector = alertDetector;
+        this.alertProducer = alertProducer;
+        this.clusterMembership = clusterMembership;
+        this.hostProbeLimiter = hostProbeLimiter;
+        this.scheduleEngine = scheduleEngine;
+        this.schedulerProperties = schedulerProperties;
+        this.clock = clock;
+    }
     
     /**
-     * Планирование проверки
+     * Планирование проверки. Существующая задача с тем же ID заменяется; запуски заменяющей задачи
+     * продолжают сетку времени прежней (фаза сохраняется и при изменении частоты). Новая проверка
+     * запускается в моменты, определяемые хешами ее ID.
      * @param config конфигурация проверки
      */
     public void scheduleCheck(CheckConfiguration config) {
-        // Отмена существующей задачи, если она есть
-        removeCheck(config.getId());
-        
-        // Создание задачи для выполнения проверки
-        Runnable task = () -> {
-            try {
-                executeCheck(config);
-            } catch (Exception e) {
-                log.error("Error executing check for {}: {}", config.getId(), e.getMessage());
-            }
-        };
+        if (config.getFrequency() <= 0) {
+            log.warn("Skipping check {} with non-positive frequency {}", config.getId(), config.getFrequency());
+            return;
+        }
+        // Задача завершается вместе с проверкой, чтобы движок не запускал ее повторно до получения результата
+        ScheduledTask task = () -> runCheck(config);
+
+        // Запуски в моменты anchor + k * frequency; первый — ближайший из них, не раньше текущего
+        ScheduledCheck previous = scheduledChecks.get(config.getId());
+        long now = clock.millis();
+        long anchor = previous != null ? previous.anchorMillis() : newAnchor(config);
+        long initialDelay = Math.floorMod(anchor - now, config.getFrequency());
         
         // Планирование задачи с указанной частотой
-        ScheduledFuture<?> scheduledTask = executorService.scheduleAtFixedRate(
-                task,
-                0,
-                config.getFrequency(),
-                TimeUnit.MILLISECONDS
-        );
-        
-        // Сохранение ссылки на задачу для возможности отмены
-        scheduledTasks.put(config.getId(), scheduledTask);
+        scheduleEngine.schedule(config.getId(), initialDelay, config.getFrequency(), task);
+        scheduledChecks.put(config.getId(), new ScheduledCheck(config, anchor));
         log.info("Scheduled check for {} with frequency {} ms", config.getId(), config.getFrequency());
     }
     
+    private long newAnchor(CheckConfiguration config) {
+        long frequency = config.getFrequency();
+        long anchor = phaseOffset(config.getId(), frequency);
+        long maxJitter = Math.min(schedulerProperties.getMaxStartJitter().toMillis(), frequency);
+        if (maxJitter > 0) {
+            anchor += startJitter(config.getId(), maxJitter);
+        }
+        return anchor;
+    }
+
+    /**
+     * Детерминированная фаза проверки: одна и та же проверка на любом экземпляре и после перезапуска
+     * запускается в одни и те же моменты периода, а разные проверки распределяются по периоду равномерно
+     * @param checkId идентификатор проверки
+     * @param frequency период проверки в миллисекундах
+     * @return смещение запусков от начала эпохи в диапазоне [0, frequency)
+     */
+    static long phaseOffset(String checkId, long frequency) {
+        // Перемешивание hashCode, чтобы близкие ID не давали близких фаз
+        long h = checkId.hashCode() * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 32;
+        return Math.floorMod(h, frequency);
+    }
+
+    /**
+     * Детерминированный сдвиг фазы. Считается по байтам ID (FNV-1a), а не по hashCode, поэтому
+     * разносит и проверки, фазы которых совпали из-за совпадения hashCode
+     * @param checkId идентификатор проверки
+     * @param maxJitter верхняя граница сдвига в миллисекундах
+     * @return сдвиг в диапазоне [0, maxJitter)
+     */
+    static long startJitter(String checkId, long maxJitter) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : checkId.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return Math.floorMod(h ^ (h >>> 32), maxJitter);
+    }
+
     /**
      * Удаление запланированной проверки
      * @param checkId идентификатор проверки
      */
     public void removeCheck(String checkId) {
-        ScheduledFuture<?> scheduledTask = scheduledTasks.get(checkId);
-        if (scheduledTask != null) {
-            scheduledTask.cancel(false);
-            scheduledTasks.remove(checkId);
+        scheduledChecks.remove(checkId);
+        alertDetector.forget(checkId);
+        if (scheduleEngine.cancel(checkId)) {
             log.info("Removed scheduled check for {}", checkId);
         }
     }
@@ -80,36 +187,152 @@ public class CheckSchedulerService {
      */
     @Cacheable(value = "last-results", key = "#config.getId()")
     public void executeCheck(CheckConfiguration config) {
+        runCheck(config);
+    }
+
+    /**
+     * Запуск проверки
+     * @param config конфигурация проверки
+     * @return будущее, завершающееся после обработки результата проверки; ошибки проверки не передаются
+     */
+    private CompletableFuture<Void> runCheck(CheckConfiguration config) {
         try {
             log.info("Executing check for {} ({})", config.getId(), config.getResourceUrl());
             
             // Получение исполнителя проверки
             CheckExecutor executor = checkExecutorFactory.getExecutor(config.getType());
             
-            // Выполнение проверки
-            CheckResult result = executor.execute(config);
-            
-            // Отправка результата в Kafka
-            checkResultProducer.sendCheckResult(result);
-            
-            log.info("Check completed for {}: status={}", config.getId(), result.getStatus());
+            // Выполнение проверки с учетом ограничений хоста и отправка результата в Kafka по завершении
+            return hostProbeLimiter.executeAsync(executor, config).handle((result, error) -> {
+                if (error != null) {
+                    log.error("Error executing check for {}: {}", config.getId(), error.getMessage());
+                    return null;
+                }
+                try {
+                    checkResultProducer.sendCheckResult(result);
+                    // Оповещение отправляется только при подтвержденной смене статуса
+                    alertDetector.onResult(result).ifPresent(alertProducer::sendAlert);
+                    log.info("Check completed for {}: status={}", config.getId(), result.getStatus());
+                } catch (Exception e) {
+                    log.error("Error handling result of check {}: {}", config.getId(), e.getMessage());
+                }
+                return null;
+            });
         } catch (Exception e) {
             log.error("Error executing check for {}: {}", config.getId(), e.getMessage());
+            return CompletableFuture.completedFuture(null);
         }
     }
     
     /**
-     * Планирование всех проверок из конфигурации
+     * Приведение планирования проверки к ее текущей конфигурации
+     * @param checkId идентификатор проверки
      */
-    @Scheduled(fixedRate = 60000) // Проверка каждую минуту
-    public void scheduleAllChecks() {
-        Map<String, CheckConfiguration> configs = settingsConsumer.getCheckConfigurations();
-        
-        for (CheckConfiguration config : configs.values()) {
-            // Если задача еще не запланирована, планируем ее
-            if (!scheduledTasks.containsKey(config.getId())) {
-                scheduleCheck(config);
+    public synchronized void reconcile(String checkId) {
+        CheckConfiguration config = settingsConsumer.currentConfiguration(checkId);
+        if (config == null || !clusterMembership.owns(checkId)) {
+            // Проверка удалена или перешла к другому экземпляру
+            if (scheduledChecks.containsKey(checkId) || scheduleEngine.isScheduled(checkId)) {
+                removeCheck(checkId);
             }
+            return;
+        }
+        ScheduledCheck current = scheduledChecks.get(checkId);
+        if (current != null && current.config().equals(config) && scheduleEngine.isScheduled(checkId)) {
+            return;
         }
+        scheduleCheck(config);
+    }
+
+    /**
+     * Применение изменения конфигурации сразу после его получения
+     * @param event событие изменения конфигурации
+     */
+    @EventListener
+    public void onConfigChanged(CheckConfigChangedEvent event) {
+        if (!bootstrapped) {
+            // Изменение остается в журнале и учитывается полной сверкой после загрузки
+            return;
+        }
+        try {
+            reconcile(event.checkId());
+        } catch (Exception e) {
+            // Изменение будет повторено периодической сверкой
+            log.error("Failed to apply configuration change of check {}: {}", event.checkId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Периодическая сверка проверок, конфигурации которых изменились после предыдущей сверки
+     */
+    @Scheduled(fixedDelayString = "${pinger.scheduler.reconcile-interval:60s}")
+    public synchronized void reconcileChanges() {
+        if (!bootstrapped) {
+            return;
+        }
+        long revision = settingsConsumer.getRevision();
+        Set<String> changed = settingsConsumer.changedSince(appliedRevision);
+        for (String checkId : changed) {
+            reconcile(checkId);
+        }
+        appliedRevision = Math.max(appliedRevision, revision);
+        settingsConsumer.discardChanges(appliedRevision);
+        if (!changed.isEmpty()) {
+            log.debug("Reconciled {} changed checks", changed.size());
+        }
+    }
+
+    /**
+     * Завершение загрузки конфигураций: полная сверка и применение последующих изменений по событиям
+     */
+    public synchronized void completeBootstrap() {
+        bootstrapped = true;
+        scheduleAllChecks();
+    }
+
+    /**
+     * Периодическая полная сверка, исправляющая расхождения из-за пропущенных событий
+     */
+    @Scheduled(fixedDelayString = "${pinger.scheduler.full-reconcile-interval:15m}",
+            initialDelayString = "${pinger.scheduler.full-reconcile-interval:15m}")
+    public void reconcileAll() {
+        if (!bootstrapped) {
+            return;
+        }
+        scheduleAllChecks();
+        log.debug("Reconciled all checks");
+    }
+
+    /**
+     * Полная сверка: планирование всех проверок из конфигурации, принадлежащих этому экземпляру,
+     * и снятие с планирования удаленных проверок и проверок, перешедших к другим экземплярам
+     */
+    public synchronized void scheduleAllChecks() {
+        Set<String> checkIds = new LinkedHashSet<>(settingsConsumer.currentCheckIds());
+        checkIds.addAll(scheduleEngine.scheduledIds());
+        for (String checkId : checkIds) {
+            reconcile(checkId);
+        }
+    }
+
+    /**
+     * Перераспределение проверок после изменения состава кластера
+     * @param event событие изменения состава
+     */
+    @EventListener
+    public void onMembershipChanged(MembershipChangedEvent event) {
+        if (!bootstrapped) {
+            // Распределение будет учтено полной сверкой после загрузки
+            return;
+        }
+        log.info("Rebalancing checks across {} pinger instances", event.members().size());
+        scheduleAllChecks();
+    }
+
+    /**
+     * @param config конфигурация, с которой запланирована проверка
+     * @param anchorMillis момент, от которого отсчитываются запуски проверки
+     */
+    private record ScheduledCheck(CheckConfiguration config, long anchorMillis) {
     }
 }
\ No newline at end of file
@@ -1,53 +1,291 @@
 package ru.oldzoomer.pingtower.pinger.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.pinger.dns.DnsMessage;
+import ru.oldzoomer.pingtower.pinger.dns.DnsRecord;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResponse;
+import ru.oldzoomer.pingtower.pinger.dns.UdpDnsClient;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Исполнитель DNS проверок. Адрес ресурса задается в формате RFC 4501:
+ * <ul>
+ *     <li>dns://имя — разрешение адресов через общий резолвер с кэшем;</li>
+ *     <li>dns://сервер[:порт]/имя?параметры — запрос записей указанному серверу мимо кэша;</li>
+ *     <li>dns:///имя?параметры или dns://имя?параметры — запрос записей серверам из pinger.dns.servers.</li>
+ * </ul>
+ * Параметры разделяются символом ";" или "&amp;":
+ * <ul>
+ *     <li>type — тип записи (A, AAAA, CNAME, MX, TXT), по умолчанию A;</li>
+ *     <li>class — класс записи, поддерживается только IN;</li>
+ *     <li>expect — ожидаемое значение записи, параметр можно повторять (MX задается как "приоритет имя");</li>
+ *     <li>minttl — минимально допустимый TTL записей в секундах.</li>
+ * </ul>
+ * Запросы выполняются неблокирующим UDP клиентом с повторением обрезанных ответов по TCP;
+ * время запроса до сервера записывается в dnsLookupNanos. Имя сервера из URL разрешается
+ * через кэш {@link DnsResolver}, поток при этом не блокируется.
+ */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class DnsCheckExecutor implements CheckExecutor {
-    
+    private final DnsResolver dnsResolver;
+
     @Override
     public CheckResult execute(CheckConfiguration config) {
+        return executeAsync(config).join();
+    }
+
+    @Override
+    public CompletableFuture<CheckResult> executeAsync(CheckConfiguration config) {
         CheckResult result = new CheckResult();
         result.setCheckId(config.getId());
         result.setResourceUrl(config.getResourceUrl());
         result.setTimestamp(LocalDateTime.now());
-        
-        long startTime = System.currentTimeMillis();
-        
+
+        long startTime = System.nanoTime();
+        DnsTarget target;
         try {
-            // Разбор URL для получения доменного имени
-            String host = config.getResourceUrl().replace("dns://", "");
-            
-            // Выполнение DNS запроса
-            InetAddress[] addresses = InetAddress.getAllByName(host);
-            
-            if (addresses.length > 0) {
-                result.setStatus("UP");
-            } else {
-                result.setStatus("DOWN");
-                result.setErrorMessage("No IP addresses found for host: " + host);
-            }
-        } catch (Exception e) {
-            result.setStatus("DOWN");
-            result.setErrorMessage(e.getMessage());
-            log.error("Error during DNS check for {}: {}", config.getResourceUrl(), e.getMessage());
-        } finally {
-            long endTime = System.currentTimeMillis();
-            result.setResponseTime(endTime - startTime);
+            target = DnsTarget.parse(config.getResourceUrl());
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(complete(config, result, startTime, null,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
         }
-        
-        return result;
+
+        if (!target.recordQuery()) {
+            return withTimeout(dnsResolver.resolve(target.name()), config)
+                    .handle((addresses, error) -> complete(config, result, startTime, null, error != null
+                            ? errorMessage(config, error)
+                            : addresses.isEmpty() ? "No IP addresses found for host: " + target.name() : null));
+        }
+
+        return withTimeout(server(target)
+                        .thenCompose(server -> dnsResolver.query(target.name(), target.type(), server)), config)
+                .handle((response, error) -> error != null
+                        ? complete(config, result, startTime, null, errorMessage(config, error))
+                        : complete(config, result, startTime, response.rttNanos(), verify(target, response)));
     }
-    
+
     @Override
     public boolean supports(String type) {
         return "DNS".equalsIgnoreCase(type);
     }
-}
\ No newline at end of file
+
+    /**
+     * Адрес сервера из URL: литерал разбирается сразу, имя разрешается через кэш резолвера
+     * @return будущий адрес сервера или null для серверов из настроек
+     */
+    private CompletableFuture<InetSocketAddress> server(DnsTarget target) {
+        if (target.serverHost() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (DnsResolver.isIpLiteral(target.serverHost())) {
+            return CompletableFuture.completedFuture(new InetSocketAddress(target.serverHost(), target.serverPort()));
+        }
+        return dnsResolver.resolve(target.serverHost()).thenApply(addresses -> {
+            if (addresses.isEmpty()) {
+                throw new CompletionException(new UnknownHostException(target.serverHost()));
+            }
+            return new InetSocketAddress(addresses.get(0), target.serverPort());
+        });
+    }
+
+    /**
+     * Проверка ответа сервера на соответствие ожиданиям
+     * @return описание несоответствия или null, если ответ соответствует
+     */
+    private static String verify(DnsTarget target, DnsResponse response) {
+        String type = DnsMessage.typeName(target.type());
+        if (response.rcode() != DnsMessage.RCODE_NOERROR) {
+            return "DNS server returned " + DnsMessage.rcodeName(response.rcode()) + " for " + target.name();
+        }
+        List<DnsRecord> records = response.answers().stream()
+                .filter(record -> record.type() == target.type())
+                .toList();
+        if (records.isEmpty()) {
+            return "No " + type + " records found for " + target.name();
+        }
+        List<String> values = records.stream().map(DnsRecord::value).toList();
+        for (String expected : target.expected()) {
+            if (values.stream().noneMatch(value -> matches(target.type(), expected, value))) {
+                return "Expected " + type + " record '" + expected + "' not found in " + values;
+            }
+        }
+        if (target.minTtl() != null) {
+            for (DnsRecord record : records) {
+                if (record.ttl() < target.minTtl()) {
+                    return type + " record " + record.value() + " has TTL " + record.ttl()
+                            + " s, expected at least " + target.minTtl() + " s";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сравнение значений с учетом формы записи: адреса сравниваются как адреса,
+     * имена — без учета регистра и завершающей точки, TXT — точно
+     */
+    private static boolean matches(int type, String expected, String actual) {
+        return switch (type) {
+            case DnsMessage.TYPE_A, DnsMessage.TYPE_AAAA -> sameAddress(expected, actual);
+            case DnsMessage.TYPE_CNAME -> normalizeName(expected).equals(normalizeName(actual));
+            case DnsMessage.TYPE_MX -> {
+                String[] expectedParts = expected.trim().split("\\s+", 2);
+                String[] actualParts = actual.split(" ", 2);
+                if (actualParts.length < 2) {
+                    // Запись без приоритета или имени не соответствует ни одному ожиданию
+                    yield false;
+                }
+                yield expectedParts.length == 2
+                        ? expectedParts[0].equals(actualParts[0])
+                                && normalizeName(expectedParts[1]).equals(normalizeName(actualParts[1]))
+                        // Без приоритета сравнивается только имя сервера
+                        : normalizeName(expectedParts[0]).equals(normalizeName(actualParts[1]));
+            }
+            default -> expected.equals(actual);
+        };
+    }
+
+    private static boolean sameAddress(String expected, String actual) {
+        if (!DnsResolver.isIpLiteral(expected.trim())) {
+            return false;
+        }
+        try {
+            // Литералы разбираются без обращения к резолверу
+            return InetAddress.getByName(expected.trim()).equals(InetAddress.getByName(actual));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static String normalizeName(String name) {
+        String lower = name.trim().toLowerCase(Locale.ROOT);
+        return lower.endsWith(".") && lower.length() > 1 ? lower.substring(0, lower.length() - 1) : lower;
+    }
+
+    private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, CheckConfiguration config) {
+        return config.getTimeout() > 0 ? future.orTimeout(config.getTimeout(), TimeUnit.MILLISECONDS) : future;
+    }
+
+    private static String errorMessage(CheckConfiguration config, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return "DNS lookup timed out after " + config.getTimeout() + " ms";
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Заполнение результата проверки
+     * @param lookupNanos время запроса к серверу или null, чтобы записать общее время проверки
+     * @param errorMessage описание ошибки или null для успешной проверки
+     */
+    private static CheckResult complete(CheckConfiguration config, CheckResult result, long startTime,
+                                        Long lookupNanos, String errorMessage) {
+        long elapsed = System.nanoTime() - startTime;
+        result.setResponseTime(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        CheckResult.Metrics metrics = new CheckResult.Metrics();
+        metrics.setDnsLookupNanos(lookupNanos != null ? lookupNanos : elapsed);
+        result.setMetrics(metrics);
+
+        if (errorMessage == null) {
+            result.setStatus("UP");
+        } else {
+            result.setStatus("DOWN");
+            result.setErrorMessage(errorMessage);
+            log.error("Error during DNS check for {}: {}", config.getResourceUrl(), errorMessage);
+        }
+        return result;
+    }
+
+    /**
+     * @param name запрашиваемое имя
+     * @param serverHost сервер из URL (имя или IP литерал) или null для серверов из настроек
+     * @param serverPort порт сервера из URL
+     * @param recordQuery запрос записей мимо кэша вместо разрешения адресов
+     * @param type тип записи
+     * @param expected ожидаемые значения записей
+     * @param minTtl минимально допустимый TTL в секундах или null
+     */
+    private record DnsTarget(String name, String serverHost, int serverPort, boolean recordQuery, int type,
+                             List<String> expected, Long minTtl) {
+        private static DnsTarget parse(String resourceUrl) {
+            URI uri = URI.create(resourceUrl);
+            if (uri.getScheme() == null) {
+                // Имя без схемы, как в первых версиях проверок
+                return new DnsTarget(resourceUrl, null, UdpDnsClient.DEFAULT_PORT, false, DnsMessage.TYPE_A, List.of(), null);
+            }
+            if (!"dns".equalsIgnoreCase(uri.getScheme())) {
+                throw new IllegalArgumentException("Not a DNS check URL: " + resourceUrl);
+            }
+            String path = uri.getPath();
+            String authority = uri.getHost() != null ? uri.getHost() : uri.getAuthority();
+            String name;
+            String serverHost = null;
+            boolean nameInPath = false;
+            if (path == null || path.isEmpty() || "/".equals(path)) {
+                // dns://имя — прежний формат без сервера
+                if (authority == null) {
+                    throw new IllegalArgumentException("No host name in DNS check URL: " + resourceUrl);
+                }
+                name = authority;
+            } else {
+                name = path.substring(1);
+                nameInPath = true;
+                // Имя сервера разрешается при запросе, а не блокирующим поиском при разборе
+                serverHost = authority;
+            }
+
+            int type = DnsMessage.TYPE_A;
+            List<String> expected = new ArrayList<>();
+            Long minTtl = null;
+            String query = uri.getRawQuery();
+            if (query != null) {
+                for (String parameter : query.split("[;&]")) {
+                    if (parameter.isEmpty()) {
+                        continue;
+                    }
+                    int separator = parameter.indexOf('=');
+                    String key = (separator < 0 ? parameter : parameter.substring(0, separator)).toLowerCase(Locale.ROOT);
+                    // "+" сохраняется: он встречается в TXT записях (SPF)
+                    String value = separator < 0 ? "" : URLDecoder.decode(
+                            parameter.substring(separator + 1).replace("+", "%2B"), StandardCharsets.UTF_8);
+                    switch (key) {
+                        case "type" -> type = DnsMessage.typeOf(value);
+                        case "class" -> {
+                            if (!"IN".equalsIgnoreCase(value)) {
+                                throw new IllegalArgumentException("Unsupported DNS class: " + value);
+                            }
+                        }
+                        case "expect" -> expected.add(value);
+                        case "minttl" -> minTtl = Long.parseLong(value);
+                        default -> throw new IllegalArgumentException("Unknown DNS check parameter: " + key);
+                    }
+                }
+            }
+            boolean recordQuery = nameInPath || query != null;
+            int serverPort = uri.getPort() > 0 ? uri.getPort() : UdpDnsClient.DEFAULT_PORT;
+            return new DnsTarget(name, serverHost, serverPort, recordQuery, type, List.copyOf(expected), minTtl);
+        }
+    }
+}
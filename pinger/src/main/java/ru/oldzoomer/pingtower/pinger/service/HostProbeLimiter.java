@@ -0,0 +1,232 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.pinger.config.HostLimitProperties;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+import ru.oldzoomer.pingtower.pinger.scheduler.CheckDispatcher;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение проверок одного целевого хоста: не больше maxConcurrent одновременных проверок
+ * и не чаще ratePerSecond запусков в секунду с допустимой пачкой burst (корзина токенов).
+ * <p>
+ * Состояние хранится отдельно для каждого хоста в ограниченном кэше (maxHosts хостов, хост без проверок
+ * дольше idleTimeout удаляется), обновления выполняются через CAS без блокировок. Корзина токенов
+ * реализована как GCRA: для хоста хранится теоретическое время следующего запуска, поэтому все ее
+ * состояние — одно число. Проверка, превысившая ограничение, откладывается и повторяется через
+ * диспетчер проверок; если дождаться не удалось за maxDeferral (и не дольше периода проверки),
+ * проверка не выполняется, а ее результатом становится UNKNOWN с описанием причины, чтобы пропуск
+ * был виден в статистике, а не оставлял разрыв.
+ */
+@Slf4j
+@Component
+public class HostProbeLimiter {
+    // Результат попытки захвата: превышено ограничение одновременных проверок
+    private static final long CONCURRENCY_LIMITED = -1;
+
+    static final String SKIPPED_STATUS = "UNKNOWN";
+
+    private final HostLimitProperties properties;
+    private final Executor retryExecutor;
+    private final LongSupplier nanoTime;
+
+    // Начало отсчета времени хостов, чтобы нулевое начальное значение было в прошлом
+    private final long origin;
+    private final Cache<String, HostState> hosts;
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+
+    private final Counter deferredByConcurrency;
+    private final Counter deferredByRate;
+    private final Counter skippedCounter;
+
+    @Autowired
+    public HostProbeLimiter(HostLimitProperties properties, CheckDispatcher checkDispatcher, MeterRegistry meterRegistry) {
+        this(properties, checkDispatcher, meterRegistry, System::nanoTime);
+    }
+
+    HostProbeLimiter(HostLimitProperties properties, Executor retryExecutor, MeterRegistry meterRegistry,
+                     LongSupplier nanoTime) {
+        if (properties.getMaxConcurrent() <= 0 || properties.getRatePerSecond() <= 0 || properties.getBurst() <= 0) {
+            throw new IllegalArgumentException("Host limits must be positive: maxConcurrent="
+                    + properties.getMaxConcurrent() + ", ratePerSecond=" + properties.getRatePerSecond()
+                    + ", burst=" + properties.getBurst());
+        }
+        this.properties = properties;
+        this.retryExecutor = retryExecutor;
+        this.nanoTime = nanoTime;
+        this.origin = nanoTime.getAsLong();
+
+        // Хост с выполняющимися проверками не простаивает, поэтому его состояние не удаляется по idleTimeout
+        this.hosts = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxHosts())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .ticker(nanoTime::getAsLong)
+                .build();
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRatePerSecond()));
+        this.burstNanos = emissionIntervalNanos * properties.getBurst();
+
+        this.deferredByConcurrency = Counter.builder("pinger.host.probes.deferred")
+                .description("Probes deferred by per-host limits")
+                .tag("reason", "concurrency")
+                .register(meterRegistry);
+        this.deferredByRate = Counter.builder("pinger.host.probes.deferred")
+                .description("Probes deferred by per-host limits")
+                .tag("reason", "rate")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("pinger.host.probes.skipped")
+                .description("Probes reported as UNKNOWN because per-host limits did not allow them in time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполнение проверки с учетом ограничений ее хоста
+     * @param executor исполнитель проверки
+     * @param config конфигурация проверки
+     * @return будущий результат проверки; результат со статусом UNKNOWN, если проверка пропущена
+     * из-за ограничений
+     */
+    public CompletableFuture<CheckResult> executeAsync(CheckExecutor executor, CheckConfiguration config) {
+        if (!properties.isEnabled()) {
+            return executor.executeAsync(config);
+        }
+        String host = hostOf(config.getResourceUrl());
+        long maxDeferral = properties.getMaxDeferral().toNanos();
+        if (config.getFrequency() > 0) {
+            maxDeferral = Math.min(maxDeferral, TimeUnit.MILLISECONDS.toNanos(config.getFrequency()));
+        }
+        CompletableFuture<CheckResult> promise = new CompletableFuture<>();
+        attempt(executor, config, host, nanoTime.getAsLong() + maxDeferral, false, promise);
+        return promise;
+    }
+
+    private void attempt(CheckExecutor executor, CheckConfiguration config, String host, long deadline,
+                         boolean deferred, CompletableFuture<CheckResult> promise) {
+        HostState state = hosts.get(host, ignored -> new HostState());
+        long wait = tryAcquire(state);
+        if (wait == 0) {
+            run(executor, config, state, promise);
+            return;
+        }
+        if (!deferred) {
+            (wait == CONCURRENCY_LIMITED ? deferredByConcurrency : deferredByRate).increment();
+        }
+        long delay = wait == CONCURRENCY_LIMITED ? properties.getRetryDelay().toNanos() : wait;
+        if (nanoTime.getAsLong() + delay > deadline) {
+            skip(config, host, promise);
+            return;
+        }
+        // Таймер только передает попытку диспетчеру, сама проверка выполняется его потоками
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, Runnable::run).execute(() -> {
+            try {
+                retryExecutor.execute(() -> attempt(executor, config, host, deadline, true, promise));
+            } catch (RejectedExecutionException e) {
+                skip(config, host, promise);
+            }
+        });
+    }
+
+    private void run(CheckExecutor executor, CheckConfiguration config, HostState state,
+                     CompletableFuture<CheckResult> promise) {
+        try {
+            executor.executeAsync(config).whenComplete((result, error) -> {
+                state.inFlight.decrementAndGet();
+                if (error != null) {
+                    promise.completeExceptionally(error);
+                } else {
+                    promise.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            state.inFlight.decrementAndGet();
+            promise.completeExceptionally(e);
+        }
+    }
+
+    private void skip(CheckConfiguration config, String host, CompletableFuture<CheckResult> promise) {
+        skippedCounter.increment();
+        log.warn("Skipping check {}: per-host limits for {} did not allow it in time", config.getId(), host);
+        CheckResult result = new CheckResult();
+        result.setCheckId(config.getId());
+        result.setResourceUrl(config.getResourceUrl());
+        result.setTimestamp(LocalDateTime.now());
+        result.setStatus(SKIPPED_STATUS);
+        result.setErrorMessage("Skipped: per-host limit for " + host + " exceeded");
+        promise.complete(result);
+    }
+
+    /**
+     * Захват места для проверки хоста
+     * @return 0, если проверку можно запускать; {@link #CONCURRENCY_LIMITED}, если превышено
+     * ограничение одновременных проверок; иначе время в наносекундах до появления токена
+     */
+    private long tryAcquire(HostState state) {
+        int current;
+        do {
+            current = state.inFlight.get();
+            if (current >= properties.getMaxConcurrent()) {
+                return CONCURRENCY_LIMITED;
+            }
+        } while (!state.inFlight.compareAndSet(current, current + 1));
+
+        long now = nanoTime.getAsLong() - origin;
+        while (true) {
+            long tat = state.theoreticalArrival.get();
+            long next = Math.max(tat, now) + emissionIntervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                state.inFlight.decrementAndGet();
+                return wait;
+            }
+            if (state.theoreticalArrival.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Хост проверки из URL ресурса (http://, https://, tcp://, dns://)
+     * @param resourceUrl URL ресурса
+     * @return имя хоста в нижнем регистре или весь URL, если хост не выделяется
+     */
+    static String hostOf(String resourceUrl) {
+        if (resourceUrl == null) {
+            return "";
+        }
+        try {
+            String host = URI.create(resourceUrl).getHost();
+            if (host != null) {
+                return host.toLowerCase(Locale.ROOT);
+            }
+        } catch (IllegalArgumentException e) {
+            // Некорректный URL ограничивается как отдельный хост
+        }
+        return resourceUrl.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Состояние ограничений одного хоста: количество выполняющихся проверок и теоретическое время
+     * следующего запуска GCRA
+     */
+    private static final class HostState {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong theoreticalArrival = new AtomicLong();
+    }
+}
@@ -3,10 +3,12 @@ package ru.oldzoomer.pingtower.pinger.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -15,11 +17,17 @@ import java.net.URL;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class HttpCheckExecutor implements CheckExecutor {
+    // Размер буфера и предельный объем читаемого тела ответа
+    private static final int BODY_BUFFER_SIZE = 8192;
+    private static final long MAX_BODY_BYTES = 16L * 1024 * 1024;
+
+    private final DnsResolver dnsResolver;
     
     @Override
     public CheckResult execute(CheckConfiguration config) {
@@ -28,36 +36,50 @@ public class HttpCheckExecutor implements CheckExecutor {
         result.setResourceUrl(config.getResourceUrl());
         result.setTimestamp(LocalDateTime.now());
         
-        long startTime = System.currentTimeMillis();
-        long connectionTime = 0;
-        long timeToFirstByte = 0;
+        long startTime = System.nanoTime();
+        PhaseTimings timings = new PhaseTimings(startTime);
         
         try {
             URL url = createURL(config.getResourceUrl());
+            
+            // Явное разрешение имени: последующий поиск в HttpURLConnection получает адрес из того же кэша
+            resolveHost(url, config.getTimeout(), timings);
+            
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             
             // Установка таймаутов
             connection.setConnectTimeout(config.getTimeout());
             connection.setReadTimeout(config.getTimeout());
+            // Каждая проверка измеряет полное установление соединения, а не переиспользует keep-alive
+            connection.setRequestProperty("Connection", "close");
             
-            connectionTime = System.currentTimeMillis() - startTime;
+            PhaseTimingSSLSocketFactory timingSocketFactory = null;
+            if (connection instanceof HttpsURLConnection httpsConnection) {
+                SSLSocketFactory socketFactory = httpsConnection.getSSLSocketFactory();
+                timingSocketFactory = new PhaseTimingSSLSocketFactory(
+                        socketFactory != null ? socketFactory : HttpsURLConnection.getDefaultSSLSocketFactory());
+                httpsConnection.setSSLSocketFactory(timingSocketFactory);
+            }
             
-            // Подключение к ресурсу и получение первого байта
+            // Подключение к ресурсу: TCP соединение и, для HTTPS, TLS рукопожатие
+            long connectStart = System.nanoTime();
             connection.connect();
+            timings.connected(connectStart, System.nanoTime(),
+                    timingSocketFactory != null ? timingSocketFactory.getTcpConnectedAt() : 0);
             
-            timeToFirstByte = System.currentTimeMillis() - startTime;
+            // Получение кода ответа: отправка запроса и ожидание первого байта
+            int responseCode = connection.getResponseCode();
+            timings.firstByte(System.nanoTime());
+            result.setHttpStatusCode(responseCode);
             
-            // Чтение первого байта данных
-            try (InputStream inputStream = connection.getInputStream()) {
-                inputStream.read();
-            } catch (IOException e) {
-                // Игнорируем ошибки чтения, если они не критичны
-                log.debug("Error reading first byte from {}: {}", config.getResourceUrl(), e.getMessage());
+            // Если это HTTPS, проверяем SSL сертификат, пока соединение открыто
+            if (connection instanceof HttpsURLConnection) {
+                checkSslCertificate((HttpsURLConnection) connection, result, config.isValidateSsl());
             }
             
-            // Получение кода ответа
-            int responseCode = connection.getResponseCode();
-            result.setHttpStatusCode(responseCode);
+            // Чтение тела ответа целиком
+            readBody(connection, config.getResourceUrl());
+            timings.downloaded(System.nanoTime());
             
             // Проверка кода ответа
             if (responseCode >= 200 && responseCode < 300) {
@@ -72,27 +94,19 @@ public class HttpCheckExecutor implements CheckExecutor {
                 result.setErrorMessage("HTTP error code: " + responseCode);
             }
             
-            // Если это HTTPS, проверяем SSL сертификат
-            if (connection instanceof HttpsURLConnection) {
-                checkSslCertificate((HttpsURLConnection) connection, result, config.isValidateSsl());
-            }
-            
             connection.disconnect();
         } catch (Exception e) {
             result.setStatus("DOWN");
             result.setErrorMessage(e.getMessage());
             log.error("Error during HTTP check for {}: {}", config.getResourceUrl(), e.getMessage());
         } finally {
-            long endTime = System.currentTimeMillis();
-            result.setResponseTime(endTime - startTime);
+            result.setResponseTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
             
-            // Установка метрик (если еще не установлены)
+            // Установка метрик (если еще не установлены) и времени фаз
             if (result.getMetrics() == null) {
-                CheckResult.Metrics metrics = new CheckResult.Metrics();
-                metrics.setConnectionTime(connectionTime);
-                metrics.setTimeToFirstByte(timeToFirstByte);
-                result.setMetrics(metrics);
+                result.setMetrics(new CheckResult.Metrics());
             }
+            timings.applyTo(result.getMetrics());
         }
         
         return result;
@@ -113,6 +127,51 @@ public class HttpCheckExecutor implements CheckExecutor {
         return new URI(urlString).toURL();
     }
     
+    /**
+     * Разрешение имени хоста с замером времени
+     * @param url URL ресурса
+     * @param timeoutMillis время ожидания разрешения
+     * @param timings замеры фаз проверки
+     * @throws IOException если имя не разрешается
+     */
+    private void resolveHost(URL url, long timeoutMillis, PhaseTimings timings) throws IOException {
+        String host = url.getHost();
+        if (host == null || host.isEmpty()) {
+            return;
+        }
+        long dnsStart = System.nanoTime();
+        dnsResolver.resolveBlocking(host, timeoutMillis);
+        timings.dnsLookupNanos = System.nanoTime() - dnsStart;
+    }
+    
+    /**
+     * Чтение тела ответа без сохранения. Для кодов ошибок тело читается из потока ошибок.
+     * @param connection HTTP соединение
+     * @param resourceUrl URL ресурса (для логирования)
+     */
+    private void readBody(HttpURLConnection connection, String resourceUrl) {
+        InputStream body;
+        try {
+            body = connection.getInputStream();
+        } catch (IOException e) {
+            body = connection.getErrorStream();
+        }
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[BODY_BUFFER_SIZE];
+        long total = 0;
+        try (InputStream inputStream = body) {
+            int read;
+            while (total < MAX_BODY_BYTES && (read = inputStream.read(buffer)) != -1) {
+                total += read;
+            }
+        } catch (IOException e) {
+            // Игнорируем ошибки чтения, если они не критичны
+            log.debug("Error reading response body from {}: {}", resourceUrl, e.getMessage());
+        }
+    }
+    
     /**
      * Проверка SSL сертификата
      * @param connection HTTPS соединение
@@ -156,4 +215,63 @@ public class HttpCheckExecutor implements CheckExecutor {
             log.error("SSL certificate error for {}: {}", connection.getURL().getHost(), e.getMessage());
         }
     }
+
+    /**
+     * Отметки времени фаз HTTP проверки в наносекундах.
+     * Фаза, которую не удалось измерить (например, TLS для HTTP), остается null.
+     */
+    private static class PhaseTimings {
+        private final long startTime;
+        private Long dnsLookupNanos;
+        private Long tcpConnectNanos;
+        private Long tlsHandshakeNanos;
+        private Long timeToFirstByteNanos;
+        private Long downloadNanos;
+        private long connectedAt;
+        private long firstByteAt;
+        
+        private PhaseTimings(long startTime) {
+            this.startTime = startTime;
+        }
+        
+        /**
+         * @param connectStart начало подключения
+         * @param connectEnd окончание подключения (включая TLS рукопожатие)
+         * @param tcpConnectedAt момент создания TLS слоя поверх TCP или 0
+         */
+        private void connected(long connectStart, long connectEnd, long tcpConnectedAt) {
+            connectedAt = connectEnd;
+            if (tcpConnectedAt > 0) {
+                tcpConnectNanos = tcpConnectedAt - connectStart;
+                tlsHandshakeNanos = connectEnd - tcpConnectedAt;
+            } else {
+                tcpConnectNanos = connectEnd - connectStart;
+            }
+        }
+        
+        private void firstByte(long time) {
+            firstByteAt = time;
+            // HttpURLConnection не позволяет отделить отправку запроса от ожидания ответа,
+            // поэтому отправка входит в это время
+            timeToFirstByteNanos = time - connectedAt;
+        }
+        
+        private void downloaded(long time) {
+            downloadNanos = time - firstByteAt;
+        }
+        
+        private void applyTo(CheckResult.Metrics metrics) {
+            metrics.setDnsLookupNanos(dnsLookupNanos);
+            metrics.setTcpConnectNanos(tcpConnectNanos);
+            metrics.setTlsHandshakeNanos(tlsHandshakeNanos);
+            metrics.setTimeToFirstByteNanos(timeToFirstByteNanos);
+            metrics.setDownloadNanos(downloadNanos);
+            if (connectedAt > 0) {
+                metrics.setConnectionTime(TimeUnit.NANOSECONDS.toMillis(connectedAt - startTime));
+            }
+            if (firstByteAt > 0) {
+                metrics.setTimeToFirstByte(TimeUnit.NANOSECONDS.toMillis(firstByteAt - startTime));
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Обертка над {@link SSLSocketFactory}, фиксирующая момент, когда TCP соединение
+ * уже установлено и поверх него создается TLS сокет.
+ * <p>
+ * {@link javax.net.ssl.HttpsURLConnection} сначала открывает обычный сокет,
+ * затем вызывает {@link #createSocket(Socket, String, int, boolean)} и выполняет рукопожатие,
+ * поэтому отметка разделяет фазы TCP соединения и TLS рукопожатия.
+ * Создание неподключенных сокетов ({@code createSocket()}) намеренно не переопределено:
+ * иначе соединение сразу открывается TLS сокетом и отметка не ставится.
+ * Экземпляр предназначен для одного соединения.
+ */
+class PhaseTimingSSLSocketFactory extends SSLSocketFactory {
+    private final SSLSocketFactory delegate;
+    private volatile long tcpConnectedAt;
+
+    PhaseTimingSSLSocketFactory(SSLSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return значение {@link System#nanoTime()} на момент завершения TCP соединения или 0, если TLS слой не создавался
+     */
+    long getTcpConnectedAt() {
+        return tcpConnectedAt;
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        tcpConnectedAt = System.nanoTime();
+        return delegate.createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return delegate.createSocket(address, port, localAddress, localPort);
+    }
+}
@@ -1,19 +1,25 @@
 package ru.oldzoomer.pingtower.pinger.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class TcpCheckExecutor implements CheckExecutor {
-    
+    private final DnsResolver dnsResolver;
+
     @Override
     public CheckResult execute(CheckConfiguration config) {
         CheckResult result = new CheckResult();
@@ -23,6 +29,8 @@ public class TcpCheckExecutor implements CheckExecutor {
         
         long startTime = System.currentTimeMillis();
         long connectionTime = 0;
+        Long dnsLookupNanos = null;
+        Long tcpConnectNanos = null;
         
         try {
             // Разбор URL для получения хоста и порта
@@ -35,9 +43,15 @@ public class TcpCheckExecutor implements CheckExecutor {
             // Установка таймаута
             long timeout = config.getTimeout();
             
-            long connectStartTime = System.currentTimeMillis();
-            socket.connect(new InetSocketAddress(host, port), (int) timeout);
-            connectionTime = System.currentTimeMillis() - connectStartTime;
+            // Разрешение имени через общий кэш отдельно от соединения, чтобы разделить время фаз
+            long dnsStart = System.nanoTime();
+            InetAddress address = dnsResolver.resolveBlocking(host, timeout).get(0);
+            long connectStart = System.nanoTime();
+            dnsLookupNanos = connectStart - dnsStart;
+            
+            socket.connect(new InetSocketAddress(address, port), (int) timeout);
+            tcpConnectNanos = System.nanoTime() - connectStart;
+            connectionTime = TimeUnit.NANOSECONDS.toMillis(tcpConnectNanos);
             
             // Если соединение успешно установлено
             result.setStatus("UP");
@@ -57,6 +71,8 @@ public class TcpCheckExecutor implements CheckExecutor {
             // Установка метрик
             CheckResult.Metrics metrics = new CheckResult.Metrics();
             metrics.setConnectionTime(connectionTime);
+            metrics.setDnsLookupNanos(dnsLookupNanos);
+            metrics.setTcpConnectNanos(tcpConnectNanos);
             result.setMetrics(metrics);
         }
         
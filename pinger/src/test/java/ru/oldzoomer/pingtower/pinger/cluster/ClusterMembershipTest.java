@@ -0,0 +1,148 @@
+package ru.oldzoomer.pingtower.pinger.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import ru.oldzoomer.pingtower.pinger.config.ClusterProperties;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterMembershipTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ClusterProperties properties;
+
+    private ClusterMembership clusterMembership;
+
+    private final Instant now = Instant.parse("2024-01-15T10:30:00Z");
+
+    @BeforeEach
+    void setUp() {
+        properties = new ClusterProperties();
+        properties.setEnabled(true);
+        properties.setInstanceId("pinger-1");
+        clusterMembership = new ClusterMembership(redisTemplate, properties, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testOwns_NothingBeforeFirstHeartbeat() {
+        assertFalse(clusterMembership.owns("check-1"));
+    }
+
+    @Test
+    void testOwns_AllChecksWhenDisabled() {
+        properties.setEnabled(false);
+
+        assertTrue(clusterMembership.owns("check-1"));
+        clusterMembership.heartbeat();
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void testHeartbeat_SplitsChecksBetweenMembers() {
+        stubRedisTime();
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        long expiredBefore = now.toEpochMilli() - properties.getMemberTimeout().toMillis();
+        when(zSetOperations.rangeByScore("pinger:members", expiredBefore, Double.POSITIVE_INFINITY))
+                .thenReturn(Set.of("pinger-1", "pinger-2"));
+
+        clusterMembership.heartbeat();
+
+        verify(zSetOperations).add("pinger:members", "pinger-1", now.toEpochMilli());
+        verify(zSetOperations).removeRangeByScore("pinger:members", Double.NEGATIVE_INFINITY, expiredBefore);
+        verify(eventPublisher).publishEvent(new MembershipChangedEvent(Set.of("pinger-1", "pinger-2")));
+        HashRing ring = new HashRing(Set.of("pinger-1", "pinger-2"), properties.getVirtualNodes());
+        for (int i = 0; i < 100; i++) {
+            String checkId = "check-" + i;
+            assertEquals("pinger-1".equals(ring.owner(checkId)), clusterMembership.owns(checkId));
+        }
+    }
+
+    @Test
+    void testHeartbeat_PublishesOnlyOnChange() {
+        stubRedisTime();
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.rangeByScore(eq("pinger:members"), anyDouble(), anyDouble()))
+                .thenReturn(Set.of("pinger-1", "pinger-2"));
+
+        clusterMembership.heartbeat();
+        clusterMembership.heartbeat();
+
+        verify(eventPublisher, times(1)).publishEvent(any(MembershipChangedEvent.class));
+    }
+
+    @Test
+    void testHeartbeat_RedisUnavailableKeepsLastMembership() {
+        stubRedisTime();
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.rangeByScore(eq("pinger:members"), anyDouble(), anyDouble()))
+                .thenReturn(Set.of("pinger-1", "pinger-2"));
+        clusterMembership.heartbeat();
+
+        when(zSetOperations.add(anyString(), anyString(), anyDouble()))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+        clusterMembership.heartbeat();
+
+        verify(eventPublisher, times(1)).publishEvent(any(MembershipChangedEvent.class));
+    }
+
+    @Test
+    void testHeartbeat_RedisUnavailableOnStartOwnsAllChecks() {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisCallback<Long>>any()))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+        clusterMembership.heartbeat();
+
+        assertTrue(clusterMembership.owns("check-1"));
+        verify(eventPublisher).publishEvent(new MembershipChangedEvent(Set.of("pinger-1")));
+    }
+
+    @Test
+    void testHeartbeat_UsesRedisServerTime() {
+        // Время сигнала берется у Redis, а не у часов экземпляра
+        Instant redisNow = now.plusSeconds(3600);
+        when(redisTemplate.execute(ArgumentMatchers.<RedisCallback<Long>>any())).thenReturn(redisNow.toEpochMilli());
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+
+        clusterMembership.heartbeat();
+
+        verify(zSetOperations).add("pinger:members", "pinger-1", redisNow.toEpochMilli());
+        verify(zSetOperations).rangeByScore("pinger:members",
+                redisNow.toEpochMilli() - properties.getMemberTimeout().toMillis(), Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void testLeave_RemovesInstance() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+
+        clusterMembership.leave();
+
+        verify(zSetOperations).remove("pinger:members", "pinger-1");
+    }
+
+    private void stubRedisTime() {
+        when(redisTemplate.execute(ArgumentMatchers.<RedisCallback<Long>>any())).thenReturn(now.toEpochMilli());
+    }
+}
@@ -0,0 +1,61 @@
+package ru.oldzoomer.pingtower.pinger.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    void testOwner_DistributesKeysEvenly() {
+        HashRing ring = new HashRing(List.of("pinger-1", "pinger-2", "pinger-3", "pinger-4"), 160);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("check-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        // Каждому экземпляру достается около четверти проверок
+        counts.values().forEach(count -> assertTrue(count > KEYS / 4 * 0.8 && count < KEYS / 4 * 1.2, "count " + count));
+    }
+
+    @Test
+    void testOwner_JoiningMemberTakesOnlyItsShare() {
+        HashRing before = new HashRing(List.of("pinger-1", "pinger-2", "pinger-3"), 160);
+        HashRing after = new HashRing(List.of("pinger-1", "pinger-2", "pinger-3", "pinger-4"), 160);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "check-" + i;
+            String owner = after.owner(key);
+            if (!owner.equals(before.owner(key))) {
+                // Проверки переходят только к новому экземпляру
+                assertEquals("pinger-4", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved < KEYS * 0.35, "moved " + moved);
+    }
+
+    @Test
+    void testOwner_IndependentOfMemberOrder() {
+        HashRing ring = new HashRing(List.of("pinger-1", "pinger-2"), 16);
+        HashRing reordered = new HashRing(List.of("pinger-2", "pinger-1"), 16);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ring.owner("check-" + i), reordered.owner("check-" + i));
+        }
+    }
+
+    @Test
+    void testOwner_EmptyRing() {
+        assertNull(new HashRing(List.of(), 16).owner("check-1"));
+    }
+}
@@ -0,0 +1,112 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DnsMessageTest {
+
+    @Test
+    void testEncodeQuery() {
+        byte[] query = DnsMessage.encodeQuery(0x1234, "example.com.", DnsMessage.TYPE_A);
+
+        assertEquals("123401000001000000000000" + "076578616d706c6503636f6d00" + "00010001",
+                HexFormat.of().formatHex(query));
+    }
+
+    @Test
+    void testEncodeQuery_RejectsInvalidNames() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DnsMessage.encodeQuery(1, "a..example.com", DnsMessage.TYPE_A));
+        assertThrows(IllegalArgumentException.class,
+                () -> DnsMessage.encodeQuery(1, "x".repeat(64) + ".com", DnsMessage.TYPE_A));
+    }
+
+    @Test
+    void testDecode_AddressAnswers() {
+        byte[] query = DnsMessage.encodeQuery(7, "example.com", DnsMessage.TYPE_A);
+        byte[] data = DnsResponses.response(query, DnsMessage.RCODE_NOERROR,
+                DnsResponses.a(300, 93, 184, 216, 34),
+                DnsResponses.a(60, 93, 184, 216, 35));
+
+        DnsResponse response = DnsMessage.decode(data, data.length);
+
+        assertEquals(7, response.id());
+        assertEquals(DnsMessage.RCODE_NOERROR, response.rcode());
+        assertFalse(response.truncated());
+        assertEquals("example.com", response.question());
+        assertEquals(DnsMessage.TYPE_A, response.questionType());
+        assertEquals(2, response.answers().size());
+        assertEquals(new DnsRecord("example.com", DnsMessage.TYPE_A, 300, "93.184.216.34"), response.answers().get(0));
+        assertEquals(60, response.answers().get(1).ttl());
+    }
+
+    @Test
+    void testDecode_CnameWithCompressedTarget() {
+        byte[] query = DnsMessage.encodeQuery(7, "www.example.com", DnsMessage.TYPE_A);
+        // Цель CNAME: метка "cdn" и ссылка на "example.com" внутри имени вопроса (смещение 16)
+        byte[] target = {3, 'c', 'd', 'n', (byte) 0xc0, 16};
+        byte[] data = DnsResponses.response(query, DnsMessage.RCODE_NOERROR,
+                new DnsResponses.Answer(DnsMessage.TYPE_CNAME, 60, target),
+                DnsResponses.a(30, 10, 0, 0, 1));
+
+        DnsResponse response = DnsMessage.decode(data, data.length);
+
+        assertEquals("cdn.example.com", response.answers().get(0).value());
+        assertEquals("10.0.0.1", response.answers().get(1).value());
+    }
+
+    @Test
+    void testDecode_MxAndTxtRecords() {
+        byte[] query = DnsMessage.encodeQuery(7, "example.com", DnsMessage.TYPE_MX);
+        // Приоритет 10 и имя "mail" со ссылкой на имя вопроса
+        byte[] mx = {0, 10, 4, 'm', 'a', 'i', 'l', (byte) 0xc0, 12};
+        // Две строки TXT склеиваются
+        byte[] txt = {4, 'v', '=', 's', 'p', 3, 'f', '1', ' ', 4, '-', 'a', 'l', 'l'};
+        byte[] data = DnsResponses.response(query, DnsMessage.RCODE_NOERROR,
+                new DnsResponses.Answer(DnsMessage.TYPE_MX, 300, mx),
+                new DnsResponses.Answer(DnsMessage.TYPE_TXT, 300, txt));
+
+        DnsResponse response = DnsMessage.decode(data, data.length);
+
+        assertEquals("10 mail.example.com", response.answers().get(0).value());
+        assertEquals("v=spf1 -all", response.answers().get(1).value());
+    }
+
+    @Test
+    void testTypeOf() {
+        assertEquals(DnsMessage.TYPE_MX, DnsMessage.typeOf("mx"));
+        assertEquals(DnsMessage.TYPE_AAAA, DnsMessage.typeOf("AAAA"));
+        assertEquals("TXT", DnsMessage.typeName(DnsMessage.typeOf("txt")));
+        assertThrows(IllegalArgumentException.class, () -> DnsMessage.typeOf("SRV"));
+    }
+
+    @Test
+    void testDecode_NxDomain() {
+        byte[] query = DnsMessage.encodeQuery(7, "missing.example.com", DnsMessage.TYPE_AAAA);
+        byte[] data = DnsResponses.response(query, DnsMessage.RCODE_NXDOMAIN);
+
+        DnsResponse response = DnsMessage.decode(data, data.length);
+
+        assertEquals(DnsMessage.RCODE_NXDOMAIN, response.rcode());
+        assertTrue(response.answers().isEmpty());
+    }
+
+    @Test
+    void testDecode_RejectsMalformedMessages() {
+        byte[] query = DnsMessage.encodeQuery(7, "example.com", DnsMessage.TYPE_A);
+        byte[] data = DnsResponses.response(query, DnsMessage.RCODE_NOERROR, DnsResponses.a(300, 1, 2, 3, 4));
+
+        // Запрос, а не ответ
+        assertThrows(IllegalArgumentException.class, () -> DnsMessage.decode(query, query.length));
+        // Обрезанная запись
+        assertThrows(IllegalArgumentException.class, () -> DnsMessage.decode(data, data.length - 2));
+        // Ссылка сжатия вперед (цикл)
+        byte[] loop = data.clone();
+        loop[query.length] = (byte) 0xc0;
+        loop[query.length + 1] = (byte) query.length;
+        assertThrows(IllegalArgumentException.class, () -> DnsMessage.decode(loop, loop.length));
+    }
+}
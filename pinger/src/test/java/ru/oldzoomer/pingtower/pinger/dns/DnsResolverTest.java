@@ -0,0 +1,245 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.pingtower.pinger.config.DnsProperties;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver.LookupPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DnsResolverTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger systemLookups = new AtomicInteger();
+    private MeterRegistry meterRegistry;
+    private DnsProperties properties;
+    private UdpDnsClient udpDnsClient;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new DnsProperties();
+        udpDnsClient = mock(UdpDnsClient.class);
+    }
+
+    @Test
+    void testResolve_SystemLookupIsCachedForSystemTtl() {
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[]{address(host, 10, 0, 0, 1)});
+
+        assertEquals("10.0.0.1", resolver.resolve("Example.com").join().get(0).getHostAddress());
+        assertEquals("10.0.0.1", resolver.resolve("example.com.").join().get(0).getHostAddress());
+        assertEquals(1, systemLookups.get());
+        assertEquals(1, cacheRequests("hit"));
+
+        now.addAndGet(properties.getSystemTtl().toNanos());
+        resolver.resolve("example.com").join();
+
+        assertEquals(2, systemLookups.get());
+    }
+
+    @Test
+    void testResolve_EntriesExpireIndividually() {
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[]{address(host, 10, 0, 0, 1)});
+
+        resolver.resolve("first.example").join();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        resolver.resolve("second.example").join();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertNull(resolver.cached("first.example"));
+        assertNotNull(resolver.cached("second.example"));
+    }
+
+    @Test
+    void testResolve_CoalescesConcurrentLookups() {
+        List<Runnable> tasks = new ArrayList<>();
+        DnsResolver resolver = createResolver(tasks::add, host -> new InetAddress[]{address(host, 10, 0, 0, 1)});
+
+        CompletableFuture<List<InetAddress>> first = resolver.resolve("example.com");
+        CompletableFuture<List<InetAddress>> second = resolver.resolve("example.com");
+        assertEquals(1, tasks.size());
+        tasks.forEach(Runnable::run);
+
+        assertEquals(first.join(), second.join());
+        assertEquals(1, systemLookups.get());
+        assertEquals(1, cacheRequests("coalesced"));
+    }
+
+    @Test
+    void testResolve_TimeoutOfOneCallerDoesNotAffectOthers() {
+        List<Runnable> tasks = new ArrayList<>();
+        DnsResolver resolver = createResolver(tasks::add, host -> new InetAddress[]{address(host, 10, 0, 0, 1)});
+
+        CompletableFuture<List<InetAddress>> impatient = resolver.resolve("example.com").orTimeout(1, TimeUnit.NANOSECONDS);
+        CompletableFuture<List<InetAddress>> patient = resolver.resolve("example.com");
+        assertThrows(CompletionException.class, impatient::join);
+        tasks.forEach(Runnable::run);
+
+        assertEquals(1, patient.join().size());
+    }
+
+    @Test
+    void testResolve_CachesUnknownHostForNegativeTtl() {
+        DnsResolver resolver = createResolver(Runnable::run, host -> {
+            throw new UnknownHostException(host);
+        });
+
+        CompletionException first = assertThrows(CompletionException.class, () -> resolver.resolve("missing.example").join());
+        assertInstanceOf(UnknownHostException.class, first.getCause());
+        assertThrows(CompletionException.class, () -> resolver.resolve("missing.example").join());
+        assertEquals(1, systemLookups.get());
+        assertEquals(1, cacheRequests("negative_hit"));
+
+        now.addAndGet(properties.getNegativeTtl().toNanos());
+        assertThrows(CompletionException.class, () -> resolver.resolve("missing.example").join());
+        assertEquals(2, systemLookups.get());
+    }
+
+    @Test
+    void testResolve_IpLiteralIsNotLookedUp() {
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[0]);
+
+        assertEquals("192.0.2.1", resolver.resolve("192.0.2.1").join().get(0).getHostAddress());
+        assertEquals(1, resolver.resolve("[::1]").join().size());
+        assertEquals(0, systemLookups.get());
+    }
+
+    @Test
+    void testResolve_UdpLookupUsesRecordTtl() {
+        properties.setServers(List.of("192.0.2.53"));
+        InetSocketAddress server = new InetSocketAddress("192.0.2.53", 53);
+        when(udpDnsClient.query(eq(server), eq("example.com"), eq(DnsMessage.TYPE_A), any()))
+                .thenReturn(CompletableFuture.completedFuture(response("example.com", DnsMessage.RCODE_NOERROR,
+                        new DnsRecord("example.com", DnsMessage.TYPE_A, 120, "93.184.216.34"))));
+        when(udpDnsClient.query(eq(server), eq("example.com"), eq(DnsMessage.TYPE_AAAA), any()))
+                .thenReturn(CompletableFuture.completedFuture(response("example.com", DnsMessage.RCODE_NOERROR,
+                        new DnsRecord("example.com", DnsMessage.TYPE_AAAA, 60, "2001:db8::1"))));
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[0]);
+
+        List<InetAddress> addresses = resolver.resolve("example.com").join();
+
+        assertEquals(2, addresses.size());
+        assertEquals("example.com", addresses.get(0).getHostName());
+        assertEquals(addresses, resolver.cached("example.com"));
+
+        // Кэш хранится по наименьшему TTL записей
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertNull(resolver.cached("example.com"));
+        resolver.resolve("example.com").join();
+        verify(udpDnsClient, times(2)).query(eq(server), eq("example.com"), eq(DnsMessage.TYPE_A), any());
+        assertEquals(0, systemLookups.get());
+    }
+
+    @Test
+    void testResolve_UdpLookupFailsOverToNextServer() {
+        properties.setServers(List.of("192.0.2.53", "192.0.2.54:5353"));
+        InetSocketAddress first = new InetSocketAddress("192.0.2.53", 53);
+        InetSocketAddress second = new InetSocketAddress("192.0.2.54", 5353);
+        when(udpDnsClient.query(eq(first), any(), anyInt(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+        when(udpDnsClient.query(eq(second), any(), eq(DnsMessage.TYPE_A), any()))
+                .thenReturn(CompletableFuture.completedFuture(response("example.com", DnsMessage.RCODE_NOERROR,
+                        new DnsRecord("example.com", DnsMessage.TYPE_A, 300, "93.184.216.34"))));
+        when(udpDnsClient.query(eq(second), any(), eq(DnsMessage.TYPE_AAAA), any()))
+                .thenReturn(CompletableFuture.completedFuture(response("example.com", DnsMessage.RCODE_SERVFAIL)));
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[0]);
+
+        assertEquals("93.184.216.34", resolver.resolve("example.com").join().get(0).getHostAddress());
+    }
+
+    @Test
+    void testResolve_UdpNxDomainIsCachedAsUnknownHost() {
+        properties.setServers(List.of("192.0.2.53"));
+        when(udpDnsClient.query(any(), eq("missing.example"), anyInt(), any()))
+                .thenReturn(CompletableFuture.completedFuture(response("missing.example", DnsMessage.RCODE_NXDOMAIN)));
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[0]);
+
+        CompletionException e = assertThrows(CompletionException.class, () -> resolver.resolve("missing.example").join());
+        assertInstanceOf(UnknownHostException.class, e.getCause());
+        assertThrows(CompletionException.class, () -> resolver.resolve("missing.example").join());
+        verify(udpDnsClient, times(2)).query(any(), eq("missing.example"), anyInt(), any());
+    }
+
+    @Test
+    void testQuery_UsesGivenServerAndBypassesCache() {
+        InetSocketAddress server = new InetSocketAddress("192.0.2.99", 53);
+        when(udpDnsClient.query(eq(server), eq("example.com"), eq(DnsMessage.TYPE_MX), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(response("example.com", DnsMessage.RCODE_NOERROR,
+                        new DnsRecord("example.com", DnsMessage.TYPE_MX, 300, "10 mail.example.com"))));
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[0]);
+
+        resolver.query("Example.com.", DnsMessage.TYPE_MX, server).join();
+        DnsResponse response = resolver.query("example.com", DnsMessage.TYPE_MX, server).join();
+
+        assertEquals("10 mail.example.com", response.answers().get(0).value());
+        verify(udpDnsClient, times(2)).query(eq(server), eq("example.com"), eq(DnsMessage.TYPE_MX), any());
+        assertNull(resolver.cached("example.com"));
+    }
+
+    @Test
+    void testQuery_RequiresServer() {
+        DnsResolver resolver = createResolver(Runnable::run, host -> new InetAddress[0]);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> resolver.query("example.com", DnsMessage.TYPE_A, null).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void testProviderFilter_OrdersByLookupPolicy() {
+        InetAddress v4 = address("example.com", 10, 0, 0, 1);
+        InetAddress v6 = address("example.com", 0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1);
+        List<InetAddress> addresses = List.of(v4, v6);
+        int ipv4 = LookupPolicy.IPV4;
+        int ipv6 = LookupPolicy.IPV6;
+        int ipv6First = LookupPolicy.IPV6_FIRST;
+
+        assertEquals(List.of(v4), CachedInetAddressResolverProvider.filter(addresses, ipv4));
+        assertEquals(List.of(v6, v4), CachedInetAddressResolverProvider.filter(addresses, ipv4 | ipv6 | ipv6First));
+        assertEquals(addresses, CachedInetAddressResolverProvider.filter(addresses, ipv4 | ipv6));
+    }
+
+    private DnsResolver createResolver(Executor executor, DnsResolver.HostLookup lookup) {
+        return new DnsResolver(properties, udpDnsClient, executor, host -> {
+            systemLookups.incrementAndGet();
+            return lookup.lookup(host);
+        }, meterRegistry, now::get);
+    }
+
+    private double cacheRequests(String result) {
+        return meterRegistry.get("pinger.dns.cache.requests").tag("result", result).counter().count();
+    }
+
+    private static DnsResponse response(String name, int rcode, DnsRecord... records) {
+        return new DnsResponse(1, rcode, false, name, records.length > 0 ? records[0].type() : DnsMessage.TYPE_A,
+                List.of(records), 1_000_000);
+    }
+
+    private static InetAddress address(String host, int... octets) {
+        byte[] bytes = new byte[octets.length];
+        for (int i = 0; i < octets.length; i++) {
+            bytes[i] = (byte) octets[i];
+        }
+        try {
+            return InetAddress.getByAddress(host, bytes);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Сборка DNS ответов для тестов: ответ повторяет запрос и добавляет записи,
+ * имя которых сжато ссылкой на имя вопроса
+ */
+final class DnsResponses {
+
+    private DnsResponses() {
+    }
+
+    static byte[] response(byte[] query, int rcode, Answer... answers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(query, 0, 2);
+        out.write(0x81);
+        out.write(0x80 | rcode);
+        out.write(query, 4, 2);
+        out.write(answers.length >>> 8);
+        out.write(answers.length);
+        out.write(new byte[4], 0, 4);
+        out.write(query, 12, query.length - 12);
+        for (Answer answer : answers) {
+            out.write(0xc0);
+            out.write(12);
+            writeShort(out, answer.type());
+            writeShort(out, 1);
+            writeShort(out, (int) (answer.ttl() >>> 16));
+            writeShort(out, (int) answer.ttl());
+            writeShort(out, answer.data().length);
+            out.write(answer.data(), 0, answer.data().length);
+        }
+        return out.toByteArray();
+    }
+
+    static Answer a(long ttl, int... octets) {
+        byte[] data = new byte[octets.length];
+        for (int i = 0; i < octets.length; i++) {
+            data[i] = (byte) octets[i];
+        }
+        return new Answer(octets.length == 4 ? DnsMessage.TYPE_A : DnsMessage.TYPE_AAAA, ttl, data);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    record Answer(int type, long ttl, byte[] data) {
+    }
+}
@@ -0,0 +1,153 @@
+package ru.oldzoomer.pingtower.pinger.dns;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpDnsClientTest {
+
+    private DatagramSocket server;
+    private InetSocketAddress serverAddress;
+    private UdpDnsClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        server.setSoTimeout(2000);
+        serverAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        client = new UdpDnsClient(3, new TcpDnsClient(), Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void testQuery_ReceivesMatchingResponse() throws Exception {
+        CompletableFuture<DnsResponse> future = client.query(serverAddress, "example.com", DnsMessage.TYPE_A, Duration.ofSeconds(2));
+
+        Received query = receiveQuery();
+        reply(query, DnsResponses.response(query.data(), DnsMessage.RCODE_NOERROR, DnsResponses.a(300, 1, 2, 3, 4)));
+
+        DnsResponse response = future.get(2, TimeUnit.SECONDS);
+        assertEquals("1.2.3.4", response.answers().get(0).value());
+        assertTrue(response.rttNanos() > 0);
+        assertEquals(0, client.getPending());
+    }
+
+    @Test
+    void testQuery_MultiplexesConcurrentQueries() throws Exception {
+        CompletableFuture<DnsResponse> first = client.query(serverAddress, "a.example.com", DnsMessage.TYPE_A, Duration.ofSeconds(2));
+        CompletableFuture<DnsResponse> second = client.query(serverAddress, "b.example.com", DnsMessage.TYPE_A, Duration.ofSeconds(2));
+
+        Received firstQuery = receiveQuery();
+        Received secondQuery = receiveQuery();
+        // Ответы в обратном порядке сопоставляются по сокету и идентификатору
+        reply(secondQuery, DnsResponses.response(secondQuery.data(), DnsMessage.RCODE_NOERROR, DnsResponses.a(60, 10, 0, 0, 2)));
+        reply(firstQuery, DnsResponses.response(firstQuery.data(), DnsMessage.RCODE_NOERROR, DnsResponses.a(60, 10, 0, 0, 1)));
+
+        assertEquals("a.example.com", first.get(2, TimeUnit.SECONDS).question());
+        assertEquals("b.example.com", second.get(2, TimeUnit.SECONDS).question());
+    }
+
+    @Test
+    void testQuery_IgnoresResponseForOtherQuestion() throws Exception {
+        CompletableFuture<DnsResponse> future = client.query(serverAddress, "example.com", DnsMessage.TYPE_A, Duration.ofSeconds(2));
+        Received query = receiveQuery();
+
+        // Подложный ответ с тем же идентификатором, но другим вопросом
+        byte[] forged = DnsMessage.encodeQuery(0, "attacker.example", DnsMessage.TYPE_A);
+        forged[0] = query.data()[0];
+        forged[1] = query.data()[1];
+        reply(query, DnsResponses.response(forged, DnsMessage.RCODE_NOERROR, DnsResponses.a(300, 6, 6, 6, 6)));
+        reply(query, DnsResponses.response(query.data(), DnsMessage.RCODE_NOERROR, DnsResponses.a(300, 1, 2, 3, 4)));
+
+        assertEquals("1.2.3.4", future.get(2, TimeUnit.SECONDS).answers().get(0).value());
+    }
+
+    @Test
+    void testQuery_TimesOutWithoutResponse() throws Exception {
+        CompletableFuture<DnsResponse> future = client.query(serverAddress, "example.com", DnsMessage.TYPE_A, Duration.ofMillis(100));
+        receiveQuery();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(0, client.getPending());
+    }
+
+    @Test
+    void testQuery_RetriesTruncatedResponseOverTcp() throws Exception {
+        try (ServerSocket tcpServer = new ServerSocket(serverAddress.getPort(), 1, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<DnsResponse> future = client.query(serverAddress, "example.com", DnsMessage.TYPE_TXT, Duration.ofSeconds(2));
+            Received query = receiveQuery();
+            byte[] truncated = DnsResponses.response(query.data(), DnsMessage.RCODE_NOERROR);
+            truncated[2] |= 0x02;
+            reply(query, truncated);
+
+            try (Socket connection = tcpServer.accept()) {
+                connection.setSoTimeout(2000);
+                DataInputStream in = new DataInputStream(connection.getInputStream());
+                byte[] tcpQuery = new byte[in.readUnsignedShort()];
+                in.readFully(tcpQuery);
+                byte[] txt = {5, 'v', '=', 's', 'p', 'f', 2, '1', ' '};
+                byte[] response = DnsResponses.response(tcpQuery, DnsMessage.RCODE_NOERROR,
+                        new DnsResponses.Answer(DnsMessage.TYPE_TXT, 300, txt));
+                DataOutputStream out = new DataOutputStream(connection.getOutputStream());
+                out.writeShort(response.length);
+                out.write(response);
+                out.flush();
+
+                DnsResponse result = future.get(2, TimeUnit.SECONDS);
+                assertFalse(result.truncated());
+                assertEquals("v=spf1 ", result.answers().get(0).value());
+                assertTrue(result.rttNanos() > 0);
+            }
+        }
+    }
+
+    @Test
+    void testParseServer() {
+        assertEquals(new InetSocketAddress("127.0.0.1", 53), UdpDnsClient.parseServer("127.0.0.1"));
+        assertEquals(new InetSocketAddress("127.0.0.1", 5353), UdpDnsClient.parseServer("127.0.0.1:5353"));
+        assertEquals(new InetSocketAddress("::1", 53), UdpDnsClient.parseServer("::1"));
+        assertEquals(new InetSocketAddress("::1", 5353), UdpDnsClient.parseServer("[::1]:5353"));
+        assertThrows(IllegalArgumentException.class, () -> UdpDnsClient.parseServer("[::1"));
+    }
+
+    private Received receiveQuery() throws IOException {
+        DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+        server.receive(packet);
+        return new Received(Arrays.copyOf(packet.getData(), packet.getLength()), packet.getSocketAddress());
+    }
+
+    private void reply(Received query, byte[] response) throws IOException {
+        server.send(new DatagramPacket(response, response.length, query.source()));
+    }
+
+    /**
+     * Запрос, полученный сервером, и адрес сокета клиента, с которого он отправлен
+     */
+    private record Received(byte[] data, SocketAddress source) {
+    }
+}
@@ -0,0 +1,194 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import ru.oldzoomer.pingtower.pinger.config.CheckConfigProperties;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.service.CheckManagementService;
+import ru.oldzoomer.pingtower.pinger.service.CheckSchedulerService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckConfigConsumerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition(CheckConfigConsumer.CHECK_CONFIGS_TOPIC, 0);
+
+    @Mock
+    private ConsumerFactory<Object, Object> consumerFactory;
+
+    @Mock
+    private SettingsConsumer settingsConsumer;
+
+    @Mock
+    private CheckSchedulerService checkSchedulerService;
+
+    @Mock
+    private CheckManagementService checkManagementService;
+
+    private MockConsumer<Object, Object> kafkaConsumer;
+
+    private CheckConfigConsumer checkConfigConsumer;
+
+    @BeforeEach
+    void setUp() {
+        kafkaConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        kafkaConsumer.updatePartitions(CheckConfigConsumer.CHECK_CONFIGS_TOPIC,
+                List.of(new PartitionInfo(CheckConfigConsumer.CHECK_CONFIGS_TOPIC, 0, null, null, null)));
+        kafkaConsumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        when(consumerFactory.createConsumer(isNull(), isNull(), eq("-check-configs"), any(Properties.class)))
+                .thenReturn(kafkaConsumer);
+
+        CheckConfigProperties properties = new CheckConfigProperties();
+        properties.setPollTimeout(Duration.ofMillis(10));
+        properties.setRestartBackoff(Duration.ofMillis(1));
+        checkConfigConsumer = new CheckConfigConsumer(consumerFactory, settingsConsumer, checkSchedulerService,
+                checkManagementService, properties);
+    }
+
+    @Test
+    void testRun_LoadsTopicAndSchedulesChecks() {
+        CheckConfiguration first = createConfig("check-1");
+        CheckConfiguration second = createConfig("check-2");
+        kafkaConsumer.updateEndOffsets(Map.of(PARTITION, 3L));
+        kafkaConsumer.schedulePollTask(() -> {
+            kafkaConsumer.addRecord(record(0, "check-1", first));
+            kafkaConsumer.addRecord(record(1, "check-2", second));
+            // Проверка удалена
+            kafkaConsumer.addRecord(record(2, "check-1", null));
+        });
+        kafkaConsumer.schedulePollTask(checkConfigConsumer::stop);
+
+        checkConfigConsumer.run();
+
+        InOrder order = inOrder(settingsConsumer, checkSchedulerService);
+        order.verify(settingsConsumer).updateCheckConfiguration(first);
+        order.verify(settingsConsumer).updateCheckConfiguration(second);
+        order.verify(settingsConsumer).removeCheckConfiguration("check-1");
+        order.verify(checkSchedulerService).completeBootstrap();
+        assertTrue(checkConfigConsumer.isBootstrapped());
+        verifyNoInteractions(checkManagementService);
+    }
+
+    @Test
+    void testRun_SchedulesOnlyAfterCatchingUp() {
+        kafkaConsumer.updateEndOffsets(Map.of(PARTITION, 2L));
+        kafkaConsumer.schedulePollTask(() -> kafkaConsumer.addRecord(record(0, "check-1", createConfig("check-1"))));
+        kafkaConsumer.schedulePollTask(() -> {
+            verify(checkSchedulerService, never()).completeBootstrap();
+            kafkaConsumer.addRecord(record(1, "check-2", createConfig("check-2")));
+        });
+        kafkaConsumer.schedulePollTask(checkConfigConsumer::stop);
+
+        checkConfigConsumer.run();
+
+        verify(checkSchedulerService, times(1)).completeBootstrap();
+    }
+
+    @Test
+    void testRun_SeedsEmptyTopicFromDatabase() {
+        CheckConfiguration config = createConfig("check-1");
+        kafkaConsumer.updateEndOffsets(Map.of(PARTITION, 0L));
+        when(checkManagementService.publishAllChecks()).thenReturn(List.of(config));
+        kafkaConsumer.schedulePollTask(() -> { });
+        kafkaConsumer.schedulePollTask(checkConfigConsumer::stop);
+
+        checkConfigConsumer.run();
+
+        verify(settingsConsumer).updateCheckConfiguration(config);
+        verify(checkSchedulerService).completeBootstrap();
+    }
+
+    @Test
+    void testRun_SkipsUndeserializableRecord() {
+        CheckConfiguration config = createConfig("check-2");
+        ConsumerRecord<Object, Object> broken = record(0, "check-1", null);
+        broken.headers().add(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, new byte[0]);
+        kafkaConsumer.updateEndOffsets(Map.of(PARTITION, 2L));
+        kafkaConsumer.schedulePollTask(() -> {
+            kafkaConsumer.addRecord(broken);
+            kafkaConsumer.addRecord(record(1, "check-2", config));
+        });
+        kafkaConsumer.schedulePollTask(checkConfigConsumer::stop);
+
+        checkConfigConsumer.run();
+
+        // Поврежденная запись не считается удалением проверки
+        verify(settingsConsumer, never()).removeCheckConfiguration(any());
+        verify(settingsConsumer).updateCheckConfiguration(config);
+        verify(checkSchedulerService).completeBootstrap();
+    }
+
+    @Test
+    void testRun_SkipsRecordThatFailsToApply() {
+        CheckConfiguration first = createConfig("check-1");
+        CheckConfiguration second = createConfig("check-2");
+        doThrow(new IllegalStateException("boom")).when(settingsConsumer).updateCheckConfiguration(first);
+        kafkaConsumer.updateEndOffsets(Map.of(PARTITION, 2L));
+        kafkaConsumer.schedulePollTask(() -> {
+            kafkaConsumer.addRecord(record(0, "check-1", first));
+            kafkaConsumer.addRecord(record(1, "check-2", second));
+        });
+        kafkaConsumer.schedulePollTask(checkConfigConsumer::stop);
+
+        checkConfigConsumer.run();
+
+        verify(settingsConsumer).updateCheckConfiguration(second);
+        verify(checkSchedulerService).completeBootstrap();
+    }
+
+    @Test
+    void testRun_RestartsAfterFailure() {
+        CheckConfiguration config = createConfig("check-1");
+        kafkaConsumer.updateEndOffsets(Map.of(PARTITION, 1L));
+        kafkaConsumer.setPollException(new TimeoutException("broker unavailable"));
+
+        MockConsumer<Object, Object> restarted = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        restarted.updatePartitions(CheckConfigConsumer.CHECK_CONFIGS_TOPIC,
+                List.of(new PartitionInfo(CheckConfigConsumer.CHECK_CONFIGS_TOPIC, 0, null, null, null)));
+        restarted.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        restarted.updateEndOffsets(Map.of(PARTITION, 1L));
+        restarted.schedulePollTask(() -> restarted.addRecord(record(0, "check-1", config)));
+        restarted.schedulePollTask(checkConfigConsumer::stop);
+        when(consumerFactory.createConsumer(isNull(), isNull(), eq("-check-configs"), any(Properties.class)))
+                .thenReturn(kafkaConsumer, restarted);
+
+        checkConfigConsumer.run();
+
+        verify(consumerFactory, times(2)).createConsumer(isNull(), isNull(), eq("-check-configs"), any(Properties.class));
+        verify(settingsConsumer).updateCheckConfiguration(config);
+        assertTrue(checkConfigConsumer.isBootstrapped());
+    }
+
+    private static ConsumerRecord<Object, Object> record(long offset, String checkId, CheckConfiguration config) {
+        return new ConsumerRecord<>(CheckConfigConsumer.CHECK_CONFIGS_TOPIC, 0, offset, checkId, config);
+    }
+
+    private static CheckConfiguration createConfig(String checkId) {
+        CheckConfiguration config = new CheckConfiguration();
+        config.setId(checkId);
+        config.setType("HTTP");
+        config.setResourceUrl("https://example.com");
+        config.setFrequency(60000L);
+        config.setTimeout(5000);
+        return config;
+    }
+}
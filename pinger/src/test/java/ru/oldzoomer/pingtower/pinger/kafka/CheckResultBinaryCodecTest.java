@@ -0,0 +1,146 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultBinaryCodec;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultMessage;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckResultBinaryCodecTest {
+
+    private static final String TOPIC = "pingtower.check.results";
+
+    // Эталонная запись, которую декодирует и модуль statistics
+    private static final String GOLDEN_RECORD =
+            "b701df0507636865636b2d311368747470733a2f2f6578616d706c652e636f6d8091decaa16301ac02900364c8010180be9201";
+
+    @Test
+    void testRoundTrip_AllFields() {
+        CheckResultMessage message = CheckResultSerializer.toMessage(fullResult());
+
+        CheckResultMessage decoded = CheckResultBinaryCodec.decode(CheckResultBinaryCodec.encode(message));
+
+        assertEquals(message, decoded);
+    }
+
+    @Test
+    void testRoundTrip_NullFields() {
+        CheckResult result = new CheckResult();
+        result.setCheckId("check-1");
+        result.setResponseTime(-1L);
+
+        CheckResultMessage message = CheckResultSerializer.toMessage(result);
+
+        CheckResultMessage decoded = CheckResultBinaryCodec.decode(CheckResultBinaryCodec.encode(message));
+
+        assertEquals(message, decoded);
+        assertNull(decoded.metrics());
+        assertNull(decoded.status());
+    }
+
+    @Test
+    void testRoundTrip_UnknownStatusIsWrittenAsString() {
+        CheckResult result = fullResult();
+        result.setStatus("DEGRADED");
+
+        CheckResultMessage decoded = CheckResultBinaryCodec.decode(encode(result));
+
+        assertEquals("DEGRADED", decoded.status());
+    }
+
+    @Test
+    void testEncode_GoldenRecord() {
+        assertEquals(GOLDEN_RECORD, HexFormat.of().formatHex(encode(goldenResult())));
+    }
+
+    @Test
+    void testDecode_IgnoresTrailingBytesFromNewerVersion() {
+        byte[] encoded = encode(fullResult());
+        byte[] extended = new byte[encoded.length + 3];
+        System.arraycopy(encoded, 0, extended, 0, encoded.length);
+
+        assertEquals(CheckResultSerializer.toMessage(fullResult()), CheckResultBinaryCodec.decode(extended));
+    }
+
+    @Test
+    void testDecode_TruncatedRecord() {
+        byte[] encoded = encode(fullResult());
+        byte[] truncated = new byte[encoded.length / 2];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        assertThrows(IllegalArgumentException.class, () -> CheckResultBinaryCodec.decode(truncated));
+    }
+
+    @Test
+    void testDecode_NotBinary() {
+        assertFalse(CheckResultBinaryCodec.isBinary("{\"checkId\":\"1\"}".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> CheckResultBinaryCodec.decode("{}".getBytes()));
+    }
+
+    @Test
+    void testDecode_UnknownVersion() {
+        byte[] encoded = encode(fullResult());
+        encoded[1] = CheckResultBinaryCodec.VERSION + 1;
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> CheckResultBinaryCodec.decode(encoded));
+        assertEquals("Unsupported binary check result record version: 2", error.getMessage());
+    }
+
+    @Test
+    void testEncode_SmallerThanJson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        CheckResult result = fullResult();
+
+        int binarySize = encode(result).length;
+        int jsonSize = objectMapper.writeValueAsBytes(result).length;
+
+        assertTrue(binarySize * 3 < jsonSize, "binary " + binarySize + " bytes, json " + jsonSize + " bytes");
+    }
+
+    private static byte[] encode(CheckResult result) {
+        try (CheckResultSerializer serializer = new CheckResultSerializer()) {
+            return serializer.serialize(TOPIC, result);
+        }
+    }
+
+    private static CheckResult goldenResult() {
+        CheckResult result = new CheckResult();
+        result.setCheckId("check-1");
+        result.setResourceUrl("https://example.com");
+        result.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30));
+        result.setStatus("UP");
+        result.setResponseTime(150L);
+        result.setHttpStatusCode(200);
+
+        CheckResult.Metrics metrics = new CheckResult.Metrics();
+        metrics.setConnectionTime(50L);
+        metrics.setTimeToFirstByte(100L);
+        metrics.setSslValid(true);
+        metrics.setDnsLookupNanos(1_200_000L);
+        result.setMetrics(metrics);
+        return result;
+    }
+
+    private static CheckResult fullResult() {
+        CheckResult result = goldenResult();
+        result.setStatus("DOWN");
+        result.setHttpStatusCode(503);
+        result.setErrorMessage("HTTP error code: 503, сервис недоступен");
+
+        CheckResult.Metrics metrics = result.getMetrics();
+        metrics.setSslExpirationDate(LocalDateTime.of(2025, 12, 31, 23, 59, 59));
+        metrics.setTcpConnectNanos(15_000_000L);
+        metrics.setTlsHandshakeNanos(30_000_000L);
+        metrics.setRequestWriteNanos(200_000L);
+        metrics.setTimeToFirstByteNanos(80_000_000L);
+        metrics.setDownloadNanos(5_000_000L);
+        return result;
+    }
+}
@@ -1,11 +1,14 @@
 package ru.oldzoomer.pingtower.pinger.kafka;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.NotLeaderOrFollowerException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
@@ -14,6 +17,7 @@ import java.time.LocalDateTime;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,13 +26,17 @@ class CheckResultProducerTest {
     @Mock
     private KafkaTemplate<String, Object> kafkaTemplate;
 
-    @InjectMocks
+    private MeterRegistry meterRegistry;
+
     private CheckResultProducer checkResultProducer;
 
     private CheckResult testResult;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        checkResultProducer = new CheckResultProducer(kafkaTemplate, meterRegistry);
+
         testResult = new CheckResult();
         testResult.setCheckId("test-check-1");
         testResult.setResourceUrl("https://example.com");
@@ -94,4 +102,30 @@ class CheckResultProducerTest {
         // Verify that the send method was called with null key
         verify(kafkaTemplate).send(eq("pingtower.check.results"), isNull(), eq(testResult));
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendCheckResult_RecordsMetrics() {
+        CompletableFuture<SendResult<String, Object>> future = CompletableFuture.completedFuture(mock(SendResult.class));
+        when(kafkaTemplate.send(eq("pingtower.check.results"), eq("test-check-1"), any(CheckResult.class))).thenReturn(future);
+
+        checkResultProducer.sendCheckResult(testResult);
+
+        assertEquals(1.0, meterRegistry.get("pinger.kafka.results.sent").counter().count());
+        assertEquals(1, meterRegistry.get("pinger.kafka.results.send.latency").timer().count());
+    }
+
+    @Test
+    void testSendCheckResult_RetriableErrorIsNotResent() {
+        CompletableFuture<SendResult<String, Object>> failed = CompletableFuture.failedFuture(
+                new KafkaException("Send failed", new NotLeaderOrFollowerException("Leader moved")));
+        when(kafkaTemplate.send(eq("pingtower.check.results"), eq("test-check-1"), any(CheckResult.class))).thenReturn(failed);
+
+        checkResultProducer.sendCheckResult(testResult);
+
+        // Продюсер уже повторял отправку в пределах delivery.timeout.ms: новая запись могла бы стать дублем
+        verify(kafkaTemplate, after(100).times(1)).send(eq("pingtower.check.results"), eq("test-check-1"), eq(testResult));
+        assertEquals(1.0, meterRegistry.get("pinger.kafka.results.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("pinger.kafka.results.sent").counter().count());
+    }
+}
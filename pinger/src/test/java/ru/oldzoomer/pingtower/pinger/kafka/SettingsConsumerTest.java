@@ -0,0 +1,85 @@
+package ru.oldzoomer.pingtower.pinger.kafka;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SettingsConsumerTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SettingsConsumer settingsConsumer;
+
+    @BeforeEach
+    void setUp() {
+        settingsConsumer = new SettingsConsumer(eventPublisher);
+    }
+
+    @Test
+    void testUpdateCheckConfiguration_RecordsChange() {
+        settingsConsumer.updateCheckConfiguration(createConfig("check-1", 60000L));
+        settingsConsumer.updateCheckConfiguration(createConfig("check-2", 60000L));
+        settingsConsumer.updateCheckConfiguration(createConfig("check-1", 30000L));
+
+        assertEquals(3, settingsConsumer.getRevision());
+        assertEquals(List.of("check-1", "check-2"), List.copyOf(settingsConsumer.changedSince(0)));
+        assertEquals(Set.of("check-1"), settingsConsumer.changedSince(2));
+        verify(eventPublisher).publishEvent(new CheckConfigChangedEvent("check-1", 3));
+    }
+
+    @Test
+    void testUpdateCheckConfiguration_SameConfigIsNotAChange() {
+        settingsConsumer.updateCheckConfiguration(createConfig("check-1", 60000L));
+        settingsConsumer.updateCheckConfiguration(createConfig("check-1", 60000L));
+        settingsConsumer.removeCheckConfiguration("unknown-check");
+
+        assertEquals(1, settingsConsumer.getRevision());
+        verify(eventPublisher, times(1)).publishEvent(any(CheckConfigChangedEvent.class));
+    }
+
+    @Test
+    void testDiscardChanges_KeepsLaterChanges() {
+        settingsConsumer.updateCheckConfiguration(createConfig("check-1", 60000L));
+        settingsConsumer.removeCheckConfiguration("check-1");
+        settingsConsumer.updateCheckConfiguration(createConfig("check-2", 60000L));
+
+        settingsConsumer.discardChanges(2);
+
+        assertEquals(Set.of("check-2"), settingsConsumer.changedSince(0));
+        assertNull(settingsConsumer.currentConfiguration("check-1"));
+        assertEquals(Set.of("check-2"), settingsConsumer.currentCheckIds());
+    }
+
+    @Test
+    void testConsumeSettingsUpdate_DeleteRecordsChange() {
+        settingsConsumer.updateCheckConfiguration(createConfig("check-1", 60000L));
+
+        settingsConsumer.consumeSettingsUpdate(Map.of("module", "pinger", "key", "checks", "action", "DELETE",
+                "value", Map.of("id", "check-1")), "pingtower.settings.updates", 0, 1L);
+
+        assertEquals(2, settingsConsumer.getRevision());
+        assertTrue(settingsConsumer.currentCheckIds().isEmpty());
+    }
+
+    private static CheckConfiguration createConfig(String checkId, long frequency) {
+        CheckConfiguration config = new CheckConfiguration();
+        config.setId(checkId);
+        config.setType("HTTP");
+        config.setResourceUrl("https://example.com");
+        config.setFrequency(frequency);
+        return config;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckDispatcherTest {
+
+    private MeterRegistry meterRegistry;
+    private CheckDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new CheckDispatcher(Executors.newVirtualThreadPerTaskExecutor(), 2, 3, meterRegistry, "virtual");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testExecute_RunsTaskAndRecordsQueueWait() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        dispatcher.dispatch(ScheduledTask.of(latch::countDown));
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("pinger.checks.queue.wait").timer().count());
+    }
+
+    @Test
+    void testExecute_LimitsConcurrency() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(ScheduledTask.of(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            }));
+        }
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(2, dispatcher.getInFlight());
+        assertEquals(1, dispatcher.getQueued());
+        assertEquals(2.0, meterRegistry.get("pinger.checks.in_flight").gauge().value());
+
+        release.countDown();
+    }
+
+    @Test
+    void testExecute_RejectsWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+
+        Runnable blocking = () -> {
+            started.countDown();
+            awaitQuietly(release);
+        };
+
+        // Два запуска занимают разрешения, три ждут в очереди
+        dispatcher.dispatch(ScheduledTask.of(blocking));
+        dispatcher.dispatch(ScheduledTask.of(blocking));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(ScheduledTask.of(blocking));
+        }
+        Thread.sleep(50);
+        assertEquals(3, dispatcher.getQueued());
+
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.dispatch(ScheduledTask.of(() -> { })));
+        assertEquals(1.0, meterRegistry.get("pinger.checks.rejected").counter().count());
+
+        release.countDown();
+    }
+
+    @Test
+    void testDispatch_HoldsPermitUntilAsyncCheckCompletes() throws Exception {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CountDownLatch thirdStarted = new CountDownLatch(1);
+
+        CompletionStage<?> firstStage = dispatcher.dispatch(() -> first);
+        dispatcher.dispatch(() -> second);
+        dispatcher.dispatch(ScheduledTask.of(thirdStarted::countDown));
+
+        // Асинхронные проверки вернули управление, но продолжают занимать разрешения
+        Thread.sleep(50);
+        assertEquals(2, dispatcher.getInFlight());
+        assertEquals(1, dispatcher.getQueued());
+        assertFalse(firstStage.toCompletableFuture().isDone());
+
+        first.complete("done");
+        assertEquals("done", firstStage.toCompletableFuture().get(1, TimeUnit.SECONDS));
+        assertTrue(thirdStarted.await(1, TimeUnit.SECONDS));
+
+        second.complete("done");
+        Thread.sleep(50);
+        assertEquals(0, dispatcher.getInFlight());
+        assertEquals(0, dispatcher.getQueued());
+    }
+
+    @Test
+    void testExecute_RunsContinuationWithoutPermit() throws InterruptedException {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        dispatcher.dispatch(() -> first);
+        dispatcher.dispatch(() -> second);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        // Продолжение проверки не ждет освобождения разрешений
+        dispatcher.execute(latch::countDown);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        first.complete("done");
+        second.complete("done");
+    }
+
+    @Test
+    void testConstructor_InvalidConcurrency() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CheckDispatcher(Executors.newSingleThreadExecutor(), 0, 1, meterRegistry, "platform"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
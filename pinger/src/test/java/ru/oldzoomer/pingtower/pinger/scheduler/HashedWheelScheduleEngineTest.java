@@ -0,0 +1,133 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelScheduleEngineTest {
+
+    private HashedWheelScheduleEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new HashedWheelScheduleEngine(Duration.ofMillis(5), 64, ScheduledTask::run);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testSchedule_FiresPeriodically() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(3);
+
+        engine.schedule("check-1", 0, 20, latch::countDown);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(engine.isScheduled("check-1"));
+        assertEquals(1, engine.size());
+    }
+
+    @Test
+    void testSchedule_RespectsInitialDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        engine.schedule("check-1", 100, 10_000, latch::countDown);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+    }
+
+    @Test
+    void testSchedule_DelayLongerThanOneWheelRotation() throws InterruptedException {
+        // 64 корзины по 5 мс — один оборот колеса занимает 320 мс
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        engine.schedule("check-1", 500, 10_000, latch::countDown);
+
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 500);
+    }
+
+    @Test
+    void testCancel_StopsExecution() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+
+        engine.schedule("check-1", 50, 10, counter::incrementAndGet);
+        assertTrue(engine.cancel("check-1"));
+
+        Thread.sleep(150);
+        assertEquals(0, counter.get());
+        assertFalse(engine.isScheduled("check-1"));
+        assertFalse(engine.cancel("check-1"));
+    }
+
+    @Test
+    void testSchedule_ReplacesExistingTask() throws InterruptedException {
+        AtomicInteger oldTask = new AtomicInteger();
+        CountDownLatch newTask = new CountDownLatch(1);
+
+        engine.schedule("check-1", 50, 10_000, oldTask::incrementAndGet);
+        engine.schedule("check-1", 50, 10_000, newTask::countDown);
+
+        assertTrue(newTask.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(0, oldTask.get());
+        assertEquals(1, engine.size());
+    }
+
+    @Test
+    void testSchedule_SkipsRunsWhilePreviousRunIsInProgress() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Void> running = new CompletableFuture<>();
+
+        engine.schedule("check-1", 0, 10, () -> {
+            runs.incrementAndGet();
+            return running;
+        });
+
+        Thread.sleep(150);
+        assertEquals(1, runs.get());
+        assertTrue(engine.getSkippedRuns() > 0);
+
+        running.complete(null);
+        Thread.sleep(100);
+        assertTrue(runs.get() > 1);
+    }
+
+    @Test
+    void testSchedule_ReplacementWaitsForRunningTask() throws InterruptedException {
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger replacementRuns = new AtomicInteger();
+
+        engine.schedule("check-1", 0, 10_000, () -> {
+            started.countDown();
+            return running;
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        engine.schedule("check-1", 0, 10, replacementRuns::incrementAndGet);
+
+        Thread.sleep(100);
+        assertEquals(0, replacementRuns.get());
+        running.complete(null);
+        Thread.sleep(100);
+        assertTrue(replacementRuns.get() > 0);
+    }
+
+    @Test
+    void testSchedule_InvalidPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> engine.schedule("check-1", 0, 0, () -> { }));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.oldzoomer.pingtower.pinger.scheduler;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StartRateRecorderTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private MeterRegistry meterRegistry;
+    private StartRateRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new StartRateRecorder(meterRegistry, "platform", now::get);
+    }
+
+    @Test
+    void testRecord_CountsStartsPerSecond() {
+        now.set(1_000);
+        recorder.record();
+        recorder.record();
+        now.set(1_999);
+        recorder.record();
+        now.set(2_500);
+        recorder.record();
+
+        DistributionSummary summary = summary();
+        // Текущая секунда записывается при переходе к следующей
+        assertEquals(1, summary.count());
+        assertEquals(3, summary.totalAmount());
+        assertEquals(3, summary.max());
+    }
+
+    @Test
+    void testRecord_RecordsIdleSecondsAsZero() {
+        now.set(1_000);
+        recorder.record();
+        now.set(4_000);
+        recorder.record();
+
+        DistributionSummary summary = summary();
+        assertEquals(3, summary.count());
+        assertEquals(1, summary.totalAmount());
+    }
+
+    @Test
+    void testRecord_CapsLongIdlePeriod() {
+        now.set(0);
+        recorder.record();
+        now.set(3_600_000);
+        recorder.record();
+
+        assertEquals(61, summary().count());
+    }
+
+    private DistributionSummary summary() {
+        return meterRegistry.get("pinger.checks.starts.per_second").tag("mode", "platform").summary();
+    }
+}
@@ -0,0 +1,180 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import ru.oldzoomer.pingtower.pinger.config.AlertProperties;
+import ru.oldzoomer.pingtower.pinger.dto.AlertMessage;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertDetectorTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private AlertProperties properties;
+
+    private AlertDetector alertDetector;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+
+    @BeforeEach
+    void setUp() {
+        properties = new AlertProperties();
+        properties.setFailureThreshold(3);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        alertDetector = new AlertDetector(properties, redisTemplate);
+    }
+
+    @Test
+    void testOnResult_AlertsAfterConsecutiveFailures() {
+        assertTrue(alertDetector.onResult(result("UP", now)).isEmpty());
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(1))).isEmpty());
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(2))).isEmpty());
+
+        Optional<AlertMessage> alert = alertDetector.onResult(result("DOWN", now.plusMinutes(3)));
+
+        assertTrue(alert.isPresent());
+        assertEquals("DOWN", alert.get().getStatus());
+        assertEquals("UP", alert.get().getPreviousStatus());
+        assertEquals("Connection refused", alert.get().getErrorMessage());
+        // Время от первого неуспешного результата до подтверждения
+        assertEquals(120_000L, alert.get().getDowntimeDuration());
+    }
+
+    @Test
+    void testOnResult_RecoveryCarriesDowntime() {
+        alertDetector.onResult(result("UP", now));
+        for (int i = 1; i <= 3; i++) {
+            alertDetector.onResult(result("DOWN", now.plusMinutes(i)));
+        }
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(4))).isEmpty());
+
+        Optional<AlertMessage> alert = alertDetector.onResult(result("UP", now.plusMinutes(6)));
+
+        assertTrue(alert.isPresent());
+        assertEquals("UP", alert.get().getStatus());
+        assertEquals("DOWN", alert.get().getPreviousStatus());
+        assertEquals(300_000L, alert.get().getDowntimeDuration());
+        assertNull(alert.get().getErrorMessage());
+    }
+
+    @Test
+    void testOnResult_UnknownDoesNotInterruptSeries() {
+        alertDetector.onResult(result("UP", now));
+        alertDetector.onResult(result("DOWN", now.plusMinutes(1)));
+        alertDetector.onResult(result("DOWN", now.plusMinutes(2)));
+        // Проверка пропущена ограничением хоста и о цели ничего не говорит
+        assertTrue(alertDetector.onResult(result("UNKNOWN", now.plusMinutes(3))).isEmpty());
+
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(4))).isPresent());
+    }
+
+    @Test
+    void testOnResult_FlappingDoesNotAlert() {
+        alertDetector.onResult(result("UP", now));
+        for (int i = 1; i <= 10; i++) {
+            String status = i % 3 == 0 ? "UP" : "DOWN";
+            assertTrue(alertDetector.onResult(result(status, now.plusMinutes(i))).isEmpty());
+        }
+    }
+
+    @Test
+    void testOnResult_FirstUpIsBaselineAndStateIsSaved() {
+        assertTrue(alertDetector.onResult(result("UP", now)).isEmpty());
+
+        verify(valueOperations).set("pinger:alert-state:check-1", "UP", Duration.ofDays(30));
+    }
+
+    @Test
+    void testOnResult_FirstConfirmedDownAlerts() {
+        assertTrue(alertDetector.onResult(result("DOWN", now)).isEmpty());
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(1))).isEmpty());
+
+        Optional<AlertMessage> alert = alertDetector.onResult(result("DOWN", now.plusMinutes(2)));
+
+        assertTrue(alert.isPresent());
+        assertEquals("DOWN", alert.get().getStatus());
+        assertNull(alert.get().getPreviousStatus());
+        verify(valueOperations).set("pinger:alert-state:check-1", "DOWN " + now, Duration.ofDays(30));
+    }
+
+    @Test
+    void testOnResult_SeedsFromSavedState() {
+        when(valueOperations.get("pinger:alert-state:check-1")).thenReturn("DOWN " + now.minusMinutes(10));
+
+        // Простой уже подтвержден предыдущим владельцем проверки, повторного оповещения нет
+        assertTrue(alertDetector.onResult(result("DOWN", now)).isEmpty());
+        Optional<AlertMessage> alert = alertDetector.onResult(result("UP", now.plusMinutes(5)));
+
+        assertTrue(alert.isPresent());
+        assertEquals("DOWN", alert.get().getPreviousStatus());
+        assertEquals(900_000L, alert.get().getDowntimeDuration());
+        verify(valueOperations, times(1)).get(anyString());
+    }
+
+    @Test
+    void testOnResult_IgnoresResultsOlderThanLastApplied() {
+        alertDetector.onResult(result("UP", now));
+        alertDetector.onResult(result("DOWN", now.plusMinutes(1)));
+        alertDetector.onResult(result("DOWN", now.plusMinutes(2)));
+
+        // Запоздавший успешный результат не прерывает серию
+        assertTrue(alertDetector.onResult(result("UP", now.plusSeconds(30))).isEmpty());
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(3))).isPresent());
+    }
+
+    @Test
+    void testOnResult_RedisFailureStartsFromEmptyState() {
+        when(valueOperations.get(anyString())).thenThrow(new IllegalStateException("Redis is unavailable"));
+        doThrow(new IllegalStateException("Redis is unavailable"))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(i))).isEmpty());
+        }
+        assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(2))).isPresent());
+    }
+
+    @Test
+    void testForget_StateIsRestoredFromRedis() {
+        alertDetector.onResult(result("UP", now));
+        alertDetector.forget("check-1");
+        when(valueOperations.get("pinger:alert-state:check-1")).thenReturn("UP");
+
+        for (int i = 1; i <= 2; i++) {
+            assertTrue(alertDetector.onResult(result("DOWN", now.plusMinutes(i))).isEmpty());
+        }
+        Optional<AlertMessage> alert = alertDetector.onResult(result("DOWN", now.plusMinutes(3)));
+
+        assertTrue(alert.isPresent());
+        assertEquals("UP", alert.get().getPreviousStatus());
+    }
+
+    private static CheckResult result(String status, LocalDateTime timestamp) {
+        CheckResult result = new CheckResult();
+        result.setCheckId("check-1");
+        result.setResourceUrl("https://example.com");
+        result.setStatus(status);
+        result.setTimestamp(timestamp);
+        if ("DOWN".equals(status)) {
+            result.setErrorMessage("Connection refused");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,216 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.pinger.config.HttpProbeProperties;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import javax.net.ssl.SSLSession;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncHttpCheckExecutorTest {
+
+    @Mock
+    private HttpClient probeHttpClient;
+
+    @Mock
+    private HttpResponse<Void> response;
+
+    @Mock
+    private DnsResolver dnsResolver;
+
+    @Spy
+    private HttpProbeProperties httpProbeProperties = new HttpProbeProperties();
+
+    @InjectMocks
+    private AsyncHttpCheckExecutor asyncHttpCheckExecutor;
+
+    private CheckConfiguration config;
+
+    @BeforeEach
+    void setUp() {
+        config = new CheckConfiguration();
+        config.setId("test-check");
+        config.setType("HTTP");
+        config.setResourceUrl("http://example.com");
+        config.setTimeout(5000);
+        config.setExpectedStatusCode(200);
+        lenient().when(dnsResolver.resolve(anyString()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(InetAddress.getLoopbackAddress())));
+    }
+
+    @Test
+    void testExecuteAsync_SuccessfulHttpCheck() {
+        when(response.statusCode()).thenReturn(200);
+        when(response.sslSession()).thenReturn(Optional.empty());
+        doReturn(CompletableFuture.completedFuture(response)).when(probeHttpClient).sendAsync(any(), any());
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("test-check", result.getCheckId());
+        assertEquals("UP", result.getStatus());
+        assertEquals(200, result.getHttpStatusCode());
+        assertNull(result.getErrorMessage());
+        assertNotNull(result.getMetrics());
+        assertNotNull(result.getMetrics().getDnsLookupNanos());
+        assertNotNull(result.getTimestamp());
+    }
+
+    @Test
+    void testExecute_HttpErrorStatus() {
+        when(response.statusCode()).thenReturn(503);
+        when(response.sslSession()).thenReturn(Optional.empty());
+        doReturn(CompletableFuture.completedFuture(response)).when(probeHttpClient).sendAsync(any(), any());
+
+        CheckResult result = asyncHttpCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals(503, result.getHttpStatusCode());
+        assertEquals("HTTP error code: 503", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecuteAsync_ConnectionError() {
+        doReturn(CompletableFuture.failedFuture(new ConnectException("Connection refused")))
+                .when(probeHttpClient).sendAsync(any(), any());
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("Connection refused", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecuteAsync_Timeout() {
+        doReturn(CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")))
+                .when(probeHttpClient).sendAsync(any(), any());
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("Request timed out after 5000 ms", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecuteAsync_RequestGetsTimeLeftAfterDnsLookup() {
+        config.setTimeout(1000);
+        when(dnsResolver.resolve("example.com")).thenReturn(CompletableFuture.supplyAsync(
+                () -> List.of(InetAddress.getLoopbackAddress()),
+                CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS)));
+        when(response.statusCode()).thenReturn(200);
+        when(response.sslSession()).thenReturn(Optional.empty());
+        doReturn(CompletableFuture.completedFuture(response)).when(probeHttpClient).sendAsync(any(), any());
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+
+        assertEquals("UP", asyncHttpCheckExecutor.executeAsync(config).join().getStatus());
+
+        verify(probeHttpClient).sendAsync(request.capture(), any());
+        Duration timeout = request.getValue().timeout().orElseThrow();
+        assertTrue(timeout.compareTo(Duration.ofMillis(700)) <= 0, "Request timeout " + timeout + " exceeds time left");
+    }
+
+    @Test
+    void testExecuteAsync_WholeProbeBoundedByTimeout() {
+        config.setTimeout(100);
+        doReturn(new CompletableFuture<>()).when(probeHttpClient).sendAsync(any(), any());
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("Request timed out after 100 ms", result.getErrorMessage());
+        assertTrue(result.getResponseTime() < 1000);
+    }
+
+    @Test
+    void testExecuteAsync_DnsResolutionFailure() {
+        when(dnsResolver.resolve("example.com"))
+                .thenReturn(CompletableFuture.failedFuture(new UnknownHostException("example.com")));
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("example.com", result.getErrorMessage());
+        verifyNoInteractions(probeHttpClient);
+    }
+
+    @Test
+    void testExecuteAsync_InvalidUrl() {
+        config.setResourceUrl("not a url");
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("DOWN", result.getStatus());
+        verifyNoInteractions(probeHttpClient);
+    }
+
+    @Test
+    void testExecuteAsync_HttpsCertificate() throws Exception {
+        config.setResourceUrl("https://example.com");
+        SSLSession session = mock(SSLSession.class);
+        X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getNotAfter()).thenReturn(Date.from(LocalDateTime.now().plusDays(30).atZone(ZoneId.systemDefault()).toInstant()));
+        when(session.getPeerCertificates()).thenReturn(new Certificate[]{certificate});
+        when(response.statusCode()).thenReturn(200);
+        when(response.sslSession()).thenReturn(Optional.of(session));
+        doReturn(CompletableFuture.completedFuture(response)).when(probeHttpClient).sendAsync(any(), any());
+
+        CheckResult result = asyncHttpCheckExecutor.executeAsync(config).join();
+
+        assertEquals("UP", result.getStatus());
+        assertTrue(result.getMetrics().getSslValid());
+        assertNotNull(result.getMetrics().getSslExpirationDate());
+    }
+
+    @Test
+    void testExecuteAsync_Http2OnlyForHttps() {
+        when(response.statusCode()).thenReturn(200);
+        when(response.sslSession()).thenReturn(Optional.empty());
+        doReturn(CompletableFuture.completedFuture(response)).when(probeHttpClient).sendAsync(any(), any());
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+
+        asyncHttpCheckExecutor.executeAsync(config).join();
+        config.setResourceUrl("https://example.com");
+        asyncHttpCheckExecutor.executeAsync(config).join();
+
+        verify(probeHttpClient, times(2)).sendAsync(requests.capture(), any());
+        assertEquals(Optional.of(HttpClient.Version.HTTP_1_1), requests.getAllValues().get(0).version());
+        assertEquals(Optional.of(HttpClient.Version.HTTP_2), requests.getAllValues().get(1).version());
+    }
+
+    @Test
+    void testSupports() {
+        assertTrue(asyncHttpCheckExecutor.supports("HTTP"));
+        assertTrue(asyncHttpCheckExecutor.supports("https"));
+        assertFalse(asyncHttpCheckExecutor.supports("TCP"));
+        assertEquals("async", asyncHttpCheckExecutor.getEngine());
+    }
+}
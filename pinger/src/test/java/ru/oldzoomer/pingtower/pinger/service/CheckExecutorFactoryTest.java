@@ -6,10 +6,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.pinger.config.HttpProbeProperties;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -102,6 +104,37 @@ class CheckExecutorFactoryTest {
         assertThrows(IllegalArgumentException.class, () -> checkExecutorFactory.getExecutor("UNKNOWN"));
     }
 
+    @Test
+    void testGetExecutor_PrefersConfiguredEngine() {
+        AsyncHttpCheckExecutor asyncExecutor = mock(AsyncHttpCheckExecutor.class);
+        HttpProbeProperties properties = new HttpProbeProperties();
+        properties.setEngine(HttpProbeProperties.ENGINE_ASYNC);
+        checkExecutorFactory = new CheckExecutorFactory(List.of(httpCheckExecutor, asyncExecutor), properties);
+
+        when(httpCheckExecutor.supports("HTTP")).thenReturn(true);
+        when(asyncExecutor.supports("HTTP")).thenReturn(true);
+        when(httpCheckExecutor.getEngine()).thenReturn(HttpProbeProperties.ENGINE_BLOCKING);
+        when(asyncExecutor.getEngine()).thenReturn(HttpProbeProperties.ENGINE_ASYNC);
+
+        assertEquals(asyncExecutor, checkExecutorFactory.getExecutor("HTTP"));
+    }
+
+    @Test
+    void testGetExecutor_EngineOverrideForType() {
+        AsyncHttpCheckExecutor asyncExecutor = mock(AsyncHttpCheckExecutor.class);
+        HttpProbeProperties properties = new HttpProbeProperties();
+        properties.setEngine(HttpProbeProperties.ENGINE_ASYNC);
+        properties.getEngineOverrides().put("HTTPS", HttpProbeProperties.ENGINE_BLOCKING);
+        checkExecutorFactory = new CheckExecutorFactory(List.of(asyncExecutor, httpCheckExecutor), properties);
+
+        when(httpCheckExecutor.supports("https")).thenReturn(true);
+        when(asyncExecutor.supports("https")).thenReturn(true);
+        when(httpCheckExecutor.getEngine()).thenReturn(HttpProbeProperties.ENGINE_BLOCKING);
+        when(asyncExecutor.getEngine()).thenReturn(HttpProbeProperties.ENGINE_ASYNC);
+
+        assertEquals(httpCheckExecutor, checkExecutorFactory.getExecutor("https"));
+    }
+
     @Test
     void testGetExecutor_NullType() {
         assertThrows(IllegalArgumentException.class, () -> checkExecutorFactory.getExecutor(null));
@@ -6,8 +6,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfigurationDTO;
 import ru.oldzoomer.pingtower.pinger.entity.CheckConfigurationEntity;
+import ru.oldzoomer.pingtower.pinger.exception.CheckConfigPublishException;
+import ru.oldzoomer.pingtower.pinger.kafka.CheckConfigPublisher;
 import ru.oldzoomer.pingtower.pinger.mapper.CheckConfigurationMapper;
 import ru.oldzoomer.pingtower.pinger.repository.CheckConfigurationRepository;
 
@@ -15,6 +21,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +36,9 @@ class CheckManagementServiceTest {
     @Mock
     private CheckConfigurationMapper checkConfigurationMapper;
 
+    @Mock
+    private CheckConfigPublisher checkConfigPublisher;
+
     @InjectMocks
     private CheckManagementService checkManagementService;
 
@@ -77,8 +87,12 @@ class CheckManagementServiceTest {
         
         // Setup
         when(checkConfigurationMapper.toEntity(testCheckDTO)).thenReturn(testCheckEntity);
-        when(checkConfigurationRepository.save(testCheckEntity)).thenReturn(testCheckEntity);
+        when(checkConfigurationRepository.saveAndFlush(testCheckEntity)).thenReturn(testCheckEntity);
         when(checkConfigurationMapper.toDto(testCheckEntity)).thenReturn(testCheckDTOWithTimestamps);
+        CheckConfiguration config = new CheckConfiguration();
+        config.setId("test-check-1");
+        when(checkConfigurationMapper.toConfiguration(testCheckEntity)).thenReturn(config);
+        when(checkConfigPublisher.publish(config)).thenReturn(CompletableFuture.completedFuture(null));
 
         CheckConfigurationDTO result = checkManagementService.createCheck(testCheckDTO);
 
@@ -90,8 +104,9 @@ class CheckManagementServiceTest {
         assertNotNull(result.getUpdatedAt());
 
         verify(checkConfigurationMapper).toEntity(testCheckDTO);
-        verify(checkConfigurationRepository).save(testCheckEntity);
+        verify(checkConfigurationRepository).saveAndFlush(testCheckEntity);
         verify(checkConfigurationMapper).toDto(testCheckEntity);
+        verify(checkConfigPublisher).publish(config);
     }
 
     @Test
@@ -116,8 +131,9 @@ class CheckManagementServiceTest {
         dtoWithId.setUpdatedAt(LocalDateTime.now().toString());
 
         when(checkConfigurationMapper.toEntity(checkWithoutId)).thenReturn(entityWithoutId);
-        when(checkConfigurationRepository.save(entityWithoutId)).thenReturn(entityWithoutId);
+        when(checkConfigurationRepository.saveAndFlush(entityWithoutId)).thenReturn(entityWithoutId);
         when(checkConfigurationMapper.toDto(entityWithoutId)).thenReturn(dtoWithId);
+        when(checkConfigPublisher.publish(any())).thenReturn(CompletableFuture.completedFuture(null));
 
         CheckConfigurationDTO result = checkManagementService.createCheck(checkWithoutId);
 
@@ -262,8 +278,9 @@ class CheckManagementServiceTest {
 
         when(checkConfigurationRepository.findById("test-check-1")).thenReturn(Optional.of(testCheckEntity));
         when(checkConfigurationMapper.toEntity(updateDTO)).thenReturn(updatedEntity);
-        when(checkConfigurationRepository.save(updatedEntity)).thenReturn(updatedEntity);
+        when(checkConfigurationRepository.saveAndFlush(updatedEntity)).thenReturn(updatedEntity);
         when(checkConfigurationMapper.toDto(updatedEntity)).thenReturn(updatedDTO);
+        when(checkConfigPublisher.publish(any())).thenReturn(CompletableFuture.completedFuture(null));
 
         CheckConfigurationDTO result = checkManagementService.updateCheck("test-check-1", updateDTO);
 
@@ -276,8 +293,10 @@ class CheckManagementServiceTest {
 
         verify(checkConfigurationRepository).findById("test-check-1");
         verify(checkConfigurationMapper).toEntity(updateDTO);
-        verify(checkConfigurationRepository).save(updatedEntity);
+        verify(checkConfigurationRepository).saveAndFlush(updatedEntity);
         verify(checkConfigurationMapper).toDto(updatedEntity);
+        verify(checkConfigurationMapper).toConfiguration(updatedEntity);
+        verify(checkConfigPublisher).publish(any());
     }
 
     @Test
@@ -292,18 +311,49 @@ class CheckManagementServiceTest {
         assertNull(result);
 
         verify(checkConfigurationRepository).findById("nonexistent");
-        verify(checkConfigurationRepository, never()).save(any(CheckConfigurationEntity.class));
+        verify(checkConfigurationRepository, never()).saveAndFlush(any(CheckConfigurationEntity.class));
+        verifyNoInteractions(checkConfigPublisher);
     }
 
     @Test
     void testDeleteCheck_Success() {
         when(checkConfigurationRepository.existsById("test-check-1")).thenReturn(true);
+        when(checkConfigPublisher.publishDeletion("test-check-1")).thenReturn(CompletableFuture.completedFuture(null));
 
         boolean result = checkManagementService.deleteCheck("test-check-1");
 
         assertTrue(result);
         verify(checkConfigurationRepository).existsById("test-check-1");
         verify(checkConfigurationRepository).deleteById("test-check-1");
+        verify(checkConfigPublisher).publishDeletion("test-check-1");
+    }
+
+    @Test
+    void testDeleteCheck_PublishFailed() {
+        when(checkConfigurationRepository.existsById("test-check-1")).thenReturn(true);
+        when(checkConfigPublisher.publishDeletion("test-check-1"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        // Исключение откатывает транзакцию, проверка остается в БД
+        CheckConfigPublishException exception = assertThrows(CheckConfigPublishException.class,
+                () -> checkManagementService.deleteCheck("test-check-1"));
+
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void testCreateCheck_PublishFailed() {
+        CheckConfiguration config = new CheckConfiguration();
+        config.setId("test-check-1");
+        when(checkConfigurationMapper.toEntity(testCheckDTO)).thenReturn(testCheckEntity);
+        when(checkConfigurationRepository.saveAndFlush(testCheckEntity)).thenReturn(testCheckEntity);
+        when(checkConfigurationMapper.toConfiguration(testCheckEntity)).thenReturn(config);
+        when(checkConfigPublisher.publish(config))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        assertThrows(CheckConfigPublishException.class, () -> checkManagementService.createCheck(testCheckDTO));
+
+        verify(checkConfigurationMapper, never()).toDto(any(CheckConfigurationEntity.class));
     }
 
     @Test
@@ -315,5 +365,30 @@ class CheckManagementServiceTest {
         assertFalse(result);
         verify(checkConfigurationRepository).existsById("nonexistent");
         verify(checkConfigurationRepository, never()).deleteById("nonexistent");
+        verifyNoInteractions(checkConfigPublisher);
+    }
+
+    @Test
+    void testPublishAllChecks_PagesThroughDatabase() {
+        CheckConfigurationEntity second = new CheckConfigurationEntity();
+        second.setId("test-check-2");
+        Pageable firstPage = PageRequest.of(0, 500);
+        when(checkConfigurationRepository.findAll(firstPage))
+                .thenReturn(new PageImpl<>(List.of(testCheckEntity), firstPage, 501));
+        when(checkConfigurationRepository.findAll(firstPage.next()))
+                .thenReturn(new PageImpl<>(List.of(second), firstPage.next(), 501));
+        CheckConfiguration firstConfig = new CheckConfiguration();
+        firstConfig.setId("test-check-1");
+        CheckConfiguration secondConfig = new CheckConfiguration();
+        secondConfig.setId("test-check-2");
+        when(checkConfigurationMapper.toConfiguration(testCheckEntity)).thenReturn(firstConfig);
+        when(checkConfigurationMapper.toConfiguration(second)).thenReturn(secondConfig);
+        when(checkConfigPublisher.publish(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        List<CheckConfiguration> result = checkManagementService.publishAllChecks();
+
+        assertEquals(List.of(firstConfig, secondConfig), result);
+        verify(checkConfigPublisher).publish(firstConfig);
+        verify(checkConfigPublisher).publish(secondConfig);
     }
 }
\ No newline at end of file
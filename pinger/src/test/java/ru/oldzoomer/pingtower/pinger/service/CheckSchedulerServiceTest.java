@@ -1,18 +1,33 @@
 package ru.oldzoomer.pingtower.pinger.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.pinger.cluster.ClusterMembership;
+import ru.oldzoomer.pingtower.pinger.cluster.MembershipChangedEvent;
+import ru.oldzoomer.pingtower.pinger.config.HostLimitProperties;
+import ru.oldzoomer.pingtower.pinger.config.SchedulerProperties;
+import ru.oldzoomer.pingtower.pinger.dto.AlertMessage;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.kafka.AlertProducer;
+import ru.oldzoomer.pingtower.pinger.kafka.CheckConfigChangedEvent;
 import ru.oldzoomer.pingtower.pinger.kafka.CheckResultProducer;
 import ru.oldzoomer.pingtower.pinger.kafka.SettingsConsumer;
+import ru.oldzoomer.pingtower.pinger.scheduler.ScheduleEngine;
+import ru.oldzoomer.pingtower.pinger.scheduler.ScheduledTask;
 
-import java.util.Map;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,13 +42,35 @@ class CheckSchedulerServiceTest {
     @Mock
     private CheckResultProducer checkResultProducer;
 
-    @InjectMocks
+    @Mock
+    private AlertDetector alertDetector;
+
+    @Mock
+    private AlertProducer alertProducer;
+
+    @Mock
+    private ClusterMembership clusterMembership;
+
+    @Mock
+    private ScheduleEngine scheduleEngine;
+
+    @Mock
+    private Clock clock;
+
     private CheckSchedulerService checkSchedulerService;
 
     private CheckConfiguration config;
 
     @BeforeEach
     void setUp() {
+        SchedulerProperties schedulerProperties = new SchedulerProperties();
+        schedulerProperties.setMaxStartJitter(Duration.ZERO);
+        HostProbeLimiter hostProbeLimiter = new HostProbeLimiter(new HostLimitProperties(), Runnable::run,
+                new SimpleMeterRegistry(), System::nanoTime);
+        checkSchedulerService = new CheckSchedulerService(settingsConsumer, checkExecutorFactory, checkResultProducer,
+                alertDetector, alertProducer, clusterMembership, hostProbeLimiter, scheduleEngine, schedulerProperties,
+                clock);
+
         config = new CheckConfiguration();
         config.setId("test-check");
         config.setType("HTTP");
@@ -67,6 +104,84 @@ class CheckSchedulerServiceTest {
         assertDoesNotThrow(() -> checkSchedulerService.scheduleCheck(updatedConfig));
     }
 
+    @Test
+    void testScheduleCheck_RegistersWithEngine() {
+        checkSchedulerService.scheduleCheck(config);
+
+        long phase = CheckSchedulerService.phaseOffset("test-check", 60000L);
+        verify(scheduleEngine).schedule(eq("test-check"), eq(phase), eq(60000L), any(ScheduledTask.class));
+    }
+
+    @Test
+    void testScheduleCheck_PhaseDependsOnCheckIdNotOnScheduleTime() {
+        when(clock.millis()).thenReturn(0L, 10_000L);
+        checkSchedulerService.scheduleCheck(createConfig("check-1", "HTTP", "https://example.com", 60000L));
+        checkSchedulerService.scheduleCheck(createConfig("check-2", "HTTP", "https://example.com", 60000L));
+
+        long phase1 = CheckSchedulerService.phaseOffset("check-1", 60000L);
+        long phase2 = CheckSchedulerService.phaseOffset("check-2", 60000L);
+        verify(scheduleEngine).schedule(eq("check-1"), eq(phase1), eq(60000L), any(ScheduledTask.class));
+        verify(scheduleEngine).schedule(eq("check-2"), eq(Math.floorMod(phase2 - 10_000L, 60000L)), eq(60000L), any(ScheduledTask.class));
+    }
+
+    @Test
+    void testPhaseOffset_SpreadsChecksAcrossPeriod() {
+        // 1000 проверок с периодом 60 с распределяются по 60 секундам периода без пачек
+        int[] perSecond = new int[60];
+        Set<Long> phases = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long phase = CheckSchedulerService.phaseOffset("check-" + i, 60000L);
+            assertTrue(phase >= 0 && phase < 60000L);
+            assertEquals(phase, CheckSchedulerService.phaseOffset("check-" + i, 60000L));
+            perSecond[(int) (phase / 1000)]++;
+            phases.add(phase);
+        }
+        for (int count : perSecond) {
+            assertTrue(count < 40, "Too many checks start in the same second: " + count);
+        }
+        assertTrue(phases.size() > 950);
+    }
+
+    @Test
+    void testScheduleCheck_JitterIsSameOnEveryInstance() {
+        SchedulerProperties schedulerProperties = new SchedulerProperties();
+        schedulerProperties.setMaxStartJitter(Duration.ofMillis(500));
+        HostProbeLimiter hostProbeLimiter = new HostProbeLimiter(new HostLimitProperties(), Runnable::run,
+                new SimpleMeterRegistry(), System::nanoTime);
+        for (int instance = 0; instance < 2; instance++) {
+            new CheckSchedulerService(settingsConsumer, checkExecutorFactory, checkResultProducer, alertDetector,
+                    alertProducer, clusterMembership, hostProbeLimiter, scheduleEngine, schedulerProperties, clock)
+                    .scheduleCheck(config);
+        }
+
+        long anchor = CheckSchedulerService.phaseOffset("test-check", 60000L)
+                + CheckSchedulerService.startJitter("test-check", 500L);
+        verify(scheduleEngine, times(2)).schedule(eq("test-check"), eq(Math.floorMod(anchor, 60000L)), eq(60000L),
+                any(ScheduledTask.class));
+    }
+
+    @Test
+    void testStartJitter_SeparatesEqualHashCodes() {
+        // "Aa" и "BB" имеют одинаковый hashCode и поэтому одинаковую фазу
+        assertEquals(CheckSchedulerService.phaseOffset("Aa", 60000L), CheckSchedulerService.phaseOffset("BB", 60000L));
+        assertNotEquals(CheckSchedulerService.startJitter("Aa", 500L), CheckSchedulerService.startJitter("BB", 500L));
+        for (int i = 0; i < 100; i++) {
+            long jitter = CheckSchedulerService.startJitter("check-" + i, 500L);
+            assertTrue(jitter >= 0 && jitter < 500L);
+            assertEquals(jitter, CheckSchedulerService.startJitter("check-" + i, 500L));
+        }
+    }
+
+    @Test
+    void testRemoveCheck_Existing() {
+        when(scheduleEngine.cancel("test-check")).thenReturn(true);
+
+        checkSchedulerService.removeCheck("test-check");
+
+        verify(scheduleEngine).cancel("test-check");
+        verify(alertDetector).forget("test-check");
+    }
+
     @Test
     void testRemoveCheck_NonExisting() {
         // Try to remove a non-existing check
@@ -83,12 +198,30 @@ class CheckSchedulerServiceTest {
         ru.oldzoomer.pingtower.pinger.dto.CheckResult mockResult = new ru.oldzoomer.pingtower.pinger.dto.CheckResult();
         mockResult.setCheckId("test-check");
         mockResult.setStatus("SUCCESS");
-        when(mockExecutor.execute(config)).thenReturn(mockResult);
+        when(mockExecutor.executeAsync(config)).thenReturn(CompletableFuture.completedFuture(mockResult));
 
         checkSchedulerService.executeCheck(config);
 
         // Verify that the result was sent to Kafka
         verify(checkResultProducer).sendCheckResult(mockResult);
+        verify(alertProducer, never()).sendAlert(any());
+    }
+
+    @Test
+    void testExecuteCheck_SendsAlertOnStatusChange() {
+        CheckExecutor mockExecutor = mock(CheckExecutor.class);
+        when(checkExecutorFactory.getExecutor("HTTP")).thenReturn(mockExecutor);
+        ru.oldzoomer.pingtower.pinger.dto.CheckResult mockResult = new ru.oldzoomer.pingtower.pinger.dto.CheckResult();
+        mockResult.setCheckId("test-check");
+        mockResult.setStatus("DOWN");
+        when(mockExecutor.executeAsync(config)).thenReturn(CompletableFuture.completedFuture(mockResult));
+        AlertMessage alert = new AlertMessage();
+        alert.setCheckId("test-check");
+        when(alertDetector.onResult(mockResult)).thenReturn(Optional.of(alert));
+
+        checkSchedulerService.executeCheck(config);
+
+        verify(alertProducer).sendAlert(alert);
     }
 
     @Test
@@ -96,7 +229,7 @@ class CheckSchedulerServiceTest {
         // Mock the executor to throw an exception
         CheckExecutor mockExecutor = mock(CheckExecutor.class);
         when(checkExecutorFactory.getExecutor("HTTP")).thenReturn(mockExecutor);
-        when(mockExecutor.execute(config)).thenThrow(new RuntimeException("Test error"));
+        when(mockExecutor.executeAsync(config)).thenThrow(new RuntimeException("Test error"));
 
         // Should not throw exception, just log error
         assertDoesNotThrow(() -> checkSchedulerService.executeCheck(config));
@@ -105,18 +238,49 @@ class CheckSchedulerServiceTest {
         verify(checkResultProducer, never()).sendCheckResult(any());
     }
 
+    @Test
+    void testExecuteCheck_FailedFuture() {
+        CheckExecutor mockExecutor = mock(CheckExecutor.class);
+        when(checkExecutorFactory.getExecutor("HTTP")).thenReturn(mockExecutor);
+        when(mockExecutor.executeAsync(config)).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Test error")));
+
+        assertDoesNotThrow(() -> checkSchedulerService.executeCheck(config));
+
+        verify(checkResultProducer, never()).sendCheckResult(any());
+    }
+
+    @Test
+    void testScheduledTask_CompletesWhenCheckCompletes() {
+        CheckExecutor mockExecutor = mock(CheckExecutor.class);
+        when(checkExecutorFactory.getExecutor("HTTP")).thenReturn(mockExecutor);
+        CompletableFuture<ru.oldzoomer.pingtower.pinger.dto.CheckResult> probe = new CompletableFuture<>();
+        when(mockExecutor.executeAsync(config)).thenReturn(probe);
+        ArgumentCaptor<ScheduledTask> task = ArgumentCaptor.forClass(ScheduledTask.class);
+
+        checkSchedulerService.scheduleCheck(config);
+        verify(scheduleEngine).schedule(eq("test-check"), anyLong(), eq(60000L), task.capture());
+        CompletableFuture<?> run = task.getValue().run().toCompletableFuture();
+
+        // Движок не запускает проверку повторно, пока не завершится ее асинхронная часть
+        assertFalse(run.isDone());
+        probe.completeExceptionally(new RuntimeException("Test error"));
+        assertTrue(run.isDone());
+        assertFalse(run.isCompletedExceptionally());
+    }
+
     @Test
     void testScheduleAllChecks_NewChecks() {
-        // Mock settings consumer to return some configurations
-        Map<String, CheckConfiguration> configs = Map.of(
-                "check-1", createConfig("check-1", "HTTP", "https://example1.com", 60000L),
-                "check-2", createConfig("check-2", "TCP", "tcp://example2.com:8080", 30000L)
-        );
+        CheckConfiguration first = createConfig("check-1", "HTTP", "https://example1.com", 60000L);
+        CheckConfiguration second = createConfig("check-2", "TCP", "tcp://example2.com:8080", 30000L);
+        when(settingsConsumer.currentCheckIds()).thenReturn(Set.of("check-1", "check-2"));
+        when(settingsConsumer.currentConfiguration("check-1")).thenReturn(first);
+        when(settingsConsumer.currentConfiguration("check-2")).thenReturn(second);
+        when(clusterMembership.owns(anyString())).thenReturn(true);
 
-        when(settingsConsumer.getCheckConfigurations()).thenReturn(configs);
+        checkSchedulerService.scheduleAllChecks();
 
-        // Should not throw exception
-        assertDoesNotThrow(() -> checkSchedulerService.scheduleAllChecks());
+        verify(scheduleEngine).schedule(eq("check-1"), anyLong(), eq(60000L), any(ScheduledTask.class));
+        verify(scheduleEngine).schedule(eq("check-2"), anyLong(), eq(30000L), any(ScheduledTask.class));
     }
 
     @Test
@@ -125,15 +289,159 @@ class CheckSchedulerServiceTest {
         CheckConfiguration existingConfig = createConfig("existing-check", "HTTP", "https://existing.com", 60000L);
         checkSchedulerService.scheduleCheck(existingConfig);
 
-        // Mock settings consumer to return the same configuration
-        Map<String, CheckConfiguration> configs = Map.of(
-                "existing-check", existingConfig
-        );
-
-        when(settingsConsumer.getCheckConfigurations()).thenReturn(configs);
+        when(settingsConsumer.currentCheckIds()).thenReturn(Set.of("existing-check"));
+        when(settingsConsumer.currentConfiguration("existing-check")).thenReturn(existingConfig);
+        when(scheduleEngine.isScheduled("existing-check")).thenReturn(true);
+        when(clusterMembership.owns("existing-check")).thenReturn(true);
 
         // Should not throw exception when scheduling existing checks
         assertDoesNotThrow(() -> checkSchedulerService.scheduleAllChecks());
+
+        // Already scheduled check should not be scheduled twice
+        verify(scheduleEngine, times(1)).schedule(eq("existing-check"), anyLong(), anyLong(), any(ScheduledTask.class));
+    }
+
+    @Test
+    void testScheduleAllChecks_OnlyOwnedChecks() {
+        when(settingsConsumer.currentCheckIds()).thenReturn(Set.of("check-1", "check-2", "check-3"));
+        when(settingsConsumer.currentConfiguration("check-1")).thenReturn(createConfig("check-1", "HTTP", "https://example1.com", 60000L));
+        when(settingsConsumer.currentConfiguration("check-2")).thenReturn(createConfig("check-2", "HTTP", "https://example2.com", 60000L));
+        when(settingsConsumer.currentConfiguration("check-3")).thenReturn(createConfig("check-3", "HTTP", "https://example3.com", 60000L));
+        when(clusterMembership.owns("check-1")).thenReturn(true);
+        when(clusterMembership.owns("check-2")).thenReturn(false);
+        when(clusterMembership.owns("check-3")).thenReturn(false);
+        // check-3 перешла к другому экземпляру
+        when(scheduleEngine.scheduledIds()).thenReturn(Set.of("check-1", "check-3"));
+        when(scheduleEngine.isScheduled("check-3")).thenReturn(true);
+        when(scheduleEngine.cancel("check-3")).thenReturn(true);
+
+        checkSchedulerService.scheduleAllChecks();
+
+        verify(scheduleEngine).schedule(eq("check-1"), anyLong(), anyLong(), any(ScheduledTask.class));
+        verify(scheduleEngine, never()).schedule(eq("check-2"), anyLong(), anyLong(), any(ScheduledTask.class));
+        verify(scheduleEngine).cancel("check-3");
+        verify(alertDetector).forget("check-3");
+    }
+
+    @Test
+    void testScheduleAllChecks_CancelsDeletedChecks() {
+        when(scheduleEngine.scheduledIds()).thenReturn(Set.of("deleted-check"));
+        when(scheduleEngine.isScheduled("deleted-check")).thenReturn(true);
+
+        checkSchedulerService.scheduleAllChecks();
+
+        verify(scheduleEngine).cancel("deleted-check");
+    }
+
+    @Test
+    void testOnMembershipChanged_Rebalances() {
+        checkSchedulerService.completeBootstrap();
+        when(scheduleEngine.scheduledIds()).thenReturn(Set.of("check-1"));
+        when(settingsConsumer.currentConfiguration("check-1")).thenReturn(config);
+        when(clusterMembership.owns("check-1")).thenReturn(false);
+        when(scheduleEngine.isScheduled("check-1")).thenReturn(true);
+
+        checkSchedulerService.onMembershipChanged(new MembershipChangedEvent(Set.of("pinger-1", "pinger-2")));
+
+        verify(scheduleEngine).cancel("check-1");
+    }
+
+    @Test
+    void testOnConfigChanged_ReschedulesPreservingPhase() {
+        checkSchedulerService.completeBootstrap();
+        when(clusterMembership.owns("test-check")).thenReturn(true);
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(config);
+        when(clock.millis()).thenReturn(0L, 25_000L);
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 1));
+
+        CheckConfiguration updated = createConfig("test-check", "HTTP", "https://example.com", 30000L);
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(updated);
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 2));
+
+        long phase = CheckSchedulerService.phaseOffset("test-check", 60000L);
+        verify(scheduleEngine).schedule(eq("test-check"), eq(phase), eq(60000L), any(ScheduledTask.class));
+        // Запуски продолжают сетку от первого запуска: phase, phase + 30 с, ...
+        verify(scheduleEngine).schedule(eq("test-check"), eq(Math.floorMod(phase - 25_000L, 30000L)), eq(30000L), any(ScheduledTask.class));
+        verify(alertDetector, never()).forget(anyString());
+    }
+
+    @Test
+    void testOnConfigChanged_UnchangedConfigKeepsSchedule() {
+        checkSchedulerService.completeBootstrap();
+        when(clusterMembership.owns("test-check")).thenReturn(true);
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(config);
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 1));
+        when(scheduleEngine.isScheduled("test-check")).thenReturn(true);
+
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 2));
+
+        verify(scheduleEngine, times(1)).schedule(eq("test-check"), anyLong(), anyLong(), any(ScheduledTask.class));
+    }
+
+    @Test
+    void testOnConfigChanged_CancelsDeletedCheck() {
+        checkSchedulerService.completeBootstrap();
+        when(clusterMembership.owns("test-check")).thenReturn(true);
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(config).thenReturn(null);
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 1));
+
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 2));
+
+        verify(scheduleEngine).cancel("test-check");
+    }
+
+    @Test
+    void testReconcileChanges_OnlyChangedChecks() {
+        checkSchedulerService.completeBootstrap();
+        when(settingsConsumer.getRevision()).thenReturn(3L);
+        when(settingsConsumer.changedSince(0L)).thenReturn(Set.of("test-check"));
+        when(settingsConsumer.changedSince(3L)).thenReturn(Set.of());
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(config);
+        when(clusterMembership.owns("test-check")).thenReturn(true);
+
+        checkSchedulerService.reconcileChanges();
+        checkSchedulerService.reconcileChanges();
+
+        verify(scheduleEngine, times(1)).schedule(eq("test-check"), anyLong(), anyLong(), any(ScheduledTask.class));
+        verify(settingsConsumer, times(2)).discardChanges(3L);
+        verify(settingsConsumer, never()).getCheckConfigurations();
+    }
+
+    @Test
+    void testChangesIgnoredUntilBootstrapped() {
+        checkSchedulerService.onConfigChanged(new CheckConfigChangedEvent("test-check", 1));
+        checkSchedulerService.reconcileChanges();
+        checkSchedulerService.onMembershipChanged(new MembershipChangedEvent(Set.of("pinger-1")));
+        checkSchedulerService.reconcileAll();
+
+        verifyNoInteractions(scheduleEngine);
+        verify(settingsConsumer, never()).currentConfiguration(anyString());
+        verify(settingsConsumer, never()).discardChanges(anyLong());
+    }
+
+    @Test
+    void testCompleteBootstrap_SchedulesAllChecks() {
+        when(settingsConsumer.currentCheckIds()).thenReturn(Set.of("test-check"));
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(config);
+        when(clusterMembership.owns("test-check")).thenReturn(true);
+
+        checkSchedulerService.completeBootstrap();
+
+        verify(scheduleEngine).schedule(eq("test-check"), anyLong(), eq(60000L), any(ScheduledTask.class));
+    }
+
+    @Test
+    void testReconcileAll_RestoresLostCheck() {
+        when(settingsConsumer.currentCheckIds()).thenReturn(Set.of("test-check"));
+        when(settingsConsumer.currentConfiguration("test-check")).thenReturn(config);
+        when(clusterMembership.owns("test-check")).thenReturn(true);
+        checkSchedulerService.completeBootstrap();
+
+        // Задача пропала из движка без события
+        when(scheduleEngine.isScheduled("test-check")).thenReturn(false);
+        checkSchedulerService.reconcileAll();
+
+        verify(scheduleEngine, times(2)).schedule(eq("test-check"), anyLong(), eq(60000L), any(ScheduledTask.class));
     }
 
     private CheckConfiguration createConfig(String id, String type, String url, Long frequency) {
@@ -0,0 +1,224 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.pinger.dns.DnsMessage;
+import ru.oldzoomer.pingtower.pinger.dns.DnsRecord;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResponse;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DnsCheckExecutorTest {
+
+    private static final InetSocketAddress SERVER = new InetSocketAddress("192.0.2.53", 53);
+
+    @Mock
+    private DnsResolver dnsResolver;
+
+    @InjectMocks
+    private DnsCheckExecutor dnsCheckExecutor;
+
+    private CheckConfiguration config;
+
+    @BeforeEach
+    void setUp() {
+        config = new CheckConfiguration();
+        config.setId("test-check");
+        config.setType("DNS");
+        config.setTimeout(5000);
+    }
+
+    @Test
+    void testExecute_ResolvesAddressesThroughCache() {
+        config.setResourceUrl("dns://example.com");
+        when(dnsResolver.resolve("example.com"))
+                .thenReturn(CompletableFuture.completedFuture(List.of(InetAddress.getLoopbackAddress())));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("UP", result.getStatus());
+        assertNotNull(result.getMetrics().getDnsLookupNanos());
+        verify(dnsResolver, never()).query(any(), anyInt(), any());
+    }
+
+    @Test
+    void testExecute_UnknownHost() {
+        config.setResourceUrl("dns://missing.example");
+        when(dnsResolver.resolve("missing.example"))
+                .thenReturn(CompletableFuture.failedFuture(new UnknownHostException("missing.example")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("missing.example", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_RecordQueryMatchesExpectedValues() {
+        config.setResourceUrl("dns://192.0.2.53/example.com?type=MX;expect=10%20MAIL.example.com.;expect=backup.example.com");
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_MX, SERVER)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("example.com", DnsMessage.TYPE_MX, 300, "10 mail.example.com"),
+                new DnsRecord("example.com", DnsMessage.TYPE_MX, 300, "20 backup.example.com")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("UP", result.getStatus());
+        assertNull(result.getErrorMessage());
+        // Записывается время запроса к серверу из ответа
+        assertEquals(1_500_000L, result.getMetrics().getDnsLookupNanos());
+    }
+
+    @Test
+    void testExecute_MxRecordWithoutNameDoesNotMatch() {
+        config.setResourceUrl("dns://192.0.2.53/example.com?type=MX&expect=mail.example.com");
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_MX, SERVER)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("example.com", DnsMessage.TYPE_MX, 300, "10")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("Expected MX record 'mail.example.com' not found in [10]", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_ServerNameResolvedThroughCache() throws UnknownHostException {
+        config.setResourceUrl("dns://ns1.example.net:5353/example.com?type=A");
+        InetAddress serverAddress = InetAddress.getByAddress("ns1.example.net", new byte[]{(byte) 192, 0, 2, 54});
+        when(dnsResolver.resolve("ns1.example.net"))
+                .thenReturn(CompletableFuture.completedFuture(List.of(serverAddress)));
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_A, new InetSocketAddress(serverAddress, 5353)))
+                .thenReturn(response(DnsMessage.RCODE_NOERROR,
+                        new DnsRecord("example.com", DnsMessage.TYPE_A, 300, "192.0.2.1")));
+
+        assertEquals("UP", dnsCheckExecutor.execute(config).getStatus());
+    }
+
+    @Test
+    void testExecute_UnknownServerName() {
+        config.setResourceUrl("dns://ns.missing.example/example.com?type=A");
+        when(dnsResolver.resolve("ns.missing.example"))
+                .thenReturn(CompletableFuture.failedFuture(new UnknownHostException("ns.missing.example")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("ns.missing.example", result.getErrorMessage());
+        verify(dnsResolver, never()).query(any(), anyInt(), any());
+    }
+
+    @Test
+    void testExecute_ExpectedValueMissing() {
+        config.setResourceUrl("dns:///example.com?type=A&expect=192.0.2.1");
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_A, null)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("example.com", DnsMessage.TYPE_A, 300, "192.0.2.2")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("Expected A record '192.0.2.1' not found in [192.0.2.2]", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_AddressesComparedAsAddresses() {
+        config.setResourceUrl("dns://192.0.2.53/example.com?type=AAAA;expect=2001:db8::1");
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_AAAA, SERVER)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("example.com", DnsMessage.TYPE_AAAA, 300, "2001:db8:0:0:0:0:0:1")));
+
+        assertEquals("UP", dnsCheckExecutor.execute(config).getStatus());
+    }
+
+    @Test
+    void testExecute_NxDomain() {
+        config.setResourceUrl("dns://192.0.2.53/missing.example?type=TXT");
+        when(dnsResolver.query("missing.example", DnsMessage.TYPE_TXT, SERVER))
+                .thenReturn(response(DnsMessage.RCODE_NXDOMAIN));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("DNS server returned NXDOMAIN for missing.example", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_OnlyRecordsOfRequestedTypeCount() {
+        config.setResourceUrl("dns://192.0.2.53/www.example.com?type=A");
+        when(dnsResolver.query("www.example.com", DnsMessage.TYPE_A, SERVER)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("www.example.com", DnsMessage.TYPE_CNAME, 300, "cdn.example.net")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("No A records found for www.example.com", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_TtlBelowMinimum() {
+        config.setResourceUrl("dns://192.0.2.53/example.com?minttl=300");
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_A, SERVER)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("example.com", DnsMessage.TYPE_A, 60, "192.0.2.1")));
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("A record 192.0.2.1 has TTL 60 s, expected at least 300 s", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_TxtValueKeepsPlusSign() {
+        config.setResourceUrl("dns://192.0.2.53/example.com?type=TXT;expect=v=spf1+a%20-all");
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_TXT, SERVER)).thenReturn(response(DnsMessage.RCODE_NOERROR,
+                new DnsRecord("example.com", DnsMessage.TYPE_TXT, 300, "v=spf1+a -all")));
+
+        assertEquals("UP", dnsCheckExecutor.execute(config).getStatus());
+    }
+
+    @Test
+    void testExecute_Timeout() {
+        config.setResourceUrl("dns://192.0.2.53/example.com");
+        config.setTimeout(50);
+        when(dnsResolver.query("example.com", DnsMessage.TYPE_A, SERVER)).thenReturn(new CompletableFuture<>());
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("DNS lookup timed out after 50 ms", result.getErrorMessage());
+    }
+
+    @Test
+    void testExecute_UnsupportedRecordType() {
+        config.setResourceUrl("dns://192.0.2.53/example.com?type=SRV");
+
+        CheckResult result = dnsCheckExecutor.execute(config);
+
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("Unsupported DNS record type: SRV", result.getErrorMessage());
+        verifyNoInteractions(dnsResolver);
+    }
+
+    @Test
+    void testSupports() {
+        assertTrue(dnsCheckExecutor.supports("DNS"));
+        assertFalse(dnsCheckExecutor.supports("HTTP"));
+    }
+
+    private static CompletableFuture<DnsResponse> response(int rcode, DnsRecord... records) {
+        int type = records.length > 0 ? records[0].type() : DnsMessage.TYPE_A;
+        return CompletableFuture.completedFuture(
+                new DnsResponse(1, rcode, false, "example.com", type, List.of(records), 1_500_000L));
+    }
+}
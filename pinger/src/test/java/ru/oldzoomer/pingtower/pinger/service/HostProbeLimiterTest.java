@@ -0,0 +1,182 @@
+package ru.oldzoomer.pingtower.pinger.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.pingtower.pinger.config.HostLimitProperties;
+import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
+import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HostProbeLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private MeterRegistry meterRegistry;
+    private HostLimitProperties properties;
+    private CheckExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new HostLimitProperties();
+        properties.setEnabled(true);
+        properties.setRetryDelay(Duration.ofMillis(10));
+        executor = mock(CheckExecutor.class);
+    }
+
+    @Test
+    void testExecuteAsync_DefersProbeWhileHostIsBusy() throws Exception {
+        properties.setMaxConcurrent(1);
+        HostProbeLimiter limiter = createLimiter();
+        CheckConfiguration first = createConfig("check-1", "https://example.com/a");
+        CheckConfiguration second = createConfig("check-2", "https://EXAMPLE.com/b");
+        CompletableFuture<CheckResult> firstProbe = new CompletableFuture<>();
+        CheckResult secondResult = new CheckResult();
+        when(executor.executeAsync(first)).thenReturn(firstProbe);
+        when(executor.executeAsync(second)).thenReturn(CompletableFuture.completedFuture(secondResult));
+
+        limiter.executeAsync(executor, first);
+        CompletableFuture<CheckResult> secondProbe = limiter.executeAsync(executor, second);
+
+        assertFalse(secondProbe.isDone());
+        assertEquals(1, deferred("concurrency"));
+        verify(executor, never()).executeAsync(second);
+
+        firstProbe.complete(new CheckResult());
+
+        assertSame(secondResult, secondProbe.get(1, TimeUnit.SECONDS));
+        assertEquals(1, deferred("concurrency"));
+    }
+
+    @Test
+    void testExecuteAsync_OtherHostsAreNotLimited() {
+        properties.setMaxConcurrent(1);
+        HostProbeLimiter limiter = createLimiter();
+        CheckConfiguration first = createConfig("check-1", "https://example.com");
+        CheckConfiguration second = createConfig("check-2", "tcp://example.org:443");
+        when(executor.executeAsync(first)).thenReturn(new CompletableFuture<>());
+        when(executor.executeAsync(second)).thenReturn(new CompletableFuture<>());
+
+        limiter.executeAsync(executor, first);
+        limiter.executeAsync(executor, second);
+
+        verify(executor).executeAsync(second);
+        assertEquals(0, deferred("concurrency"));
+    }
+
+    @Test
+    void testExecuteAsync_RateLimitsBurstAndRefills() {
+        properties.setRatePerSecond(1);
+        properties.setBurst(2);
+        HostProbeLimiter limiter = createLimiter();
+        CheckConfiguration config = createConfig("check-1", "https://example.com");
+        when(executor.executeAsync(config)).thenAnswer(invocation -> CompletableFuture.completedFuture(new CheckResult()));
+
+        assertTrue(limiter.executeAsync(executor, config).isDone());
+        assertTrue(limiter.executeAsync(executor, config).isDone());
+        assertFalse(limiter.executeAsync(executor, config).isDone());
+        assertEquals(1, deferred("rate"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertTrue(limiter.executeAsync(executor, config).isDone());
+        verify(executor, times(3)).executeAsync(config);
+    }
+
+    @Test
+    void testExecuteAsync_ManyHostsDoNotShareLimits() {
+        properties.setMaxConcurrent(1);
+        HostProbeLimiter limiter = createLimiter();
+        when(executor.executeAsync(any())).thenReturn(new CompletableFuture<>());
+
+        // Хосты не делят ограничения, сколько бы их ни было
+        for (int i = 0; i < 10_000; i++) {
+            limiter.executeAsync(executor, createConfig("check-" + i, "https://host-" + i + ".example.com"));
+        }
+
+        verify(executor, times(10_000)).executeAsync(any());
+        assertEquals(0, deferred("concurrency"));
+    }
+
+    @Test
+    void testExecuteAsync_ReportsUnknownWhenProbeCannotRunBeforeDeadline() {
+        properties.setRatePerSecond(1);
+        properties.setBurst(1);
+        properties.setMaxDeferral(Duration.ofMillis(100));
+        HostProbeLimiter limiter = createLimiter();
+        CheckConfiguration config = createConfig("check-1", "https://example.com");
+        when(executor.executeAsync(config)).thenReturn(CompletableFuture.completedFuture(new CheckResult()));
+
+        limiter.executeAsync(executor, config);
+        CheckResult skipped = limiter.executeAsync(executor, config).join();
+
+        assertEquals("UNKNOWN", skipped.getStatus());
+        assertEquals("check-1", skipped.getCheckId());
+        assertEquals("Skipped: per-host limit for example.com exceeded", skipped.getErrorMessage());
+        assertNotNull(skipped.getTimestamp());
+        verify(executor, times(1)).executeAsync(config);
+        assertEquals(1, meterRegistry.get("pinger.host.probes.skipped").counter().count());
+    }
+
+    @Test
+    void testExecuteAsync_ReleasesSlotWhenExecutorThrows() {
+        properties.setMaxConcurrent(1);
+        HostProbeLimiter limiter = createLimiter();
+        CheckConfiguration config = createConfig("check-1", "https://example.com");
+        when(executor.executeAsync(config))
+                .thenThrow(new RuntimeException("Test error"))
+                .thenReturn(CompletableFuture.completedFuture(new CheckResult()));
+
+        assertTrue(limiter.executeAsync(executor, config).isCompletedExceptionally());
+        assertTrue(limiter.executeAsync(executor, config).isDone());
+        assertEquals(0, deferred("concurrency"));
+    }
+
+    @Test
+    void testExecuteAsync_Disabled() {
+        properties.setEnabled(false);
+        properties.setMaxConcurrent(1);
+        HostProbeLimiter limiter = createLimiter();
+        CheckConfiguration config = createConfig("check-1", "https://example.com");
+        when(executor.executeAsync(config)).thenReturn(new CompletableFuture<>());
+
+        limiter.executeAsync(executor, config);
+        limiter.executeAsync(executor, config);
+
+        verify(executor, times(2)).executeAsync(config);
+    }
+
+    @Test
+    void testHostOf() {
+        assertEquals("example.com", HostProbeLimiter.hostOf("https://Example.com:8443/health"));
+        assertEquals("db.internal", HostProbeLimiter.hostOf("tcp://db.internal:5432"));
+        assertEquals("example.org", HostProbeLimiter.hostOf("dns://example.org"));
+        assertEquals("not a url", HostProbeLimiter.hostOf("not a url"));
+    }
+
+    private HostProbeLimiter createLimiter() {
+        return new HostProbeLimiter(properties, Runnable::run, meterRegistry, now::get);
+    }
+
+    private double deferred(String reason) {
+        return meterRegistry.get("pinger.host.probes.deferred").tag("reason", reason).counter().count();
+    }
+
+    private CheckConfiguration createConfig(String id, String url) {
+        CheckConfiguration config = new CheckConfiguration();
+        config.setId(id);
+        config.setType("HTTP");
+        config.setResourceUrl(url);
+        config.setFrequency(60000L);
+        config.setTimeout(5000);
+        return config;
+    }
+}
@@ -4,7 +4,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.pinger.dns.DnsResolver;
 import ru.oldzoomer.pingtower.pinger.dto.CheckConfiguration;
 import ru.oldzoomer.pingtower.pinger.dto.CheckResult;
 
@@ -13,6 +15,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.UnknownHostException;
 import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -24,6 +27,9 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class HttpCheckExecutorTest {
 
+    @Mock
+    private DnsResolver dnsResolver;
+
     @InjectMocks
     private HttpCheckExecutor httpCheckExecutor;
 
@@ -127,6 +133,23 @@ class HttpCheckExecutorTest {
         assertEquals("Connection failed", result.getErrorMessage());
     }
 
+    @Test
+    void testExecute_DnsResolutionFailure() throws Exception {
+        HttpCheckExecutor spyExecutor = spy(httpCheckExecutor);
+        
+        URL mockUrl = mock(URL.class);
+        
+        doReturn(mockUrl).when(spyExecutor).createURL("http://example.com");
+        when(mockUrl.getHost()).thenReturn("example.com");
+        when(dnsResolver.resolveBlocking("example.com", 5000)).thenThrow(new UnknownHostException("example.com"));
+        
+        CheckResult result = spyExecutor.execute(config);
+        
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("example.com", result.getErrorMessage());
+        verify(mockUrl, never()).openConnection();
+    }
+
     @Test
     void testExecute_HttpsWithSslValidation() throws Exception {
         config.setResourceUrl("https://example.com");
@@ -157,6 +180,53 @@ class HttpCheckExecutorTest {
         assertNotNull(result.getMetrics().getSslExpirationDate());
     }
 
+    @Test
+    void testExecute_RecordsPhaseTimings() throws Exception {
+        HttpCheckExecutor spyExecutor = spy(httpCheckExecutor);
+        
+        URL mockUrl = mock(URL.class);
+        mockConnection = mock(HttpURLConnection.class);
+        
+        doReturn(mockUrl).when(spyExecutor).createURL("http://example.com");
+        when(mockUrl.openConnection()).thenReturn(mockConnection);
+        
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[1024]));
+        
+        CheckResult result = spyExecutor.execute(config);
+        
+        CheckResult.Metrics metrics = result.getMetrics();
+        assertNotNull(metrics);
+        assertNotNull(metrics.getTcpConnectNanos());
+        assertNotNull(metrics.getTimeToFirstByteNanos());
+        assertNotNull(metrics.getDownloadNanos());
+        // TLS рукопожатие для HTTP не выполняется
+        assertNull(metrics.getTlsHandshakeNanos());
+        verify(mockConnection).setRequestProperty("Connection", "close");
+    }
+
+    @Test
+    void testExecute_ReadsErrorStreamForErrorStatus() throws Exception {
+        HttpCheckExecutor spyExecutor = spy(httpCheckExecutor);
+        
+        URL mockUrl = mock(URL.class);
+        mockConnection = mock(HttpURLConnection.class);
+        
+        doReturn(mockUrl).when(spyExecutor).createURL("http://example.com");
+        when(mockUrl.openConnection()).thenReturn(mockConnection);
+        
+        when(mockConnection.getResponseCode()).thenReturn(500);
+        when(mockConnection.getInputStream()).thenThrow(new IOException("Server returned HTTP response code: 500"));
+        when(mockConnection.getErrorStream()).thenReturn(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        
+        CheckResult result = spyExecutor.execute(config);
+        
+        assertEquals("DOWN", result.getStatus());
+        assertEquals("HTTP error code: 500", result.getErrorMessage());
+        assertNotNull(result.getMetrics().getDownloadNanos());
+        verify(mockConnection).getErrorStream();
+    }
+
     @Test
     void testSupports() {
         assertTrue(httpCheckExecutor.supports("HTTP"));
@@ -0,0 +1,82 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Интервал агрегации — длина выровненного окна. Окна начинаются на границе единицы времени
+ * (начало минуты, часа, суток, месяца), поэтому окна разных экземпляров сервиса совпадают.
+ * Интервалы упорядочены от мелкого к крупному: окно каждого уровня состоит из целого числа окон
+ * предыдущего, что позволяет строить агрегаты уровня из агрегатов предыдущего.
+ * Имя константы хранится в колонке aggregation_interval.
+ */
+public enum AggregationInterval {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS),
+    MONTH(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    AggregationInterval(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Начало окна, в которое попадает момент времени
+     * @param timestamp момент времени
+     * @return начало окна
+     */
+    public LocalDateTime start(LocalDateTime timestamp) {
+        if (this == MONTH) {
+            // truncatedTo поддерживает единицы не крупнее суток
+            return timestamp.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        }
+        return timestamp.truncatedTo(unit);
+    }
+
+    /**
+     * Конец окна (не включительно)
+     * @param windowStart начало окна
+     * @return начало следующего окна
+     */
+    public LocalDateTime end(LocalDateTime windowStart) {
+        return windowStart.plus(1, unit);
+    }
+
+    /**
+     * Следующий, более крупный уровень
+     * @return интервал или null для самого крупного
+     */
+    public AggregationInterval coarser() {
+        int next = ordinal() + 1;
+        return next < values().length ? values()[next] : null;
+    }
+
+    /**
+     * Предыдущий, более мелкий уровень
+     * @return интервал или null для самого мелкого
+     */
+    public AggregationInterval finer() {
+        return ordinal() > 0 ? values()[ordinal() - 1] : null;
+    }
+
+    /**
+     * Разбор интервала из параметра запроса: имя константы или прилагательное (hourly, daily, monthly)
+     * без учета регистра
+     * @param value значение параметра
+     * @return интервал
+     * @throws IllegalArgumentException если интервал не поддерживается
+     */
+    public static AggregationInterval parse(String value) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        return switch (normalized) {
+            case "MINUTELY" -> MINUTE;
+            case "HOURLY" -> HOUR;
+            case "DAILY" -> DAY;
+            case "MONTHLY" -> MONTH;
+            default -> valueOf(normalized);
+        };
+    }
+}
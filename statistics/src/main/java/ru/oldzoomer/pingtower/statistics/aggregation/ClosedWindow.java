@@ -0,0 +1,12 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+
+/**
+ * Закрытое окно агрегации
+ * @param row агрегат окна
+ * @param mergeWithStored окно могло быть частично сохранено другим владельцем партиции
+ *                        или до перезапуска; агрегат нужно объединить с сохраненной строкой
+ */
+public record ClosedWindow(AggregatedCheckResult row, boolean mergeWithStored) {
+}
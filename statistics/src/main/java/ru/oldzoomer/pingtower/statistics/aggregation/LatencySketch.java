@@ -0,0 +1,186 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Объединяемый эскиз распределения времени ответа с ограниченной относительной ошибкой
+ * (логарифмические корзины, как в DDSketch).
+ * <p>
+ * Значение v &gt; 0 попадает в корзину {@code ceil(log(v) / log(gamma))}, где
+ * {@code gamma = (1 + a) / (1 - a)}, а a — {@link #RELATIVE_ACCURACY}; нулевые значения
+ * считаются отдельно. Любой перцентиль восстанавливается с относительной ошибкой не более a.
+ * Эскизы разных окон объединяются сложением счетчиков корзин, поэтому эскиз часа или
+ * произвольного диапазона равен объединению эскизов входящих в него окон.
+ * <p>
+ * Сериализованный формат:
+ * <pre>
+ * version (1 байт) | zeroCount (varint) | binCount (varint) | (delta индекса (zigzag varint), count (varint))...
+ * </pre>
+ * Индексы записываются по возрастанию разностью с предыдущим, поэтому корзина занимает 2-3 байта.
+ * Класс не потокобезопасен.
+ */
+public final class LatencySketch {
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte VERSION = 1;
+
+    private long zeroCount;
+    private final TreeMap<Integer, Long> bins = new TreeMap<>();
+
+    /**
+     * Учет значения
+     * @param value время ответа в миллисекундах
+     */
+    public void add(long value) {
+        if (value <= 0) {
+            zeroCount++;
+        } else {
+            addToBin(indexOf(value), 1);
+        }
+    }
+
+    /**
+     * Индекс корзины для положительного значения
+     * @param value значение больше нуля
+     * @return индекс корзины
+     */
+    public static int indexOf(long value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    void addToBin(int index, long count) {
+        bins.merge(index, count, Long::sum);
+    }
+
+    void addZero(long count) {
+        zeroCount += count;
+    }
+
+    /**
+     * Добавление значений другого эскиза
+     * @param other эскиз
+     */
+    public void merge(LatencySketch other) {
+        zeroCount += other.zeroCount;
+        other.bins.forEach(this::addToBin);
+    }
+
+    public long getCount() {
+        long count = zeroCount;
+        for (long binCount : bins.values()) {
+            count += binCount;
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return zeroCount == 0 && bins.isEmpty();
+    }
+
+    /**
+     * Значение квантиля
+     * @param quantile квантиль от 0 до 1
+     * @return значение в миллисекундах, NaN для пустого эскиза
+     */
+    public double getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        long count = getCount();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(quantile * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+            seen += bin.getValue();
+            if (rank < seen) {
+                return valueOf(bin.getKey());
+            }
+        }
+        return valueOf(bins.lastKey());
+    }
+
+    /**
+     * Значение, представляющее корзину: относительная ошибка до любого значения корзины не превышает точности
+     */
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    /**
+     * Сериализация эскиза
+     * @return компактное бинарное представление
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 10 + 5 + bins.size() * 15);
+        buffer.put(VERSION);
+        putVarLong(buffer, zeroCount);
+        putVarLong(buffer, bins.size());
+        int previous = 0;
+        for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+            int delta = bin.getKey() - previous;
+            putVarLong(buffer, Integer.toUnsignedLong((delta << 1) ^ (delta >> 31)));
+            putVarLong(buffer, bin.getValue());
+            previous = bin.getKey();
+        }
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Восстановление эскиза
+     * @param data сериализованный эскиз, позиция буфера не изменяется
+     * @return эскиз
+     * @throws IllegalArgumentException если данные не являются эскизом поддерживаемой версии
+     */
+    public static LatencySketch fromBytes(ByteBuffer data) {
+        ByteBuffer buffer = data.duplicate();
+        try {
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported latency sketch version");
+            }
+            LatencySketch sketch = new LatencySketch();
+            sketch.zeroCount = getVarLong(buffer);
+            long binCount = getVarLong(buffer);
+            int index = 0;
+            for (long i = 0; i < binCount; i++) {
+                int zigzag = (int) getVarLong(buffer);
+                index += (zigzag >>> 1) ^ -(zigzag & 1);
+                sketch.addToBin(index, getVarLong(buffer));
+            }
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated latency sketch", e);
+        }
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in latency sketch");
+    }
+}
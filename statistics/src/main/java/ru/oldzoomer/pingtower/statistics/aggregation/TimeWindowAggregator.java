@@ -0,0 +1,256 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Агрегация результатов проверок по времени события в выровненных неперекрывающихся окнах.
+ * <p>
+ * Один проход по потоку обновляет окна всех настроенных интервалов. Максимальное время события
+ * отслеживается отдельно для каждой партиции Kafka; водяной знак равен минимуму по партициям
+ * минус допустимая неупорядоченность потока, поэтому отставшая партиция не делает свои результаты
+ * опоздавшими. Водяной знак не убывает. Окно закрывается, когда водяной знак проходит его конец
+ * плюс допустимое опоздание, и выдает ровно одну строку. Результаты для уже закрытых окон
+ * отбрасываются и учитываются в {@link #getLateCount}.
+ * <p>
+ * Время события продвигает водяной знак не дальше текущего времени плюс {@code allowedClockSkew},
+ * поэтому результат с часами, ушедшими вперед, не закрывает окна остальных проверок.
+ * Партиция, из которой результаты не поступают дольше {@code idleTimeout}, не задерживает
+ * водяной знак; если простаивают все партиции, он продвигается по системным часам,
+ * иначе последние окна простаивающего потока не закрылись бы никогда.
+ * <p>
+ * Открытые окна хранятся только в памяти. При отзыве партиции и при остановке они сбрасываются
+ * досрочно через {@link #flush(Collection)} и {@link #flushAll()}. Окно, начатое до получения
+ * партиции, могло быть частично сохранено прежним владельцем или до перезапуска, поэтому оно
+ * закрывается с признаком {@link ClosedWindow#mergeWithStored()}. При аварийном завершении
+ * открытые окна теряются.
+ * <p>
+ * Время событий — LocalDateTime без часового пояса, сравнивается как UTC.
+ */
+public class TimeWindowAggregator {
+    // Обновление времени последнего поступления не чаще раза в секунду, чтобы не делить запись между потоками
+    private static final long ARRIVAL_RESOLUTION_MILLIS = 1000;
+
+    private final List<AggregationInterval> intervals;
+    private final long maxOutOfOrdernessMillis;
+    private final long allowedLatenessMillis;
+    private final long idleTimeoutMillis;
+    private final long allowedClockSkewMillis;
+    private final Clock clock;
+
+    private final Map<WindowKey, WindowAccumulator> windows = new ConcurrentHashMap<>();
+    private final Map<Integer, PartitionTime> partitions = new ConcurrentHashMap<>();
+    private final AtomicLong watermark = new AtomicLong(Long.MIN_VALUE);
+    private final Map<AggregationInterval, LongAdder> lateCounts = new EnumMap<>(AggregationInterval.class);
+
+    public TimeWindowAggregator(List<AggregationInterval> intervals,
+                                Duration maxOutOfOrderness,
+                                Duration allowedLateness,
+                                Duration idleTimeout,
+                                Duration allowedClockSkew,
+                                Clock clock) {
+        this.intervals = List.copyOf(intervals);
+        this.maxOutOfOrdernessMillis = maxOutOfOrderness.toMillis();
+        this.allowedLatenessMillis = allowedLateness.toMillis();
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.allowedClockSkewMillis = allowedClockSkew.toMillis();
+        this.clock = clock;
+        for (AggregationInterval interval : AggregationInterval.values()) {
+            lateCounts.put(interval, new LongAdder());
+        }
+    }
+
+    /**
+     * Учет результата проверки во всех интервалах
+     * @param checkResult результат проверки с идентификатором и временем события
+     * @param partition партиция Kafka, из которой получен результат
+     */
+    public void add(CheckResult checkResult, int partition) {
+        LocalDateTime timestamp = checkResult.getTimestamp();
+        long now = clock.millis();
+        PartitionTime partitionTime = partitions.computeIfAbsent(partition,
+                key -> new PartitionTime(now, localNowMillis()));
+        if (now - partitionTime.lastArrivalMillis >= ARRIVAL_RESOLUTION_MILLIS) {
+            partitionTime.lastArrivalMillis = now;
+        }
+        advanceEventTime(partitionTime, toMillis(timestamp), now);
+
+        for (AggregationInterval interval : intervals) {
+            LocalDateTime windowStart = interval.start(timestamp);
+            long closeAt = toMillis(interval.end(windowStart)) + allowedLatenessMillis;
+            // Быстрая проверка, чтобы не создавать накопитель для заведомо закрытого окна
+            if (closeAt <= getWatermark()) {
+                lateCounts.get(interval).increment();
+                continue;
+            }
+            boolean mergeWithStored = toMillis(windowStart) < partitionTime.assignedAtMillis;
+            WindowAccumulator accumulator = windows.computeIfAbsent(
+                    new WindowKey(checkResult.getCheckId(), interval, windowStart),
+                    key -> new WindowAccumulator(closeAt, partition, mergeWithStored));
+            if (!accumulator.add(checkResult.getStatus(), checkResult.getResponseTime(), this::getWatermark)) {
+                lateCounts.get(interval).increment();
+            }
+        }
+    }
+
+    /**
+     * Закрытие окон, пройденных водяным знаком
+     * @return по одному агрегату на каждое закрытое непустое окно
+     */
+    public synchronized List<ClosedWindow> closeWindows() {
+        updateWatermark(clock.millis());
+        long current = getWatermark();
+        return drain((key, accumulator) -> accumulator.getCloseAtMillis() <= current);
+    }
+
+    /**
+     * Досрочное закрытие окон отозванных партиций. Партиции перестают учитываться в водяном знаке
+     * @param revoked номера партиций
+     * @return агрегаты открытых окон партиций
+     */
+    public synchronized List<ClosedWindow> flush(Collection<Integer> revoked) {
+        partitions.keySet().removeAll(revoked);
+        return drain((key, accumulator) -> revoked.contains(accumulator.getPartition()));
+    }
+
+    /**
+     * Досрочное закрытие всех открытых окон перед остановкой
+     * @return агрегаты открытых окон
+     */
+    public synchronized List<ClosedWindow> flushAll() {
+        partitions.clear();
+        return drain((key, accumulator) -> true);
+    }
+
+    /**
+     * Текущий водяной знак в миллисекундах эпохи; Long.MIN_VALUE, пока не было ни одного события
+     */
+    public long getWatermark() {
+        return watermark.get();
+    }
+
+    /**
+     * Количество результатов, отброшенных из-за закрытых окон интервала
+     * @param interval интервал агрегации
+     */
+    public long getLateCount(AggregationInterval interval) {
+        return lateCounts.get(interval).sum();
+    }
+
+    /**
+     * Количество открытых окон
+     */
+    public int getOpenWindowCount() {
+        return windows.size();
+    }
+
+    private List<ClosedWindow> drain(BiPredicate<WindowKey, WindowAccumulator> filter) {
+        List<ClosedWindow> closed = new ArrayList<>();
+        for (Map.Entry<WindowKey, WindowAccumulator> entry : windows.entrySet()) {
+            WindowAccumulator accumulator = entry.getValue();
+            if (!filter.test(entry.getKey(), accumulator)) {
+                continue;
+            }
+            accumulator.awaitWriters();
+            windows.remove(entry.getKey(), accumulator);
+            if (accumulator.getCount() > 0) {
+                closed.add(new ClosedWindow(toAggregatedCheckResult(entry.getKey(), accumulator),
+                        accumulator.isMergeWithStored()));
+            }
+        }
+        return closed;
+    }
+
+    private void advanceEventTime(PartitionTime partitionTime, long eventTime, long now) {
+        // Запись только при продвижении, обычно это одно событие на миллисекунду, а не каждое
+        if (eventTime <= partitionTime.maxEventTime.get()) {
+            return;
+        }
+        long bounded = Math.min(eventTime, localNowMillis() + allowedClockSkewMillis);
+        if (bounded > partitionTime.maxEventTime.get()) {
+            partitionTime.maxEventTime.accumulateAndGet(bounded, Math::max);
+            updateWatermark(now);
+        }
+    }
+
+    /**
+     * Продвижение водяного знака до минимума по партициям, из которых поступают результаты
+     */
+    private void updateWatermark(long now) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (PartitionTime partitionTime : partitions.values()) {
+            long eventTime = partitionTime.maxEventTime.get();
+            if (eventTime == Long.MIN_VALUE) {
+                // Партиция только что появилась, событие еще не учтено
+                continue;
+            }
+            max = Math.max(max, eventTime);
+            if (now - partitionTime.lastArrivalMillis < idleTimeoutMillis) {
+                min = Math.min(min, eventTime);
+            }
+        }
+        if (max == Long.MIN_VALUE) {
+            return;
+        }
+        // Время событий — местное время pinger, поэтому сравнивается с местным временем, а не с эпохой
+        long eventTime = min != Long.MAX_VALUE ? min : Math.max(max, localNowMillis() - idleTimeoutMillis);
+        watermark.accumulateAndGet(eventTime - maxOutOfOrdernessMillis, Math::max);
+    }
+
+    private long localNowMillis() {
+        return toMillis(LocalDateTime.now(clock));
+    }
+
+    private static AggregatedCheckResult toAggregatedCheckResult(WindowKey windowKey, WindowAccumulator accumulator) {
+        AggregatedCheckResult.AggregatedCheckResultKey key = new AggregatedCheckResult.AggregatedCheckResultKey();
+        key.setCheckId(windowKey.checkId());
+        key.setAggregationInterval(windowKey.interval().name());
+        key.setTimestamp(windowKey.start());
+
+        AggregatedCheckResult aggregatedCheckResult = new AggregatedCheckResult();
+        aggregatedCheckResult.setKey(key);
+        aggregatedCheckResult.setUpCount(Math.toIntExact(accumulator.getUpCount()));
+        aggregatedCheckResult.setDownCount(Math.toIntExact(accumulator.getDownCount()));
+        aggregatedCheckResult.setUnknownCount(Math.toIntExact(accumulator.getUnknownCount()));
+        aggregatedCheckResult.setAvgResponseTime(accumulator.getAvgResponseTime());
+        aggregatedCheckResult.setMinResponseTime(Math.toIntExact(accumulator.getMinResponseTime()));
+        aggregatedCheckResult.setMaxResponseTime(Math.toIntExact(accumulator.getMaxResponseTime()));
+        aggregatedCheckResult.setLatencySketch(ByteBuffer.wrap(accumulator.toLatencySketch().toBytes()));
+        return aggregatedCheckResult;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private record WindowKey(String checkId, AggregationInterval interval, LocalDateTime start) {
+    }
+
+    private static final class PartitionTime {
+        private final AtomicLong maxEventTime = new AtomicLong(Long.MIN_VALUE);
+        // Местное время получения партиции: более ранние окна могли сохраняться прежним владельцем
+        private final long assignedAtMillis;
+        private volatile long lastArrivalMillis;
+
+        private PartitionTime(long now, long assignedAtMillis) {
+            this.assignedAtMillis = assignedAtMillis;
+            this.lastArrivalMillis = now;
+        }
+    }
+}
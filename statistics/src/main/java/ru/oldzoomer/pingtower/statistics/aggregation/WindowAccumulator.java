@@ -0,0 +1,147 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Накопитель одного окна агрегации без блокировок: счетчики распределены по ячейкам
+ * {@link LongAdder}, минимум и максимум — {@link LongAccumulator}.
+ * <p>
+ * Закрытие окна согласовано с записью через счетчик активных писателей: писатель
+ * регистрируется и только затем сверяется с водяным знаком, а закрывающий поток сначала
+ * читает водяной знак и затем дожидается ухода писателей. Поэтому запись либо попадает
+ * в итог окна, либо отклоняется как опоздавшая, но не теряется молча.
+ */
+class WindowAccumulator {
+    private final long closeAtMillis;
+    private final int partition;
+    private final boolean mergeWithStored;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder upCount = new LongAdder();
+    private final LongAdder downCount = new LongAdder();
+    private final LongAdder unknownCount = new LongAdder();
+    private final LongAdder totalResponseTime = new LongAdder();
+    private final LongAccumulator minResponseTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxResponseTime = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    // Корзины эскиза времени ответа (индекс корзины LatencySketch -> количество)
+    private final Map<Integer, LongAdder> latencyBins = new ConcurrentHashMap<>();
+    private final LongAdder zeroLatencyCount = new LongAdder();
+
+    private final AtomicInteger activeWriters = new AtomicInteger();
+
+    /**
+     * @param closeAtMillis значение водяного знака, начиная с которого окно закрывается
+     *                      (конец окна плюс допустимое опоздание)
+     * @param partition партиция, из которой получен первый результат окна
+     * @param mergeWithStored часть окна могла быть сохранена до получения партиции
+     */
+    WindowAccumulator(long closeAtMillis, int partition, boolean mergeWithStored) {
+        this.closeAtMillis = closeAtMillis;
+        this.partition = partition;
+        this.mergeWithStored = mergeWithStored;
+    }
+
+    long getCloseAtMillis() {
+        return closeAtMillis;
+    }
+
+    int getPartition() {
+        return partition;
+    }
+
+    boolean isMergeWithStored() {
+        return mergeWithStored;
+    }
+
+    /**
+     * Учет результата проверки
+     * @param status статус проверки
+     * @param responseTime время ответа в миллисекундах
+     * @param watermark текущий водяной знак
+     * @return false, если окно уже закрыто и результат не учтен
+     */
+    boolean add(String status, long responseTime, LongSupplier watermark) {
+        activeWriters.incrementAndGet();
+        try {
+            if (closeAtMillis <= watermark.getAsLong()) {
+                return false;
+            }
+            count.increment();
+            if ("UP".equals(status)) {
+                upCount.increment();
+            } else if ("DOWN".equals(status)) {
+                downCount.increment();
+            } else {
+                unknownCount.increment();
+            }
+            totalResponseTime.add(responseTime);
+            minResponseTime.accumulate(responseTime);
+            maxResponseTime.accumulate(responseTime);
+            if (responseTime <= 0) {
+                zeroLatencyCount.increment();
+            } else {
+                latencyBins.computeIfAbsent(LatencySketch.indexOf(responseTime), index -> new LongAdder()).increment();
+            }
+            return true;
+        } finally {
+            activeWriters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Ожидание завершения записей, начатых до закрытия окна.
+     * Вызывается после того, как водяной знак прошел {@link #getCloseAtMillis()}
+     */
+    void awaitWriters() {
+        while (activeWriters.get() != 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getUpCount() {
+        return upCount.sum();
+    }
+
+    long getDownCount() {
+        return downCount.sum();
+    }
+
+    long getUnknownCount() {
+        return unknownCount.sum();
+    }
+
+    double getAvgResponseTime() {
+        long total = count.sum();
+        return total > 0 ? (double) totalResponseTime.sum() / total : 0.0;
+    }
+
+    long getMinResponseTime() {
+        long min = minResponseTime.get();
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    long getMaxResponseTime() {
+        long max = maxResponseTime.get();
+        return max == Long.MIN_VALUE ? 0 : max;
+    }
+
+    /**
+     * Эскиз распределения времени ответа окна
+     */
+    LatencySketch toLatencySketch() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.addZero(zeroLatencyCount.sum());
+        latencyBins.forEach((index, count) -> sketch.addToBin(index, count.sum()));
+        return sketch;
+    }
+}
@@ -1,9 +1,11 @@
 package ru.oldzoomer.pingtower.statistics.cassandra.entity;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 
 import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
 import org.springframework.data.cassandra.core.mapping.PrimaryKey;
 import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
 import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
@@ -25,6 +27,13 @@ public class AggregatedCheckResult {
     private Double avgResponseTime;
     private Integer minResponseTime;
     private Integer maxResponseTime;
+
+    /**
+     * Сериализованный {@link ru.oldzoomer.pingtower.statistics.aggregation.LatencySketch} времени ответа окна;
+     * отсутствует в строках, записанных до появления эскизов
+     */
+    @Column("latency_sketch")
+    private ByteBuffer latencySketch;
     
     @Getter
     @Setter
@@ -34,7 +43,7 @@ public class AggregatedCheckResult {
         private String checkId;
         
         @PrimaryKeyColumn(name = "aggregation_interval", type = PrimaryKeyType.CLUSTERED)
-        private String aggregationInterval; // MINUTE, HOUR, DAY, WEEK, MONTH
+        private String aggregationInterval; // MINUTE, HOUR, DAY, MONTH (AggregationInterval)
         
         @PrimaryKeyColumn(name = "timestamp", type = PrimaryKeyType.CLUSTERED)
         private LocalDateTime timestamp;
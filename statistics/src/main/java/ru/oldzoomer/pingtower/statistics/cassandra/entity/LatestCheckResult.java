@@ -0,0 +1,54 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import lombok.*;
+
+/**
+ * Последний результат проверки: одна строка на проверку, обновляется при приеме результатов.
+ * Запись выполняется с временем результата в качестве времени записи Cassandra, поэтому
+ * результат, пришедший не по порядку, не заменяет более новый.
+ */
+@Getter
+@Setter
+@Table("latest_check_results")
+public class LatestCheckResult {
+    @PrimaryKeyColumn(name = "check_id", type = PrimaryKeyType.PARTITIONED)
+    private String checkId;
+
+    private LocalDateTime timestamp;
+    private String status;
+
+    @Column("response_time")
+    private Integer responseTime;
+    @Column("http_status_code")
+    private Integer httpStatusCode;
+    @Column("error_message")
+    private String errorMessage;
+
+    @Column("connection_time")
+    private Long connectionTime;
+    @Column("time_to_first_byte")
+    private Long timeToFirstByte;
+    @Column("ssl_valid")
+    private Boolean sslValid;
+    @Column("ssl_expiration_date")
+    private LocalDateTime sslExpirationDate;
+    @Column("dns_lookup_nanos")
+    private Long dnsLookupNanos;
+    @Column("tcp_connect_nanos")
+    private Long tcpConnectNanos;
+    @Column("tls_handshake_nanos")
+    private Long tlsHandshakeNanos;
+    @Column("request_write_nanos")
+    private Long requestWriteNanos;
+    @Column("time_to_first_byte_nanos")
+    private Long timeToFirstByteNanos;
+    @Column("download_nanos")
+    private Long downloadNanos;
+}
@@ -2,9 +2,10 @@ package ru.oldzoomer.pingtower.statistics.cassandra.entity;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.Map;
 
+import org.springframework.data.cassandra.core.cql.Ordering;
 import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
 import org.springframework.data.cassandra.core.mapping.PrimaryKey;
 import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
 import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
@@ -14,7 +15,7 @@ import lombok.*;
 
 @Getter
 @Setter
-@Table("raw_check_results")
+@Table("raw_check_results_by_bucket")
 public class RawCheckResult {
     @PrimaryKey
     private RawCheckResultKey key;
@@ -23,16 +24,42 @@ public class RawCheckResult {
     private Integer responseTime;
     private Integer httpStatusCode;
     private String errorMessage;
-    private Map<String, String> metrics;
+
+    @Column("connection_time")
+    private Long connectionTime;
+    @Column("time_to_first_byte")
+    private Long timeToFirstByte;
+    @Column("ssl_valid")
+    private Boolean sslValid;
+    @Column("ssl_expiration_date")
+    private LocalDateTime sslExpirationDate;
+    @Column("dns_lookup_nanos")
+    private Long dnsLookupNanos;
+    @Column("tcp_connect_nanos")
+    private Long tcpConnectNanos;
+    @Column("tls_handshake_nanos")
+    private Long tlsHandshakeNanos;
+    @Column("request_write_nanos")
+    private Long requestWriteNanos;
+    @Column("time_to_first_byte_nanos")
+    private Long timeToFirstByteNanos;
+    @Column("download_nanos")
+    private Long downloadNanos;
     
     @Getter
     @Setter
     @PrimaryKeyClass
     public static class RawCheckResultKey implements Serializable {
-        @PrimaryKeyColumn(name = "check_id", type = PrimaryKeyType.PARTITIONED)
+        @PrimaryKeyColumn(name = "check_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
         private String checkId;
         
-        @PrimaryKeyColumn(name = "timestamp", type = PrimaryKeyType.CLUSTERED)
+        /**
+         * Начало интервала {@link TimeBucket}, в который попадает timestamp
+         */
+        @PrimaryKeyColumn(name = "bucket", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+        private LocalDateTime bucket;
+        
+        @PrimaryKeyColumn(name = "timestamp", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
         private LocalDateTime timestamp;
         
         // equals and hashCode methods are automatically generated by Lombok
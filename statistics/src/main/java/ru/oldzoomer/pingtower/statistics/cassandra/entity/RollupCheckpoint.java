@@ -0,0 +1,26 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import lombok.*;
+
+/**
+ * Граница, до которой построены агрегаты уровня: все окна уровня, начинающиеся раньше
+ * {@code completedUntil}, уже построены из окон предыдущего уровня и повторно вычисляются только
+ * по отметке {@link RollupLateWindow}
+ */
+@Getter
+@Setter
+@Table("aggregation_rollup_checkpoints")
+public class RollupCheckpoint {
+    @PrimaryKeyColumn(name = "level", type = PrimaryKeyType.PARTITIONED)
+    private String level;
+
+    @Column("completed_until")
+    private LocalDateTime completedUntil;
+}
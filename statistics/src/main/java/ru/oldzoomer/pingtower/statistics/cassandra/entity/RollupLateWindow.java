@@ -0,0 +1,44 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import lombok.*;
+
+/**
+ * Отметка об окне уровня, в которое агрегаты предыдущего уровня могли быть записаны уже после
+ * его построения. По отметке окно строится повторно.
+ * <p>
+ * При каждой записи отметки {@code marker} получает новое значение, поэтому отметка удаляется
+ * условно и не теряется, если окно отмечено снова во время повторного построения.
+ */
+@Getter
+@Setter
+@Table("aggregation_rollup_late")
+public class RollupLateWindow {
+    @PrimaryKey
+    private RollupLateWindowKey key;
+
+    @Column("marker")
+    private UUID marker;
+
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    @PrimaryKeyClass
+    public static class RollupLateWindowKey implements Serializable {
+        @PrimaryKeyColumn(name = "level", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+        private String level;
+
+        @PrimaryKeyColumn(name = "window_start", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+        private LocalDateTime windowStart;
+    }
+}
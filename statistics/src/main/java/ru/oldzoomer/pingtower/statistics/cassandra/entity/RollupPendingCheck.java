@@ -0,0 +1,40 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import lombok.*;
+
+/**
+ * Отметка о проверке, у которой есть агрегаты внутри окна уровня. По отметкам окна находятся
+ * проверки, для которых окно нужно построить, без перебора всех проверок.
+ * Отметки записываются вместе с агрегатами предыдущего уровня и удаляются по TTL.
+ */
+@Getter
+@Setter
+@Table("aggregation_rollup_pending")
+public class RollupPendingCheck {
+    @PrimaryKey
+    private RollupPendingCheckKey key;
+
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    @PrimaryKeyClass
+    public static class RollupPendingCheckKey implements Serializable {
+        @PrimaryKeyColumn(name = "level", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+        private String level;
+
+        @PrimaryKeyColumn(name = "window_start", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+        private LocalDateTime windowStart;
+
+        @PrimaryKeyColumn(name = "check_id", ordinal = 2, type = PrimaryKeyType.CLUSTERED)
+        private String checkId;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Размер временного интервала (bucket), входящего в ключ партиции сырых результатов.
+ * Ограничивает рост партиции: одна проверка раз в 10 секунд дает около 8.6 тыс. строк в сутки.
+ */
+public enum TimeBucket {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    TimeBucket(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Начало интервала, в который попадает момент времени
+     * @param timestamp момент времени
+     * @return начало интервала
+     */
+    public LocalDateTime start(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    /**
+     * Интервалы, пересекающиеся с диапазоном, от более новых к более старым
+     * @param from начало диапазона
+     * @param to конец диапазона
+     * @return начала интервалов
+     */
+    public List<LocalDateTime> between(LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> buckets = new ArrayList<>();
+        LocalDateTime first = start(from);
+        for (LocalDateTime bucket = start(to); !bucket.isBefore(first); bucket = bucket.minus(1, unit)) {
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * Предыдущий интервал
+     * @param bucket начало интервала
+     * @return начало предыдущего интервала
+     */
+    public LocalDateTime previous(LocalDateTime bucket) {
+        return bucket.minus(1, unit);
+    }
+}
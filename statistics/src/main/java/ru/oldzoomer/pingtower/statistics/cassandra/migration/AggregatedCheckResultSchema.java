@@ -0,0 +1,33 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Добавление новых колонок в существующую таблицу aggregated_check_results.
+ * schema-action CREATE_IF_NOT_EXISTS создает только отсутствующие таблицы,
+ * поэтому колонки, появившиеся в сущности позже, добавляются здесь при старте.
+ */
+@Slf4j
+@Component
+public class AggregatedCheckResultSchema {
+    static final String TABLE = "aggregated_check_results";
+    static final String LATENCY_SKETCH_COLUMN = "latency_sketch";
+
+    public AggregatedCheckResultSchema(SessionFactory cassandraSessionFactory) {
+        CqlSession session = cassandraSessionFactory.getSession();
+        Optional<TableMetadata> table = session.getKeyspace()
+                .flatMap(keyspace -> session.getMetadata().getKeyspace(keyspace))
+                .flatMap(keyspace -> keyspace.getTable(TABLE));
+        if (table.isPresent() && table.get().getColumn(CqlIdentifier.fromCql(LATENCY_SKETCH_COLUMN)).isEmpty()) {
+            log.info("Adding column {} to table {}", LATENCY_SKETCH_COLUMN, TABLE);
+            session.execute("ALTER TABLE " + TABLE + " ADD " + LATENCY_SKETCH_COLUMN + " blob");
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.RawCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Перенос сырых результатов из таблицы raw_check_results (партиция только по check_id)
+ * в таблицу с интервалами времени в ключе партиции.
+ * <p>
+ * Включается параметром statistics.raw.backfill.enabled и выполняется в фоне после старта приложения.
+ * Старая таблица читается постранично, строки записываются через {@link RawCheckResultWriter}.
+ * Запись идемпотентна, поэтому прерванный перенос можно запустить повторно.
+ * Строки переносятся с оставшимся временем жизни из TTL(responsetime), поэтому перенос
+ * не продлевает хранение. Для строк без TTL оставшееся время считается от времени результата
+ * по statistics.raw.ttl, строки старше TTL не переносятся. Старая таблица не удаляется.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "statistics.raw.backfill.enabled", havingValue = "true")
+public class RawCheckResultBackfill implements ApplicationRunner {
+    static final String LEGACY_TABLE = "raw_check_results";
+    static final String REMAINING_TTL = "remaining_ttl";
+
+    private final SessionFactory cassandraSessionFactory;
+    private final RawCheckResultWriter rawCheckResultWriter;
+    private final RawStorageProperties rawStorageProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(this::backfill, "raw-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Перенос всех строк старой таблицы
+     * @return количество перенесенных строк
+     */
+    long backfill() {
+        CqlSession session = cassandraSessionFactory.getSession();
+        Optional<TableMetadata> legacyTable = session.getKeyspace()
+                .flatMap(keyspace -> session.getMetadata().getKeyspace(keyspace))
+                .flatMap(keyspace -> keyspace.getTable(LEGACY_TABLE));
+        if (legacyTable.isEmpty()) {
+            log.info("Table {} not found, nothing to backfill", LEGACY_TABLE);
+            return 0;
+        }
+
+        int pageSize = Math.max(1, rawStorageProperties.getBackfill().getPageSize());
+        LocalDateTime now = LocalDateTime.now();
+        // TTL(*) не поддерживается: время жизни берется по колонке, которая записывалась всегда
+        String columns = legacyTable.get().getColumns().keySet().stream()
+                .map(column -> column.asCql(true))
+                .collect(Collectors.joining(", "));
+        String query = "SELECT " + columns + ", TTL(responsetime) AS " + REMAINING_TTL + " FROM " + LEGACY_TABLE;
+        long copied = 0;
+        long skipped = 0;
+        log.info("Starting backfill of {} (page size {})", LEGACY_TABLE, pageSize);
+        try {
+            ResultSet rows = session.execute(SimpleStatement.newInstance(query).setPageSize(pageSize));
+            List<CheckResult> chunk = new ArrayList<>(pageSize);
+            Map<CheckResult, Integer> ttls = new IdentityHashMap<>();
+            for (Row row : rows) {
+                CheckResult checkResult = toCheckResult(row);
+                if (checkResult.getCheckId() == null || checkResult.getTimestamp() == null) {
+                    skipped++;
+                    continue;
+                }
+                int ttl = remainingTtl(row, checkResult.getTimestamp(), now);
+                if (ttl < 0) {
+                    skipped++;
+                    continue;
+                }
+                chunk.add(checkResult);
+                ttls.put(checkResult, ttl);
+                if (chunk.size() >= pageSize) {
+                    rawCheckResultWriter.writeAll(chunk, ttls::get).join();
+                    copied += chunk.size();
+                    chunk = new ArrayList<>(pageSize);
+                    ttls = new IdentityHashMap<>();
+                    log.info("Backfill progress: {} rows copied, {} skipped", copied, skipped);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                rawCheckResultWriter.writeAll(chunk, ttls::get).join();
+                copied += chunk.size();
+            }
+            log.info("Backfill of {} completed: {} rows copied, {} skipped", LEGACY_TABLE, copied, skipped);
+        } catch (Exception e) {
+            log.error("Backfill of {} failed after {} rows, it can be restarted safely", LEGACY_TABLE, copied, e);
+        }
+        return copied;
+    }
+
+    /**
+     * Оставшееся время жизни строки старой таблицы
+     * @param row строка с колонкой {@value #REMAINING_TTL}
+     * @param timestamp время результата
+     * @param now время начала переноса
+     * @return время жизни в секундах (0 — без ограничения) или -1, если строка уже устарела
+     */
+    private int remainingTtl(Row row, LocalDateTime timestamp, LocalDateTime now) {
+        if (!row.isNull(REMAINING_TTL)) {
+            return row.getInt(REMAINING_TTL);
+        }
+        if (rawStorageProperties.getTtl().isZero()) {
+            return 0;
+        }
+        long remaining = rawStorageProperties.getTtl().minus(Duration.between(timestamp, now)).toSeconds();
+        return remaining > 0 ? (int) Math.min(remaining, Integer.MAX_VALUE) : -1;
+    }
+
+    /**
+     * Преобразование строки старой таблицы. Метрики берутся из типизированных колонок,
+     * если они есть, иначе из строковой карты metrics
+     * @param row строка raw_check_results
+     * @return результат проверки
+     */
+    static CheckResult toCheckResult(Row row) {
+        ColumnDefinitions columns = row.getColumnDefinitions();
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(row.getString("check_id"));
+        checkResult.setTimestamp(toLocalDateTime(row.getInstant("timestamp")));
+        checkResult.setStatus(row.getString("status"));
+        checkResult.setResponseTime(row.isNull("responsetime") ? 0L : row.getInt("responsetime"));
+        checkResult.setHttpStatusCode(row.isNull("httpstatuscode") ? null : row.getInt("httpstatuscode"));
+        checkResult.setErrorMessage(row.getString("errormessage"));
+
+        if (columns.contains("connection_time") && !row.isNull("connection_time")) {
+            CheckResult.Metrics metrics = new CheckResult.Metrics();
+            metrics.setConnectionTime(row.getLong("connection_time"));
+            metrics.setTimeToFirstByte(row.getLong("time_to_first_byte"));
+            metrics.setSslValid(row.isNull("ssl_valid") ? null : row.getBoolean("ssl_valid"));
+            metrics.setSslExpirationDate(toLocalDateTime(row.getInstant("ssl_expiration_date")));
+            metrics.setDnsLookupNanos(getLong(row, "dns_lookup_nanos"));
+            metrics.setTcpConnectNanos(getLong(row, "tcp_connect_nanos"));
+            metrics.setTlsHandshakeNanos(getLong(row, "tls_handshake_nanos"));
+            metrics.setRequestWriteNanos(getLong(row, "request_write_nanos"));
+            metrics.setTimeToFirstByteNanos(getLong(row, "time_to_first_byte_nanos"));
+            metrics.setDownloadNanos(getLong(row, "download_nanos"));
+            checkResult.setMetrics(metrics);
+        } else if (columns.contains("metrics")) {
+            Map<String, String> legacyMetrics = row.getMap("metrics", String.class, String.class);
+            if (legacyMetrics != null && !legacyMetrics.isEmpty()) {
+                checkResult.setMetrics(convertLegacyMetrics(legacyMetrics));
+            }
+        }
+        return checkResult;
+    }
+
+    private static CheckResult.Metrics convertLegacyMetrics(Map<String, String> legacyMetrics) {
+        CheckResult.Metrics metrics = new CheckResult.Metrics();
+        metrics.setConnectionTime(Long.parseLong(legacyMetrics.getOrDefault("connectionTime", "0")));
+        metrics.setTimeToFirstByte(Long.parseLong(legacyMetrics.getOrDefault("timeToFirstByte", "0")));
+
+        String sslValid = legacyMetrics.get("sslValid");
+        if (sslValid != null) {
+            metrics.setSslValid(Boolean.parseBoolean(sslValid));
+        }
+        String sslExpirationDate = legacyMetrics.get("sslExpirationDate");
+        if (sslExpirationDate != null) {
+            metrics.setSslExpirationDate(LocalDateTime.parse(sslExpirationDate));
+        }
+
+        metrics.setDnsLookupNanos(parseNanos(legacyMetrics, "dnsLookupNanos"));
+        metrics.setTcpConnectNanos(parseNanos(legacyMetrics, "tcpConnectNanos"));
+        metrics.setTlsHandshakeNanos(parseNanos(legacyMetrics, "tlsHandshakeNanos"));
+        metrics.setRequestWriteNanos(parseNanos(legacyMetrics, "requestWriteNanos"));
+        metrics.setTimeToFirstByteNanos(parseNanos(legacyMetrics, "timeToFirstByteNanos"));
+        metrics.setDownloadNanos(parseNanos(legacyMetrics, "downloadNanos"));
+        return metrics;
+    }
+
+    private static Long parseNanos(Map<String, String> metrics, String key) {
+        String value = metrics.get(key);
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    private static Long getLong(Row row, String column) {
+        return row.isNull(column) ? null : row.getLong(column);
+    }
+
+    /**
+     * Обратное преобразование к записи Spring Data Cassandra (LocalDateTime в зоне по умолчанию)
+     */
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return instant != null ? LocalDateTime.ofInstant(instant, ZoneId.systemDefault()) : null;
+    }
+}
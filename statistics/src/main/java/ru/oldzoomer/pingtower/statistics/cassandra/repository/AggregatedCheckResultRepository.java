@@ -13,4 +13,10 @@ import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult.
 public interface AggregatedCheckResultRepository extends CassandraRepository<AggregatedCheckResult, AggregatedCheckResultKey> {
     List<AggregatedCheckResult> findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampBetween(
         String checkId, String aggregationInterval, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Агрегаты уровня внутри окна [from, to) — конец не включается, так как это начало следующего окна
+     */
+    List<AggregatedCheckResult> findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampGreaterThanEqualAndKeyTimestampLessThan(
+        String checkId, String aggregationInterval, LocalDateTime from, LocalDateTime to);
 }
\ No newline at end of file
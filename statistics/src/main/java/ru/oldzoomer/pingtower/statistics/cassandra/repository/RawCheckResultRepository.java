@@ -2,8 +2,11 @@ package ru.oldzoomer.pingtower.statistics.cassandra.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
 
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult;
@@ -11,6 +14,10 @@ import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult.RawChec
 
 @Repository
 public interface RawCheckResultRepository extends CassandraRepository<RawCheckResult, RawCheckResultKey> {
-    List<RawCheckResult> findByKeyCheckIdAndKeyTimestampBetween(String checkId, LocalDateTime from, LocalDateTime to);
-    List<RawCheckResult> findByKeyCheckIdOrderByKeyTimestampDesc(String checkId);
-}
\ No newline at end of file
+    List<RawCheckResult> findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(String checkId, LocalDateTime bucket,
+                                                                            LocalDateTime from, LocalDateTime to);
+    Slice<RawCheckResult> findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(String checkId, LocalDateTime bucket,
+                                                                             LocalDateTime from, LocalDateTime to,
+                                                                             Pageable pageable);
+    Optional<RawCheckResult> findFirstByKeyCheckIdAndKeyBucket(String checkId, LocalDateTime bucket);
+}
@@ -0,0 +1,10 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.repository;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupCheckpoint;
+
+@Repository
+public interface RollupCheckpointRepository extends CassandraRepository<RollupCheckpoint, String> {
+}
@@ -0,0 +1,14 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.repository;
+
+import java.util.List;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupLateWindow;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupLateWindow.RollupLateWindowKey;
+
+@Repository
+public interface RollupLateWindowRepository extends CassandraRepository<RollupLateWindow, RollupLateWindowKey> {
+    List<RollupLateWindow> findByKeyLevel(String level);
+}
@@ -0,0 +1,15 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupPendingCheck;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupPendingCheck.RollupPendingCheckKey;
+
+@Repository
+public interface RollupPendingCheckRepository extends CassandraRepository<RollupPendingCheck, RollupPendingCheckKey> {
+    List<RollupPendingCheck> findByKeyLevelAndKeyWindowStart(String level, LocalDateTime windowStart);
+}
@@ -0,0 +1,240 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.writer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.config.CassandraWriteProperties;
+import ru.oldzoomer.pingtower.statistics.config.RollupProperties;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная запись агрегатов в таблицу aggregated_check_results с TTL уровня.
+ * <p>
+ * Вместе с агрегатом записывается отметка о проверке в окне следующего уровня
+ * (aggregation_rollup_pending), по которой {@code RollupService} находит проверки для построения окна.
+ * Если агрегат потоковой агрегации записывается позже {@code grace} после конца окна следующего уровня,
+ * окно могло быть уже построено, и для него дополнительно записывается отметка aggregation_rollup_late.
+ * Количество одновременно записываемых строк ограничено так же, как у {@link RawCheckResultWriter}:
+ * строка и ее отметки выполняются друг за другом под одним разрешением, которое берется в вызывающем
+ * потоке. Продолжения цепочки выполняются в потоках ввода-вывода драйвера и поэтому не ждут разрешений.
+ */
+@Component
+@DependsOn("aggregatedCheckResultSchema")
+public class AggregatedCheckResultWriter {
+    private static final String INSERT_CQL = "INSERT INTO aggregated_check_results (check_id, aggregation_interval, "
+            + "timestamp, upcount, downcount, unknowncount, avgresponsetime, minresponsetime, maxresponsetime, "
+            + "latency_sketch) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) USING TTL ?";
+
+    private static final String PENDING_CQL = "INSERT INTO aggregation_rollup_pending (level, window_start, check_id) "
+            + "VALUES (?, ?, ?) USING TTL ?";
+
+    private static final String LATE_CQL = "INSERT INTO aggregation_rollup_late (level, window_start, marker) "
+            + "VALUES (?, ?, ?) USING TTL ?";
+
+    private final CqlSession session;
+    private final CassandraWriteProperties properties;
+    private final RollupProperties rollupProperties;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement pendingStatement;
+    private final PreparedStatement lateStatement;
+    private final Semaphore inFlight;
+    private final Clock clock;
+
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    @Autowired
+    public AggregatedCheckResultWriter(SessionFactory cassandraSessionFactory,
+                                       CassandraWriteProperties properties,
+                                       RollupProperties rollupProperties,
+                                       MeterRegistry meterRegistry) {
+        this(cassandraSessionFactory, properties, rollupProperties, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    AggregatedCheckResultWriter(SessionFactory cassandraSessionFactory,
+                                CassandraWriteProperties properties,
+                                RollupProperties rollupProperties,
+                                MeterRegistry meterRegistry,
+                                Clock clock) {
+        // Сессия берется из SessionFactory, чтобы таблицы уже были созданы согласно schema-action
+        this.session = cassandraSessionFactory.getSession();
+        this.properties = properties;
+        this.rollupProperties = rollupProperties;
+        this.inFlight = new Semaphore(properties.getMaxInFlight());
+        this.clock = clock;
+        this.insertStatement = session.prepare(INSERT_CQL);
+        this.pendingStatement = session.prepare(PENDING_CQL);
+        this.lateStatement = session.prepare(LATE_CQL);
+
+        this.writtenCounter = Counter.builder("statistics.cassandra.aggregates.written")
+                .description("Aggregated check result rows written to Cassandra")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("statistics.cassandra.aggregates.failed")
+                .description("Aggregated check result rows that failed to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Асинхронная запись агрегатов
+     * @param rows агрегаты любых уровней
+     * @return future, завершающийся после записи всех строк или с первой ошибкой записи
+     */
+    public CompletableFuture<Void> writeAll(List<AggregatedCheckResult> rows) {
+        List<CompletableFuture<Void>> writes = new ArrayList<>(rows.size());
+        for (AggregatedCheckResult row : rows) {
+            writes.add(write(row));
+        }
+        return CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> write(AggregatedCheckResult row) {
+        AggregationInterval interval = AggregationInterval.valueOf(row.getKey().getAggregationInterval());
+        // Отметка пишется после агрегата: отметка без агрегата дала бы пустое окно следующего уровня
+        List<BoundStatement> statements = new ArrayList<>(3);
+        statements.add(bindRow(row, interval));
+        AggregationInterval next = interval.coarser();
+        if (next != null) {
+            statements.add(bindPending(row, next));
+            if (isLate(interval, next, row)) {
+                // Отметка о позднем окне пишется последней: повторное построение читает отметки проверок окна
+                statements.add(bindLate(row, next));
+            }
+        }
+        return executeInOrder(statements).whenComplete((ignored, error) -> count(error));
+    }
+
+    /**
+     * Окно следующего уровня могло быть уже построено: RollupService строит окна из агрегатов
+     * потоковой агрегации по истечении grace после конца окна
+     */
+    private boolean isLate(AggregationInterval interval, AggregationInterval next, AggregatedCheckResult row) {
+        if (interval.finer() != null) {
+            // Поздние окна крупных уровней отмечает сам RollupService при повторном построении
+            return false;
+        }
+        LocalDateTime nextEnd = next.end(next.start(row.getKey().getTimestamp()));
+        return !LocalDateTime.now(clock).isBefore(nextEnd.plus(rollupProperties.getGrace()));
+    }
+
+    private void count(Throwable error) {
+        if (error == null) {
+            writtenCounter.increment();
+        } else {
+            failedCounter.increment();
+        }
+    }
+
+    /**
+     * Последовательное выполнение запросов под одним разрешением; следующий запрос
+     * не выполняется, если предыдущий завершился ошибкой
+     */
+    private CompletableFuture<Void> executeInOrder(List<BoundStatement> statements) {
+        try {
+            acquire();
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (BoundStatement statement : statements) {
+            chain = chain.thenCompose(ignored -> execute(statement));
+        }
+        return chain.whenComplete((ignored, error) -> inFlight.release());
+    }
+
+    private CompletableFuture<Void> execute(BoundStatement statement) {
+        try {
+            return session.executeAsync(statement).toCompletableFuture().thenApply(resultSet -> null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!inFlight.tryAcquire(properties.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out waiting for a free Cassandra write slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free Cassandra write slot", e);
+        }
+    }
+
+    private BoundStatement bindRow(AggregatedCheckResult row, AggregationInterval interval) {
+        BoundStatementBuilder builder = insertStatement.boundStatementBuilder()
+                .setString(0, row.getKey().getCheckId())
+                .setString(1, interval.name())
+                .setInstant(2, toInstant(row.getKey().getTimestamp()))
+                .setInt(10, ttlSeconds(interval))
+                .setIdempotent(true);
+        setIfPresent(builder, 3, row.getUpCount());
+        setIfPresent(builder, 4, row.getDownCount());
+        setIfPresent(builder, 5, row.getUnknownCount());
+        if (row.getAvgResponseTime() != null) {
+            builder.setDouble(6, row.getAvgResponseTime());
+        }
+        setIfPresent(builder, 7, row.getMinResponseTime());
+        setIfPresent(builder, 8, row.getMaxResponseTime());
+        if (row.getLatencySketch() != null) {
+            builder.setByteBuffer(9, row.getLatencySketch());
+        }
+        return builder.build();
+    }
+
+    private BoundStatement bindPending(AggregatedCheckResult row, AggregationInterval next) {
+        return pendingStatement.boundStatementBuilder()
+                .setString(0, next.name())
+                .setInstant(1, toInstant(next.start(row.getKey().getTimestamp())))
+                .setString(2, row.getKey().getCheckId())
+                .setInt(3, Math.toIntExact(rollupProperties.getPendingTtl().toSeconds()))
+                .setIdempotent(true)
+                .build();
+    }
+
+    private BoundStatement bindLate(AggregatedCheckResult row, AggregationInterval next) {
+        return lateStatement.boundStatementBuilder()
+                .setString(0, next.name())
+                .setInstant(1, toInstant(next.start(row.getKey().getTimestamp())))
+                .setUuid(2, UUID.randomUUID())
+                .setInt(3, Math.toIntExact(rollupProperties.getPendingTtl().toSeconds()))
+                .setIdempotent(true)
+                .build();
+    }
+
+    private int ttlSeconds(AggregationInterval interval) {
+        return Math.toIntExact(rollupProperties.getTtl(interval).toSeconds());
+    }
+
+    private static void setIfPresent(BoundStatementBuilder builder, int index, Integer value) {
+        if (value != null) {
+            builder.setInt(index, value);
+        }
+    }
+
+    /**
+     * LocalDateTime переводится в момент времени так же, как это делает Spring Data Cassandra,
+     * чтобы строки читались репозиторием без сдвига
+     */
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
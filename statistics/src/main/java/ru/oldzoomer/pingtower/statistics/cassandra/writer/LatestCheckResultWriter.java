@@ -0,0 +1,158 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.writer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.config.CassandraWriteProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронное обновление таблицы latest_check_results при приеме результатов проверок.
+ * <p>
+ * Из пакета записывается только самый новый результат каждой проверки. Время записи Cassandra
+ * (USING TIMESTAMP) равно времени результата, поэтому повтор пакета или результат, пришедший
+ * позже более нового, не заменяет строку, а порядок записей не важен. Все колонки связываются,
+ * включая пустые, чтобы в строке не оставались поля предыдущего результата.
+ */
+@Component
+public class LatestCheckResultWriter {
+    private static final String INSERT_CQL = "INSERT INTO latest_check_results (check_id, timestamp, status, "
+            + "response_time, http_status_code, error_message, connection_time, time_to_first_byte, ssl_valid, "
+            + "ssl_expiration_date, dns_lookup_nanos, tcp_connect_nanos, tls_handshake_nanos, request_write_nanos, "
+            + "time_to_first_byte_nanos, download_nanos) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "USING TIMESTAMP ?";
+
+    private final CqlSession session;
+    private final CassandraWriteProperties properties;
+    private final PreparedStatement insertStatement;
+    private final Semaphore inFlight;
+
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    public LatestCheckResultWriter(SessionFactory cassandraSessionFactory,
+                                   CassandraWriteProperties properties,
+                                   MeterRegistry meterRegistry) {
+        // Сессия берется из SessionFactory, чтобы таблицы уже были созданы согласно schema-action
+        this.session = cassandraSessionFactory.getSession();
+        this.properties = properties;
+        this.inFlight = new Semaphore(properties.getMaxInFlight());
+        this.insertStatement = session.prepare(INSERT_CQL);
+
+        this.writtenCounter = Counter.builder("statistics.cassandra.latest.written")
+                .description("Latest check result rows written to Cassandra")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("statistics.cassandra.latest.failed")
+                .description("Latest check result rows that failed to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Асинхронное обновление последних результатов
+     * @param checkResults результаты проверок в любом порядке
+     * @return future, завершающийся после записи всех строк или с первой ошибкой записи
+     */
+    public CompletableFuture<Void> writeAll(List<CheckResult> checkResults) {
+        Map<String, CheckResult> latest = new LinkedHashMap<>();
+        for (CheckResult checkResult : checkResults) {
+            if (checkResult.getCheckId() == null || checkResult.getTimestamp() == null) {
+                continue;
+            }
+            latest.merge(checkResult.getCheckId(), checkResult,
+                    (current, candidate) -> candidate.getTimestamp().isAfter(current.getTimestamp()) ? candidate : current);
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>(latest.size());
+        for (CheckResult checkResult : latest.values()) {
+            writes.add(execute(bind(checkResult)));
+        }
+        return CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> execute(BoundStatement statement) {
+        try {
+            acquire();
+        } catch (IllegalStateException e) {
+            failedCounter.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            return session.executeAsync(statement).toCompletableFuture()
+                    .<Void>thenApply(resultSet -> null)
+                    .whenComplete((ignored, error) -> {
+                        inFlight.release();
+                        if (error == null) {
+                            writtenCounter.increment();
+                        } else {
+                            failedCounter.increment();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            failedCounter.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!inFlight.tryAcquire(properties.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out waiting for a free Cassandra write slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free Cassandra write slot", e);
+        }
+    }
+
+    private BoundStatement bind(CheckResult checkResult) {
+        Instant timestamp = toInstant(checkResult.getTimestamp());
+        CheckResult.Metrics metrics = checkResult.getMetrics();
+        BoundStatementBuilder builder = insertStatement.boundStatementBuilder()
+                .setString(0, checkResult.getCheckId())
+                .setInstant(1, timestamp)
+                .setString(2, checkResult.getStatus())
+                .setInt(3, Math.toIntExact(checkResult.getResponseTime()))
+                .set(4, checkResult.getHttpStatusCode(), Integer.class)
+                .setString(5, checkResult.getErrorMessage())
+                .set(6, metrics != null ? metrics.getConnectionTime() : null, Long.class)
+                .set(7, metrics != null ? metrics.getTimeToFirstByte() : null, Long.class)
+                .set(8, metrics != null ? metrics.getSslValid() : null, Boolean.class)
+                .setInstant(9, metrics != null ? toInstant(metrics.getSslExpirationDate()) : null)
+                .set(10, metrics != null ? metrics.getDnsLookupNanos() : null, Long.class)
+                .set(11, metrics != null ? metrics.getTcpConnectNanos() : null, Long.class)
+                .set(12, metrics != null ? metrics.getTlsHandshakeNanos() : null, Long.class)
+                .set(13, metrics != null ? metrics.getRequestWriteNanos() : null, Long.class)
+                .set(14, metrics != null ? metrics.getTimeToFirstByteNanos() : null, Long.class)
+                .set(15, metrics != null ? metrics.getDownloadNanos() : null, Long.class)
+                // Время записи в микросекундах
+                .setLong(16, ChronoUnit.MICROS.between(Instant.EPOCH, timestamp))
+                .setIdempotent(true);
+        return builder.build();
+    }
+
+    /**
+     * LocalDateTime переводится в момент времени так же, как это делает Spring Data Cassandra,
+     * чтобы строки читались репозиторием без сдвига
+     */
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+}
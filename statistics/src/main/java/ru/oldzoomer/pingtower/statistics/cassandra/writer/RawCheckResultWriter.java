@@ -0,0 +1,272 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.writer;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.config.CassandraWriteProperties;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Асинхронная запись сырых результатов проверок в таблицу raw_check_results.
+ * <p>
+ * Строки записываются подготовленным запросом в типизированные колонки. Результаты одной
+ * партиции (проверка и интервал времени) объединяются в UNLOGGED пакеты, поэтому каждый пакет
+ * обрабатывается одним узлом-координатором. Количество одновременно выполняемых запросов ограничено:
+ * при исчерпании слотов вызывающий поток ждет, что замедляет чтение из Kafka.
+ * Незаданные поля не связываются (unset), чтобы не создавать tombstone. Строки живут
+ * default_time_to_live таблицы, если время жизни не задано явно (перенос старых строк).
+ */
+@Slf4j
+@Component
+public class RawCheckResultWriter {
+    static final String TABLE = "raw_check_results_by_bucket";
+
+    private static final String INSERT_CQL = "INSERT INTO " + TABLE + " (check_id, bucket, timestamp, status, "
+            + "responsetime, httpstatuscode, errormessage, connection_time, time_to_first_byte, ssl_valid, "
+            + "ssl_expiration_date, dns_lookup_nanos, tcp_connect_nanos, tls_handshake_nanos, request_write_nanos, "
+            + "time_to_first_byte_nanos, download_nanos) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_WITH_TTL_CQL = INSERT_CQL + " USING TTL ?";
+    private static final int TTL_INDEX = 17;
+
+    private static final String TWCS = "TimeWindowCompactionStrategy";
+
+    private final CqlSession session;
+    private final CassandraWriteProperties properties;
+    private final RawStorageProperties storageProperties;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement insertWithTtlStatement;
+    private final Semaphore inFlight;
+
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Timer writeLatencyTimer;
+
+    public RawCheckResultWriter(SessionFactory cassandraSessionFactory,
+                                CassandraWriteProperties properties,
+                                RawStorageProperties storageProperties,
+                                MeterRegistry meterRegistry) {
+        // Сессия берется из SessionFactory, чтобы таблицы уже были созданы согласно schema-action
+        this.session = cassandraSessionFactory.getSession();
+        this.properties = properties;
+        this.storageProperties = storageProperties;
+        this.inFlight = new Semaphore(properties.getMaxInFlight());
+
+        applyTableOptions();
+        this.insertStatement = session.prepare(INSERT_CQL);
+        this.insertWithTtlStatement = session.prepare(INSERT_WITH_TTL_CQL);
+
+        this.writtenCounter = Counter.builder("statistics.cassandra.rows.written")
+                .description("Raw check result rows written to Cassandra")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("statistics.cassandra.rows.failed")
+                .description("Raw check result rows that failed to be written")
+                .register(meterRegistry);
+        this.writeLatencyTimer = Timer.builder("statistics.cassandra.write.latency")
+                .description("Latency of a single write request (statement or partition batch)")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("statistics.cassandra.writes.in_flight", inFlight,
+                        semaphore -> properties.getMaxInFlight() - semaphore.availablePermits())
+                .description("Write requests currently executing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Асинхронная запись результатов проверок
+     * @param checkResults результаты проверок
+     * @return future, завершающийся после записи всех строк или с первой ошибкой записи
+     */
+    public CompletableFuture<Void> writeAll(List<CheckResult> checkResults) {
+        return writeAll(checkResults, null);
+    }
+
+    /**
+     * Асинхронная запись результатов проверок с заданным временем жизни строк
+     * @param checkResults результаты проверок
+     * @param ttlSeconds время жизни строки в секундах (0 — без ограничения) или null для TTL таблицы
+     * @return future, завершающийся после записи всех строк или с первой ошибкой записи
+     */
+    public CompletableFuture<Void> writeAll(List<CheckResult> checkResults, ToIntFunction<CheckResult> ttlSeconds) {
+        // Партиция — проверка и интервал времени
+        Map<PartitionKey, List<CheckResult>> partitions = new LinkedHashMap<>();
+        for (CheckResult checkResult : checkResults) {
+            PartitionKey partitionKey = new PartitionKey(checkResult.getCheckId(), bucketOf(checkResult));
+            partitions.computeIfAbsent(partitionKey, key -> new ArrayList<>()).add(checkResult);
+        }
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        int maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        for (List<CheckResult> partition : partitions.values()) {
+            for (int from = 0; from < partition.size(); from += maxBatchSize) {
+                List<CheckResult> chunk = partition.subList(from, Math.min(from + maxBatchSize, partition.size()));
+                writes.add(execute(toStatement(chunk, ttlSeconds), chunk.size()));
+            }
+        }
+        return CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new));
+    }
+
+    private Statement<?> toStatement(List<CheckResult> chunk, ToIntFunction<CheckResult> ttlSeconds) {
+        if (chunk.size() == 1) {
+            return bind(chunk.getFirst(), ttlSeconds);
+        }
+        List<BatchableStatement<?>> statements = new ArrayList<>(chunk.size());
+        for (CheckResult checkResult : chunk) {
+            statements.add(bind(checkResult, ttlSeconds));
+        }
+        return BatchStatement.newInstance(BatchType.UNLOGGED, statements).setIdempotent(true);
+    }
+
+    private CompletableFuture<Void> execute(Statement<?> statement, int rows) {
+        acquire();
+        long startTime = System.nanoTime();
+        CompletableFuture<Void> write;
+        try {
+            write = session.executeAsync(statement).toCompletableFuture().thenApply(resultSet -> null);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            failedCounter.increment(rows);
+            throw e;
+        }
+        return write.whenComplete((ignored, error) -> {
+            inFlight.release();
+            writeLatencyTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            if (error == null) {
+                writtenCounter.increment(rows);
+            } else {
+                failedCounter.increment(rows);
+            }
+        });
+    }
+
+    private void acquire() {
+        try {
+            if (!inFlight.tryAcquire(properties.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out waiting for a free Cassandra write slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free Cassandra write slot", e);
+        }
+    }
+
+    private BoundStatement bind(CheckResult checkResult, ToIntFunction<CheckResult> ttlSeconds) {
+        PreparedStatement statement = ttlSeconds != null ? insertWithTtlStatement : insertStatement;
+        BoundStatementBuilder builder = statement.boundStatementBuilder()
+                .setString(0, checkResult.getCheckId())
+                .setInstant(1, toInstant(bucketOf(checkResult)))
+                .setInstant(2, toInstant(checkResult.getTimestamp()))
+                .setInt(4, Math.toIntExact(checkResult.getResponseTime()))
+                .setIdempotent(true);
+        if (ttlSeconds != null) {
+            builder.setInt(TTL_INDEX, ttlSeconds.applyAsInt(checkResult));
+        }
+        if (checkResult.getStatus() != null) {
+            builder.setString(3, checkResult.getStatus());
+        }
+        if (checkResult.getHttpStatusCode() != null) {
+            builder.setInt(5, checkResult.getHttpStatusCode());
+        }
+        if (checkResult.getErrorMessage() != null) {
+            builder.setString(6, checkResult.getErrorMessage());
+        }
+
+        CheckResult.Metrics metrics = checkResult.getMetrics();
+        if (metrics != null) {
+            builder.setLong(7, metrics.getConnectionTime());
+            builder.setLong(8, metrics.getTimeToFirstByte());
+            if (metrics.getSslValid() != null) {
+                builder.setBoolean(9, metrics.getSslValid());
+            }
+            if (metrics.getSslExpirationDate() != null) {
+                builder.setInstant(10, toInstant(metrics.getSslExpirationDate()));
+            }
+            setIfPresent(builder, 11, metrics.getDnsLookupNanos());
+            setIfPresent(builder, 12, metrics.getTcpConnectNanos());
+            setIfPresent(builder, 13, metrics.getTlsHandshakeNanos());
+            setIfPresent(builder, 14, metrics.getRequestWriteNanos());
+            setIfPresent(builder, 15, metrics.getTimeToFirstByteNanos());
+            setIfPresent(builder, 16, metrics.getDownloadNanos());
+        }
+        return builder.build();
+    }
+
+    private LocalDateTime bucketOf(CheckResult checkResult) {
+        return checkResult.getTimestamp() != null ? storageProperties.getBucket().start(checkResult.getTimestamp()) : null;
+    }
+
+    private static void setIfPresent(BoundStatementBuilder builder, int index, Long value) {
+        if (value != null) {
+            builder.setLong(index, value);
+        }
+    }
+
+    /**
+     * LocalDateTime переводится в момент времени так же, как это делает Spring Data Cassandra,
+     * чтобы строки читались репозиторием без сдвига
+     */
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+
+    /**
+     * Приведение настроек таблицы к конфигурации: TTL по умолчанию действует и на записи через репозиторий,
+     * а TWCS удаляет устаревшие данные целыми SSTable без чтения tombstone.
+     * Таблица создается Spring Data (schema-action), которая не задает параметры таблицы
+     */
+    private void applyTableOptions() {
+        Optional<TableMetadata> table = session.getKeyspace()
+                .flatMap(keyspace -> session.getMetadata().getKeyspace(keyspace))
+                .flatMap(keyspace -> keyspace.getTable(TABLE));
+        if (table.isEmpty()) {
+            return;
+        }
+        Map<CqlIdentifier, Object> options = table.get().getOptions();
+        long ttlSeconds = storageProperties.getTtl().toSeconds();
+        Object currentTtl = options.get(CqlIdentifier.fromCql("default_time_to_live"));
+        Object compaction = options.get(CqlIdentifier.fromCql("compaction"));
+
+        List<String> changes = new ArrayList<>();
+        if (!(currentTtl instanceof Number number) || number.longValue() != ttlSeconds) {
+            changes.add("default_time_to_live = " + ttlSeconds);
+        }
+        if (compaction == null || !compaction.toString().contains(TWCS)) {
+            changes.add("compaction = {'class': '" + TWCS + "', 'compaction_window_unit': 'DAYS', "
+                    + "'compaction_window_size': 1}");
+        }
+        if (!changes.isEmpty()) {
+            log.info("Updating options of table {}: {}", TABLE, changes);
+            session.execute("ALTER TABLE " + TABLE + " WITH " + String.join(" AND ", changes));
+        }
+    }
+
+    private record PartitionKey(String checkId, LocalDateTime bucket) {
+    }
+}
@@ -0,0 +1,53 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки агрегации результатов проверок по окнам времени события
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.aggregation")
+public class AggregationProperties {
+    /**
+     * Интервалы, окна которых строятся за один проход по потоку. Более крупные уровни
+     * строятся из сохраненных окон MINUTE (см. {@link RollupProperties}), поэтому не теряются
+     * при перезапуске; указывать их здесь нужно, только если построение уровней отключено
+     */
+    private List<AggregationInterval> intervals = new ArrayList<>(List.of(AggregationInterval.MINUTE));
+
+    /**
+     * Насколько результаты могут приходить не по порядку времени; на эту величину
+     * водяной знак отстает от максимального времени события партиции (берется минимум по партициям)
+     */
+    private Duration maxOutOfOrderness = Duration.ofSeconds(30);
+
+    /**
+     * Сколько окно остается открытым после того, как водяной знак прошел его конец
+     */
+    private Duration allowedLateness = Duration.ofMinutes(1);
+
+    /**
+     * Время без новых результатов из партиции, после которого она не задерживает водяной знак;
+     * если простаивают все партиции, водяной знак продвигается по системным часам.
+     * Должно превышать паузы чтения при недоступности Cassandra, иначе накопленные
+     * за паузу результаты попадут в уже закрытые окна
+     */
+    private Duration idleTimeout = Duration.ofMinutes(5);
+
+    /**
+     * Насколько время результата может опережать часы сервиса статистики; более поздние
+     * результаты учитываются в своих окнах, но продвигают водяной знак только до этой границы
+     */
+    private Duration allowedClockSkew = Duration.ofMinutes(1);
+
+    /**
+     * Период проверки и сохранения закрытых окон
+     */
+    private Duration closeInterval = Duration.ofSeconds(10);
+}
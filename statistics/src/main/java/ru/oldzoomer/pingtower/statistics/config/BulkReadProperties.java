@@ -0,0 +1,21 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки получения статистики нескольких проверок одним запросом
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.bulk")
+public class BulkReadProperties {
+    /**
+     * Максимальное количество проверок в одном запросе
+     */
+    private int maxChecks = 500;
+
+    /**
+     * Максимальное количество одновременных запросов к Cassandra на один запрос статистики
+     */
+    private int maxConcurrency = 16;
+}
@@ -0,0 +1,39 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.data.cassandra.core.AsyncCassandraTemplate;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableConfigurationProperties({CassandraWriteProperties.class, RawStorageProperties.class, LatestResultProperties.class,
+        BulkReadProperties.class})
+public class CassandraConfig {
+
+    /**
+     * Пул для упреждающего чтения страниц сырых результатов
+     */
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService rawReadExecutor(RawStorageProperties properties) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, properties.getReadParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "raw-read-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Асинхронный шаблон для параллельного чтения без блокировки потоков на время запроса
+     */
+    @Bean
+    AsyncCassandraTemplate asyncCassandraTemplate(SessionFactory cassandraSessionFactory, CassandraConverter cassandraConverter) {
+        return new AsyncCassandraTemplate(cassandraSessionFactory, cassandraConverter);
+    }
+}
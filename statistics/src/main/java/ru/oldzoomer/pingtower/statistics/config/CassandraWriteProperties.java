@@ -0,0 +1,28 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки асинхронной записи сырых результатов проверок в Cassandra
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.cassandra.write")
+public class CassandraWriteProperties {
+    /**
+     * Максимальное количество одновременно выполняемых запросов записи
+     */
+    private int maxInFlight = 256;
+
+    /**
+     * Максимальное количество строк одной партиции в UNLOGGED пакете
+     */
+    private int maxBatchSize = 32;
+
+    /**
+     * Максимальное время ожидания свободного слота записи, после чего запись считается неудачной
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(10);
+}
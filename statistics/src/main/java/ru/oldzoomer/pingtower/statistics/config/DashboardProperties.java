@@ -0,0 +1,50 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки состояния дашборда, которое хранится в памяти и обновляется при приеме результатов
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.dashboard")
+public class DashboardProperties {
+    /**
+     * Скользящее окно расчета доступности, с точностью до минуты
+     */
+    private Duration uptimeWindow = Duration.ofHours(24);
+
+    /**
+     * Период пересчета снимка без новых результатов, чтобы окно доступности сдвигалось
+     */
+    private Duration refreshInterval = Duration.ofSeconds(10);
+
+    /**
+     * Время без новых результатов, после которого проверка исключается из дашборда:
+     * удаленные и отключенные проверки не присылают результатов
+     */
+    private Duration statusTtl = Duration.ofDays(1);
+
+    /**
+     * Периодическая сверка статусов с latest_check_results. Каждый экземпляр принимает результаты
+     * только своих разделов Kafka, статусы остальных проверок берутся из общей таблицы
+     */
+    private boolean resync = true;
+
+    /**
+     * Период сверки статусов с latest_check_results
+     */
+    private Duration resyncInterval = Duration.ofMinutes(1);
+
+    /**
+     * Восстановление статусов проверок из latest_check_results при запуске
+     */
+    private boolean warmStart = true;
+
+    /**
+     * Размер страницы чтения latest_check_results при восстановлении и сверке
+     */
+    private int warmStartPageSize = 1000;
+}
@@ -0,0 +1,40 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки приема результатов проверок из топика pingtower.check.results.
+ * Размер пакета задается spring.kafka.consumer.max-poll-records.
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.ingestion")
+public class IngestionProperties {
+    /**
+     * Количество потоков-потребителей; больше количества партиций не имеет смысла
+     */
+    private int concurrency = 3;
+
+    /**
+     * Количество партиций топика при его создании
+     */
+    private int topicPartitions = 6;
+
+    /**
+     * Начальная пауза перед повтором пакета после неудачной записи, удваивается с каждым повтором
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Максимальная пауза перед повтором пакета
+     */
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    /**
+     * Количество повторов пакета после ошибки записи; затем записи пакета отправляются
+     * в pingtower.check.results.DLT
+     */
+    private int maxRetries = 10;
+}
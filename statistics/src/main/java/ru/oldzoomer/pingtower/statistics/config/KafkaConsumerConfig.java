@@ -0,0 +1,94 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.kafka.CheckResultConsumer;
+import ru.oldzoomer.pingtower.statistics.kafka.CheckResultRebalanceListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(IngestionProperties.class)
+public class KafkaConsumerConfig {
+
+    /**
+     * Топик результатов проверок; создается, только если еще не существует
+     */
+    @Bean
+    NewTopic checkResultsTopic(IngestionProperties properties) {
+        return TopicBuilder.name(CheckResultConsumer.CHECK_RESULTS_TOPIC)
+                .partitions(properties.getTopicPartitions())
+                .build();
+    }
+
+    /**
+     * Топик записей, которые не удалось сохранить после всех повторов
+     */
+    @Bean
+    NewTopic checkResultsDeadLetterTopic(IngestionProperties properties) {
+        return TopicBuilder.name(CheckResultConsumer.CHECK_RESULTS_DLT)
+                .partitions(properties.getTopicPartitions())
+                .build();
+    }
+
+    /**
+     * Пакетный прием результатов проверок: по одному потребителю на поток,
+     * смещения фиксируются вручную после записи пакета в Cassandra
+     */
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<Object, Object> checkResultListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            ProducerFactory<Object, Object> kafkaProducerFactory,
+            CheckResultRebalanceListener rebalanceListener,
+            IngestionProperties properties) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(properties.getConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Открытые окна агрегации отозванных партиций сохраняются до перехода партиций к другому потребителю
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        factory.setCommonErrorHandler(checkResultErrorHandler(kafkaProducerFactory, properties));
+        return factory;
+    }
+
+    /**
+     * Повтор пакета после ошибки записи с растущей паузой. Состояние повторов хранится в потоке
+     * потребителя, поэтому ошибки одного потока не увеличивают паузу другим. После последнего
+     * повтора записи пакета отправляются в DLT в ту же партицию, смещения фиксируются.
+     */
+    private static DefaultErrorHandler checkResultErrorHandler(ProducerFactory<Object, Object> producerFactory,
+                                                               IngestionProperties properties) {
+        // Десериализованные записи пишутся JSON сериализатором из spring.kafka.producer и читаются
+        // CheckResultDeserializer при повторной загрузке; недесериализованные — исходными байтами
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(CheckResult.class, new KafkaTemplate<>(producerFactory));
+        templates.put(byte[].class, new KafkaTemplate<>(producerFactory,
+                Map.of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class)));
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(templates);
+
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(properties.getMaxRetries());
+        backOff.setInitialInterval(properties.getInitialBackoff().toMillis());
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(properties.getMaxBackoff().toMillis());
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки локального кэша последних результатов проверок
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.latest")
+public class LatestResultProperties {
+    /**
+     * Максимальное количество проверок в кэше
+     */
+    private long cacheSize = 100_000;
+
+    /**
+     * Время жизни записи без обновления. Кэш обновляется результатами, принятыми этим экземпляром;
+     * результаты партиций других экземпляров видны с задержкой не больше этого времени
+     */
+    private Duration cacheTtl = Duration.ofSeconds(30);
+
+    /**
+     * Количество проверок в одном запросе при загрузке отсутствующих в кэше записей
+     */
+    private int loadBatchSize = 100;
+}
@@ -0,0 +1,65 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.TimeBucket;
+
+import java.time.Duration;
+
+/**
+ * Настройки хранения сырых результатов проверок
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.raw")
+public class RawStorageProperties {
+    /**
+     * Размер интервала в ключе партиции. Изменение требует перезаливки данных,
+     * так как существующие строки читаются по старым интервалам
+     */
+    private TimeBucket bucket = TimeBucket.DAY;
+
+    /**
+     * Время хранения сырых результатов (default_time_to_live таблицы), 0 — без ограничения
+     */
+    private Duration ttl = Duration.ofDays(90);
+
+    /**
+     * Глубина поиска последнего результата проверки
+     */
+    private Duration latestLookback = Duration.ofDays(7);
+
+    /**
+     * Максимальное количество интервалов, просматриваемых одним запросом страницы истории;
+     * более старые интервалы читаются по курсору следующей страницы
+     */
+    private int maxBucketsPerQuery = 400;
+
+    /**
+     * Размер пула чтения сырых результатов: следующая страница истории читается в нем,
+     * пока текущая передается клиенту
+     */
+    private int readParallelism = 8;
+
+    /**
+     * Размер страницы Cassandra при потоковой выдаче истории
+     */
+    private int historyFetchSize = 1000;
+
+    /**
+     * Перенос данных из таблицы raw_check_results без интервалов
+     */
+    private Backfill backfill = new Backfill();
+
+    @Data
+    public static class Backfill {
+        /**
+         * Запуск переноса при старте приложения
+         */
+        private boolean enabled = false;
+
+        /**
+         * Размер страницы чтения старой таблицы
+         */
+        private int pageSize = 1000;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Настройки построения агрегатов крупных уровней из мелких (MINUTE → HOUR → DAY → MONTH)
+ * и времени хранения агрегатов каждого уровня
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.rollup")
+public class RollupProperties {
+    /**
+     * Фоновое построение агрегатов уровней
+     */
+    private boolean enabled = true;
+
+    /**
+     * Период проверки завершенных окон
+     */
+    private Duration interval = Duration.ofMinutes(1);
+
+    /**
+     * Задержка после конца окна, после которой все окна уровня MINUTE считаются сохраненными.
+     * Должна превышать max-out-of-orderness + allowed-lateness + close-interval агрегации;
+     * окна, в которые агрегаты MINUTE записаны позже, строятся повторно
+     */
+    private Duration grace = Duration.ofMinutes(5);
+
+    /**
+     * Максимальное количество окон одного уровня за запуск, ограничивает догоняющую обработку после простоя
+     */
+    private int maxWindowsPerRun = 24;
+
+    /**
+     * Время хранения отметок о проверках с данными в окне; должно превышать длину окна MONTH
+     */
+    private Duration pendingTtl = Duration.ofDays(40);
+
+    /**
+     * Время хранения агрегатов по уровням, 0 — без ограничения
+     */
+    private Map<AggregationInterval, Duration> ttl = new EnumMap<>(Map.of(
+            AggregationInterval.MINUTE, Duration.ofDays(7),
+            AggregationInterval.HOUR, Duration.ofDays(90),
+            AggregationInterval.DAY, Duration.ofDays(730),
+            AggregationInterval.MONTH, Duration.ZERO));
+
+    /**
+     * Время хранения агрегатов уровня
+     * @param interval уровень
+     * @return TTL, Duration.ZERO — без ограничения
+     */
+    public Duration getTtl(AggregationInterval interval) {
+        return ttl.getOrDefault(interval, Duration.ZERO);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties(StatusStreamProperties.class)
+public class StatusStreamConfig {
+
+    /**
+     * Отправка событий подписчикам в виртуальных потоках: блокирующая запись медленному клиенту
+     * занимает только свой поток и не задерживает ни прием результатов, ни других подписчиков
+     */
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService statusStreamExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("status-stream-", 0).factory());
+    }
+}
@@ -0,0 +1,41 @@
+package ru.oldzoomer.pingtower.statistics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки потока смен статусов проверок (server-sent events)
+ */
+@Data
+@ConfigurationProperties(prefix = "statistics.stream")
+public class StatusStreamProperties {
+    /**
+     * Максимальное количество одновременных подписчиков
+     */
+    private int maxSubscribers = 1000;
+
+    /**
+     * Максимальное количество проверок с неотправленными сменами статуса у одного подписчика.
+     * Смены одной проверки объединяются, при переполнении подписчик отключается
+     * и должен заново получить состояние после переподключения
+     */
+    private int bufferSize = 1000;
+
+    /**
+     * Время жизни подключения, после которого клиент переподключается
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Период отправки комментария для поддержания соединения и обнаружения отключившихся клиентов
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * Максимальное время отправки подписчику; подписчик, отправка которому не завершилась за это время,
+     * отключается. Проверяется с периодом heartbeat-interval
+     */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+}
@@ -1,7 +1,9 @@
 package ru.oldzoomer.pingtower.statistics.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,13 +11,27 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.oldzoomer.pingtower.statistics.dto.AggregatedStatistics;
+import ru.oldzoomer.pingtower.statistics.dto.BulkStatisticsRequest;
+import ru.oldzoomer.pingtower.statistics.dto.CheckHistoryPage;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.dto.CheckStatistics;
+import ru.oldzoomer.pingtower.statistics.dto.StatusEvent;
 import ru.oldzoomer.pingtower.statistics.service.StatisticsRetrievalService;
+import ru.oldzoomer.pingtower.statistics.service.StatusStreamService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @RestController
@@ -23,7 +39,11 @@ import java.util.List;
 @RequiredArgsConstructor
 @Tag(name = "Statistics", description = "Контроллер для работы со статистикой мониторинга")
 public class StatisticsController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final StatisticsRetrievalService statisticsRetrievalService;
+    private final StatusStreamService statusStreamService;
+    private final ObjectMapper objectMapper;
     
     @Operation(
         summary = "Получение последних результатов проверки",
@@ -60,16 +80,23 @@ public class StatisticsController {
     
     @Operation(
         summary = "Получение истории результатов проверки",
-        description = "Получить историю результатов проверки с возможностью фильтрации по времени"
+        description = "Получить страницу истории результатов проверки, от более новых к более старым. "
+            + "Курсор следующей страницы возвращается в заголовке X-Next-Cursor и передается в параметре cursor "
+            + "вместе с теми же from и to"
     )
     @ApiResponse(
         responseCode = "200",
         description = "История результатов проверки успешно получена",
+        headers = @Header(name = NEXT_CURSOR_HEADER, description = "Курсор следующей страницы; отсутствует, если история закончилась"),
         content = @Content(
             mediaType = "application/json",
             schema = @Schema(implementation = CheckResult.class, type = "array")
         )
     )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Некорректный курсор или параметры страницы"
+    )
     @GetMapping("/checks/{checkId}/history")
     public ResponseEntity<List<CheckResult>> getCheckHistory(
             @Parameter(description = "Идентификатор проверки", example = "check-12345")
@@ -80,52 +107,183 @@ public class StatisticsController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
             @Parameter(description = "Ограничение на количество записей", example = "100")
             @RequestParam(defaultValue = "100") int limit,
-            @Parameter(description = "Смещение для пагинации", example = "0")
-            @RequestParam(defaultValue = "0") int offset) {
+            @Parameter(description = "Смещение для пагинации; пропущенные записи читаются, для перехода между страницами используйте cursor", example = "0")
+            @RequestParam(defaultValue = "0") int offset,
+            @Parameter(description = "Курсор страницы из заголовка X-Next-Cursor предыдущего ответа")
+            @RequestParam(required = false) String cursor) {
         try {
-            List<CheckResult> history = statisticsRetrievalService.getCheckHistory(checkId, from, to, limit, offset);
-            return ResponseEntity.ok(history);
+            CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, to, limit, offset, cursor);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid check history request for checkId: {}: {}", checkId, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Failed to get check history for checkId: {}", checkId, e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    @Operation(
+        summary = "Потоковая выгрузка истории результатов проверки",
+        description = "Выгрузить всю историю результатов проверки за период в формате NDJSON (по одному результату "
+            + "на строку), от более новых к более старым. Результаты передаются по мере чтения, "
+            + "поэтому размер периода не ограничен памятью сервиса"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "История результатов проверки передается",
+        content = @Content(
+            mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+            schema = @Schema(implementation = CheckResult.class)
+        )
+    )
+    @GetMapping(value = "/checks/{checkId}/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCheckHistory(
+            @Parameter(description = "Идентификатор проверки", example = "check-12345")
+            @PathVariable String checkId,
+            @Parameter(description = "Начальная дата для фильтрации", example = "2024-01-15T10:30:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конечная дата для фильтрации", example = "2024-01-16T10:30:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        StreamingResponseBody body = outputStream -> {
+            try {
+                statisticsRetrievalService.streamCheckHistory(checkId, from, to, result -> writeLine(outputStream, result));
+            } catch (UncheckedIOException e) {
+                // Клиент закрыл соединение, чтение прекращается
+                log.debug("Check history stream for checkId: {} was interrupted: {}", checkId, e.getMessage());
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLine(OutputStream outputStream, CheckResult result) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
     
     @Operation(
         summary = "Получение агрегированных данных по проверке",
-        description = "Получить агрегированные данные по проверке за указанный интервал времени"
+        description = "Получить агрегаты окон интервала и итог за период, включая произвольные перцентили "
+            + "времени ответа, вычисленные по эскизам окон"
     )
     @ApiResponse(
         responseCode = "200",
-        description = "Агрегированные данные успешно получены"
+        description = "Агрегированные данные успешно получены",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = AggregatedStatistics.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Неподдерживаемый интервал или перцентиль"
     )
     @ApiResponse(
         responseCode = "404",
         description = "Данные для агрегации не найдены"
     )
     @GetMapping("/checks/{checkId}/aggregated")
-    public ResponseEntity<Object> getAggregatedData(
+    public ResponseEntity<AggregatedStatistics> getAggregatedData(
             @Parameter(description = "Идентификатор проверки", example = "check-12345")
             @PathVariable String checkId,
-            @Parameter(description = "Интервал агрегации", example = "hourly")
+            @Parameter(description = "Интервал агрегации: MINUTE, HOUR, DAY, MONTH (или hourly, daily, monthly)", example = "HOUR")
             @RequestParam String interval,
             @Parameter(description = "Начальная дата для агрегации", example = "2024-01-15T10:30:00")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @Parameter(description = "Конечная дата для агрегации", example = "2024-01-16T10:30:00")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Перцентили времени ответа в процентах", example = "50,95,99")
+            @RequestParam(defaultValue = "50,95,99") List<Double> percentiles) {
         try {
-            Object aggregatedData = statisticsRetrievalService.getAggregatedData(checkId, interval, from, to);
+            AggregatedStatistics aggregatedData = statisticsRetrievalService.getAggregatedData(
+                    checkId, interval, from, to, percentiles);
             if (aggregatedData != null) {
                 return ResponseEntity.ok(aggregatedData);
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid aggregated data request for checkId: {}: {}", checkId, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Failed to get aggregated data for checkId: {}, interval: {}", checkId, interval, e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    @Operation(
+        summary = "Получение статистики нескольких проверок",
+        description = "Получить последние результаты и агрегированные данные нескольких проверок одним запросом. "
+            + "Если данные части проверок получить не удалось, они возвращаются без этих данных и с описанием ошибки"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Статистика проверок получена, возможно частично",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = CheckStatistics.class, type = "array")
+        )
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Пустой или слишком большой список проверок, неподдерживаемый интервал или перцентиль"
+    )
+    @PostMapping("/checks/bulk")
+    public ResponseEntity<List<CheckStatistics>> getBulkStatistics(@RequestBody BulkStatisticsRequest request) {
+        try {
+            return ResponseEntity.ok(statisticsRetrievalService.getBulkStatistics(request.getCheckIds(),
+                    request.getInterval(), request.getFrom(), request.getTo(), request.getPercentiles()));
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid bulk statistics request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Failed to get bulk statistics for {} checks", request.getCheckIds().size(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(
+        summary = "Поток смен статусов проверок",
+        description = "Подписаться на смены статусов проверок (server-sent events, событие status). Если проверки "
+            + "указаны, сначала передаются их текущие статусы. Неотправленные смены одной проверки объединяются; "
+            + "если клиент не успевает получать события, передается событие overflow и поток закрывается — "
+            + "после переподключения состояние следует получить заново"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Поток событий открыт",
+        content = @Content(
+            mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+            schema = @Schema(implementation = StatusEvent.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "503",
+        description = "Достигнуто максимальное количество подписчиков"
+    )
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatuses(
+            @Parameter(description = "Идентификаторы проверок; без параметра передаются смены всех проверок",
+                example = "check-12345,check-67890")
+            @RequestParam(required = false) Set<String> checkIds) {
+        try {
+            return ResponseEntity.ok(statusStreamService.subscribe(checkIds != null ? checkIds : Set.of()));
+        } catch (IllegalStateException e) {
+            log.warn("Rejected status stream subscription: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @Operation(
         summary = "Получение данных для дашборда",
         description = "Получить агрегированные данные для отображения на дашборде"
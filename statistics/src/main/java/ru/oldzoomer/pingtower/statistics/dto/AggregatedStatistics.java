@@ -0,0 +1,78 @@
+package ru.oldzoomer.pingtower.statistics.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Schema(description = "Агрегированная статистика проверки за период")
+public class AggregatedStatistics {
+    @Schema(description = "Идентификатор проверки", example = "check-12345")
+    private String checkId;
+
+    @Schema(description = "Интервал агрегации", example = "HOUR", allowableValues = {"MINUTE", "HOUR", "DAY", "MONTH"})
+    private String interval;
+
+    @Schema(description = "Начало периода", example = "2024-01-15T00:00:00")
+    private LocalDateTime from;
+
+    @Schema(description = "Конец периода", example = "2024-01-16T00:00:00")
+    private LocalDateTime to;
+
+    @Schema(description = "Количество успешных проверок за период", example = "1430")
+    private long upCount;
+
+    @Schema(description = "Количество неуспешных проверок за период", example = "10")
+    private long downCount;
+
+    @Schema(description = "Количество проверок с другим статусом за период", example = "0")
+    private long unknownCount;
+
+    @Schema(description = "Среднее время ответа за период в миллисекундах", example = "152.4")
+    private Double avgResponseTime;
+
+    @Schema(description = "Минимальное время ответа за период в миллисекундах", example = "98")
+    private Integer minResponseTime;
+
+    @Schema(description = "Максимальное время ответа за период в миллисекундах", example = "2034")
+    private Integer maxResponseTime;
+
+    @Schema(description = "Перцентили времени ответа за период в миллисекундах (ключ p50, p95, p99.9 ...)")
+    private Map<String, Double> percentiles = new LinkedHashMap<>();
+
+    @Schema(description = "Агрегаты окон периода")
+    private List<Window> windows = new ArrayList<>();
+
+    @Data
+    @Schema(description = "Агрегат одного окна")
+    public static class Window {
+        @Schema(description = "Начало окна", example = "2024-01-15T10:00:00")
+        private LocalDateTime timestamp;
+
+        @Schema(description = "Количество успешных проверок", example = "60")
+        private int upCount;
+
+        @Schema(description = "Количество неуспешных проверок", example = "0")
+        private int downCount;
+
+        @Schema(description = "Количество проверок с другим статусом", example = "0")
+        private int unknownCount;
+
+        @Schema(description = "Среднее время ответа в миллисекундах", example = "150.5")
+        private Double avgResponseTime;
+
+        @Schema(description = "Минимальное время ответа в миллисекундах", example = "100")
+        private Integer minResponseTime;
+
+        @Schema(description = "Максимальное время ответа в миллисекундах", example = "300")
+        private Integer maxResponseTime;
+
+        @Schema(description = "Перцентили времени ответа в миллисекундах; пусто для окон без эскиза")
+        private Map<String, Double> percentiles = new LinkedHashMap<>();
+    }
+}
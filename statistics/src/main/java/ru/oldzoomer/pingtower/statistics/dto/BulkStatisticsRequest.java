@@ -0,0 +1,27 @@
+package ru.oldzoomer.pingtower.statistics.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Schema(description = "Запрос статистики нескольких проверок")
+public class BulkStatisticsRequest {
+    @Schema(description = "Идентификаторы проверок", example = "[\"check-12345\", \"check-67890\"]")
+    private List<String> checkIds = new ArrayList<>();
+
+    @Schema(description = "Интервал агрегации: MINUTE, HOUR, DAY, MONTH (или hourly, daily, monthly)", example = "HOUR")
+    private String interval = "HOUR";
+
+    @Schema(description = "Начало периода, по умолчанию 7 дней назад", example = "2024-01-15T00:00:00")
+    private LocalDateTime from;
+
+    @Schema(description = "Конец периода, по умолчанию текущее время", example = "2024-01-16T00:00:00")
+    private LocalDateTime to;
+
+    @Schema(description = "Перцентили времени ответа в процентах", example = "[50, 95, 99]")
+    private List<Double> percentiles = new ArrayList<>(List.of(50.0, 95.0, 99.0));
+}
@@ -0,0 +1,23 @@
+package ru.oldzoomer.pingtower.statistics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Страница истории результатов проверки
+ */
+@Data
+@AllArgsConstructor
+public class CheckHistoryPage {
+    /**
+     * Результаты от более новых к более старым
+     */
+    private List<CheckResult> items;
+
+    /**
+     * Курсор следующей страницы, null — история закончилась
+     */
+    private String nextCursor;
+}
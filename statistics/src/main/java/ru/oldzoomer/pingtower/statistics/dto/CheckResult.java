@@ -45,5 +45,23 @@ public class CheckResult {
         
         @Schema(description = "Дата истечения SSL сертификата", example = "2024-12-31T23:59:59")
         private LocalDateTime sslExpirationDate;
+        
+        @Schema(description = "Время разрешения DNS имени в наносекундах", example = "1200000")
+        private Long dnsLookupNanos;
+        
+        @Schema(description = "Время установления TCP соединения в наносекундах", example = "15000000")
+        private Long tcpConnectNanos;
+        
+        @Schema(description = "Время TLS рукопожатия в наносекундах", example = "30000000")
+        private Long tlsHandshakeNanos;
+        
+        @Schema(description = "Время отправки запроса в наносекундах", example = "200000")
+        private Long requestWriteNanos;
+        
+        @Schema(description = "Время от отправки запроса до первого байта ответа в наносекундах", example = "80000000")
+        private Long timeToFirstByteNanos;
+        
+        @Schema(description = "Время загрузки тела ответа в наносекундах", example = "5000000")
+        private Long downloadNanos;
     }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package ru.oldzoomer.pingtower.statistics.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Статистика одной проверки в ответе на запрос нескольких проверок")
+public class CheckStatistics {
+    @Schema(description = "Идентификатор проверки", example = "check-12345")
+    private String checkId;
+
+    @Schema(description = "Последний результат проверки, отсутствует, если результатов нет или чтение не удалось")
+    private CheckResult latest;
+
+    @Schema(description = "Агрегированная статистика за период, отсутствует, если чтение не удалось")
+    private AggregatedStatistics aggregated;
+
+    @Schema(description = "Ошибка получения части данных проверки", example = "Aggregated data unavailable")
+    private String error;
+}
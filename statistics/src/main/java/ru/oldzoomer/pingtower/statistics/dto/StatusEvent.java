@@ -0,0 +1,27 @@
+package ru.oldzoomer.pingtower.statistics.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Смена статуса проверки")
+public class StatusEvent {
+    @Schema(description = "Идентификатор проверки", example = "check-12345")
+    private String checkId;
+
+    @Schema(description = "Текущий статус проверки", example = "DOWN", allowableValues = {"UP", "DOWN", "UNKNOWN"})
+    private String status;
+
+    @Schema(description = "Предыдущий статус; отсутствует для первого результата проверки и в начальных событиях подписки",
+            example = "UP")
+    private String previousStatus;
+
+    @Schema(description = "Время результата, с которого действует статус", example = "2024-01-15T10:30:00")
+    private LocalDateTime timestamp;
+}
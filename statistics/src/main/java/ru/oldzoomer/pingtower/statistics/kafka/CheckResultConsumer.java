@@ -0,0 +1,134 @@
+package ru.oldzoomer.pingtower.statistics.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.service.StatisticsProcessingService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прием результатов проверок из Kafka.
+ * <p>
+ * Пакет записывается в Cassandra синхронно, и следующий poll выполняется только после записи,
+ * поэтому при замедлении Cassandra чтение замедляется вместе с ней. Смещения фиксируются
+ * только после успешной записи.
+ * <p>
+ * Записи, которые не удастся сохранить ни при каком повторе (ошибка десериализации, нет checkId
+ * или времени, время ответа вне диапазона int), пропускаются до записи. Ошибка записи пакета
+ * пробрасывается обработчику ошибок контейнера (см. KafkaConsumerConfig): он повторяет пакет
+ * с растущей паузой ограниченное число раз, отдельно для каждого потока-потребителя, и затем
+ * отправляет записи пакета в {@link #CHECK_RESULTS_DLT}.
+ */
+@Slf4j
+@Component
+public class CheckResultConsumer {
+    public static final String CHECK_RESULTS_TOPIC = "pingtower.check.results";
+    public static final String CHECK_RESULTS_DLT = CHECK_RESULTS_TOPIC + ".DLT";
+
+    private final StatisticsProcessingService statisticsProcessingService;
+
+    private final Counter receivedCounter;
+    private final Counter undeserializableCounter;
+    private final Counter invalidCounter;
+    private final Counter failedBatchCounter;
+    private final Timer batchWriteTimer;
+
+    public CheckResultConsumer(StatisticsProcessingService statisticsProcessingService,
+                               MeterRegistry meterRegistry) {
+        this.statisticsProcessingService = statisticsProcessingService;
+
+        this.receivedCounter = Counter.builder("statistics.ingestion.records")
+                .description("Check results received from Kafka")
+                .register(meterRegistry);
+        this.undeserializableCounter = Counter.builder("statistics.ingestion.skipped")
+                .description("Records skipped before the write")
+                .tag("reason", "undeserializable")
+                .register(meterRegistry);
+        this.invalidCounter = Counter.builder("statistics.ingestion.skipped")
+                .description("Records skipped before the write")
+                .tag("reason", "invalid")
+                .register(meterRegistry);
+        this.failedBatchCounter = Counter.builder("statistics.ingestion.batches.failed")
+                .description("Failed batch writes handed to the container error handler")
+                .register(meterRegistry);
+        this.batchWriteTimer = Timer.builder("statistics.ingestion.batch.write")
+                .description("Time to persist one batch of check results")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Обработка пакета результатов проверок
+     * @param records записи пакета
+     * @param acknowledgment фиксация смещений пакета
+     */
+    @KafkaListener(id = "checkResultIngestion", topics = CHECK_RESULTS_TOPIC,
+            containerFactory = "checkResultListenerContainerFactory")
+    public void consume(List<ConsumerRecord<String, CheckResult>> records, Acknowledgment acknowledgment) {
+        Map<Integer, List<CheckResult>> checkResults = new LinkedHashMap<>();
+        int valid = 0;
+        for (ConsumerRecord<String, CheckResult> consumerRecord : records) {
+            if (consumerRecord.value() == null) {
+                // Ошибка десериализации (ErrorHandlingDeserializer) или пустое сообщение
+                undeserializableCounter.increment();
+                log.warn("Skipping undeserializable check result: partition={}, offset={}",
+                        consumerRecord.partition(), consumerRecord.offset());
+                continue;
+            }
+            String invalid = validate(consumerRecord.value());
+            if (invalid != null) {
+                invalidCounter.increment();
+                log.warn("Skipping invalid check result: partition={}, offset={}, checkId={}: {}",
+                        consumerRecord.partition(), consumerRecord.offset(), consumerRecord.value().getCheckId(),
+                        invalid);
+                continue;
+            }
+            checkResults.computeIfAbsent(consumerRecord.partition(), partition -> new ArrayList<>())
+                    .add(consumerRecord.value());
+            valid++;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            statisticsProcessingService.processCheckResults(checkResults);
+        } catch (RuntimeException e) {
+            failedBatchCounter.increment();
+            log.error("Failed to persist batch of {} check results", valid, e);
+            // Повтор и отправку в DLT выполняет обработчик ошибок контейнера
+            throw e;
+        }
+        batchWriteTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        receivedCounter.increment(valid);
+
+        acknowledgment.acknowledge();
+        log.debug("Persisted batch of {} check results", valid);
+    }
+
+    /**
+     * Проверка записи, которую нельзя сохранить ни при каком повторе
+     * @return описание ошибки или null, если запись корректна
+     */
+    private static String validate(CheckResult checkResult) {
+        if (checkResult.getCheckId() == null || checkResult.getCheckId().isBlank()) {
+            return "no checkId";
+        }
+        if (checkResult.getTimestamp() == null) {
+            return "no timestamp";
+        }
+        if (checkResult.getResponseTime() < Integer.MIN_VALUE || checkResult.getResponseTime() > Integer.MAX_VALUE) {
+            return "response time out of range: " + checkResult.getResponseTime();
+        }
+        return null;
+    }
+}
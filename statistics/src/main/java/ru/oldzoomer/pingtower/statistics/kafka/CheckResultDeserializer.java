@@ -0,0 +1,78 @@
+package ru.oldzoomer.pingtower.statistics.kafka;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultBinaryCodec;
+import ru.oldzoomer.pingtower.common.kafka.CheckResultMessage;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.io.IOException;
+
+/**
+ * Десериализатор результатов проверок, определяющий формат по первому байту сообщения:
+ * бинарный формат начинается с {@link CheckResultBinaryCodec#MAGIC}, JSON — с '{'.
+ * <p>
+ * Заголовки типов JsonSerializer ссылаются на DTO модуля pinger, поэтому игнорируются,
+ * и JSON всегда читается в {@link CheckResult} модуля statistics.
+ */
+public class CheckResultDeserializer implements Deserializer<CheckResult> {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    public CheckResult deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            if (CheckResultBinaryCodec.isBinary(data)) {
+                return fromMessage(CheckResultBinaryCodec.decode(data));
+            }
+            return objectMapper.readValue(data, CheckResult.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Failed to deserialize check result from topic " + topic, e);
+        }
+    }
+
+    @Override
+    public CheckResult deserialize(String topic, Headers headers, byte[] data) {
+        return deserialize(topic, data);
+    }
+
+    /**
+     * Перевод декодированной записи в результат проверки
+     * @param message запись, декодированная {@link CheckResultBinaryCodec}
+     * @return результат проверки
+     */
+    static CheckResult fromMessage(CheckResultMessage message) {
+        CheckResult result = new CheckResult();
+        result.setCheckId(message.checkId());
+        result.setResourceUrl(message.resourceUrl());
+        result.setTimestamp(message.timestamp());
+        result.setStatus(message.status());
+        result.setResponseTime(message.responseTime());
+        result.setHttpStatusCode(message.httpStatusCode());
+        result.setErrorMessage(message.errorMessage());
+        CheckResultMessage.Metrics source = message.metrics();
+        if (source != null) {
+            CheckResult.Metrics metrics = new CheckResult.Metrics();
+            metrics.setConnectionTime(source.connectionTime());
+            metrics.setTimeToFirstByte(source.timeToFirstByte());
+            metrics.setSslValid(source.sslValid());
+            metrics.setSslExpirationDate(source.sslExpirationDate());
+            metrics.setDnsLookupNanos(source.dnsLookupNanos());
+            metrics.setTcpConnectNanos(source.tcpConnectNanos());
+            metrics.setTlsHandshakeNanos(source.tlsHandshakeNanos());
+            metrics.setRequestWriteNanos(source.requestWriteNanos());
+            metrics.setTimeToFirstByteNanos(source.timeToFirstByteNanos());
+            metrics.setDownloadNanos(source.downloadNanos());
+            result.setMetrics(metrics);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.oldzoomer.pingtower.statistics.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.service.AggregationService;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Сохранение открытых окон агрегации партиций, которые уходят к другому потребителю.
+ * Вызывается в потоке потребителя, после фиксации смещений отозванных партиций
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CheckResultRebalanceListener implements ConsumerAwareRebalanceListener {
+    private final AggregationService aggregationService;
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        flush(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        flush(partitions);
+    }
+
+    private void flush(Collection<TopicPartition> partitions) {
+        List<Integer> revoked = partitions.stream()
+                .filter(partition -> CheckResultConsumer.CHECK_RESULTS_TOPIC.equals(partition.topic()))
+                .map(TopicPartition::partition)
+                .toList();
+        if (revoked.isEmpty()) {
+            return;
+        }
+        log.info("Flushing open aggregation windows of revoked partitions {}", revoked);
+        aggregationService.flushPartitions(revoked);
+    }
+}
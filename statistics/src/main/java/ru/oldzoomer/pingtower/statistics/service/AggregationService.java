@@ -1,175 +1,183 @@
 package ru.oldzoomer.pingtower.statistics.service;
 
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+import ru.oldzoomer.pingtower.statistics.aggregation.ClosedWindow;
+import ru.oldzoomer.pingtower.statistics.aggregation.TimeWindowAggregator;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.AggregatedCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.AggregatedCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.AggregationProperties;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
 
-import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Агрегация результатов проверок по выровненным окнам (по умолчанию только MINUTE).
+ * Результаты учитываются в окнах по мере поступления, закрытые окна периодически
+ * сохраняются в aggregated_check_results по одной строке на окно.
+ * Окна HOUR/DAY/MONTH строит из сохраненных минутных окон {@link RollupService}.
+ * <p>
+ * Открытые окна хранятся только в памяти: при отзыве партиций и при остановке приложения
+ * они сохраняются досрочно. Окно, которое могло быть частично сохранено раньше (прежним
+ * владельцем партиции или до перезапуска), при закрытии объединяется с сохраненной строкой.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class AggregationService {
+    /**
+     * Партиция результатов, полученных не из Kafka
+     */
+    public static final int NO_PARTITION = -1;
+
+    private final AggregatedCheckResultWriter aggregatedCheckResultWriter;
     private final AggregatedCheckResultRepository aggregatedCheckResultRepository;
-    
-    // Хранилище для промежуточных агрегированных данных
-    private final Map<String, AggregationData> aggregationDataMap = new ConcurrentHashMap<>();
-    
+    private final TimeWindowAggregator aggregator;
+
+    // Закрытые окна, которые не удалось сохранить; сохраняются повторно при следующем закрытии
+    private final Queue<ClosedWindow> pendingRows = new ConcurrentLinkedQueue<>();
+
+    private final Counter windowsSavedCounter;
+    private final Counter saveFailedCounter;
+
+    @Autowired
+    public AggregationService(AggregatedCheckResultWriter aggregatedCheckResultWriter,
+                              AggregatedCheckResultRepository aggregatedCheckResultRepository,
+                              AggregationProperties properties,
+                              MeterRegistry meterRegistry) {
+        this(aggregatedCheckResultWriter, aggregatedCheckResultRepository, properties, meterRegistry,
+                Clock.systemDefaultZone());
+    }
+
+    AggregationService(AggregatedCheckResultWriter aggregatedCheckResultWriter,
+                       AggregatedCheckResultRepository aggregatedCheckResultRepository,
+                       AggregationProperties properties,
+                       MeterRegistry meterRegistry,
+                       Clock clock) {
+        this.aggregatedCheckResultWriter = aggregatedCheckResultWriter;
+        this.aggregatedCheckResultRepository = aggregatedCheckResultRepository;
+        this.aggregator = new TimeWindowAggregator(properties.getIntervals(), properties.getMaxOutOfOrderness(),
+                properties.getAllowedLateness(), properties.getIdleTimeout(), properties.getAllowedClockSkew(), clock);
+
+        this.windowsSavedCounter = Counter.builder("statistics.aggregation.windows.saved")
+                .description("Closed aggregation windows saved to Cassandra")
+                .register(meterRegistry);
+        this.saveFailedCounter = Counter.builder("statistics.aggregation.save.failed")
+                .description("Failed attempts to save closed aggregation windows")
+                .register(meterRegistry);
+        for (AggregationInterval interval : AggregationInterval.values()) {
+            FunctionCounter.builder("statistics.aggregation.late", aggregator, a -> a.getLateCount(interval))
+                    .description("Check results dropped because their window was already closed")
+                    .tag("interval", interval.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("statistics.aggregation.windows.open", aggregator, TimeWindowAggregator::getOpenWindowCount)
+                .description("Aggregation windows waiting for the watermark")
+                .register(meterRegistry);
+    }
+
     /**
-     * Обработка результата проверки для агрегации
+     * Обработка результата проверки, полученного не из Kafka, для агрегации
      * @param checkResult результат проверки
      */
     public void processCheckResultForAggregation(CheckResult checkResult) {
-        try {
-            // Используем агрегацию по часам по умолчанию
-            String interval = "HOUR";
-            aggregateCheckResult(checkResult, interval);
-            
-            log.debug("Processed check result for aggregation: checkId={}", checkResult.getCheckId());
-        } catch (Exception e) {
-            log.error("Failed to process check result for aggregation: checkId={}", checkResult.getCheckId(), e);
-        }
+        processCheckResultForAggregation(checkResult, NO_PARTITION);
     }
-    
+
     /**
-     * Агрегация результата проверки по заданному интервалу
+     * Обработка результата проверки для агрегации
      * @param checkResult результат проверки
-     * @param interval интервал агрегации (MINUTE, HOUR, DAY, WEEK, MONTH)
+     * @param partition партиция Kafka, из которой получен результат
      */
-    private void aggregateCheckResult(CheckResult checkResult, String interval) {
+    public void processCheckResultForAggregation(CheckResult checkResult, int partition) {
+        if (checkResult.getCheckId() == null || checkResult.getTimestamp() == null) {
+            log.warn("Skipping check result without checkId or timestamp for aggregation");
+            return;
+        }
         try {
-            String key = checkResult.getCheckId() + ":" + interval;
-            AggregationData aggregationData = aggregationDataMap.computeIfAbsent(key, k -> new AggregationData());
-            
-            // Обновляем промежуточные данные
-            aggregationData.update(checkResult);
-            
-            // Проверяем, нужно ли сохранить агрегированные данные
-            if (shouldSaveAggregatedData(checkResult.getTimestamp(), interval, aggregationData)) {
-                saveAggregatedData(checkResult.getCheckId(), interval, aggregationData);
-                // Сбрасываем данные после сохранения
-                aggregationData.reset();
-            }
-            
-            log.debug("Aggregated check result: checkId={}, interval={}", checkResult.getCheckId(), interval);
+            aggregator.add(checkResult, partition);
+            log.debug("Processed check result for aggregation: checkId={}", checkResult.getCheckId());
         } catch (Exception e) {
-            log.error("Failed to aggregate check result: checkId={}, interval={}", checkResult.getCheckId(), interval, e);
+            log.error("Failed to process check result for aggregation: checkId={}", checkResult.getCheckId(), e);
         }
     }
-    
+
     /**
-     * Проверка, нужно ли сохранить агрегированные данные
-     * @param timestamp временная метка результата проверки
-     * @param interval интервал агрегации
-     * @param aggregationData промежуточные данные агрегации
-     * @return true, если нужно сохранить данные
+     * Закрытие окон, пройденных водяным знаком, и сохранение их агрегатов
      */
-    private boolean shouldSaveAggregatedData(LocalDateTime timestamp, String interval, AggregationData aggregationData) {
-        // В реальной реализации здесь должна быть логика определения,
-        // когда сохранять агрегированные данные (например, по истечении интервала)
-        // Для упрощения примера возвращаем true, если накоплено достаточно данных
-        return aggregationData.getCount() >= 10; // Пример: сохраняем каждые 10 записей
+    @Scheduled(fixedDelayString = "${statistics.aggregation.close-interval:10s}")
+    public void closeWindows() {
+        pendingRows.addAll(aggregator.closeWindows());
+        saveClosedWindows();
     }
-    
+
     /**
-     * Сохранение агрегированных данных
-     * @param checkId идентификатор проверки
-     * @param interval интервал агрегации
-     * @param aggregationData промежуточные данные агрегации
+     * Досрочное сохранение открытых окон отозванных партиций
+     * @param partitions номера партиций
      */
-    private void saveAggregatedData(String checkId, String interval, AggregationData aggregationData) {
-        try {
-            AggregatedCheckResult aggregatedCheckResult = new AggregatedCheckResult();
-            
-            // Создаем ключ
-            AggregatedCheckResult.AggregatedCheckResultKey key = new AggregatedCheckResult.AggregatedCheckResultKey();
-            key.setCheckId(checkId);
-            key.setAggregationInterval(interval);
-            key.setTimestamp(LocalDateTime.now()); // В реальной реализации нужно вычислить начало интервала
-            aggregatedCheckResult.setKey(key);
-            
-            // Заполняем поля агрегированными данными
-            aggregatedCheckResult.setUpCount(aggregationData.getUpCount());
-            aggregatedCheckResult.setDownCount(aggregationData.getDownCount());
-            aggregatedCheckResult.setUnknownCount(aggregationData.getUnknownCount());
-            aggregatedCheckResult.setAvgResponseTime(aggregationData.getAvgResponseTime());
-            aggregatedCheckResult.setMinResponseTime(aggregationData.getMinResponseTime());
-            aggregatedCheckResult.setMaxResponseTime(aggregationData.getMaxResponseTime());
-            
-            // Сохраняем в Cassandra
-            aggregatedCheckResultRepository.save(aggregatedCheckResult);
-            
-            log.debug("Saved aggregated data: checkId={}, interval={}", checkId, interval);
-        } catch (Exception e) {
-            log.error("Failed to save aggregated data: checkId={}, interval={}", checkId, interval, e);
-        }
+    public void flushPartitions(Collection<Integer> partitions) {
+        pendingRows.addAll(aggregator.flush(partitions));
+        saveClosedWindows();
     }
-    
+
     /**
-     * Класс для хранения промежуточных данных агрегации
+     * Досрочное сохранение всех открытых окон при остановке. Контейнеры Kafka к этому моменту
+     * уже остановлены, поэтому новых результатов не поступает
      */
-    private static class AggregationData {
-        @Getter
-        private int count = 0;
-        @Getter
-        private int upCount = 0;
-        @Getter
-        private int downCount = 0;
-        @Getter
-        private int unknownCount = 0;
-        private long totalResponseTime = 0;
-        private int minResponseTime = Integer.MAX_VALUE;
-        private int maxResponseTime = Integer.MIN_VALUE;
-        
-        public synchronized void update(CheckResult checkResult) {
-            count++;
-            
-            // Обновляем счетчики статусов
-            switch (checkResult.getStatus()) {
-                case "UP":
-                    upCount++;
-                    break;
-                case "DOWN":
-                    downCount++;
-                    break;
-                default:
-                    unknownCount++;
-                    break;
-            }
-            
-            // Обновляем данные о времени отклика
-            int responseTime = Math.toIntExact(checkResult.getResponseTime());
-            totalResponseTime += responseTime;
-            minResponseTime = Math.min(minResponseTime, responseTime);
-            maxResponseTime = Math.max(maxResponseTime, responseTime);
-        }
-        
-        public synchronized void reset() {
-            count = 0;
-            upCount = 0;
-            downCount = 0;
-            unknownCount = 0;
-            totalResponseTime = 0;
-            minResponseTime = Integer.MAX_VALUE;
-            maxResponseTime = Integer.MIN_VALUE;
+    @PreDestroy
+    public void flushAll() {
+        pendingRows.addAll(aggregator.flushAll());
+        saveClosedWindows();
+        if (!pendingRows.isEmpty()) {
+            log.error("{} aggregation windows were not saved before shutdown", pendingRows.size());
         }
+    }
 
-        public Double getAvgResponseTime() {
-            return count > 0 ? (double) totalResponseTime / count : 0.0;
+    private void saveClosedWindows() {
+        List<ClosedWindow> windows = new ArrayList<>();
+        for (ClosedWindow window; (window = pendingRows.poll()) != null; ) {
+            windows.add(window);
         }
-        
-        public int getMinResponseTime() {
-            return minResponseTime == Integer.MAX_VALUE ? 0 : minResponseTime;
+        if (windows.isEmpty()) {
+            return;
         }
-        
-        public int getMaxResponseTime() {
-            return maxResponseTime == Integer.MIN_VALUE ? 0 : maxResponseTime;
+
+        // Объединенные строки повторяются уже объединенными, чтобы повтор не учел сохраненную часть дважды
+        List<AggregatedCheckResult> rows = new ArrayList<>(windows.size());
+        try {
+            for (ClosedWindow window : windows) {
+                rows.add(window.mergeWithStored() ? mergeWithStored(window.row()) : window.row());
+            }
+            aggregatedCheckResultWriter.writeAll(rows).join();
+            windowsSavedCounter.increment(rows.size());
+            log.debug("Saved {} closed aggregation windows", rows.size());
+        } catch (Exception e) {
+            saveFailedCounter.increment();
+            rows.forEach(row -> pendingRows.add(new ClosedWindow(row, false)));
+            pendingRows.addAll(windows.subList(rows.size(), windows.size()));
+            log.error("Failed to save {} closed aggregation windows, will retry", windows.size(), e);
         }
     }
-}
\ No newline at end of file
+
+    private AggregatedCheckResult mergeWithStored(AggregatedCheckResult row) {
+        AggregatedCheckResult.AggregatedCheckResultKey key = row.getKey();
+        return aggregatedCheckResultRepository.findById(key)
+                .map(stored -> RollupService.merge(key.getCheckId(),
+                        AggregationInterval.valueOf(key.getAggregationInterval()), key.getTimestamp(),
+                        List.of(stored, row)))
+                .orElse(row);
+    }
+}
@@ -0,0 +1,316 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.LatestCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.LatestCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.config.DashboardProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Состояние дашборда в памяти: текущий статус каждой проверки, количество проверок по статусам
+ * и доступность за скользящее окно.
+ * <p>
+ * Состояние обновляется пакетами принятых результатов под блокировкой, после каждого изменения
+ * публикуется неизменяемый снимок. Чтение снимка не блокируется и не обращается к Cassandra.
+ * Доступность считается по минутным счетчикам результатов UP и DOWN в кольцевом буфере
+ * длиной в окно, поэтому память не зависит от количества результатов.
+ * <p>
+ * Экземпляр принимает результаты только своих разделов Kafka, поэтому статусы периодически
+ * сверяются с latest_check_results, общей для всех экземпляров: статусы проверок других разделов
+ * отстают не больше чем на период сверки. Доступность считается только по результатам,
+ * принятым этим экземпляром. Проверки без результатов дольше {@code statusTtl} (удаленные
+ * и отключенные) исключаются из состояния.
+ */
+@Slf4j
+@Service
+public class DashboardService {
+    private static final String UP = "UP";
+    private static final String DOWN = "DOWN";
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final LatestCheckResultRepository latestCheckResultRepository;
+    private final DashboardProperties properties;
+    private final Clock clock;
+
+    // Изменяются только под блокировкой this
+    private final Map<String, CheckStatus> statuses = new HashMap<>();
+    private final Map<String, Integer> statusCounts = new HashMap<>();
+    private final int windowMinutes;
+    private final long[] slotMinutes;
+    private final long[] slotUp;
+    private final long[] slotDown;
+
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, 0, 0.0);
+
+    @Autowired
+    public DashboardService(LatestCheckResultRepository latestCheckResultRepository,
+                            DashboardProperties properties,
+                            MeterRegistry meterRegistry) {
+        this(latestCheckResultRepository, properties, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    DashboardService(LatestCheckResultRepository latestCheckResultRepository,
+                     DashboardProperties properties,
+                     MeterRegistry meterRegistry,
+                     Clock clock) {
+        this.latestCheckResultRepository = latestCheckResultRepository;
+        this.properties = properties;
+        this.clock = clock;
+        this.windowMinutes = (int) Math.max(1, properties.getUptimeWindow().toMinutes());
+        this.slotMinutes = new long[windowMinutes];
+        this.slotUp = new long[windowMinutes];
+        this.slotDown = new long[windowMinutes];
+        Arrays.fill(slotMinutes, Long.MIN_VALUE);
+
+        Gauge.builder("statistics.dashboard.checks", this, s -> s.snapshot.upChecks())
+                .description("Checks by current status")
+                .tag("status", UP)
+                .register(meterRegistry);
+        Gauge.builder("statistics.dashboard.checks", this, s -> s.snapshot.downChecks())
+                .description("Checks by current status")
+                .tag("status", DOWN)
+                .register(meterRegistry);
+        Gauge.builder("statistics.dashboard.checks", this, s -> s.snapshot.unknownChecks())
+                .description("Checks by current status")
+                .tag("status", UNKNOWN)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Учет пакета принятых результатов. Статус проверки заменяется только более новым результатом,
+     * результаты старше окна доступности в ней не учитываются
+     * @param checkResults результаты проверок в любом порядке
+     * @return смены статусов проверок в порядке учета, включая первый результат проверки
+     */
+    public synchronized List<StatusTransition> apply(Collection<CheckResult> checkResults) {
+        List<StatusTransition> transitions = new ArrayList<>();
+        long nowMinute = toEpochMinute(LocalDateTime.now(clock));
+        for (CheckResult checkResult : checkResults) {
+            if (checkResult.getCheckId() == null || checkResult.getTimestamp() == null) {
+                continue;
+            }
+            String status = normalize(checkResult.getStatus());
+            StatusTransition transition = updateStatus(checkResult.getCheckId(), status, checkResult.getTimestamp());
+            if (transition != null) {
+                transitions.add(transition);
+            }
+            countForUptime(status, toEpochMinute(checkResult.getTimestamp()), nowMinute);
+        }
+        publish(nowMinute);
+        return transitions;
+    }
+
+    /**
+     * Текущие статусы проверок
+     * @param checkIds идентификаторы проверок
+     * @return статусы известных проверок; время смены — время результата, с которого статус действует
+     */
+    public synchronized List<StatusTransition> currentStatuses(Collection<String> checkIds) {
+        List<StatusTransition> current = new ArrayList<>();
+        for (String checkId : checkIds) {
+            CheckStatus status = statuses.get(checkId);
+            if (status != null) {
+                current.add(new StatusTransition(checkId, null, status.status(), status.since(), null));
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Текущий снимок данных дашборда
+     * @return данные дашборда; доступность в процентах результатов UP среди результатов UP и DOWN за окно
+     */
+    public StatisticsRetrievalService.DashboardData snapshot() {
+        Snapshot current = snapshot;
+        StatisticsRetrievalService.DashboardData data = new StatisticsRetrievalService.DashboardData();
+        data.setTotalChecks(current.totalChecks());
+        data.setUpChecks(current.upChecks());
+        data.setDownChecks(current.downChecks());
+        data.setUnknownChecks(current.unknownChecks());
+        data.setOverallUptime(current.overallUptime());
+        return data;
+    }
+
+    /**
+     * Пересчет снимка, чтобы минуты, вышедшие из окна, перестали учитываться без новых результатов
+     */
+    @Scheduled(fixedDelayString = "${statistics.dashboard.refresh-interval:10s}")
+    public synchronized void refresh() {
+        publish(toEpochMinute(LocalDateTime.now(clock)));
+    }
+
+    /**
+     * Восстановление статусов проверок из latest_check_results при запуске. Результаты, принятые
+     * во время восстановления, не заменяются более старыми строками таблицы. Начало действия
+     * восстановленного статуса неизвестно и принимается равным времени результата. Доступность
+     * за окно накапливается заново по мере приема результатов
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmStart() {
+        if (!properties.isWarmStart()) {
+            return;
+        }
+        try {
+            log.info("Restored dashboard state for {} checks", loadLatest());
+        } catch (Exception e) {
+            // Состояние дополнится по мере приема результатов
+            log.error("Failed to restore dashboard state from latest check results", e);
+        }
+    }
+
+    /**
+     * Сверка статусов с latest_check_results и исключение проверок без результатов дольше statusTtl.
+     * Смены статусов, найденные при сверке, не публикуются подписчикам: время смены неизвестно
+     */
+    @Scheduled(fixedDelayString = "${statistics.dashboard.resync-interval:1m}",
+            initialDelayString = "${statistics.dashboard.resync-interval:1m}")
+    public void resync() {
+        if (properties.isResync()) {
+            try {
+                loadLatest();
+            } catch (Exception e) {
+                log.error("Failed to resync dashboard state with latest check results", e);
+            }
+        }
+        prune();
+    }
+
+    /**
+     * Чтение latest_check_results постранично; строки старше statusTtl пропускаются
+     * @return количество учтенных строк
+     */
+    private int loadLatest() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(properties.getStatusTtl());
+        int loaded = 0;
+        Pageable pageable = CassandraPageRequest.first(properties.getWarmStartPageSize());
+        Slice<LatestCheckResult> slice;
+        do {
+            slice = latestCheckResultRepository.findAll(pageable);
+            synchronized (this) {
+                for (LatestCheckResult latest : slice) {
+                    if (latest.getCheckId() != null && latest.getTimestamp() != null
+                            && !latest.getTimestamp().isBefore(cutoff)) {
+                        updateStatus(latest.getCheckId(), normalize(latest.getStatus()), latest.getTimestamp());
+                        loaded++;
+                    }
+                }
+                publish(toEpochMinute(LocalDateTime.now(clock)));
+            }
+            pageable = slice.nextPageable();
+        } while (slice.hasNext());
+        return loaded;
+    }
+
+    private synchronized void prune() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime cutoff = now.minus(properties.getStatusTtl());
+        int removed = 0;
+        Iterator<CheckStatus> iterator = statuses.values().iterator();
+        while (iterator.hasNext()) {
+            CheckStatus status = iterator.next();
+            if (status.timestamp().isBefore(cutoff)) {
+                statusCounts.merge(status.status(), -1, Integer::sum);
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} checks without results since {} from dashboard state", removed, cutoff);
+            publish(toEpochMinute(now));
+        }
+    }
+
+    private StatusTransition updateStatus(String checkId, String status, LocalDateTime timestamp) {
+        CheckStatus current = statuses.get(checkId);
+        if (current != null && !timestamp.isAfter(current.timestamp())) {
+            return null;
+        }
+        if (current != null && current.status().equals(status)) {
+            statuses.put(checkId, new CheckStatus(status, timestamp, current.since()));
+            return null;
+        }
+        if (current != null) {
+            statusCounts.merge(current.status(), -1, Integer::sum);
+        }
+        statusCounts.merge(status, 1, Integer::sum);
+        statuses.put(checkId, new CheckStatus(status, timestamp, timestamp));
+        return current != null
+                ? new StatusTransition(checkId, current.status(), status, timestamp, current.since())
+                : new StatusTransition(checkId, null, status, timestamp, null);
+    }
+
+    private void countForUptime(String status, long eventMinute, long nowMinute) {
+        if (UNKNOWN.equals(status)) {
+            return;
+        }
+        // Результаты с опережающими часами учитываются в текущей минуте
+        long minute = Math.min(eventMinute, nowMinute);
+        if (minute <= nowMinute - windowMinutes) {
+            return;
+        }
+        int slot = (int) Math.floorMod(minute, (long) windowMinutes);
+        if (slotMinutes[slot] != minute) {
+            slotMinutes[slot] = minute;
+            slotUp[slot] = 0;
+            slotDown[slot] = 0;
+        }
+        if (UP.equals(status)) {
+            slotUp[slot]++;
+        } else {
+            slotDown[slot]++;
+        }
+    }
+
+    private void publish(long nowMinute) {
+        long up = 0;
+        long down = 0;
+        for (int slot = 0; slot < windowMinutes; slot++) {
+            if (slotMinutes[slot] > nowMinute - windowMinutes) {
+                up += slotUp[slot];
+                down += slotDown[slot];
+            }
+        }
+        double uptime = up + down == 0 ? 0.0 : up * 100.0 / (up + down);
+        snapshot = new Snapshot(statuses.size(), statusCounts.getOrDefault(UP, 0),
+                statusCounts.getOrDefault(DOWN, 0), statusCounts.getOrDefault(UNKNOWN, 0), uptime);
+    }
+
+    private static String normalize(String status) {
+        return UP.equals(status) || DOWN.equals(status) ? status : UNKNOWN;
+    }
+
+    private static long toEpochMinute(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    /**
+     * @param timestamp время последнего учтенного результата
+     * @param since время результата, с которого действует статус
+     */
+    private record CheckStatus(String status, LocalDateTime timestamp, LocalDateTime since) {
+    }
+
+    private record Snapshot(int totalChecks, int upChecks, int downChecks, int unknownChecks, double overallUptime) {
+    }
+}
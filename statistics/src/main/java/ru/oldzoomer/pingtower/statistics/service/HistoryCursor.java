@@ -0,0 +1,68 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Позиция в истории результатов проверки: интервал (bucket) и состояние страницы Cassandra внутри него.
+ * Для клиента курсор непрозрачен и передается строкой base64url:
+ * <pre>
+ * version (1 байт) | bucket (8 байт, миллисекунды эпохи, LocalDateTime как UTC) | paging state (остаток)
+ * </pre>
+ * Пустое состояние страницы означает начало интервала.
+ */
+final class HistoryCursor {
+    private static final byte VERSION = 1;
+
+    private final LocalDateTime bucket;
+    private final ByteBuffer pagingState;
+
+    HistoryCursor(LocalDateTime bucket, ByteBuffer pagingState) {
+        this.bucket = bucket;
+        this.pagingState = pagingState;
+    }
+
+    LocalDateTime getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Состояние страницы внутри интервала, null — начало интервала
+     */
+    ByteBuffer getPagingState() {
+        return pagingState;
+    }
+
+    String encode() {
+        ByteBuffer state = pagingState != null ? pagingState.duplicate() : ByteBuffer.allocate(0);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + state.remaining());
+        buffer.put(VERSION);
+        buffer.putLong(bucket.toInstant(ZoneOffset.UTC).toEpochMilli());
+        buffer.put(state);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Восстановление курсора
+     * @param cursor строковое представление
+     * @return курсор
+     * @throws IllegalArgumentException если строка не является курсором поддерживаемой версии
+     */
+    static HistoryCursor decode(String cursor) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported history cursor version");
+            }
+            LocalDateTime bucket = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+            ByteBuffer pagingState = buffer.hasRemaining() ? buffer.slice() : null;
+            return new HistoryCursor(bucket, pagingState);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed history cursor", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.pingtower.statistics.config.LatestResultProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Локальный кэш последних результатов проверок ограниченного размера.
+ * <p>
+ * Записи обновляются потоком приема результатов ({@link #update(CheckResult)}), поэтому для
+ * проверок, результаты которых принимает этот экземпляр, кэш не устаревает и чтение не обращается
+ * к Cassandra. Отсутствие результата тоже кэшируется, чтобы проверки без результатов не
+ * запрашивались при каждом опросе. Кэш отдельный от Spring Cache (Redis): обращение к нему
+ * не требует сетевого запроса.
+ */
+@Component
+public class LatestCheckResultCache {
+    private final Cache<String, Optional<CheckResult>> cache;
+
+    public LatestCheckResultCache(LatestResultProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "latestCheckResults");
+    }
+
+    /**
+     * Последний результат проверки
+     * @param checkId идентификатор проверки
+     * @param loader загрузка при отсутствии в кэше, null — результатов нет
+     * @return последний результат или null
+     */
+    public CheckResult get(String checkId, Function<String, CheckResult> loader) {
+        return cache.get(checkId, id -> Optional.ofNullable(loader.apply(id))).orElse(null);
+    }
+
+    /**
+     * Последние результаты нескольких проверок; отсутствующие в кэше загружаются одним вызовом
+     * @param checkIds идентификаторы проверок
+     * @param loader загрузка отсутствующих в кэше проверок, проверки без результатов не включаются
+     * @return последние результаты проверок, у которых они есть
+     */
+    public Map<String, CheckResult> getAll(Collection<String> checkIds,
+                                           Function<Set<String>, Map<String, CheckResult>> loader) {
+        Map<String, Optional<CheckResult>> cached = cache.getAll(checkIds, missing -> {
+            @SuppressWarnings("unchecked")
+            Map<String, CheckResult> loaded = loader.apply((Set<String>) missing);
+            Map<String, Optional<CheckResult>> values = new HashMap<>();
+            for (String checkId : missing) {
+                values.put(checkId, Optional.ofNullable(loaded.get(checkId)));
+            }
+            return values;
+        });
+
+        Map<String, CheckResult> results = new LinkedHashMap<>();
+        cached.forEach((checkId, value) -> value.ifPresent(result -> results.put(checkId, result)));
+        return results;
+    }
+
+    /**
+     * Обновление записи принятым результатом, если он новее кэшированного
+     * @param checkResult результат проверки
+     */
+    public void update(CheckResult checkResult) {
+        if (checkResult.getCheckId() == null || checkResult.getTimestamp() == null) {
+            return;
+        }
+        cache.asMap().merge(checkResult.getCheckId(), Optional.of(checkResult), (current, candidate) ->
+                current.isPresent() && current.get().getTimestamp() != null
+                        && current.get().getTimestamp().isAfter(checkResult.getTimestamp())
+                        ? current
+                        : candidate);
+    }
+}
@@ -0,0 +1,351 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.DeleteOptions;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.cassandra.core.UpdateOptions;
+import org.springframework.data.cassandra.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+import ru.oldzoomer.pingtower.statistics.aggregation.LatencySketch;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupCheckpoint;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupLateWindow;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupPendingCheck;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.AggregatedCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.RollupCheckpointRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.RollupLateWindowRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.RollupPendingCheckRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.AggregatedCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.RollupProperties;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение агрегатов крупных уровней из агрегатов предыдущего уровня: MINUTE → HOUR → DAY → MONTH.
+ * <p>
+ * Для каждого уровня хранится граница {@link RollupCheckpoint}: окна до нее уже построены.
+ * Окно строится, только когда завершены все окна предыдущего уровня внутри него: для HOUR —
+ * по истечении {@code grace} после конца окна (окна MINUTE к этому времени сохранены потоковой
+ * агрегацией), для остальных — когда граница предыдущего уровня прошла конец окна.
+ * После построения граница сдвигается условным обновлением, поэтому каждое окно вычисляется
+ * один раз; при одновременной работе нескольких экземпляров окно может быть вычислено повторно,
+ * но запись агрегата идемпотентна.
+ * <p>
+ * Агрегаты MINUTE могут быть записаны и после grace: после перебалансировки, перезапуска или
+ * отставания раздела окно сохраняется повторно вместе с сохраненной строкой. Для таких окон
+ * писатель агрегатов оставляет отметку aggregation_rollup_late, и уже построенное окно
+ * строится повторно; окно следующего уровня, если оно тоже уже построено, отмечается так же.
+ * <p>
+ * Проверки окна берутся из отметок aggregation_rollup_pending, а не перебором всех проверок.
+ * Агрегаты записываются с TTL уровня, поэтому мелкие уровни хранятся недолго, а для длинных
+ * периодов читаются несколько строк крупного уровня.
+ */
+@Slf4j
+@Service
+public class RollupService {
+    private final AggregatedCheckResultRepository aggregatedCheckResultRepository;
+    private final RollupPendingCheckRepository rollupPendingCheckRepository;
+    private final RollupCheckpointRepository rollupCheckpointRepository;
+    private final RollupLateWindowRepository rollupLateWindowRepository;
+    private final CassandraOperations cassandraOperations;
+    private final AggregatedCheckResultWriter aggregatedCheckResultWriter;
+    private final RollupProperties properties;
+    private final Clock clock;
+
+    private final Map<AggregationInterval, Counter> windowCounters = new EnumMap<>(AggregationInterval.class);
+    private final Map<AggregationInterval, Counter> rebuiltCounters = new EnumMap<>(AggregationInterval.class);
+    private final Timer windowTimer;
+
+    @Autowired
+    public RollupService(AggregatedCheckResultRepository aggregatedCheckResultRepository,
+                         RollupPendingCheckRepository rollupPendingCheckRepository,
+                         RollupCheckpointRepository rollupCheckpointRepository,
+                         RollupLateWindowRepository rollupLateWindowRepository,
+                         CassandraOperations cassandraOperations,
+                         AggregatedCheckResultWriter aggregatedCheckResultWriter,
+                         RollupProperties properties,
+                         MeterRegistry meterRegistry) {
+        this(aggregatedCheckResultRepository, rollupPendingCheckRepository, rollupCheckpointRepository,
+                rollupLateWindowRepository, cassandraOperations, aggregatedCheckResultWriter, properties, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    RollupService(AggregatedCheckResultRepository aggregatedCheckResultRepository,
+                  RollupPendingCheckRepository rollupPendingCheckRepository,
+                  RollupCheckpointRepository rollupCheckpointRepository,
+                  RollupLateWindowRepository rollupLateWindowRepository,
+                  CassandraOperations cassandraOperations,
+                  AggregatedCheckResultWriter aggregatedCheckResultWriter,
+                  RollupProperties properties,
+                  MeterRegistry meterRegistry,
+                  Clock clock) {
+        this.aggregatedCheckResultRepository = aggregatedCheckResultRepository;
+        this.rollupPendingCheckRepository = rollupPendingCheckRepository;
+        this.rollupCheckpointRepository = rollupCheckpointRepository;
+        this.rollupLateWindowRepository = rollupLateWindowRepository;
+        this.cassandraOperations = cassandraOperations;
+        this.aggregatedCheckResultWriter = aggregatedCheckResultWriter;
+        this.properties = properties;
+        this.clock = clock;
+
+        for (AggregationInterval level : AggregationInterval.values()) {
+            if (level.finer() != null) {
+                windowCounters.put(level, Counter.builder("statistics.rollup.windows")
+                        .description("Rollup windows built from the finer level")
+                        .tag("level", level.name())
+                        .register(meterRegistry));
+                rebuiltCounters.put(level, Counter.builder("statistics.rollup.windows.rebuilt")
+                        .description("Already built rollup windows rebuilt after late finer-level aggregates")
+                        .tag("level", level.name())
+                        .register(meterRegistry));
+            }
+        }
+        this.windowTimer = Timer.builder("statistics.rollup.window.duration")
+                .description("Time to build one rollup window for all checks")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Построение завершенных окон всех уровней, от мелких к крупным
+     */
+    @Scheduled(fixedDelayString = "${statistics.rollup.interval:1m}")
+    public void rollUp() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<AggregationInterval, LocalDateTime> checkpoints = new EnumMap<>(AggregationInterval.class);
+        for (AggregationInterval level : AggregationInterval.values()) {
+            if (level.finer() == null) {
+                continue;
+            }
+            try {
+                rebuildLateWindows(level);
+                checkpoints.put(level, rollUpLevel(level, checkpoints.get(level.finer())));
+            } catch (Exception e) {
+                // Следующие уровни зависят от этого, поэтому не строятся до следующего запуска
+                log.error("Failed to roll up level {}", level, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Построение завершенных окон уровня
+     * @param level уровень
+     * @param sourceCheckpoint граница предыдущего уровня или null, если он строится потоковой агрегацией
+     * @return новая граница уровня
+     */
+    LocalDateTime rollUpLevel(AggregationInterval level, LocalDateTime sourceCheckpoint) {
+        LocalDateTime windowStart = loadCheckpoint(level);
+        for (int windows = 0; windows < properties.getMaxWindowsPerRun() && isComplete(level, windowStart, sourceCheckpoint); windows++) {
+            LocalDateTime windowEnd = level.end(windowStart);
+            rollUpWindow(level, windowStart);
+            if (!advanceCheckpoint(level, windowStart, windowEnd)) {
+                log.info("Rollup checkpoint of level {} was moved by another instance", level);
+                return loadCheckpoint(level);
+            }
+            windowStart = windowEnd;
+        }
+        return windowStart;
+    }
+
+    /**
+     * Повторное построение уже построенных окон уровня, отмеченных как поздние.
+     * Отметки окон после границы остаются до тех пор, пока граница их не пройдет
+     * @param level уровень
+     */
+    void rebuildLateWindows(AggregationInterval level) {
+        LocalDateTime checkpoint = loadCheckpoint(level);
+        int windows = 0;
+        for (RollupLateWindow late : rollupLateWindowRepository.findByKeyLevel(level.name())) {
+            LocalDateTime windowStart = late.getKey().getWindowStart();
+            if (!windowStart.isBefore(checkpoint)) {
+                // Отметки упорядочены по началу окна, дальше только непостроенные окна
+                break;
+            }
+            if (windows++ >= properties.getMaxWindowsPerRun()) {
+                break;
+            }
+            rollUpWindow(level, windowStart);
+            markCoarserLate(level, windowStart);
+            // Отметка, перезаписанная во время построения, остается до следующего запуска
+            cassandraOperations.delete(late, DeleteOptions.builder()
+                    .ifCondition(Criteria.where("marker").is(late.getMarker()))
+                    .build());
+            rebuiltCounters.get(level).increment();
+            log.info("Rebuilt {} window {} after late {} aggregates", level, windowStart, level.finer());
+        }
+    }
+
+    /**
+     * Отметка окна следующего уровня, если оно уже построено из прежних агрегатов
+     */
+    private void markCoarserLate(AggregationInterval level, LocalDateTime windowStart) {
+        AggregationInterval coarser = level.coarser();
+        if (coarser == null) {
+            return;
+        }
+        LocalDateTime coarserStart = coarser.start(windowStart);
+        boolean built = rollupCheckpointRepository.findById(coarser.name())
+                .map(checkpoint -> coarserStart.isBefore(checkpoint.getCompletedUntil()))
+                .orElse(false);
+        if (!built) {
+            return;
+        }
+        RollupLateWindow.RollupLateWindowKey key = new RollupLateWindow.RollupLateWindowKey();
+        key.setLevel(coarser.name());
+        key.setWindowStart(coarserStart);
+        RollupLateWindow late = new RollupLateWindow();
+        late.setKey(key);
+        late.setMarker(UUID.randomUUID());
+        cassandraOperations.insert(late, InsertOptions.builder().ttl(properties.getPendingTtl()).build());
+    }
+
+    private boolean isComplete(AggregationInterval level, LocalDateTime windowStart, LocalDateTime sourceCheckpoint) {
+        LocalDateTime windowEnd = level.end(windowStart);
+        if (level.finer() == AggregationInterval.MINUTE) {
+            return !LocalDateTime.now(clock).isBefore(windowEnd.plus(properties.getGrace()));
+        }
+        return sourceCheckpoint != null && !sourceCheckpoint.isBefore(windowEnd);
+    }
+
+    /**
+     * Построение одного окна уровня для всех проверок с данными в нем
+     */
+    private void rollUpWindow(AggregationInterval level, LocalDateTime windowStart) {
+        long startTime = System.nanoTime();
+        AggregationInterval source = level.finer();
+        LocalDateTime windowEnd = level.end(windowStart);
+
+        List<AggregatedCheckResult> rows = new ArrayList<>();
+        for (RollupPendingCheck pending : rollupPendingCheckRepository.findByKeyLevelAndKeyWindowStart(level.name(), windowStart)) {
+            String checkId = pending.getKey().getCheckId();
+            List<AggregatedCheckResult> sourceRows = aggregatedCheckResultRepository
+                    .findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampGreaterThanEqualAndKeyTimestampLessThan(
+                            checkId, source.name(), windowStart, windowEnd);
+            if (!sourceRows.isEmpty()) {
+                rows.add(merge(checkId, level, windowStart, sourceRows));
+            }
+        }
+        aggregatedCheckResultWriter.writeAll(rows).join();
+
+        windowTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        windowCounters.get(level).increment();
+        log.debug("Rolled up {} window {} for {} checks", level, windowStart, rows.size());
+    }
+
+    /**
+     * Объединение агрегатов предыдущего уровня в агрегат окна
+     * @param checkId идентификатор проверки
+     * @param level уровень окна
+     * @param windowStart начало окна
+     * @param sourceRows агрегаты предыдущего уровня внутри окна
+     * @return агрегат окна
+     */
+    static AggregatedCheckResult merge(String checkId, AggregationInterval level, LocalDateTime windowStart,
+                                       List<AggregatedCheckResult> sourceRows) {
+        long upCount = 0;
+        long downCount = 0;
+        long unknownCount = 0;
+        double totalResponseTime = 0;
+        Integer minResponseTime = null;
+        Integer maxResponseTime = null;
+        LatencySketch sketch = new LatencySketch();
+        boolean sketchComplete = true;
+
+        for (AggregatedCheckResult row : sourceRows) {
+            long up = row.getUpCount() != null ? row.getUpCount() : 0;
+            long down = row.getDownCount() != null ? row.getDownCount() : 0;
+            long unknown = row.getUnknownCount() != null ? row.getUnknownCount() : 0;
+            upCount += up;
+            downCount += down;
+            unknownCount += unknown;
+            if (row.getAvgResponseTime() != null) {
+                totalResponseTime += row.getAvgResponseTime() * (up + down + unknown);
+            }
+            if (row.getMinResponseTime() != null && (minResponseTime == null || row.getMinResponseTime() < minResponseTime)) {
+                minResponseTime = row.getMinResponseTime();
+            }
+            if (row.getMaxResponseTime() != null && (maxResponseTime == null || row.getMaxResponseTime() > maxResponseTime)) {
+                maxResponseTime = row.getMaxResponseTime();
+            }
+            if (row.getLatencySketch() != null) {
+                sketch.merge(LatencySketch.fromBytes(row.getLatencySketch()));
+            } else {
+                sketchComplete = false;
+            }
+        }
+
+        AggregatedCheckResult.AggregatedCheckResultKey key = new AggregatedCheckResult.AggregatedCheckResultKey();
+        key.setCheckId(checkId);
+        key.setAggregationInterval(level.name());
+        key.setTimestamp(windowStart);
+
+        AggregatedCheckResult result = new AggregatedCheckResult();
+        result.setKey(key);
+        result.setUpCount(Math.toIntExact(upCount));
+        result.setDownCount(Math.toIntExact(downCount));
+        result.setUnknownCount(Math.toIntExact(unknownCount));
+        long count = upCount + downCount + unknownCount;
+        result.setAvgResponseTime(count > 0 ? totalResponseTime / count : 0.0);
+        result.setMinResponseTime(minResponseTime != null ? minResponseTime : 0);
+        result.setMaxResponseTime(maxResponseTime != null ? maxResponseTime : 0);
+        // Эскиз по части окон исказил бы перцентили, поэтому он сохраняется, только если есть у всех строк
+        if (sketchComplete) {
+            result.setLatencySketch(ByteBuffer.wrap(sketch.toBytes()));
+        }
+        return result;
+    }
+
+    /**
+     * Начало первого непостроенного окна уровня. При первом запуске строится только последнее
+     * завершенное окно, более ранние данные на момент включения не перестраиваются
+     */
+    private LocalDateTime loadCheckpoint(AggregationInterval level) {
+        return rollupCheckpointRepository.findById(level.name())
+                .map(RollupCheckpoint::getCompletedUntil)
+                .orElseGet(() -> {
+                    RollupCheckpoint checkpoint = new RollupCheckpoint();
+                    checkpoint.setLevel(level.name());
+                    checkpoint.setCompletedUntil(previousWindowStart(level));
+                    cassandraOperations.insert(checkpoint, InsertOptions.builder().withIfNotExists().build());
+                    // Если граница уже создана другим экземпляром, используется она
+                    return rollupCheckpointRepository.findById(level.name())
+                            .map(RollupCheckpoint::getCompletedUntil)
+                            .orElse(checkpoint.getCompletedUntil());
+                });
+    }
+
+    private LocalDateTime previousWindowStart(AggregationInterval level) {
+        LocalDateTime current = level.start(LocalDateTime.now(clock));
+        return level.start(current.minusNanos(1));
+    }
+
+    /**
+     * Условный сдвиг границы уровня
+     * @return false, если граница уже была сдвинута другим экземпляром
+     */
+    private boolean advanceCheckpoint(AggregationInterval level, LocalDateTime expected, LocalDateTime completedUntil) {
+        RollupCheckpoint checkpoint = new RollupCheckpoint();
+        checkpoint.setLevel(level.name());
+        checkpoint.setCompletedUntil(completedUntil);
+        return cassandraOperations.update(checkpoint, UpdateOptions.builder()
+                        .ifCondition(Criteria.where("completed_until").is(expected))
+                        .build())
+                .wasApplied();
+    }
+}
@@ -5,17 +5,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.RawCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.LatestCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.RawCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StatisticsProcessingService {
     private final RawCheckResultRepository rawCheckResultRepository;
+    private final RawCheckResultWriter rawCheckResultWriter;
+    private final LatestCheckResultWriter latestCheckResultWriter;
+    private final LatestCheckResultCache latestCheckResultCache;
+    private final DashboardService dashboardService;
+    private final StatusStreamService statusStreamService;
     private final AggregationService aggregationService;
+    private final RawStorageProperties rawStorageProperties;
     
     /**
      * Обработка результата проверки
@@ -35,50 +45,91 @@ public class StatisticsProcessingService {
         }
     }
     
+    /**
+     * Пакетная обработка результатов проверок, полученных из Kafka.
+     * В отличие от {@link #processCheckResult(CheckResult)} ошибка записи в Cassandra пробрасывается,
+     * чтобы смещения не были зафиксированы и пакет был прочитан повторно.
+     * Агрегация выполняется только после записи всего пакета, а шаги после записи (кэш, статусы,
+     * агрегация) ошибок не пробрасывают: пакет повторяется, только пока он не передан в агрегацию,
+     * и результаты не учитываются в агрегатах дважды.
+     * @param checkResultsByPartition результаты проверок по партициям Kafka; партиции нужны
+     *                                водяному знаку агрегации
+     */
+    public void processCheckResults(Map<Integer, List<CheckResult>> checkResultsByPartition) {
+        List<CheckResult> checkResults = checkResultsByPartition.values().stream()
+                .flatMap(List::stream)
+                .toList();
+        if (checkResults.isEmpty()) {
+            return;
+        }
+        // Обе записи идемпотентны (ключ check_id + timestamp, время записи последнего результата
+        // равно времени результата), повтор пакета безопасен
+        CompletableFuture.allOf(
+                rawCheckResultWriter.writeAll(checkResults),
+                latestCheckResultWriter.writeAll(checkResults)).join();
+        log.debug("Saved {} raw check results to Cassandra", checkResults.size());
+
+        try {
+            checkResults.forEach(latestCheckResultCache::update);
+            statusStreamService.publish(dashboardService.apply(checkResults));
+        } catch (Exception e) {
+            log.error("Failed to update latest statuses for batch of {} check results", checkResults.size(), e);
+        }
+        checkResultsByPartition.forEach((partition, partitionResults) -> {
+            for (CheckResult checkResult : partitionResults) {
+                try {
+                    aggregationService.processCheckResultForAggregation(checkResult, partition);
+                } catch (Exception e) {
+                    log.error("Failed to aggregate check result: checkId={}", checkResult.getCheckId(), e);
+                }
+            }
+        });
+    }
+
     /**
      * Сохранение сырых данных результата проверки в Cassandra
      * @param checkResult результат проверки
      */
     private void saveRawCheckResult(CheckResult checkResult) {
         try {
-            RawCheckResult rawCheckResult = new RawCheckResult();
-            
-            // Создаем ключ
-            RawCheckResult.RawCheckResultKey key = new RawCheckResult.RawCheckResultKey();
-            key.setCheckId(checkResult.getCheckId());
-            key.setTimestamp(checkResult.getTimestamp());
-            rawCheckResult.setKey(key);
-            
-            // Заполняем поля
-            rawCheckResult.setStatus(checkResult.getStatus());
-            rawCheckResult.setResponseTime(Math.toIntExact(checkResult.getResponseTime()));
-            rawCheckResult.setHttpStatusCode(checkResult.getHttpStatusCode());
-            rawCheckResult.setErrorMessage(checkResult.getErrorMessage());
-            
-            // Преобразуем метрики в Map
-            if (checkResult.getMetrics() != null) {
-                Map<String, String> metricsMap = getMetricsMap(checkResult);
-                rawCheckResult.setMetrics(metricsMap);
-            }
-            
             // Сохраняем в Cassandra
-            rawCheckResultRepository.save(rawCheckResult);
+            rawCheckResultRepository.save(toRawCheckResult(checkResult));
             log.debug("Saved raw check result to Cassandra: checkId={}", checkResult.getCheckId());
         } catch (Exception e) {
             log.error("Failed to save raw check result to Cassandra: checkId={}", checkResult.getCheckId(), e);
         }
     }
 
-    private static Map<String, String> getMetricsMap(CheckResult checkResult) {
-        Map<String, String> metricsMap = new HashMap<>();
-        metricsMap.put("connectionTime", String.valueOf(checkResult.getMetrics().getConnectionTime()));
-        metricsMap.put("timeToFirstByte", String.valueOf(checkResult.getMetrics().getTimeToFirstByte()));
-        if (checkResult.getMetrics().getSslValid() != null) {
-            metricsMap.put("sslValid", String.valueOf(checkResult.getMetrics().getSslValid()));
-        }
-        if (checkResult.getMetrics().getSslExpirationDate() != null) {
-            metricsMap.put("sslExpirationDate", checkResult.getMetrics().getSslExpirationDate().toString());
+    private RawCheckResult toRawCheckResult(CheckResult checkResult) {
+        RawCheckResult rawCheckResult = new RawCheckResult();
+
+        // Создаем ключ
+        RawCheckResult.RawCheckResultKey key = new RawCheckResult.RawCheckResultKey();
+        key.setCheckId(checkResult.getCheckId());
+        key.setBucket(rawStorageProperties.getBucket().start(checkResult.getTimestamp()));
+        key.setTimestamp(checkResult.getTimestamp());
+        rawCheckResult.setKey(key);
+
+        // Заполняем поля
+        rawCheckResult.setStatus(checkResult.getStatus());
+        rawCheckResult.setResponseTime(Math.toIntExact(checkResult.getResponseTime()));
+        rawCheckResult.setHttpStatusCode(checkResult.getHttpStatusCode());
+        rawCheckResult.setErrorMessage(checkResult.getErrorMessage());
+
+        // Метрики сохраняются в типизированные колонки
+        CheckResult.Metrics metrics = checkResult.getMetrics();
+        if (metrics != null) {
+            rawCheckResult.setConnectionTime(metrics.getConnectionTime());
+            rawCheckResult.setTimeToFirstByte(metrics.getTimeToFirstByte());
+            rawCheckResult.setSslValid(metrics.getSslValid());
+            rawCheckResult.setSslExpirationDate(metrics.getSslExpirationDate());
+            rawCheckResult.setDnsLookupNanos(metrics.getDnsLookupNanos());
+            rawCheckResult.setTcpConnectNanos(metrics.getTcpConnectNanos());
+            rawCheckResult.setTlsHandshakeNanos(metrics.getTlsHandshakeNanos());
+            rawCheckResult.setRequestWriteNanos(metrics.getRequestWriteNanos());
+            rawCheckResult.setTimeToFirstByteNanos(metrics.getTimeToFirstByteNanos());
+            rawCheckResult.setDownloadNanos(metrics.getDownloadNanos());
         }
-        return metricsMap;
+        return rawCheckResult;
     }
 }
\ No newline at end of file
@@ -1,92 +1,284 @@
 package ru.oldzoomer.pingtower.statistics.service;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.cassandra.core.query.Criteria;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+import ru.oldzoomer.pingtower.statistics.aggregation.LatencySketch;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.LatestCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.TimeBucket;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.AggregatedCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.LatestCheckResultRepository;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.RawCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.config.BulkReadProperties;
+import ru.oldzoomer.pingtower.statistics.config.LatestResultProperties;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
+import ru.oldzoomer.pingtower.statistics.dto.AggregatedStatistics;
+import ru.oldzoomer.pingtower.statistics.dto.CheckHistoryPage;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.dto.CheckStatistics;
 
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class StatisticsRetrievalService {
     private final RawCheckResultRepository rawCheckResultRepository;
     private final AggregatedCheckResultRepository aggregatedCheckResultRepository;
+    private final Executor rawReadExecutor;
+    private final RawStorageProperties rawStorageProperties;
+    private final LatestCheckResultRepository latestCheckResultRepository;
+    private final LatestCheckResultCache latestCheckResultCache;
+    private final LatestResultProperties latestResultProperties;
+    private final DashboardService dashboardService;
+    private final AsyncCassandraOperations asyncCassandraOperations;
+    private final BulkReadProperties bulkReadProperties;
+
+    public StatisticsRetrievalService(RawCheckResultRepository rawCheckResultRepository,
+                                      AggregatedCheckResultRepository aggregatedCheckResultRepository,
+                                      @Qualifier("rawReadExecutor") Executor rawReadExecutor,
+                                      RawStorageProperties rawStorageProperties,
+                                      LatestCheckResultRepository latestCheckResultRepository,
+                                      LatestCheckResultCache latestCheckResultCache,
+                                      LatestResultProperties latestResultProperties,
+                                      DashboardService dashboardService,
+                                      AsyncCassandraOperations asyncCassandraOperations,
+                                      BulkReadProperties bulkReadProperties) {
+        this.rawCheckResultRepository = rawCheckResultRepository;
+        this.aggregatedCheckResultRepository = aggregatedCheckResultRepository;
+        this.rawReadExecutor = rawReadExecutor;
+        this.rawStorageProperties = rawStorageProperties;
+        this.latestCheckResultRepository = latestCheckResultRepository;
+        this.latestCheckResultCache = latestCheckResultCache;
+        this.latestResultProperties = latestResultProperties;
+        this.dashboardService = dashboardService;
+        this.asyncCassandraOperations = asyncCassandraOperations;
+        this.bulkReadProperties = bulkReadProperties;
+    }
     
     /**
-     * Получение последних результатов проверки
+     * Получение последних результатов проверки. Результат берется из локального кэша, который
+     * обновляется при приеме результатов, при отсутствии в кэше — из latest_check_results
      * @param checkId идентификатор проверки
      * @return последние результаты проверки
      */
     public CheckResult getLatestCheckResult(String checkId) {
         try {
-            List<RawCheckResult> rawResults = rawCheckResultRepository.findByKeyCheckIdOrderByKeyTimestampDesc(checkId);
-            if (!rawResults.isEmpty()) {
-                return convertToCheckResult(rawResults.getFirst());
-            }
-            return null;
+            return latestCheckResultCache.get(checkId, this::loadLatestCheckResult);
         } catch (Exception e) {
             log.error("Failed to get latest check result for checkId: {}", checkId, e);
             return null;
         }
     }
+
+    /**
+     * Получение последних результатов нескольких проверок. Отсутствующие в кэше проверки
+     * читаются из latest_check_results запросами по {@code load-batch-size} проверок
+     * @param checkIds идентификаторы проверок
+     * @return последние результаты проверок, у которых они есть
+     */
+    public Map<String, CheckResult> getLatestCheckResults(Collection<String> checkIds) {
+        return latestCheckResultCache.getAll(checkIds, this::loadLatestCheckResults);
+    }
+
+    private CheckResult loadLatestCheckResult(String checkId) {
+        Optional<LatestCheckResult> latest = latestCheckResultRepository.findById(checkId);
+        if (latest.isPresent()) {
+            return convertToCheckResult(latest.get());
+        }
+
+        // Строки нет, если результатов не было с момента появления таблицы: ищем по сырым результатам.
+        // Интервалы просматриваются от текущего к более старым, строки внутри отсортированы по убыванию времени
+        TimeBucket timeBucket = rawStorageProperties.getBucket();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldest = timeBucket.start(now.minus(rawStorageProperties.getLatestLookback()));
+        for (LocalDateTime bucket = timeBucket.start(now); !bucket.isBefore(oldest); bucket = timeBucket.previous(bucket)) {
+            Optional<RawCheckResult> raw = rawCheckResultRepository.findFirstByKeyCheckIdAndKeyBucket(checkId, bucket);
+            if (raw.isPresent()) {
+                return convertToCheckResult(raw.get());
+            }
+        }
+        return null;
+    }
+
+    private Map<String, CheckResult> loadLatestCheckResults(Set<String> checkIds) {
+        Map<String, CheckResult> results = new HashMap<>();
+        List<String> ids = new ArrayList<>(checkIds);
+        int batchSize = Math.max(1, latestResultProperties.getLoadBatchSize());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            for (LatestCheckResult latest : latestCheckResultRepository.findAllById(batch)) {
+                results.put(latest.getCheckId(), convertToCheckResult(latest));
+            }
+        }
+        return results;
+    }
     
     /**
-     * Получение истории результатов проверки
+     * Получение страницы истории результатов проверки, от более новых к более старым.
+     * Интервалы диапазона читаются по порядку страницами Cassandra ровно того размера, который
+     * нужен для заполнения страницы, поэтому в памяти не больше {@code limit} строк, а следующая
+     * страница продолжается с курсора без повторного чтения предыдущих. Один запрос просматривает
+     * не больше {@code max-buckets-per-query} интервалов: если они закончились раньше, чем заполнилась
+     * страница, возвращается неполная страница с курсором на следующий интервал
      * @param checkId идентификатор проверки
      * @param from начальная дата
      * @param to конечная дата
      * @param limit ограничение на количество записей
-     * @param offset смещение
-     * @return история результатов проверки
+     * @param offset количество пропускаемых записей; пропущенные строки читаются, поэтому для
+     *               перехода между страницами следует использовать курсор
+     * @param cursor курсор из предыдущей страницы или null для первой страницы
+     * @return страница истории
+     * @throws IllegalArgumentException если параметры страницы некорректны или курсор не относится к диапазону
      */
-    public List<CheckResult> getCheckHistory(String checkId, LocalDateTime from, LocalDateTime to, int limit, int offset) {
-        try {
-            // Если даты не заданы, используем последние 24 часа
-            if (from == null) {
-                from = LocalDateTime.now().minusDays(1);
+    public CheckHistoryPage getCheckHistory(String checkId, LocalDateTime from, LocalDateTime to, int limit, int offset,
+                                            String cursor) {
+        if (limit <= 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit must be positive and offset must not be negative");
+        }
+        // Если даты не заданы, используем последние 24 часа
+        if (from == null) {
+            from = LocalDateTime.now().minusDays(1);
+        }
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+
+        List<LocalDateTime> buckets = rawStorageProperties.getBucket().between(from, to);
+        int index = 0;
+        ByteBuffer pagingState = null;
+        if (cursor != null) {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            index = buckets.indexOf(position.getBucket());
+            if (index < 0) {
+                throw new IllegalArgumentException("History cursor does not belong to the requested range");
             }
-            if (to == null) {
-                to = LocalDateTime.now();
+            pagingState = position.getPagingState();
+        }
+
+        List<CheckResult> items = new ArrayList<>();
+        int skip = offset;
+        int bucketLimit = (int) Math.min(buckets.size(), (long) index + rawStorageProperties.getMaxBucketsPerQuery());
+        while (index < bucketLimit && items.size() < limit) {
+            // Страница не должна захватывать лишних строк: курсор может указывать только на границу страницы
+            int pageSize = skip > 0 ? Math.min(skip, limit) : limit - items.size();
+            Slice<RawCheckResult> slice = rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                    checkId, buckets.get(index), from, to, pageRequest(pageSize, pagingState));
+            for (RawCheckResult row : slice) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    items.add(convertToCheckResult(row));
+                }
             }
-            
-            List<RawCheckResult> rawResults = rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(checkId, from, to);
-            
-            // Применяем пагинацию
-            int endIndex = Math.min(offset + limit, rawResults.size());
-            int startIndex = Math.min(offset, rawResults.size());
-            
-            if (startIndex < endIndex) {
-                return rawResults.subList(startIndex, endIndex).stream()
-                        .map(this::convertToCheckResult)
-                        .collect(Collectors.toList());
+            if (slice.hasNext()) {
+                pagingState = ((CassandraPageRequest) slice.nextPageable()).getPagingState();
             } else {
-                return new ArrayList<>();
+                index++;
+                pagingState = null;
             }
-        } catch (Exception e) {
-            log.error("Failed to get check history for checkId: {}", checkId, e);
-            return new ArrayList<>();
         }
+
+        String nextCursor = index < buckets.size() ? new HistoryCursor(buckets.get(index), pagingState).encode() : null;
+        return new CheckHistoryPage(items, nextCursor);
     }
-    
+
     /**
-     * Получение агрегированных данных по проверке
+     * Потоковая выдача истории результатов проверки за весь диапазон, от более новых к более старым.
+     * Интервалы читаются страницами по {@code history-fetch-size} строк; следующая страница
+     * запрашивается в пуле чтения, пока текущая передается получателю, поэтому в памяти
+     * не больше двух страниц независимо от длины диапазона
      * @param checkId идентификатор проверки
-     * @param interval интервал агрегации
      * @param from начальная дата
      * @param to конечная дата
+     * @param consumer получатель результатов; исключение получателя прекращает чтение
+     */
+    public void streamCheckHistory(String checkId, LocalDateTime from, LocalDateTime to, Consumer<CheckResult> consumer) {
+        // Если даты не заданы, используем последние 24 часа
+        LocalDateTime rangeFrom = from != null ? from : LocalDateTime.now().minusDays(1);
+        LocalDateTime rangeTo = to != null ? to : LocalDateTime.now();
+
+        List<LocalDateTime> buckets = rawStorageProperties.getBucket().between(rangeFrom, rangeTo);
+        if (buckets.isEmpty()) {
+            return;
+        }
+        int fetchSize = rawStorageProperties.getHistoryFetchSize();
+        int index = 0;
+        CompletableFuture<Slice<RawCheckResult>> next = readPageAsync(checkId, buckets.get(index), rangeFrom, rangeTo,
+                CassandraPageRequest.first(fetchSize));
+        while (next != null) {
+            Slice<RawCheckResult> slice = next.join();
+            if (slice.hasNext()) {
+                next = readPageAsync(checkId, buckets.get(index), rangeFrom, rangeTo, slice.nextPageable());
+            } else if (++index < buckets.size()) {
+                next = readPageAsync(checkId, buckets.get(index), rangeFrom, rangeTo, CassandraPageRequest.first(fetchSize));
+            } else {
+                next = null;
+            }
+            for (RawCheckResult row : slice) {
+                consumer.accept(convertToCheckResult(row));
+            }
+        }
+    }
+
+    private CompletableFuture<Slice<RawCheckResult>> readPageAsync(String checkId, LocalDateTime bucket,
+                                                                   LocalDateTime from, LocalDateTime to,
+                                                                   Pageable pageable) {
+        return CompletableFuture.supplyAsync(() -> rawCheckResultRepository
+                .findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(checkId, bucket, from, to, pageable), rawReadExecutor);
+    }
+
+    private static CassandraPageRequest pageRequest(int pageSize, ByteBuffer pagingState) {
+        if (pagingState == null) {
+            return CassandraPageRequest.first(pageSize);
+        }
+        return CassandraPageRequest.of(PageRequest.of(1, pageSize), pagingState);
+    }
+
+    /**
+     * Получение агрегированных данных по проверке: агрегаты окон интервала и итог за период.
+     * Перцентили периода вычисляются объединением эскизов времени ответа окон,
+     * сырые результаты не читаются
+     * @param checkId идентификатор проверки
+     * @param interval интервал агрегации (MINUTE, HOUR, DAY, MONTH или hourly, daily, monthly)
+     * @param from начальная дата
+     * @param to конечная дата
+     * @param percentiles перцентили в процентах, например 50, 95, 99.9
      * @return агрегированные данные
+     * @throws IllegalArgumentException если интервал или перцентиль не поддерживаются
      */
-    public Object getAggregatedData(String checkId, String interval, LocalDateTime from, LocalDateTime to) {
+    public AggregatedStatistics getAggregatedData(String checkId, String interval, LocalDateTime from, LocalDateTime to,
+                                                  List<Double> percentiles) {
+        AggregationInterval aggregationInterval = AggregationInterval.parse(interval);
+        validatePercentiles(percentiles);
         try {
             // Если даты не заданы, используем последние 7 дней
             if (from == null) {
@@ -96,30 +288,231 @@ public class StatisticsRetrievalService {
                 to = LocalDateTime.now();
             }
 
-            return aggregatedCheckResultRepository.findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampBetween(
-                checkId, interval, from, to);
+            List<AggregatedCheckResult> rows = aggregatedCheckResultRepository
+                    .findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampBetween(
+                            checkId, aggregationInterval.name(), from, to);
+            return summarize(checkId, aggregationInterval, from, to, rows, percentiles);
         } catch (Exception e) {
             log.error("Failed to get aggregated data for checkId: {}, interval: {}", checkId, interval, e);
             return null;
         }
     }
-    
+
     /**
-     * Получение данных для дашборда
-     * @return данные для дашборда
+     * Получение последних результатов и агрегированных данных нескольких проверок.
+     * Последние результаты читаются из кэша и latest_check_results пакетами, агрегаты —
+     * асинхронными запросами, не более {@code max-concurrency} одновременно. Ошибка чтения
+     * данных проверки не прерывает запрос: она указывается в статистике этой проверки
+     * @param checkIds идентификаторы проверок, повторы игнорируются
+     * @param interval интервал агрегации (MINUTE, HOUR, DAY, MONTH или hourly, daily, monthly)
+     * @param from начальная дата
+     * @param to конечная дата
+     * @param percentiles перцентили в процентах
+     * @return статистика проверок в порядке запроса
+     * @throws IllegalArgumentException если список проверок пуст или слишком велик, интервал или перцентиль
+     *                                  не поддерживаются
      */
-    public Object getDashboardData() {
+    public List<CheckStatistics> getBulkStatistics(List<String> checkIds, String interval, LocalDateTime from,
+                                                   LocalDateTime to, List<Double> percentiles) {
+        if (checkIds == null || checkIds.isEmpty() || checkIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Check ids must not be empty");
+        }
+        if (interval == null) {
+            throw new IllegalArgumentException("Interval must be set");
+        }
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(checkIds));
+        if (ids.size() > bulkReadProperties.getMaxChecks()) {
+            throw new IllegalArgumentException("At most " + bulkReadProperties.getMaxChecks()
+                    + " checks can be requested at once");
+        }
+        AggregationInterval aggregationInterval = AggregationInterval.parse(interval);
+        List<Double> requestedPercentiles = percentiles != null ? percentiles : List.of();
+        validatePercentiles(requestedPercentiles);
+        // Если даты не заданы, используем последние 7 дней
+        LocalDateTime rangeFrom = from != null ? from : LocalDateTime.now().minusDays(7);
+        LocalDateTime rangeTo = to != null ? to : LocalDateTime.now();
+
+        // Агрегаты читаются, пока загружаются последние результаты
+        Map<String, CompletableFuture<List<AggregatedCheckResult>>> aggregates =
+                readAggregatesAsync(ids, aggregationInterval, rangeFrom, rangeTo);
+
+        Map<String, CheckResult> latest = null;
         try {
-            // В реальной реализации здесь будет логика получения данных для дашборда
-            // Например, общее количество проверок, количество доступных/недоступных ресурсов и т.д.
-            
-            // Для примера возвращаем простой объект
-            return new DashboardData();
+            latest = getLatestCheckResults(ids);
         } catch (Exception e) {
-            log.error("Failed to get dashboard data", e);
+            log.error("Failed to get latest check results for {} checks", ids.size(), e);
+        }
+
+        List<CheckStatistics> results = new ArrayList<>(ids.size());
+        for (String checkId : ids) {
+            CheckStatistics statistics = new CheckStatistics();
+            statistics.setCheckId(checkId);
+            List<String> errors = new ArrayList<>();
+            if (latest != null) {
+                statistics.setLatest(latest.get(checkId));
+            } else {
+                errors.add("Latest result unavailable");
+            }
+            try {
+                statistics.setAggregated(summarize(checkId, aggregationInterval, rangeFrom, rangeTo,
+                        aggregates.get(checkId).join(), requestedPercentiles));
+            } catch (Exception e) {
+                log.warn("Failed to get aggregated data for checkId: {}, interval: {}", checkId, aggregationInterval, e);
+                errors.add("Aggregated data unavailable");
+            }
+            if (!errors.isEmpty()) {
+                statistics.setError(String.join("; ", errors));
+            }
+            results.add(statistics);
+        }
+        return results;
+    }
+
+    /**
+     * Асинхронное чтение агрегатов проверок. Одновременно выполняется не больше
+     * {@code max-concurrency} запросов: завершение запроса запускает чтение следующей проверки
+     * @return future строк агрегатов по проверкам; ошибка чтения проверки завершает только ее future
+     */
+    private Map<String, CompletableFuture<List<AggregatedCheckResult>>> readAggregatesAsync(
+            List<String> checkIds, AggregationInterval interval, LocalDateTime from, LocalDateTime to) {
+        Map<String, CompletableFuture<List<AggregatedCheckResult>>> results = new LinkedHashMap<>();
+        for (String checkId : checkIds) {
+            results.put(checkId, new CompletableFuture<>());
+        }
+        Queue<String> pending = new ConcurrentLinkedQueue<>(checkIds);
+        int workers = Math.min(Math.max(1, bulkReadProperties.getMaxConcurrency()), checkIds.size());
+        for (int i = 0; i < workers; i++) {
+            readNextAggregates(pending, results, interval, from, to);
+        }
+        return results;
+    }
+
+    private void readNextAggregates(Queue<String> pending,
+                                    Map<String, CompletableFuture<List<AggregatedCheckResult>>> results,
+                                    AggregationInterval interval, LocalDateTime from, LocalDateTime to) {
+        String checkId = pending.poll();
+        if (checkId == null) {
+            return;
+        }
+        CompletableFuture<List<AggregatedCheckResult>> read;
+        try {
+            read = asyncCassandraOperations.select(Query.query(
+                    Criteria.where("check_id").is(checkId),
+                    Criteria.where("aggregation_interval").is(interval.name()),
+                    Criteria.where("timestamp").gte(from),
+                    Criteria.where("timestamp").lte(to)), AggregatedCheckResult.class);
+        } catch (RuntimeException e) {
+            read = CompletableFuture.failedFuture(e);
+        }
+        read.whenComplete((rows, error) -> {
+            if (error != null) {
+                results.get(checkId).completeExceptionally(error);
+            } else {
+                results.get(checkId).complete(rows);
+            }
+            readNextAggregates(pending, results, interval, from, to);
+        });
+    }
+
+    private static void validatePercentiles(List<Double> percentiles) {
+        for (Double percentile : percentiles) {
+            if (percentile == null || percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+            }
+        }
+    }
+
+    private AggregatedStatistics summarize(String checkId, AggregationInterval interval, LocalDateTime from,
+                                           LocalDateTime to, List<AggregatedCheckResult> rows, List<Double> percentiles) {
+        AggregatedStatistics statistics = new AggregatedStatistics();
+        statistics.setCheckId(checkId);
+        statistics.setInterval(interval.name());
+        statistics.setFrom(from);
+        statistics.setTo(to);
+
+        LatencySketch periodSketch = new LatencySketch();
+        double totalResponseTime = 0;
+        for (AggregatedCheckResult row : rows) {
+            AggregatedStatistics.Window window = new AggregatedStatistics.Window();
+            window.setTimestamp(row.getKey().getTimestamp());
+            window.setUpCount(valueOrZero(row.getUpCount()));
+            window.setDownCount(valueOrZero(row.getDownCount()));
+            window.setUnknownCount(valueOrZero(row.getUnknownCount()));
+            window.setAvgResponseTime(row.getAvgResponseTime());
+            window.setMinResponseTime(row.getMinResponseTime());
+            window.setMaxResponseTime(row.getMaxResponseTime());
+
+            LatencySketch sketch = readSketch(row);
+            if (sketch != null) {
+                window.setPercentiles(toPercentiles(sketch, percentiles));
+                periodSketch.merge(sketch);
+            }
+            statistics.getWindows().add(window);
+
+            long windowCount = (long) window.getUpCount() + window.getDownCount() + window.getUnknownCount();
+            statistics.setUpCount(statistics.getUpCount() + window.getUpCount());
+            statistics.setDownCount(statistics.getDownCount() + window.getDownCount());
+            statistics.setUnknownCount(statistics.getUnknownCount() + window.getUnknownCount());
+            if (row.getAvgResponseTime() != null) {
+                totalResponseTime += row.getAvgResponseTime() * windowCount;
+            }
+            if (row.getMinResponseTime() != null && (statistics.getMinResponseTime() == null
+                    || row.getMinResponseTime() < statistics.getMinResponseTime())) {
+                statistics.setMinResponseTime(row.getMinResponseTime());
+            }
+            if (row.getMaxResponseTime() != null && (statistics.getMaxResponseTime() == null
+                    || row.getMaxResponseTime() > statistics.getMaxResponseTime())) {
+                statistics.setMaxResponseTime(row.getMaxResponseTime());
+            }
+        }
+
+        long totalCount = statistics.getUpCount() + statistics.getDownCount() + statistics.getUnknownCount();
+        if (totalCount > 0) {
+            statistics.setAvgResponseTime(totalResponseTime / totalCount);
+        }
+        if (!periodSketch.isEmpty()) {
+            statistics.setPercentiles(toPercentiles(periodSketch, percentiles));
+        }
+        return statistics;
+    }
+
+    /**
+     * Эскиз времени ответа строки; null для строк без эскиза или с поврежденным эскизом
+     */
+    private LatencySketch readSketch(AggregatedCheckResult row) {
+        if (row.getLatencySketch() == null) {
+            return null;
+        }
+        try {
+            return LatencySketch.fromBytes(row.getLatencySketch());
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping unreadable latency sketch for checkId: {} at {}: {}",
+                    row.getKey().getCheckId(), row.getKey().getTimestamp(), e.getMessage());
             return null;
         }
     }
+
+    private static Map<String, Double> toPercentiles(LatencySketch sketch, List<Double> percentiles) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Double percentile : percentiles) {
+            String key = "p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString();
+            // Точность эскиза 1%, поэтому больше одного знака после запятой не имеет смысла
+            values.put(key, Math.round(sketch.getQuantile(percentile / 100) * 10) / 10.0);
+        }
+        return values;
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+    
+    /**
+     * Получение данных для дашборда из снимка состояния в памяти, без запросов к Cassandra
+     * @return данные для дашборда
+     */
+    public Object getDashboardData() {
+        return dashboardService.snapshot();
+    }
     
     /**
      * Преобразование RawCheckResult в CheckResult
@@ -136,28 +529,55 @@ public class StatisticsRetrievalService {
         checkResult.setErrorMessage(rawCheckResult.getErrorMessage());
         
         // Преобразуем метрики
-        if (rawCheckResult.getMetrics() != null) {
+        if (rawCheckResult.getConnectionTime() != null) {
             CheckResult.Metrics metrics = new CheckResult.Metrics();
-            metrics.setConnectionTime(Long.parseLong(rawCheckResult.getMetrics().getOrDefault("connectionTime", "0")));
-            metrics.setTimeToFirstByte(Long.parseLong(rawCheckResult.getMetrics().getOrDefault("timeToFirstByte", "0")));
-            
-            String sslValidStr = rawCheckResult.getMetrics().get("sslValid");
-            if (sslValidStr != null) {
-                metrics.setSslValid(Boolean.parseBoolean(sslValidStr));
-            }
-            
-            String sslExpirationDateStr = rawCheckResult.getMetrics().get("sslExpirationDate");
-            if (sslExpirationDateStr != null) {
-                // В реальной реализации здесь нужно правильно парсить дату
-                // metrics.setSslExpirationDate(LocalDateTime.parse(sslExpirationDateStr));
-            }
-            
+            metrics.setConnectionTime(rawCheckResult.getConnectionTime());
+            metrics.setTimeToFirstByte(rawCheckResult.getTimeToFirstByte() != null ? rawCheckResult.getTimeToFirstByte() : 0L);
+            metrics.setSslValid(rawCheckResult.getSslValid());
+            metrics.setSslExpirationDate(rawCheckResult.getSslExpirationDate());
+            metrics.setDnsLookupNanos(rawCheckResult.getDnsLookupNanos());
+            metrics.setTcpConnectNanos(rawCheckResult.getTcpConnectNanos());
+            metrics.setTlsHandshakeNanos(rawCheckResult.getTlsHandshakeNanos());
+            metrics.setRequestWriteNanos(rawCheckResult.getRequestWriteNanos());
+            metrics.setTimeToFirstByteNanos(rawCheckResult.getTimeToFirstByteNanos());
+            metrics.setDownloadNanos(rawCheckResult.getDownloadNanos());
             checkResult.setMetrics(metrics);
         }
         
         return checkResult;
     }
     
+    /**
+     * Преобразование LatestCheckResult в CheckResult
+     * @param latest последний результат проверки
+     * @return CheckResult
+     */
+    private CheckResult convertToCheckResult(LatestCheckResult latest) {
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(latest.getCheckId());
+        checkResult.setTimestamp(latest.getTimestamp());
+        checkResult.setStatus(latest.getStatus());
+        checkResult.setResponseTime(latest.getResponseTime() != null ? latest.getResponseTime() : 0L);
+        checkResult.setHttpStatusCode(latest.getHttpStatusCode());
+        checkResult.setErrorMessage(latest.getErrorMessage());
+
+        if (latest.getConnectionTime() != null) {
+            CheckResult.Metrics metrics = new CheckResult.Metrics();
+            metrics.setConnectionTime(latest.getConnectionTime());
+            metrics.setTimeToFirstByte(latest.getTimeToFirstByte() != null ? latest.getTimeToFirstByte() : 0L);
+            metrics.setSslValid(latest.getSslValid());
+            metrics.setSslExpirationDate(latest.getSslExpirationDate());
+            metrics.setDnsLookupNanos(latest.getDnsLookupNanos());
+            metrics.setTcpConnectNanos(latest.getTcpConnectNanos());
+            metrics.setTlsHandshakeNanos(latest.getTlsHandshakeNanos());
+            metrics.setRequestWriteNanos(latest.getRequestWriteNanos());
+            metrics.setTimeToFirstByteNanos(latest.getTimeToFirstByteNanos());
+            metrics.setDownloadNanos(latest.getDownloadNanos());
+            checkResult.setMetrics(metrics);
+        }
+        return checkResult;
+    }
+    
     /**
      * Класс для данных дашборда
      */
@@ -0,0 +1,219 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.oldzoomer.pingtower.statistics.config.StatusStreamProperties;
+import ru.oldzoomer.pingtower.statistics.dto.StatusEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Рассылка смен статусов проверок подписчикам server-sent events.
+ * <p>
+ * Прием результатов только добавляет события в буферы подписчиков, отправка выполняется отдельно
+ * для каждого подписчика в виртуальных потоках, поэтому медленный клиент не задерживает ни прием,
+ * ни других подписчиков. Буфер подписчика ограничен количеством проверок, смены статуса одной
+ * проверки объединяются; при переполнении подписчик получает событие overflow и отключается.
+ * Подписчик, отправка которому не завершилась за {@code sendTimeout}, отключается без события.
+ */
+@Slf4j
+@Service
+public class StatusStreamService {
+    static final String STATUS_EVENT = "status";
+    static final String OVERFLOW_EVENT = "overflow";
+
+    private final DashboardService dashboardService;
+    private final StatusStreamProperties properties;
+    private final Executor statusStreamExecutor;
+    private final Set<StatusSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final Counter eventsSentCounter;
+    private final Counter overflowCounter;
+    private final Counter slowCounter;
+
+    public StatusStreamService(DashboardService dashboardService,
+                               StatusStreamProperties properties,
+                               @Qualifier("statusStreamExecutor") Executor statusStreamExecutor,
+                               MeterRegistry meterRegistry) {
+        this.dashboardService = dashboardService;
+        this.properties = properties;
+        this.statusStreamExecutor = statusStreamExecutor;
+
+        Gauge.builder("statistics.stream.subscribers", subscribers, Set::size)
+                .description("Connected status stream subscribers")
+                .register(meterRegistry);
+        this.eventsSentCounter = Counter.builder("statistics.stream.events.sent")
+                .description("Status events sent to subscribers")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder("statistics.stream.overflows")
+                .description("Subscribers disconnected because their buffer overflowed")
+                .register(meterRegistry);
+        this.slowCounter = Counter.builder("statistics.stream.slow")
+                .description("Subscribers disconnected because a send did not finish in time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Подписка на смены статусов. Если проверки указаны, сначала отправляются их текущие статусы
+     * @param checkIds проверки, смены статусов которых нужны; пустое множество — все проверки
+     * @return поток событий
+     * @throws IllegalStateException если достигнуто максимальное количество подписчиков
+     */
+    public SseEmitter subscribe(Set<String> checkIds) {
+        if (subscribers.size() >= properties.getMaxSubscribers()) {
+            throw new IllegalStateException("Too many status stream subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        register(emitter, checkIds);
+        return emitter;
+    }
+
+    StatusSubscriber register(SseEmitter emitter, Set<String> checkIds) {
+        StatusSubscriber subscriber = new StatusSubscriber(emitter, checkIds, properties.getBufferSize());
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> {
+            remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(error -> remove(subscriber));
+        subscribers.add(subscriber);
+
+        if (!checkIds.isEmpty()) {
+            for (StatusTransition current : dashboardService.currentStatuses(checkIds)) {
+                subscriber.offer(toEvent(current));
+            }
+            schedule(subscriber);
+        }
+        log.debug("Status stream subscriber connected, checks: {}", checkIds.isEmpty() ? "all" : checkIds.size());
+        return subscriber;
+    }
+
+    /**
+     * Рассылка смен статусов подписчикам, которым нужны эти проверки
+     * @param transitions смены статусов
+     */
+    public void publish(List<StatusTransition> transitions) {
+        if (transitions.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+        List<StatusEvent> events = new ArrayList<>(transitions.size());
+        for (StatusTransition transition : transitions) {
+            events.add(toEvent(transition));
+        }
+        for (StatusSubscriber subscriber : subscribers) {
+            if (subscriber.isOverflowed()) {
+                continue;
+            }
+            boolean offered = false;
+            for (StatusEvent event : events) {
+                if (!subscriber.accepts(event.getCheckId())) {
+                    continue;
+                }
+                offered = true;
+                if (!subscriber.offer(event)) {
+                    overflowCounter.increment();
+                    break;
+                }
+            }
+            if (offered) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Отправка комментария всем подписчикам для поддержания соединения и отключение подписчиков,
+     * отправка которым не завершилась за sendTimeout
+     */
+    @Scheduled(fixedDelayString = "${statistics.stream.heartbeat-interval:15s}")
+    public void heartbeat() {
+        for (StatusSubscriber subscriber : subscribers) {
+            if (subscriber.isDispatchingLongerThan(properties.getSendTimeout())) {
+                evictSlow(subscriber);
+                continue;
+            }
+            subscriber.requestHeartbeat();
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(StatusSubscriber subscriber) {
+        if (subscriber.isClosed() || !subscriber.startDispatch()) {
+            return;
+        }
+        try {
+            statusStreamExecutor.execute(() -> dispatch(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.finishDispatch();
+            log.warn("Status stream dispatch rejected: {}", e.getMessage());
+        }
+    }
+
+    private void dispatch(StatusSubscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter();
+        try {
+            if (subscriber.isClosed()) {
+                return;
+            }
+            if (subscriber.isOverflowed()) {
+                remove(subscriber);
+                emitter.send(SseEmitter.event().name(OVERFLOW_EVENT).data("Subscriber buffer overflowed"));
+                emitter.complete();
+                return;
+            }
+            List<StatusEvent> events = subscriber.drain();
+            for (StatusEvent event : events) {
+                emitter.send(SseEmitter.event().name(STATUS_EVENT).data(event, MediaType.APPLICATION_JSON));
+            }
+            eventsSentCounter.increment(events.size());
+            if (subscriber.takeHeartbeat()) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или поток уже завершен
+            log.debug("Status stream subscriber disconnected: {}", e.getMessage());
+            remove(subscriber);
+        } finally {
+            subscriber.finishDispatch();
+            // События, добавленные во время отправки
+            if (subscriber.hasWork()) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void evictSlow(StatusSubscriber subscriber) {
+        remove(subscriber);
+        slowCounter.increment();
+        log.info("Status stream subscriber disconnected: send did not finish within {}", properties.getSendTimeout());
+        // Завершение ждет окончания зависшей отправки, поэтому выполняется не в потоке планировщика
+        try {
+            statusStreamExecutor.execute(subscriber.emitter()::complete);
+        } catch (RejectedExecutionException e) {
+            log.warn("Status stream completion rejected: {}", e.getMessage());
+        }
+    }
+
+    private void remove(StatusSubscriber subscriber) {
+        subscriber.close();
+        subscribers.remove(subscriber);
+    }
+
+    private static StatusEvent toEvent(StatusTransition transition) {
+        return new StatusEvent(transition.checkId(), transition.status(), transition.previousStatus(),
+                transition.timestamp());
+    }
+}
@@ -0,0 +1,131 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.oldzoomer.pingtower.statistics.dto.StatusEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Подписчик потока смен статусов с ограниченным буфером неотправленных событий.
+ * <p>
+ * В буфере хранится не больше одного события на проверку: новая смена статуса объединяется
+ * с неотправленной, предыдущим статусом остается последний отправленный подписчику. Если статус
+ * вернулся к отправленному, событие удаляется. Отправку выполняет не больше одного потока.
+ */
+final class StatusSubscriber {
+    private final SseEmitter emitter;
+    private final Set<String> checkIds;
+    private final int bufferSize;
+
+    // Изменяется только под блокировкой this
+    private final Map<String, StatusEvent> pending = new LinkedHashMap<>();
+    private boolean overflowed;
+    private boolean heartbeat;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private volatile long dispatchStartedNanos;
+    private volatile boolean closed;
+
+    StatusSubscriber(SseEmitter emitter, Set<String> checkIds, int bufferSize) {
+        this.emitter = emitter;
+        this.checkIds = Set.copyOf(checkIds);
+        this.bufferSize = bufferSize;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean accepts(String checkId) {
+        return !closed && (checkIds.isEmpty() || checkIds.contains(checkId));
+    }
+
+    /**
+     * Добавление события в буфер
+     * @return false, если буфер переполнен; неотправленные события отбрасываются
+     */
+    synchronized boolean offer(StatusEvent event) {
+        if (overflowed) {
+            return false;
+        }
+        StatusEvent queued = pending.get(event.getCheckId());
+        if (queued != null) {
+            if (Objects.equals(queued.getPreviousStatus(), event.getStatus())) {
+                pending.remove(event.getCheckId());
+            } else {
+                pending.put(event.getCheckId(), new StatusEvent(event.getCheckId(), event.getStatus(),
+                        queued.getPreviousStatus(), event.getTimestamp()));
+            }
+            return true;
+        }
+        if (pending.size() >= bufferSize) {
+            overflowed = true;
+            pending.clear();
+            return false;
+        }
+        pending.put(event.getCheckId(), event);
+        return true;
+    }
+
+    synchronized List<StatusEvent> drain() {
+        List<StatusEvent> events = new ArrayList<>(pending.values());
+        pending.clear();
+        return events;
+    }
+
+    synchronized boolean hasWork() {
+        return !pending.isEmpty() || overflowed || heartbeat;
+    }
+
+    synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+
+    synchronized void requestHeartbeat() {
+        heartbeat = true;
+    }
+
+    synchronized boolean takeHeartbeat() {
+        boolean requested = heartbeat;
+        heartbeat = false;
+        return requested;
+    }
+
+    /**
+     * Захват права отправки
+     * @return false, если отправку уже выполняет другой поток
+     */
+    boolean startDispatch() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return false;
+        }
+        dispatchStartedNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * @return true, если отправка начата не меньше timeout назад и еще не завершена
+     */
+    boolean isDispatchingLongerThan(Duration timeout) {
+        return dispatching.get() && System.nanoTime() - dispatchStartedNanos >= timeout.toNanos();
+    }
+
+    void finishDispatch() {
+        dispatching.set(false);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+}
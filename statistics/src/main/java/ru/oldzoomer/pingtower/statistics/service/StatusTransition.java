@@ -0,0 +1,24 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Смена статуса проверки
+ * @param checkId идентификатор проверки
+ * @param previousStatus предыдущий статус, null для первого результата проверки
+ * @param status новый статус (UP, DOWN, UNKNOWN)
+ * @param timestamp время результата, с которого действует новый статус
+ * @param previousSince время результата, с которого действовал предыдущий статус
+ */
+public record StatusTransition(String checkId, String previousStatus, String status, LocalDateTime timestamp,
+                               LocalDateTime previousSince) {
+
+    /**
+     * Длительность предыдущего статуса
+     * @return длительность или null для первого результата проверки
+     */
+    public Duration previousDuration() {
+        return previousSince != null ? Duration.between(previousSince, timestamp) : null;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencySketchTest {
+
+    private static final double[] QUANTILES = {0.0, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999, 1.0};
+
+    @Test
+    void testQuantilesWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        long[] values = new long[10_000];
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < values.length; i++) {
+            // Логнормальное распределение, похожее на время ответа: медиана около 150 мс, длинный хвост
+            values[i] = Math.max(1, Math.round(Math.exp(5 + random.nextGaussian())));
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.getCount());
+        for (double quantile : QUANTILES) {
+            long expected = values[(int) Math.floor(quantile * (values.length - 1))];
+            double actual = sketch.getQuantile(quantile);
+            assertTrue(Math.abs(actual - expected) <= expected * LatencySketch.RELATIVE_ACCURACY + 1e-9,
+                    "q=" + quantile + " expected=" + expected + " actual=" + actual);
+        }
+    }
+
+    @Test
+    void testMergeEqualsSketchOfAllValues() {
+        LatencySketch hourOne = new LatencySketch();
+        LatencySketch hourTwo = new LatencySketch();
+        LatencySketch day = new LatencySketch();
+        for (int i = 0; i < 1000; i++) {
+            long value = i % 7 == 0 ? 0 : 50 + i;
+            (i % 2 == 0 ? hourOne : hourTwo).add(value);
+            day.add(value);
+        }
+
+        LatencySketch merged = new LatencySketch();
+        merged.merge(hourOne);
+        merged.merge(hourTwo);
+
+        assertEquals(day.getCount(), merged.getCount());
+        for (double quantile : QUANTILES) {
+            assertEquals(day.getQuantile(quantile), merged.getQuantile(quantile));
+        }
+        assertTrue(Arrays.equals(day.toBytes(), merged.toBytes()));
+    }
+
+    @Test
+    void testSerializationRoundTripIsCompact() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(0);
+        for (long value = 1; value <= 60_000; value += 7) {
+            sketch.add(value);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        LatencySketch restored = LatencySketch.fromBytes(ByteBuffer.wrap(bytes));
+
+        assertEquals(sketch.getCount(), restored.getCount());
+        for (double quantile : QUANTILES) {
+            assertEquals(sketch.getQuantile(quantile), restored.getQuantile(quantile));
+        }
+        // Диапазон от 1 мс до минуты — около 550 корзин
+        assertTrue(bytes.length < 2048, "sketch size " + bytes.length);
+    }
+
+    @Test
+    void testEmptySketch() {
+        LatencySketch sketch = LatencySketch.fromBytes(ByteBuffer.wrap(new LatencySketch().toBytes()));
+
+        assertTrue(sketch.isEmpty());
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+    }
+
+    @Test
+    void testInvalidData() {
+        byte[] bytes = new LatencySketch().toBytes();
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(100);
+        byte[] full = sketch.toBytes();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> LatencySketch.fromBytes(ByteBuffer.wrap(new byte[]{99, 0, 0})));
+        assertThrows(IllegalArgumentException.class,
+                () -> LatencySketch.fromBytes(ByteBuffer.wrap(Arrays.copyOf(full, full.length - 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> LatencySketch.fromBytes(ByteBuffer.wrap(Arrays.copyOf(bytes, 1))));
+        assertThrows(IllegalArgumentException.class, () -> sketch.getQuantile(1.5));
+    }
+}
@@ -0,0 +1,277 @@
+package ru.oldzoomer.pingtower.statistics.aggregation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeWindowAggregatorTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+
+    private MutableClock clock;
+    private TimeWindowAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(BASE.toInstant(ZoneOffset.UTC));
+        aggregator = new TimeWindowAggregator(
+                List.of(AggregationInterval.MINUTE, AggregationInterval.HOUR, AggregationInterval.DAY),
+                Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(1), clock);
+    }
+
+    @Test
+    void testWindowStaysOpenUntilWatermarkPassesEndPlusLateness() {
+        clock.advance(Duration.ofMinutes(1));
+        aggregator.add(result("check-1", BASE.plusSeconds(5), "UP", 100), 0);
+
+        // Конец окна 10:31:00 + 30 с опоздания + 10 с неупорядоченности = событие в 10:31:40
+        aggregator.add(result("check-1", BASE.plusSeconds(99), "UP", 100), 0);
+        assertTrue(aggregator.closeWindows().isEmpty());
+
+        aggregator.add(result("check-1", BASE.plusSeconds(100), "UP", 100), 0);
+        List<AggregatedCheckResult> closed = rows(aggregator.closeWindows());
+
+        assertEquals(1, closed.size());
+        assertEquals("MINUTE", closed.get(0).getKey().getAggregationInterval());
+        assertEquals(BASE, closed.get(0).getKey().getTimestamp());
+        assertEquals(1, closed.get(0).getUpCount());
+    }
+
+    @Test
+    void testOneRowPerWindowWithAlignedStartAndTotals() {
+        aggregator.add(result("check-1", BASE.plusSeconds(1), "UP", 100), 0);
+        aggregator.add(result("check-1", BASE.plusSeconds(20), "DOWN", 300), 0);
+        aggregator.add(result("check-1", BASE.plusSeconds(40), "TIMEOUT", 200), 0);
+        // Продвигает водяной знак за конец дня
+        clock.advance(Duration.ofDays(1).plusHours(1));
+        aggregator.add(result("check-2", BASE.plusDays(1).plusHours(1), "UP", 1), 0);
+
+        List<AggregatedCheckResult> closed = rows(aggregator.closeWindows());
+
+        assertEquals(3, closed.size());
+        for (AggregatedCheckResult row : closed) {
+            AggregationInterval interval = AggregationInterval.valueOf(row.getKey().getAggregationInterval());
+            assertEquals("check-1", row.getKey().getCheckId());
+            assertEquals(interval.start(BASE), row.getKey().getTimestamp());
+            assertEquals(1, row.getUpCount());
+            assertEquals(1, row.getDownCount());
+            assertEquals(1, row.getUnknownCount());
+            assertEquals(200.0, row.getAvgResponseTime());
+            assertEquals(100, row.getMinResponseTime());
+            assertEquals(300, row.getMaxResponseTime());
+            LatencySketch sketch = LatencySketch.fromBytes(row.getLatencySketch());
+            assertEquals(3, sketch.getCount());
+            assertEquals(200.0, sketch.getQuantile(0.5), 2.0);
+        }
+        assertEquals(3, aggregator.getOpenWindowCount());
+    }
+
+    @Test
+    void testOutOfOrderResultWithinLatenessIsCounted() {
+        clock.advance(Duration.ofMinutes(5));
+        aggregator.add(result("check-1", BASE.plusSeconds(10), "UP", 100), 0);
+        aggregator.add(result("check-1", BASE.plusSeconds(75), "UP", 100), 0);
+        // Окно 10:30 уже пройдено водяным знаком, но еще в пределах опоздания
+        aggregator.add(result("check-1", BASE.plusSeconds(50), "DOWN", 100), 0);
+
+        aggregator.add(result("check-1", BASE.plusMinutes(5), "UP", 100), 0);
+        AggregatedCheckResult minute = find(rows(aggregator.closeWindows()), AggregationInterval.MINUTE, BASE);
+
+        assertEquals(1, minute.getUpCount());
+        assertEquals(1, minute.getDownCount());
+        assertEquals(0, aggregator.getLateCount(AggregationInterval.MINUTE));
+    }
+
+    @Test
+    void testResultForClosedWindowIsDroppedAsLate() {
+        clock.advance(Duration.ofMinutes(10));
+        aggregator.add(result("check-1", BASE, "UP", 100), 0);
+        aggregator.add(result("check-1", BASE.plusMinutes(5), "UP", 100), 0);
+        assertEquals(1, aggregator.closeWindows().size());
+
+        aggregator.add(result("check-1", BASE.plusSeconds(30), "DOWN", 100), 0);
+
+        assertEquals(1, aggregator.getLateCount(AggregationInterval.MINUTE));
+        assertEquals(0, aggregator.getLateCount(AggregationInterval.HOUR));
+        aggregator.add(result("check-1", BASE.plusMinutes(10), "UP", 100), 0);
+        // Опоздавший результат не порождает вторую строку для закрытого окна
+        assertTrue(rows(aggregator.closeWindows()).stream()
+                .noneMatch(row -> row.getKey().getTimestamp().equals(BASE)
+                        && "MINUTE".equals(row.getKey().getAggregationInterval())));
+    }
+
+    @Test
+    void testIdleStreamAdvancesWatermarkByClock() {
+        aggregator.add(result("check-1", BASE, "UP", 100), 0);
+        assertTrue(aggregator.closeWindows().isEmpty());
+
+        clock.advance(Duration.ofMinutes(7));
+        List<AggregatedCheckResult> closed = rows(aggregator.closeWindows());
+
+        assertEquals(1, closed.size());
+        assertEquals("MINUTE", closed.get(0).getKey().getAggregationInterval());
+    }
+
+    @Test
+    void testConcurrentWritersAreNotLost() throws Exception {
+        clock.advance(Duration.ofMinutes(5));
+        int threads = 4;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        aggregator.add(result("check-1", BASE.plusSeconds(i % 60), "UP", i % 500), 0);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        aggregator.add(result("check-2", BASE.plusMinutes(5), "UP", 1), 0);
+        AggregatedCheckResult minute = find(rows(aggregator.closeWindows()), AggregationInterval.MINUTE, BASE);
+
+        assertEquals(threads * perThread, minute.getUpCount());
+        assertEquals(0, minute.getMinResponseTime());
+        assertEquals(499, minute.getMaxResponseTime());
+    }
+
+    @Test
+    void testLaggingPartitionHoldsWatermark() {
+        clock.advance(Duration.ofMinutes(5));
+        aggregator.add(result("check-1", BASE.plusSeconds(10), "UP", 100), 0);
+        aggregator.add(result("check-2", BASE.plusMinutes(5), "UP", 100), 1);
+        assertTrue(aggregator.closeWindows().isEmpty());
+
+        // Результат отставшей партиции еще попадает в свое окно
+        aggregator.add(result("check-1", BASE.plusSeconds(50), "DOWN", 100), 0);
+        aggregator.add(result("check-1", BASE.plusMinutes(5), "UP", 100), 0);
+        AggregatedCheckResult minute = find(rows(aggregator.closeWindows()), AggregationInterval.MINUTE, BASE);
+
+        assertEquals(1, minute.getUpCount());
+        assertEquals(1, minute.getDownCount());
+        assertEquals(0, aggregator.getLateCount(AggregationInterval.MINUTE));
+    }
+
+    @Test
+    void testFutureEventTimeIsBoundedByClock() {
+        aggregator.add(result("check-1", BASE.plusSeconds(5), "UP", 100), 0);
+        // Часы pinger ушли на сутки вперед
+        aggregator.add(result("check-2", BASE.plusDays(1), "UP", 100), 0);
+
+        assertTrue(aggregator.closeWindows().isEmpty());
+        assertEquals(toMillis(BASE.plusMinutes(1).minusSeconds(10)), aggregator.getWatermark());
+    }
+
+    @Test
+    void testFlushClosesOnlyWindowsOfRevokedPartitions() {
+        aggregator.add(result("check-1", BASE.plusSeconds(5), "UP", 100), 0);
+        aggregator.add(result("check-2", BASE.plusSeconds(5), "UP", 100), 1);
+
+        List<ClosedWindow> flushed = aggregator.flush(List.of(0));
+
+        assertEquals(3, flushed.size());
+        assertTrue(flushed.stream().allMatch(window -> "check-1".equals(window.row().getKey().getCheckId())));
+        assertEquals(3, aggregator.getOpenWindowCount());
+        assertEquals(3, aggregator.flushAll().size());
+        assertEquals(0, aggregator.getOpenWindowCount());
+    }
+
+    @Test
+    void testWindowStartedBeforeAssignmentIsMergedWithStored() {
+        clock.advance(Duration.ofSeconds(30));
+        // Партиция получена в 10:30:30: минутное окно 10:30 могло сохраняться прежним владельцем
+        aggregator.add(result("check-1", BASE.plusSeconds(20), "UP", 100), 0);
+        aggregator.add(result("check-1", BASE.plusSeconds(40), "UP", 100), 1);
+
+        List<ClosedWindow> flushed = aggregator.flushAll();
+
+        assertTrue(flushed.stream().allMatch(ClosedWindow::mergeWithStored));
+        // Партиция снова получена в 10:31:00, окно 10:31 начато уже при новом владельце
+        clock.advance(Duration.ofSeconds(30));
+        aggregator.add(result("check-3", BASE.plusSeconds(65), "UP", 100), 0);
+        assertTrue(aggregator.flushAll().stream()
+                .filter(window -> "MINUTE".equals(window.row().getKey().getAggregationInterval()))
+                .noneMatch(ClosedWindow::mergeWithStored));
+    }
+
+    private static List<AggregatedCheckResult> rows(List<ClosedWindow> windows) {
+        return windows.stream().map(ClosedWindow::row).toList();
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static AggregatedCheckResult find(List<AggregatedCheckResult> rows, AggregationInterval interval,
+                                              LocalDateTime start) {
+        return rows.stream()
+                .filter(row -> row.getKey().getAggregationInterval().equals(interval.name())
+                        && row.getKey().getTimestamp().equals(start))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static CheckResult result(String checkId, LocalDateTime timestamp, String status, long responseTime) {
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(checkId);
+        checkResult.setTimestamp(timestamp);
+        checkResult.setStatus(status);
+        checkResult.setResponseTime(responseTime);
+        return checkResult;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
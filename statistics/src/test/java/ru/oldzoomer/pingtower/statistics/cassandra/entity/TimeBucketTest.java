@@ -0,0 +1,39 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimeBucketTest {
+
+    @Test
+    void testStart() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 15, 10, 30, 15);
+
+        assertEquals(LocalDateTime.of(2024, 1, 15, 0, 0), TimeBucket.DAY.start(timestamp));
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0), TimeBucket.HOUR.start(timestamp));
+    }
+
+    @Test
+    void testBetween_NewestFirst() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 14, 23, 10);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 15, 1, 5);
+
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 15, 0, 0), LocalDateTime.of(2024, 1, 14, 0, 0)),
+                TimeBucket.DAY.between(from, to));
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 15, 1, 0), LocalDateTime.of(2024, 1, 15, 0, 0),
+                        LocalDateTime.of(2024, 1, 14, 23, 0)),
+                TimeBucket.HOUR.between(from, to));
+    }
+
+    @Test
+    void testBetween_EmptyWhenRangeReversed() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 16, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+        assertEquals(List.of(), TimeBucket.DAY.between(from, to));
+    }
+}
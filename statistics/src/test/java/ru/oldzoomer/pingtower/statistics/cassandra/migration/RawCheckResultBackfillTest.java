@@ -0,0 +1,179 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.migration;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.data.cassandra.SessionFactory;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.RawCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RawCheckResultBackfillTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private CqlSession session;
+
+    @Mock
+    private RawCheckResultWriter rawCheckResultWriter;
+
+    private RawStorageProperties properties;
+
+    private RawCheckResultBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RawStorageProperties();
+        backfill = new RawCheckResultBackfill(sessionFactory, rawCheckResultWriter, properties);
+        when(sessionFactory.getSession()).thenReturn(session);
+    }
+
+    @Test
+    void testToCheckResult_LegacyMetricsMap() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 15, 10, 30);
+        Row row = legacyRow("check-1", timestamp, Map.of("connectionTime", "50", "timeToFirstByte", "100",
+                "sslValid", "true", "sslExpirationDate", "2024-12-31T23:59:59", "dnsLookupNanos", "1200000"));
+
+        CheckResult checkResult = RawCheckResultBackfill.toCheckResult(row);
+
+        assertEquals("check-1", checkResult.getCheckId());
+        assertEquals(timestamp, checkResult.getTimestamp());
+        assertEquals("UP", checkResult.getStatus());
+        assertEquals(150L, checkResult.getResponseTime());
+        assertEquals(200, checkResult.getHttpStatusCode());
+        assertEquals(50L, checkResult.getMetrics().getConnectionTime());
+        assertEquals(100L, checkResult.getMetrics().getTimeToFirstByte());
+        assertTrue(checkResult.getMetrics().getSslValid());
+        assertEquals(LocalDateTime.of(2024, 12, 31, 23, 59, 59), checkResult.getMetrics().getSslExpirationDate());
+        assertEquals(1_200_000L, checkResult.getMetrics().getDnsLookupNanos());
+        assertNull(checkResult.getMetrics().getTcpConnectNanos());
+    }
+
+    @Test
+    void testToCheckResult_NoMetrics() {
+        Row row = legacyRow("check-1", LocalDateTime.of(2024, 1, 15, 10, 30), Map.of());
+
+        assertNull(RawCheckResultBackfill.toCheckResult(row).getMetrics());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testBackfill_CopiesRowsWithinTtl() {
+        mockLegacyTable(true);
+        Row recent = legacyRow("check-1", LocalDateTime.now().minusDays(1), Map.of());
+        Row expired = legacyRow("check-2", LocalDateTime.now().minusDays(100), Map.of());
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.iterator()).thenReturn(List.of(recent, expired).iterator());
+        when(session.execute(any(SimpleStatement.class))).thenReturn(resultSet);
+        when(rawCheckResultWriter.writeAll(anyList(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        long copied = backfill.backfill();
+
+        assertEquals(1, copied);
+        ArgumentCaptor<List<CheckResult>> captor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<ToIntFunction<CheckResult>> ttlCaptor = ArgumentCaptor.forClass(ToIntFunction.class);
+        verify(rawCheckResultWriter).writeAll(captor.capture(), ttlCaptor.capture());
+        CheckResult copiedResult = captor.getValue().getFirst();
+        assertEquals("check-1", copiedResult.getCheckId());
+        // Без TTL в старой таблице строка живет до истечения statistics.raw.ttl от времени результата
+        int ttl = ttlCaptor.getValue().applyAsInt(copiedResult);
+        assertTrue(ttl > Duration.ofDays(88).toSeconds() && ttl <= Duration.ofDays(89).toSeconds());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testBackfill_KeepsRemainingTtl() {
+        mockLegacyTable(true);
+        Row row = legacyRow("check-1", LocalDateTime.now().minusDays(100), Map.of());
+        when(row.isNull(RawCheckResultBackfill.REMAINING_TTL)).thenReturn(false);
+        when(row.getInt(RawCheckResultBackfill.REMAINING_TTL)).thenReturn(3600);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.iterator()).thenReturn(List.of(row).iterator());
+        when(session.execute(any(SimpleStatement.class))).thenReturn(resultSet);
+        when(rawCheckResultWriter.writeAll(anyList(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(1, backfill.backfill());
+
+        ArgumentCaptor<List<CheckResult>> captor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<ToIntFunction<CheckResult>> ttlCaptor = ArgumentCaptor.forClass(ToIntFunction.class);
+        verify(rawCheckResultWriter).writeAll(captor.capture(), ttlCaptor.capture());
+        assertEquals(3600, ttlCaptor.getValue().applyAsInt(captor.getValue().getFirst()));
+        ArgumentCaptor<SimpleStatement> statement = ArgumentCaptor.forClass(SimpleStatement.class);
+        verify(session).execute(statement.capture());
+        assertEquals("SELECT check_id, responsetime, TTL(responsetime) AS remaining_ttl FROM raw_check_results",
+                statement.getValue().getQuery());
+    }
+
+    @Test
+    void testBackfill_NoLegacyTable() {
+        mockLegacyTable(false);
+
+        assertEquals(0, backfill.backfill());
+        verify(session, never()).execute(any(SimpleStatement.class));
+        verifyNoInteractions(rawCheckResultWriter);
+    }
+
+    private void mockLegacyTable(boolean exists) {
+        CqlIdentifier keyspace = CqlIdentifier.fromCql("pingtower_statistics");
+        Metadata metadata = mock(Metadata.class);
+        KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        when(session.getKeyspace()).thenReturn(Optional.of(keyspace));
+        when(session.getMetadata()).thenReturn(metadata);
+        when(metadata.getKeyspace(keyspace)).thenReturn(Optional.of(keyspaceMetadata));
+        if (exists) {
+            TableMetadata table = mock(TableMetadata.class);
+            Map<CqlIdentifier, ColumnMetadata> columns = new LinkedHashMap<>();
+            columns.put(CqlIdentifier.fromCql("check_id"), mock(ColumnMetadata.class));
+            columns.put(CqlIdentifier.fromCql("responsetime"), mock(ColumnMetadata.class));
+            when(table.getColumns()).thenReturn(columns);
+            when(keyspaceMetadata.getTable(RawCheckResultBackfill.LEGACY_TABLE)).thenReturn(Optional.of(table));
+        } else {
+            when(keyspaceMetadata.getTable(RawCheckResultBackfill.LEGACY_TABLE)).thenReturn(Optional.empty());
+        }
+    }
+
+    private static Row legacyRow(String checkId, LocalDateTime timestamp, Map<String, String> metrics) {
+        Row row = mock(Row.class, withSettings().strictness(Strictness.LENIENT));
+        ColumnDefinitions columns = mock(ColumnDefinitions.class, withSettings().strictness(Strictness.LENIENT));
+        when(row.getColumnDefinitions()).thenReturn(columns);
+        when(columns.contains("metrics")).thenReturn(true);
+        when(row.isNull(RawCheckResultBackfill.REMAINING_TTL)).thenReturn(true);
+        when(row.getString("check_id")).thenReturn(checkId);
+        when(row.getInstant("timestamp")).thenReturn(timestamp.atZone(ZoneId.systemDefault()).toInstant());
+        when(row.getString("status")).thenReturn("UP");
+        when(row.getInt("responsetime")).thenReturn(150);
+        when(row.getInt("httpstatuscode")).thenReturn(200);
+        when(row.getMap("metrics", String.class, String.class)).thenReturn(metrics);
+        return row;
+    }
+}
@@ -4,8 +4,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import ru.oldzoomer.pingtower.statistics.TestConfiguration;
+import ru.oldzoomer.pingtower.statistics.aggregation.LatencySketch;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -171,6 +173,27 @@ class AggregatedCheckResultRepositoryTest extends TestConfiguration {
         assertThat(count).isEqualTo(2);
     }
 
+    @Test
+    void testSaveAndFindWithLatencySketch() {
+        // Given
+        LatencySketch sketch = new LatencySketch();
+        for (long value = 100; value < 200; value++) {
+            sketch.add(value);
+        }
+        AggregatedCheckResult result = createTestAggregatedCheckResult("test-check-1", "HOUR", testTimestamp1, 100, 0, 0);
+        result.setLatencySketch(ByteBuffer.wrap(sketch.toBytes()));
+
+        // When
+        aggregatedCheckResultRepository.save(result);
+        var found = aggregatedCheckResultRepository.findById(result.getKey());
+
+        // Then
+        assertThat(found).isPresent();
+        LatencySketch restored = LatencySketch.fromBytes(found.get().getLatencySketch());
+        assertThat(restored.getCount()).isEqualTo(100);
+        assertThat(restored.getQuantile(0.5)).isEqualTo(sketch.getQuantile(0.5));
+    }
+
     private AggregatedCheckResult createTestAggregatedCheckResult(String checkId, String interval, 
                                                                  LocalDateTime timestamp, int upCount, 
                                                                  int downCount, int unknownCount) {
@@ -8,7 +8,7 @@ import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -20,6 +20,7 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
     private LocalDateTime testTimestamp1;
     private LocalDateTime testTimestamp2;
     private LocalDateTime testTimestamp3;
+    private LocalDateTime testBucket;
 
     @BeforeEach
     void setUp() {
@@ -28,6 +29,7 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
         testTimestamp1 = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
         testTimestamp2 = LocalDateTime.of(2024, 1, 15, 10, 31, 0);
         testTimestamp3 = LocalDateTime.of(2024, 1, 15, 11, 30, 0);
+        testBucket = LocalDateTime.of(2024, 1, 15, 0, 0, 0);
     }
 
     @Test
@@ -47,7 +49,7 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
     }
 
     @Test
-    void testFindByKeyCheckIdAndKeyTimestampBetween() {
+    void testFindByKeyCheckIdAndKeyBucketAndKeyTimestampBetween() {
         // Given
         RawCheckResult result1 = createTestRawCheckResult("test-check-1", testTimestamp1, "UP", 150, 200);
         RawCheckResult result2 = createTestRawCheckResult("test-check-1", testTimestamp2, "DOWN", 500, 500);
@@ -58,19 +60,19 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
         // When
         LocalDateTime from = LocalDateTime.of(2024, 1, 15, 10, 0, 0);
         LocalDateTime to = LocalDateTime.of(2024, 1, 15, 11, 0, 0);
-        List<RawCheckResult> results = rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(
-                "test-check-1", from, to);
+        List<RawCheckResult> results = rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                "test-check-1", testBucket, from, to);
 
         // Then
         assertThat(results).hasSize(2);
         assertThat(results).extracting(r -> r.getKey().getTimestamp())
-                .containsExactlyInAnyOrder(testTimestamp1, testTimestamp2);
+                .containsExactly(testTimestamp2, testTimestamp1);
         assertThat(results).extracting(RawCheckResult::getStatus)
                 .containsExactlyInAnyOrder("UP", "DOWN");
     }
 
     @Test
-    void testFindByKeyCheckIdOrderByKeyTimestampDesc() {
+    void testFindFirstByKeyCheckIdAndKeyBucket() {
         // Given
         RawCheckResult result1 = createTestRawCheckResult("test-check-1", testTimestamp1, "UP", 150, 200);
         RawCheckResult result2 = createTestRawCheckResult("test-check-1", testTimestamp2, "DOWN", 500, 500);
@@ -79,19 +81,16 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
         rawCheckResultRepository.saveAll(List.of(result1, result2, result3));
 
         // When
-        List<RawCheckResult> results = rawCheckResultRepository.findByKeyCheckIdOrderByKeyTimestampDesc("test-check-1");
+        Optional<RawCheckResult> latest = rawCheckResultRepository.findFirstByKeyCheckIdAndKeyBucket("test-check-1", testBucket);
 
         // Then
-        assertThat(results).hasSize(3);
-        assertThat(results).extracting(r -> r.getKey().getTimestamp())
-                .containsExactly(testTimestamp3, testTimestamp2, testTimestamp1);
-        assertThat(results.get(0).getStatus()).isEqualTo("UP");
-        assertThat(results.get(1).getStatus()).isEqualTo("DOWN");
-        assertThat(results.get(2).getStatus()).isEqualTo("UP");
+        assertThat(latest).isPresent();
+        assertThat(latest.get().getKey().getTimestamp()).isEqualTo(testTimestamp3);
+        assertThat(latest.get().getConnectionTime()).isEqualTo(50L);
     }
 
     @Test
-    void testFindByKeyCheckIdAndKeyTimestampBetween_NoResults() {
+    void testFindByKeyCheckIdAndKeyBucketAndKeyTimestampBetween_NoResults() {
         // Given
         RawCheckResult result = createTestRawCheckResult("test-check-1", testTimestamp1, "UP", 150, 200);
         rawCheckResultRepository.save(result);
@@ -99,23 +98,23 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
         // When
         LocalDateTime from = LocalDateTime.of(2024, 1, 16, 10, 0, 0);
         LocalDateTime to = LocalDateTime.of(2024, 1, 16, 11, 0, 0);
-        List<RawCheckResult> results = rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(
-                "test-check-1", from, to);
+        List<RawCheckResult> results = rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                "test-check-1", testBucket.plusDays(1), from, to);
 
         // Then
         assertThat(results).isEmpty();
     }
 
     @Test
-    void testFindByKeyCheckIdOrderByKeyTimestampDesc_NoResults() {
+    void testFindFirstByKeyCheckIdAndKeyBucket_NoResults() {
         // Given
         // No data for this check ID
 
         // When
-        List<RawCheckResult> results = rawCheckResultRepository.findByKeyCheckIdOrderByKeyTimestampDesc("non-existent-check");
+        Optional<RawCheckResult> latest = rawCheckResultRepository.findFirstByKeyCheckIdAndKeyBucket("non-existent-check", testBucket);
 
         // Then
-        assertThat(results).isEmpty();
+        assertThat(latest).isEmpty();
     }
 
     @Test
@@ -152,13 +151,15 @@ class RawCheckResultRepositoryTest extends TestConfiguration {
         RawCheckResult result = new RawCheckResult();
         RawCheckResult.RawCheckResultKey key = new RawCheckResult.RawCheckResultKey();
         key.setCheckId(checkId);
+        key.setBucket(timestamp.toLocalDate().atStartOfDay());
         key.setTimestamp(timestamp);
         result.setKey(key);
         result.setStatus(status);
         result.setResponseTime(responseTime);
         result.setHttpStatusCode(httpStatusCode);
         result.setErrorMessage(null);
-        result.setMetrics(Map.of("connectionTime", "50", "timeToFirstByte", "100"));
+        result.setConnectionTime(50L);
+        result.setTimeToFirstByte(100L);
         return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.writer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.SessionFactory;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.config.CassandraWriteProperties;
+import ru.oldzoomer.pingtower.statistics.config.RollupProperties;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AggregatedCheckResultWriterTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private CqlSession session;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    private BoundStatementBuilder builder;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        builder = mock(BoundStatementBuilder.class, RETURNS_SELF);
+
+        when(sessionFactory.getSession()).thenReturn(session);
+        when(session.prepare(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.boundStatementBuilder()).thenReturn(builder);
+        when(builder.build()).thenAnswer(invocation -> mock(BoundStatement.class));
+    }
+
+    @Test
+    void testWriteAll_UsesLevelTtlAndMarksCoarserWindow() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        AggregatedCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createRow("MINUTE", LocalDateTime.of(2024, 1, 15, 10, 30)))).join();
+
+        verify(session, times(2)).executeAsync(any(Statement.class));
+        verify(builder).setInt(10, 7 * 24 * 3600);
+        verify(builder).setString(0, "HOUR");
+        verify(builder).setInstant(1, LocalDateTime.of(2024, 1, 15, 10, 0).atZone(ZoneId.systemDefault()).toInstant());
+        verify(builder).setInt(3, 40 * 24 * 3600);
+        assertEquals(1.0, meterRegistry.counter("statistics.cassandra.aggregates.written").count());
+    }
+
+    @Test
+    void testWriteAll_MarksCoarserWindowLateAfterGrace() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        // Окно 10:00-11:00 могло быть построено в 11:05
+        AggregatedCheckResultWriter writer = createWriter(LocalDateTime.of(2024, 1, 15, 11, 5));
+
+        writer.writeAll(List.of(createRow("MINUTE", LocalDateTime.of(2024, 1, 15, 10, 59)))).join();
+
+        verify(session, times(3)).executeAsync(any(Statement.class));
+        verify(session).prepare(contains("aggregation_rollup_late"));
+        verify(builder).setUuid(eq(2), any(UUID.class));
+        assertEquals(1.0, meterRegistry.counter("statistics.cassandra.aggregates.written").count());
+    }
+
+    @Test
+    void testWriteAll_CoarserLevelsAreNotMarkedLate() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        AggregatedCheckResultWriter writer = createWriter(LocalDateTime.of(2024, 2, 1, 0, 0));
+
+        writer.writeAll(List.of(createRow("HOUR", LocalDateTime.of(2024, 1, 15, 10, 0)))).join();
+
+        verify(session, times(2)).executeAsync(any(Statement.class));
+        verify(builder, never()).setUuid(anyInt(), any());
+    }
+
+    @Test
+    void testWriteAll_MonthHasNoTtlAndNoMarker() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        AggregatedCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createRow("MONTH", LocalDateTime.of(2024, 1, 1, 0, 0)))).join();
+
+        verify(session, times(1)).executeAsync(any(Statement.class));
+        verify(builder).setInt(10, 0);
+        verify(builder, never()).setByteBuffer(eq(9), any());
+    }
+
+    @Test
+    void testWriteAll_NoMarkerWhenAggregateFailed() {
+        when(session.executeAsync(any(Statement.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Write timeout")));
+        AggregatedCheckResultWriter writer = createWriter();
+
+        CompletableFuture<Void> result = writer.writeAll(List.of(createRow("MINUTE", LocalDateTime.of(2024, 1, 15, 10, 30))));
+
+        assertThrows(RuntimeException.class, result::join);
+        verify(session, times(1)).executeAsync(any(Statement.class));
+        assertEquals(1.0, meterRegistry.counter("statistics.cassandra.aggregates.failed").count());
+    }
+
+    @Test
+    void testWriteAll_RowAndMarkersShareOnePermit() {
+        CompletableFuture<AsyncResultSet> rowWrite = new CompletableFuture<>();
+        when(session.executeAsync(any(Statement.class))).thenReturn(rowWrite, completed());
+        CassandraWriteProperties properties = new CassandraWriteProperties();
+        properties.setMaxInFlight(1);
+        properties.setAcquireTimeout(Duration.ofMillis(10));
+        Clock clock = Clock.fixed(LocalDateTime.of(2024, 1, 15, 10, 31).atZone(ZoneId.systemDefault()).toInstant(),
+                ZoneId.systemDefault());
+        AggregatedCheckResultWriter writer = new AggregatedCheckResultWriter(sessionFactory, properties,
+                new RollupProperties(), meterRegistry, clock);
+
+        CompletableFuture<Void> result = writer.writeAll(List.of(createRow("MINUTE", LocalDateTime.of(2024, 1, 15, 10, 30))));
+        // Завершение записи агрегата в потоке драйвера запускает запись отметки без ожидания разрешения
+        rowWrite.complete(mock(AsyncResultSet.class));
+
+        assertDoesNotThrow(() -> result.join());
+        verify(session, times(2)).executeAsync(any(Statement.class));
+        assertEquals(1.0, meterRegistry.counter("statistics.cassandra.aggregates.written").count());
+        // Разрешение возвращено после записи отметки
+        assertDoesNotThrow(() -> writer.writeAll(List.of(createRow("MONTH", LocalDateTime.of(2024, 1, 1, 0, 0)))).join());
+    }
+
+    private AggregatedCheckResultWriter createWriter() {
+        return createWriter(LocalDateTime.of(2024, 1, 15, 10, 31));
+    }
+
+    private AggregatedCheckResultWriter createWriter(LocalDateTime now) {
+        Clock clock = Clock.fixed(now.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        return new AggregatedCheckResultWriter(sessionFactory, new CassandraWriteProperties(), new RollupProperties(),
+                meterRegistry, clock);
+    }
+
+    private static CompletionStage<AsyncResultSet> completed() {
+        return CompletableFuture.completedFuture(mock(AsyncResultSet.class));
+    }
+
+    private static AggregatedCheckResult createRow(String interval, LocalDateTime timestamp) {
+        AggregatedCheckResult.AggregatedCheckResultKey key = new AggregatedCheckResult.AggregatedCheckResultKey();
+        key.setCheckId("check-1");
+        key.setAggregationInterval(interval);
+        key.setTimestamp(timestamp);
+        AggregatedCheckResult row = new AggregatedCheckResult();
+        row.setKey(key);
+        row.setUpCount(1);
+        row.setDownCount(0);
+        row.setUnknownCount(0);
+        row.setAvgResponseTime(150.0);
+        row.setMinResponseTime(150);
+        row.setMaxResponseTime(150);
+        return row;
+    }
+}
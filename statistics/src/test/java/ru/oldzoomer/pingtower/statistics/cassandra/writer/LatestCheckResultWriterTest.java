@@ -0,0 +1,131 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.writer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.SessionFactory;
+import ru.oldzoomer.pingtower.statistics.config.CassandraWriteProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LatestCheckResultWriterTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private CqlSession session;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    private BoundStatementBuilder builder;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        builder = mock(BoundStatementBuilder.class, RETURNS_SELF);
+
+        when(sessionFactory.getSession()).thenReturn(session);
+        when(session.prepare(anyString())).thenReturn(insertStatement);
+        lenient().when(insertStatement.boundStatementBuilder()).thenReturn(builder);
+        lenient().when(builder.build()).thenAnswer(invocation -> mock(BoundStatement.class));
+    }
+
+    @Test
+    void testWriteAll_WritesNewestResultPerCheck() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        LatestCheckResultWriter writer = createWriter();
+        CheckResult older = createCheckResult("check-1", LocalDateTime.of(2024, 1, 15, 10, 30, 0));
+        CheckResult newer = createCheckResult("check-1", LocalDateTime.of(2024, 1, 15, 10, 31, 0));
+
+        writer.writeAll(List.of(newer, older, createCheckResult("check-2", LocalDateTime.of(2024, 1, 15, 10, 30, 0))))
+                .join();
+
+        verify(session, times(2)).executeAsync(any(Statement.class));
+        verify(builder).setInstant(1, toInstant(newer.getTimestamp()));
+        verify(builder, never()).setInstant(1, toInstant(older.getTimestamp()));
+        assertEquals(2.0, meterRegistry.counter("statistics.cassandra.latest.written").count());
+    }
+
+    @Test
+    void testWriteAll_UsesResultTimeAsWriteTime() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        LatestCheckResultWriter writer = createWriter();
+        CheckResult checkResult = createCheckResult("check-1", LocalDateTime.of(2024, 1, 15, 10, 30, 0));
+
+        writer.writeAll(List.of(checkResult)).join();
+
+        verify(builder).setLong(16, ChronoUnit.MICROS.between(Instant.EPOCH, toInstant(checkResult.getTimestamp())));
+        // Метрик нет: колонки связываются пустыми, чтобы не остались значения предыдущего результата
+        verify(builder).set(6, null, Long.class);
+        verify(builder).setIdempotent(true);
+    }
+
+    @Test
+    void testWriteAll_SkipsResultsWithoutTimestamp() {
+        LatestCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createCheckResult("check-1", null))).join();
+
+        verify(session, never()).executeAsync(any(Statement.class));
+    }
+
+    @Test
+    void testWriteAll_FailedWriteCompletesExceptionally() {
+        when(session.executeAsync(any(Statement.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Write timeout")));
+        LatestCheckResultWriter writer = createWriter();
+
+        CompletableFuture<Void> result =
+                writer.writeAll(List.of(createCheckResult("check-1", LocalDateTime.of(2024, 1, 15, 10, 30, 0))));
+
+        assertThrows(RuntimeException.class, result::join);
+        assertEquals(1.0, meterRegistry.counter("statistics.cassandra.latest.failed").count());
+    }
+
+    private LatestCheckResultWriter createWriter() {
+        return new LatestCheckResultWriter(sessionFactory, new CassandraWriteProperties(), meterRegistry);
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static CompletionStage<AsyncResultSet> completed() {
+        return CompletableFuture.completedFuture(mock(AsyncResultSet.class));
+    }
+
+    private static CheckResult createCheckResult(String checkId, LocalDateTime timestamp) {
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(checkId);
+        checkResult.setTimestamp(timestamp);
+        checkResult.setStatus("UP");
+        checkResult.setResponseTime(150L);
+        checkResult.setHttpStatusCode(200);
+        return checkResult;
+    }
+}
@@ -0,0 +1,198 @@
+package ru.oldzoomer.pingtower.statistics.cassandra.writer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.SessionFactory;
+import ru.oldzoomer.pingtower.statistics.config.CassandraWriteProperties;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RawCheckResultWriterTest {
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private CqlSession session;
+
+    @Mock
+    private PreparedStatement insertStatement;
+
+    private BoundStatementBuilder builder;
+
+    private MeterRegistry meterRegistry;
+
+    private CassandraWriteProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new CassandraWriteProperties();
+        builder = mock(BoundStatementBuilder.class, RETURNS_SELF);
+
+        when(sessionFactory.getSession()).thenReturn(session);
+        when(session.prepare(anyString())).thenReturn(insertStatement);
+        when(insertStatement.boundStatementBuilder()).thenReturn(builder);
+        when(builder.build()).thenAnswer(invocation -> mock(BoundStatement.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testWriteAll_GroupsRowsByPartitionIntoUnloggedBatches() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        RawCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createCheckResult("check-1"), createCheckResult("check-2"), createCheckResult("check-1")))
+                .join();
+
+        ArgumentCaptor<Statement<?>> captor = ArgumentCaptor.forClass(Statement.class);
+        verify(session, times(2)).executeAsync(captor.capture());
+        BatchStatement batch = assertInstanceOf(BatchStatement.class, captor.getAllValues().get(0));
+        assertEquals(BatchType.UNLOGGED, batch.getBatchType());
+        assertEquals(2, batch.size());
+        assertInstanceOf(BoundStatement.class, captor.getAllValues().get(1));
+        assertEquals(3.0, meterRegistry.counter("statistics.cassandra.rows.written").count());
+        assertEquals(2, meterRegistry.timer("statistics.cassandra.write.latency").count());
+    }
+
+    @Test
+    void testWriteAll_SeparatesTimeBucketsOfSameCheck() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        RawCheckResultWriter writer = createWriter();
+        CheckResult nextDay = createCheckResult("check-1");
+        nextDay.setTimestamp(LocalDateTime.of(2024, 1, 16, 0, 0, 5));
+
+        writer.writeAll(List.of(createCheckResult("check-1"), nextDay)).join();
+
+        verify(session, times(2)).executeAsync(any(BoundStatement.class));
+        verify(builder).setInstant(1, LocalDateTime.of(2024, 1, 15, 0, 0).atZone(ZoneId.systemDefault()).toInstant());
+        verify(builder).setInstant(1, LocalDateTime.of(2024, 1, 16, 0, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    void testWriteAll_SplitsLargePartitions() {
+        properties.setMaxBatchSize(2);
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        RawCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createCheckResult("check-1"), createCheckResult("check-1"), createCheckResult("check-1"),
+                createCheckResult("check-1"), createCheckResult("check-1"))).join();
+
+        verify(session, times(3)).executeAsync(any(Statement.class));
+        assertEquals(5.0, meterRegistry.counter("statistics.cassandra.rows.written").count());
+    }
+
+    @Test
+    void testWriteAll_BindsOnlyPresentMetrics() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        RawCheckResultWriter writer = createWriter();
+        CheckResult checkResult = createCheckResult("check-1");
+        CheckResult.Metrics metrics = new CheckResult.Metrics();
+        metrics.setConnectionTime(50L);
+        metrics.setDnsLookupNanos(1_200_000L);
+        checkResult.setMetrics(metrics);
+
+        writer.writeAll(List.of(checkResult)).join();
+
+        verify(builder).setString(0, "check-1");
+        verify(builder).setLong(7, 50L);
+        verify(builder).setLong(11, 1_200_000L);
+        verify(builder, never()).setLong(eq(12), anyLong());
+        verify(builder, never()).setBoolean(eq(9), anyBoolean());
+        verify(builder, never()).setString(eq(6), any());
+    }
+
+    @Test
+    void testWriteAll_BindsExplicitTtl() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        RawCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createCheckResult("check-1")), checkResult -> 3600).join();
+
+        verify(session).prepare(contains("USING TTL ?"));
+        verify(builder).setInt(17, 3600);
+    }
+
+    @Test
+    void testWriteAll_UsesTableTtlByDefault() {
+        when(session.executeAsync(any(Statement.class))).thenReturn(completed());
+        RawCheckResultWriter writer = createWriter();
+
+        writer.writeAll(List.of(createCheckResult("check-1"))).join();
+
+        verify(builder, never()).setInt(eq(17), anyInt());
+    }
+
+    @Test
+    void testWriteAll_LimitsWritesInFlight() {
+        properties.setMaxInFlight(1);
+        properties.setAcquireTimeout(Duration.ofMillis(50));
+        CompletableFuture<AsyncResultSet> pending = new CompletableFuture<>();
+        when(session.executeAsync(any(Statement.class))).thenReturn(pending);
+        RawCheckResultWriter writer = createWriter();
+
+        CompletableFuture<Void> first = writer.writeAll(List.of(createCheckResult("check-1")));
+        assertEquals(1.0, meterRegistry.get("statistics.cassandra.writes.in_flight").gauge().value());
+        assertThrows(IllegalStateException.class, () -> writer.writeAll(List.of(createCheckResult("check-2"))));
+
+        pending.complete(mock(AsyncResultSet.class));
+        first.join();
+        assertEquals(0.0, meterRegistry.get("statistics.cassandra.writes.in_flight").gauge().value());
+    }
+
+    @Test
+    void testWriteAll_FailedWriteCompletesExceptionally() {
+        when(session.executeAsync(any(Statement.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Write timeout")));
+        RawCheckResultWriter writer = createWriter();
+
+        CompletableFuture<Void> result = writer.writeAll(List.of(createCheckResult("check-1"), createCheckResult("check-1")));
+
+        assertThrows(RuntimeException.class, result::join);
+        assertEquals(2.0, meterRegistry.counter("statistics.cassandra.rows.failed").count());
+        assertEquals(0.0, meterRegistry.get("statistics.cassandra.writes.in_flight").gauge().value());
+    }
+
+    private RawCheckResultWriter createWriter() {
+        return new RawCheckResultWriter(sessionFactory, properties, new RawStorageProperties(), meterRegistry);
+    }
+
+    private static CompletionStage<AsyncResultSet> completed() {
+        return CompletableFuture.completedFuture(mock(AsyncResultSet.class));
+    }
+
+    private static CheckResult createCheckResult(String checkId) {
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(checkId);
+        checkResult.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30, 0));
+        checkResult.setStatus("UP");
+        checkResult.setResponseTime(150L);
+        checkResult.setHttpStatusCode(200);
+        return checkResult;
+    }
+}
@@ -9,18 +9,31 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.oldzoomer.pingtower.statistics.config.SecurityConfig;
+import ru.oldzoomer.pingtower.statistics.dto.AggregatedStatistics;
+import ru.oldzoomer.pingtower.statistics.dto.CheckHistoryPage;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.dto.CheckStatistics;
 import ru.oldzoomer.pingtower.statistics.service.StatisticsRetrievalService;
+import ru.oldzoomer.pingtower.statistics.service.StatusStreamService;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(StatisticsController.class)
@@ -34,6 +47,9 @@ class StatisticsControllerTest {
     @MockitoBean
     private StatisticsRetrievalService statisticsRetrievalService;
 
+    @MockitoBean
+    private StatusStreamService statusStreamService;
+
     private CheckResult testCheckResult;
 
     @BeforeEach
@@ -94,8 +110,8 @@ class StatisticsControllerTest {
     void testGetCheckHistory_Success() throws Exception {
         // Given
         List<CheckResult> history = Arrays.asList(testCheckResult, testCheckResult);
-        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt()))
-                .thenReturn(history);
+        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt(), isNull()))
+                .thenReturn(new CheckHistoryPage(history, null));
 
         // When & Then
         mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/history")
@@ -113,8 +129,8 @@ class StatisticsControllerTest {
     void testGetCheckHistory_WithDateTimeFilters() throws Exception {
         // Given
         List<CheckResult> history = Collections.singletonList(testCheckResult);
-        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt()))
-                .thenReturn(history);
+        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt(), isNull()))
+                .thenReturn(new CheckHistoryPage(history, null));
 
         // When & Then
         mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/history")
@@ -131,8 +147,8 @@ class StatisticsControllerTest {
     @Test
     void testGetCheckHistory_EmptyHistory() throws Exception {
         // Given
-        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt()))
-                .thenReturn(Collections.emptyList());
+        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt(), isNull()))
+                .thenReturn(new CheckHistoryPage(Collections.emptyList(), null));
 
         // When & Then
         mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/history")
@@ -145,7 +161,7 @@ class StatisticsControllerTest {
     @Test
     void testGetCheckHistory_InternalServerError() throws Exception {
         // Given
-        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt()))
+        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt(), isNull()))
                 .thenThrow(new RuntimeException("Database error"));
 
         // When & Then
@@ -154,19 +170,71 @@ class StatisticsControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void testGetCheckHistory_ReturnsNextCursorHeader() throws Exception {
+        // Given
+        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), eq(1), eq(0), eq("cursor-1")))
+                .thenReturn(new CheckHistoryPage(List.of(testCheckResult), "cursor-2"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/history")
+                        .param("limit", "1")
+                        .param("cursor", "cursor-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "cursor-2"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void testGetCheckHistory_InvalidCursor() throws Exception {
+        // Given
+        when(statisticsRetrievalService.getCheckHistory(eq("test-check-1"), any(), any(), anyInt(), anyInt(), eq("broken")))
+                .thenThrow(new IllegalArgumentException("Malformed history cursor"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/history")
+                        .param("cursor", "broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamCheckHistory_WritesNdjson() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<CheckResult> consumer = invocation.getArgument(3);
+            consumer.accept(testCheckResult);
+            consumer.accept(testCheckResult);
+            return null;
+        }).when(statisticsRetrievalService).streamCheckHistory(eq("test-check-1"), any(), any(), any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/history")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"checkId\":\"test-check-1\""));
+    }
+
     @Test
     void testGetAggregatedData_Success() throws Exception {
         // Given
-        Object aggregatedData = new Object() {
-            @SuppressWarnings("unused")
-            public final String checkId = "test-check-1";
-            @SuppressWarnings("unused")
-            public final String interval = "hourly";
-            @SuppressWarnings("unused")
-            public final int count = 10;
-        };
-        
-        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("hourly"), any(), any()))
+        AggregatedStatistics aggregatedData = new AggregatedStatistics();
+        aggregatedData.setCheckId("test-check-1");
+        aggregatedData.setInterval("HOUR");
+        aggregatedData.setUpCount(10);
+        aggregatedData.getPercentiles().put("p95", 180.5);
+
+        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("hourly"), any(), any(),
+                eq(List.of(50.0, 95.0, 99.0))))
                 .thenReturn(aggregatedData);
 
         // When & Then
@@ -178,14 +246,43 @@ class StatisticsControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.checkId").value("test-check-1"))
-                .andExpect(jsonPath("$.interval").value("hourly"))
-                .andExpect(jsonPath("$.count").value(10));
+                .andExpect(jsonPath("$.interval").value("HOUR"))
+                .andExpect(jsonPath("$.upCount").value(10))
+                .andExpect(jsonPath("$.percentiles.p95").value(180.5));
+    }
+
+    @Test
+    void testGetAggregatedData_CustomPercentiles() throws Exception {
+        // Given
+        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("DAY"), any(), any(),
+                eq(List.of(99.9))))
+                .thenReturn(new AggregatedStatistics());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/aggregated")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("interval", "DAY")
+                        .param("percentiles", "99.9"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGetAggregatedData_BadRequest() throws Exception {
+        // Given
+        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("fortnightly"), any(), any(), anyList()))
+                .thenThrow(new IllegalArgumentException("No enum constant"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/statistics/checks/test-check-1/aggregated")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("interval", "fortnightly"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void testGetAggregatedData_NotFound() throws Exception {
         // Given
-        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("hourly"), any(), any()))
+        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("hourly"), any(), any(), anyList()))
                 .thenReturn(null);
 
         // When & Then
@@ -198,7 +295,7 @@ class StatisticsControllerTest {
     @Test
     void testGetAggregatedData_InternalServerError() throws Exception {
         // Given
-        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("hourly"), any(), any()))
+        when(statisticsRetrievalService.getAggregatedData(eq("test-check-1"), eq("hourly"), any(), any(), anyList()))
                 .thenThrow(new RuntimeException("Database error"));
 
         // When & Then
@@ -208,6 +305,69 @@ class StatisticsControllerTest {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void testGetBulkStatistics_ReturnsPartialResults() throws Exception {
+        // Given
+        CheckStatistics available = new CheckStatistics();
+        available.setCheckId("test-check-1");
+        available.setLatest(testCheckResult);
+        available.setAggregated(new AggregatedStatistics());
+        CheckStatistics failed = new CheckStatistics();
+        failed.setCheckId("test-check-2");
+        failed.setError("Aggregated data unavailable");
+        when(statisticsRetrievalService.getBulkStatistics(eq(List.of("test-check-1", "test-check-2")), eq("HOUR"),
+                eq(LocalDateTime.of(2024, 1, 15, 0, 0)), isNull(), eq(List.of(50.0, 95.0, 99.0))))
+                .thenReturn(List.of(available, failed));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/statistics/checks/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"checkIds\": [\"test-check-1\", \"test-check-2\"], \"from\": \"2024-01-15T00:00:00\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].checkId").value("test-check-1"))
+                .andExpect(jsonPath("$[0].latest.status").value("UP"))
+                .andExpect(jsonPath("$[1].checkId").value("test-check-2"))
+                .andExpect(jsonPath("$[1].error").value("Aggregated data unavailable"));
+    }
+
+    @Test
+    void testGetBulkStatistics_InvalidRequest() throws Exception {
+        // Given
+        when(statisticsRetrievalService.getBulkStatistics(anyList(), anyString(), any(), any(), anyList()))
+                .thenThrow(new IllegalArgumentException("At most 500 checks can be requested at once"));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/statistics/checks/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"checkIds\": [\"test-check-1\"], \"interval\": \"DAY\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testStreamStatuses_OpensEventStream() throws Exception {
+        // Given
+        when(statusStreamService.subscribe(Set.of("test-check-1", "test-check-2"))).thenReturn(new SseEmitter());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/statistics/stream")
+                        .param("checkIds", "test-check-1", "test-check-2")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void testStreamStatuses_TooManySubscribers() throws Exception {
+        // Given
+        when(statusStreamService.subscribe(Set.of()))
+                .thenThrow(new IllegalStateException("Too many status stream subscribers"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/statistics/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     void testGetDashboardData_Success() throws Exception {
         // Given
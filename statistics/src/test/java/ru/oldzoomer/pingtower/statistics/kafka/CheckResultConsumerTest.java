@@ -0,0 +1,108 @@
+package ru.oldzoomer.pingtower.statistics.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.service.StatisticsProcessingService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckResultConsumerTest {
+
+    @Mock
+    private StatisticsProcessingService statisticsProcessingService;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private MeterRegistry meterRegistry;
+
+    private CheckResultConsumer checkResultConsumer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        checkResultConsumer = new CheckResultConsumer(statisticsProcessingService, meterRegistry);
+    }
+
+    @Test
+    void testConsume_PersistsBatchAndAcknowledges() {
+        CheckResult first = createCheckResult("check-1");
+        CheckResult second = createCheckResult("check-2");
+
+        checkResultConsumer.consume(List.of(record(0, first), record(1, second)), acknowledgment);
+
+        verify(statisticsProcessingService).processCheckResults(Map.of(0, List.of(first, second)));
+        verify(acknowledgment).acknowledge();
+        assertEquals(2.0, meterRegistry.counter("statistics.ingestion.records").count());
+    }
+
+    @Test
+    void testConsume_SkipsUndeserializableRecords() {
+        CheckResult checkResult = createCheckResult("check-1");
+
+        checkResultConsumer.consume(List.of(record(0, null), record(1, checkResult)), acknowledgment);
+
+        verify(statisticsProcessingService).processCheckResults(Map.of(0, List.of(checkResult)));
+        verify(acknowledgment).acknowledge();
+        assertEquals(1.0, meterRegistry.counter("statistics.ingestion.skipped", "reason", "undeserializable").count());
+    }
+
+    @Test
+    void testConsume_SkipsRecordsThatCanNeverBeSaved() {
+        CheckResult valid = createCheckResult("check-1");
+        CheckResult noCheckId = createCheckResult(null);
+        CheckResult noTimestamp = createCheckResult("check-2");
+        noTimestamp.setTimestamp(null);
+        CheckResult hugeResponseTime = createCheckResult("check-3");
+        hugeResponseTime.setResponseTime(Integer.MAX_VALUE + 1L);
+
+        checkResultConsumer.consume(List.of(record(0, noCheckId), record(1, noTimestamp), record(2, hugeResponseTime),
+                record(3, valid)), acknowledgment);
+
+        verify(statisticsProcessingService).processCheckResults(Map.of(0, List.of(valid)));
+        verify(acknowledgment).acknowledge();
+        assertEquals(3.0, meterRegistry.counter("statistics.ingestion.skipped", "reason", "invalid").count());
+    }
+
+    @Test
+    void testConsume_WriteFailureIsPassedToErrorHandler() {
+        List<ConsumerRecord<String, CheckResult>> batch = List.of(record(0, createCheckResult("check-1")));
+        doThrow(new RuntimeException("Cassandra timeout"))
+                .when(statisticsProcessingService).processCheckResults(anyMap());
+
+        assertThrows(RuntimeException.class, () -> checkResultConsumer.consume(batch, acknowledgment));
+
+        verifyNoInteractions(acknowledgment);
+        assertEquals(1.0, meterRegistry.counter("statistics.ingestion.batches.failed").count());
+    }
+
+    private static ConsumerRecord<String, CheckResult> record(long offset, CheckResult value) {
+        return new ConsumerRecord<>(CheckResultConsumer.CHECK_RESULTS_TOPIC, 0, offset,
+                value != null ? value.getCheckId() : null, value);
+    }
+
+    private static CheckResult createCheckResult(String checkId) {
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(checkId);
+        checkResult.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30, 0));
+        checkResult.setStatus("UP");
+        checkResult.setResponseTime(150L);
+        checkResult.setHttpStatusCode(200);
+        return checkResult;
+    }
+}
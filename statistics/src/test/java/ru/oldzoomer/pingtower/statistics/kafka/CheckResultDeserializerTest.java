@@ -0,0 +1,79 @@
+package ru.oldzoomer.pingtower.statistics.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckResultDeserializerTest {
+
+    // Запись, сформированная кодеком модуля pinger (см. CheckResultBinaryCodecTest)
+    private static final String GOLDEN_RECORD =
+            "b701df0507636865636b2d311368747470733a2f2f6578616d706c652e636f6d8091decaa16301ac02900364c8010180be9201";
+
+    private final CheckResultDeserializer deserializer = new CheckResultDeserializer();
+
+    @Test
+    void testDeserialize_Binary() {
+        CheckResult result = deserializer.deserialize("pingtower.check.results", HexFormat.of().parseHex(GOLDEN_RECORD));
+
+        assertEquals("check-1", result.getCheckId());
+        assertEquals("https://example.com", result.getResourceUrl());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), result.getTimestamp());
+        assertEquals("UP", result.getStatus());
+        assertEquals(150L, result.getResponseTime());
+        assertEquals(200, result.getHttpStatusCode());
+        assertNull(result.getErrorMessage());
+        assertEquals(50L, result.getMetrics().getConnectionTime());
+        assertEquals(100L, result.getMetrics().getTimeToFirstByte());
+        assertTrue(result.getMetrics().getSslValid());
+        assertEquals(1_200_000L, result.getMetrics().getDnsLookupNanos());
+        assertNull(result.getMetrics().getTcpConnectNanos());
+    }
+
+    @Test
+    void testDeserialize_JsonIgnoresTypeHeaders() {
+        String json = "{\"checkId\":\"check-1\",\"timestamp\":\"2024-01-15T10:30:00\",\"status\":\"UP\","
+                + "\"responseTime\":150,\"httpStatusCode\":200,\"unknownField\":true,"
+                + "\"metrics\":{\"connectionTime\":50,\"timeToFirstByte\":100,\"dnsLookupNanos\":1200000}}";
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("__TypeId__", "ru.oldzoomer.pingtower.pinger.dto.CheckResult".getBytes(StandardCharsets.UTF_8));
+
+        CheckResult result = deserializer.deserialize("pingtower.check.results", headers,
+                json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("check-1", result.getCheckId());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), result.getTimestamp());
+        assertEquals("UP", result.getStatus());
+        assertEquals(1_200_000L, result.getMetrics().getDnsLookupNanos());
+    }
+
+    @Test
+    void testDeserialize_Empty() {
+        assertNull(deserializer.deserialize("pingtower.check.results", null));
+        assertNull(deserializer.deserialize("pingtower.check.results", new byte[0]));
+    }
+
+    @Test
+    void testDeserialize_Malformed() {
+        byte[] truncated = HexFormat.of().parseHex(GOLDEN_RECORD.substring(0, 20));
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("pingtower.check.results", truncated));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("pingtower.check.results",
+                "not json".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testDeserialize_UnknownVersion() {
+        byte[] record = HexFormat.of().parseHex(GOLDEN_RECORD);
+        record[1] = 2;
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("pingtower.check.results", record));
+    }
+}
@@ -0,0 +1,51 @@
+package ru.oldzoomer.pingtower.statistics.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.statistics.service.AggregationService;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckResultRebalanceListenerTest {
+
+    @Mock
+    private AggregationService aggregationService;
+
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    @InjectMocks
+    private CheckResultRebalanceListener listener;
+
+    @Test
+    void testRevokedPartitions_FlushOpenWindows() {
+        listener.onPartitionsRevokedAfterCommit(consumer, List.of(
+                new TopicPartition(CheckResultConsumer.CHECK_RESULTS_TOPIC, 1),
+                new TopicPartition(CheckResultConsumer.CHECK_RESULTS_TOPIC, 4),
+                new TopicPartition("other.topic", 2)));
+
+        verify(aggregationService).flushPartitions(List.of(1, 4));
+    }
+
+    @Test
+    void testLostPartitions_FlushOpenWindows() {
+        listener.onPartitionsLost(consumer, List.of(new TopicPartition(CheckResultConsumer.CHECK_RESULTS_TOPIC, 0)));
+
+        verify(aggregationService).flushPartitions(List.of(0));
+    }
+
+    @Test
+    void testNoCheckResultPartitions_NothingFlushed() {
+        listener.onPartitionsRevokedAfterCommit(consumer, List.of());
+
+        verifyNoInteractions(aggregationService);
+    }
+}
@@ -1,150 +1,213 @@
 package ru.oldzoomer.pingtower.statistics.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.AggregatedCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.AggregatedCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.AggregationProperties;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
-
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class AggregationServiceTest {
 
+    @Mock
+    private AggregatedCheckResultWriter aggregatedCheckResultWriter;
+
     @Mock
     private AggregatedCheckResultRepository aggregatedCheckResultRepository;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private AggregationService aggregationService;
 
     private LocalDateTime testTimestamp;
 
+    private Clock clock;
+
     @BeforeEach
     void setUp() {
         testTimestamp = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+        meterRegistry = new SimpleMeterRegistry();
+        // Часы сервиса впереди событий: водяной знак продвигают сами события
+        clock = Clock.fixed(testTimestamp.plusDays(3).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        aggregationService = new AggregationService(aggregatedCheckResultWriter, aggregatedCheckResultRepository,
+                new AggregationProperties(), meterRegistry, clock);
     }
 
     @Test
-    void testProcessCheckResultForAggregation_Success() {
+    void testOpenWindows_NotSaved() {
         // Given
-        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
+        for (int i = 0; i < 20; i++) {
+            aggregationService.processCheckResultForAggregation(
+                    createTestCheckResult("test-check-1", "UP", 150, testTimestamp.plusSeconds(i)));
+        }
 
         // When
-        aggregationService.processCheckResultForAggregation(checkResult);
+        aggregationService.closeWindows();
 
         // Then
-        // Should not throw exception, should process aggregation
-        // We can verify that the repository is eventually called when threshold is reached
+        verify(aggregatedCheckResultWriter, never()).writeAll(anyList());
     }
 
     @Test
-    void testProcessCheckResultForAggregation_Exception() {
+    @SuppressWarnings("unchecked")
+    void testClosedWindows_SavedOncePerIntervalWithWindowStart() {
         // Given
-        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
-        // Mock repository to throw exception
-        when(aggregatedCheckResultRepository.save(any(AggregatedCheckResult.class)))
-                .thenThrow(new RuntimeException("Database error"));
+        AggregationProperties properties = new AggregationProperties();
+        properties.setIntervals(List.of(AggregationInterval.MINUTE, AggregationInterval.HOUR, AggregationInterval.DAY));
+        aggregationService = new AggregationService(aggregatedCheckResultWriter, aggregatedCheckResultRepository,
+                properties, meterRegistry, clock);
+        when(aggregatedCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 100, testTimestamp));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "DOWN", 300, testTimestamp.plusSeconds(30)));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-2", "UP", 100, testTimestamp.plusDays(2)));
 
         // When
-        // Add enough results to trigger save
-        for (int i = 0; i < 10; i++) {
-            aggregationService.processCheckResultForAggregation(checkResult);
-        }
+        aggregationService.closeWindows();
+        aggregationService.closeWindows();
 
         // Then
-        // Should not throw exception, should log error
-        verify(aggregatedCheckResultRepository, atLeastOnce()).save(any(AggregatedCheckResult.class));
+        ArgumentCaptor<List<AggregatedCheckResult>> captor = ArgumentCaptor.forClass(List.class);
+        verify(aggregatedCheckResultWriter, times(1)).writeAll(captor.capture());
+        List<AggregatedCheckResult> rows = captor.getValue();
+        assertEquals(Set.of("MINUTE", "HOUR", "DAY"),
+                rows.stream().map(row -> row.getKey().getAggregationInterval()).collect(Collectors.toSet()));
+        for (AggregatedCheckResult row : rows) {
+            assertEquals("test-check-1", row.getKey().getCheckId());
+            assertEquals(AggregationInterval.valueOf(row.getKey().getAggregationInterval()).start(testTimestamp),
+                    row.getKey().getTimestamp());
+            assertEquals(1, row.getUpCount());
+            assertEquals(1, row.getDownCount());
+            assertEquals(200.0, row.getAvgResponseTime());
+        }
+        assertEquals(3.0, meterRegistry.get("statistics.aggregation.windows.saved").counter().count());
     }
 
     @Test
-    void testAggregationThresholdReached_SavesData() {
+    void testSaveFailure_RetriedOnNextClose() {
         // Given
-        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 150, testTimestamp));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 150, testTimestamp.plusDays(2)));
+        when(aggregatedCheckResultWriter.writeAll(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Database error")))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         // When
-        // Add exactly 10 results to reach the threshold
-        for (int i = 0; i < 10; i++) {
-            aggregationService.processCheckResultForAggregation(checkResult);
-        }
+        aggregationService.closeWindows();
+        aggregationService.closeWindows();
 
         // Then
-        // The repository should be called to save aggregated data
-        verify(aggregatedCheckResultRepository, atLeastOnce()).save(any(AggregatedCheckResult.class));
+        verify(aggregatedCheckResultWriter, times(2)).writeAll(anyList());
+        assertEquals(1.0, meterRegistry.get("statistics.aggregation.save.failed").counter().count());
+        assertEquals(1.0, meterRegistry.get("statistics.aggregation.windows.saved").counter().count());
     }
 
     @Test
-    void testAggregationThresholdNotReached_DoesNotSaveData() {
+    void testLateResult_DroppedAndCounted() {
         // Given
-        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 150, testTimestamp));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 150, testTimestamp.plusMinutes(10)));
+        aggregationService.closeWindows();
 
         // When
-        // Add only 9 results (below threshold)
-        for (int i = 0; i < 9; i++) {
-            aggregationService.processCheckResultForAggregation(checkResult);
-        }
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "DOWN", 150, testTimestamp.plusSeconds(10)));
 
         // Then
-        // The repository should not be called
-        verify(aggregatedCheckResultRepository, never()).save(any(AggregatedCheckResult.class));
+        assertEquals(1.0, meterRegistry.get("statistics.aggregation.late").tag("interval", "MINUTE").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("statistics.aggregation.late").tag("interval", "HOUR").functionCounter().count());
     }
 
     @Test
-    void testMultipleCheckIds_AggregateSeparately() {
+    void testResultWithoutTimestamp_Skipped() {
         // Given
-        CheckResult result1 = createTestCheckResult("check-1", "UP", 100, 200);
-        CheckResult result2 = createTestCheckResult("check-2", "DOWN", 500, 500);
+        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, null);
 
         // When
-        // Add 5 results for each check (total 10, but separate check IDs)
-        for (int i = 0; i < 5; i++) {
-            aggregationService.processCheckResultForAggregation(result1);
-            aggregationService.processCheckResultForAggregation(result2);
-        }
+        aggregationService.processCheckResultForAggregation(checkResult);
+        aggregationService.closeWindows();
 
         // Then
-        // Should not save yet since each check has only 5 results (below threshold of 10)
-        verify(aggregatedCheckResultRepository, never()).save(any(AggregatedCheckResult.class));
+        assertEquals(0.0, meterRegistry.get("statistics.aggregation.windows.open").gauge().value());
+        verifyNoInteractions(aggregatedCheckResultWriter);
+    }
 
-        // Add 5 more for check-1 to reach threshold
-        for (int i = 0; i < 5; i++) {
-            aggregationService.processCheckResultForAggregation(result1);
-        }
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWindowStartedBeforeAssignment_MergedWithStoredRow() {
+        // Given: строку окна сохранил прежний владелец партиции
+        when(aggregatedCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        AggregatedCheckResult stored = RollupService.merge("test-check-1", AggregationInterval.MINUTE, testTimestamp,
+                List.of());
+        stored.setDownCount(2);
+        stored.setAvgResponseTime(300.0);
+        stored.setMinResponseTime(300);
+        stored.setMaxResponseTime(300);
+        when(aggregatedCheckResultRepository.findById(any())).thenReturn(Optional.of(stored));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 100, testTimestamp), 0);
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 100, testTimestamp.plusDays(2)), 0);
+
+        // When
+        aggregationService.closeWindows();
 
         // Then
-        // Should save for check-1
-        verify(aggregatedCheckResultRepository, atLeastOnce()).save(any(AggregatedCheckResult.class));
+        ArgumentCaptor<List<AggregatedCheckResult>> captor = ArgumentCaptor.forClass(List.class);
+        verify(aggregatedCheckResultWriter).writeAll(captor.capture());
+        AggregatedCheckResult row = captor.getValue().getFirst();
+        assertEquals(1, row.getUpCount());
+        assertEquals(2, row.getDownCount());
+        assertEquals(100, row.getMinResponseTime());
+        assertEquals(300, row.getMaxResponseTime());
     }
 
     @Test
-    void testDifferentIntervals_AggregateSeparately() {
+    @SuppressWarnings("unchecked")
+    void testRevokedPartition_OpenWindowsFlushed() {
         // Given
-        CheckResult result = createTestCheckResult("test-check-1", "UP", 150, 200);
+        when(aggregatedCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-1", "UP", 100, testTimestamp), 0);
+        aggregationService.processCheckResultForAggregation(createTestCheckResult("test-check-2", "UP", 100, testTimestamp), 1);
 
         // When
-        // Add 10 results to reach threshold for default interval (HOUR)
-        for (int i = 0; i < 10; i++) {
-            aggregationService.processCheckResultForAggregation(result);
-        }
+        aggregationService.flushPartitions(List.of(0));
 
         // Then
-        // Should save for HOUR interval
-        verify(aggregatedCheckResultRepository, atLeastOnce()).save(any(AggregatedCheckResult.class));
+        ArgumentCaptor<List<AggregatedCheckResult>> captor = ArgumentCaptor.forClass(List.class);
+        verify(aggregatedCheckResultWriter).writeAll(captor.capture());
+        assertEquals(List.of("test-check-1"), captor.getValue().stream().map(row -> row.getKey().getCheckId()).toList());
+        assertEquals(1.0, meterRegistry.get("statistics.aggregation.windows.open").gauge().value());
+
+        aggregationService.flushAll();
+        verify(aggregatedCheckResultWriter, times(2)).writeAll(anyList());
+        assertEquals(0.0, meterRegistry.get("statistics.aggregation.windows.open").gauge().value());
     }
 
-    private CheckResult createTestCheckResult(String checkId, String status, long responseTime, int httpStatusCode) {
+    private CheckResult createTestCheckResult(String checkId, String status, long responseTime, LocalDateTime timestamp) {
         CheckResult checkResult = new CheckResult();
         checkResult.setCheckId(checkId);
-        checkResult.setTimestamp(testTimestamp);
+        checkResult.setTimestamp(timestamp);
         checkResult.setStatus(status);
         checkResult.setResponseTime(responseTime);
-        checkResult.setHttpStatusCode(httpStatusCode);
+        checkResult.setHttpStatusCode(200);
         checkResult.setErrorMessage(null);
         return checkResult;
     }
-}
\ No newline at end of file
+}
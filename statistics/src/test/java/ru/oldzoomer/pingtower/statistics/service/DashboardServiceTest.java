@@ -0,0 +1,248 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.LatestCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.LatestCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.config.DashboardProperties;
+import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+
+    @Mock
+    private LatestCheckResultRepository latestCheckResultRepository;
+
+    private DashboardProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MutableClock clock;
+
+    private DashboardService dashboardService;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+
+    @BeforeEach
+    void setUp() {
+        properties = new DashboardProperties();
+        properties.setUptimeWindow(Duration.ofMinutes(10));
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(now.toInstant(ZoneOffset.UTC));
+        dashboardService = new DashboardService(latestCheckResultRepository, properties, meterRegistry, clock);
+    }
+
+    @Test
+    void testApply_CountsChecksByCurrentStatus() {
+        dashboardService.apply(List.of(
+                createCheckResult("check-1", "UP", now.minusMinutes(1)),
+                createCheckResult("check-2", "DOWN", now.minusMinutes(1)),
+                createCheckResult("check-3", "TIMEOUT", now.minusMinutes(1))));
+        dashboardService.apply(List.of(createCheckResult("check-2", "UP", now)));
+
+        StatisticsRetrievalService.DashboardData data = dashboardService.snapshot();
+        assertEquals(3, data.getTotalChecks());
+        assertEquals(2, data.getUpChecks());
+        assertEquals(0, data.getDownChecks());
+        assertEquals(1, data.getUnknownChecks());
+        assertEquals(2.0, meterRegistry.get("statistics.dashboard.checks").tag("status", "UP").gauge().value());
+    }
+
+    @Test
+    void testApply_OlderResultDoesNotReplaceStatus() {
+        dashboardService.apply(List.of(createCheckResult("check-1", "DOWN", now)));
+        dashboardService.apply(List.of(createCheckResult("check-1", "UP", now.minusMinutes(1))));
+
+        StatisticsRetrievalService.DashboardData data = dashboardService.snapshot();
+        assertEquals(0, data.getUpChecks());
+        assertEquals(1, data.getDownChecks());
+    }
+
+    @Test
+    void testApply_ReturnsStatusTransitions() {
+        dashboardService.apply(List.of(createCheckResult("check-1", "UP", now.minusMinutes(10))));
+        dashboardService.apply(List.of(createCheckResult("check-1", "DOWN", now.minusMinutes(5))));
+        List<StatusTransition> unchanged = dashboardService.apply(List.of(createCheckResult("check-1", "DOWN", now.minusMinutes(4))));
+        List<StatusTransition> recovered = dashboardService.apply(List.of(createCheckResult("check-1", "UP", now)));
+
+        assertTrue(unchanged.isEmpty());
+        assertEquals(1, recovered.size());
+        StatusTransition transition = recovered.get(0);
+        assertEquals("DOWN", transition.previousStatus());
+        assertEquals("UP", transition.status());
+        // Статус DOWN действовал с первого результата DOWN
+        assertEquals(Duration.ofMinutes(5), transition.previousDuration());
+    }
+
+    @Test
+    void testCurrentStatuses_ReturnsKnownChecks() {
+        dashboardService.apply(List.of(
+                createCheckResult("check-1", "DOWN", now.minusMinutes(2)),
+                createCheckResult("check-1", "DOWN", now)));
+
+        List<StatusTransition> current = dashboardService.currentStatuses(List.of("check-1", "check-2"));
+
+        assertEquals(1, current.size());
+        assertEquals("DOWN", current.get(0).status());
+        assertEquals(now.minusMinutes(2), current.get(0).timestamp());
+    }
+
+    @Test
+    void testUptime_CountsResultsWithinWindow() {
+        dashboardService.apply(List.of(
+                createCheckResult("check-1", "UP", now.minusMinutes(2)),
+                createCheckResult("check-1", "UP", now.minusMinutes(1)),
+                createCheckResult("check-1", "UP", now),
+                createCheckResult("check-2", "DOWN", now),
+                createCheckResult("check-3", "TIMEOUT", now),
+                // Старше окна
+                createCheckResult("check-2", "DOWN", now.minusMinutes(30))));
+
+        assertEquals(75.0, dashboardService.snapshot().getOverallUptime(), 0.0001);
+    }
+
+    @Test
+    void testUptime_WindowSlidesWithoutNewResults() {
+        dashboardService.apply(List.of(
+                createCheckResult("check-1", "DOWN", now.minusMinutes(8)),
+                createCheckResult("check-1", "UP", now)));
+        assertEquals(50.0, dashboardService.snapshot().getOverallUptime(), 0.0001);
+
+        clock.advance(Duration.ofMinutes(3));
+        dashboardService.refresh();
+
+        assertEquals(100.0, dashboardService.snapshot().getOverallUptime(), 0.0001);
+    }
+
+    @Test
+    void testWarmStart_RestoresStatusesPageByPage() {
+        properties.setWarmStartPageSize(1);
+        Pageable first = mock(Pageable.class);
+        Pageable second = mock(Pageable.class);
+        when(latestCheckResultRepository.findAll(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(createLatest("check-1", "UP")), first, true))
+                .thenReturn(new SliceImpl<>(List.of(createLatest("check-2", "DOWN")), second, false));
+        when(first.next()).thenReturn(second);
+
+        dashboardService.warmStart();
+
+        StatisticsRetrievalService.DashboardData data = dashboardService.snapshot();
+        assertEquals(2, data.getTotalChecks());
+        assertEquals(1, data.getUpChecks());
+        assertEquals(1, data.getDownChecks());
+        verify(latestCheckResultRepository, times(2)).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void testWarmStart_DoesNotReplaceNewerIngestedStatus() {
+        dashboardService.apply(List.of(createCheckResult("check-1", "DOWN", now)));
+        when(latestCheckResultRepository.findAll(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(createLatest("check-1", "UP"))));
+
+        dashboardService.warmStart();
+
+        assertEquals(1, dashboardService.snapshot().getDownChecks());
+    }
+
+    @Test
+    void testWarmStart_Disabled() {
+        properties.setWarmStart(false);
+
+        dashboardService.warmStart();
+
+        verifyNoInteractions(latestCheckResultRepository);
+    }
+
+    @Test
+    void testResync_AddsChecksOfOtherPartitionsAndSkipsStaleRows() {
+        LatestCheckResult stale = createLatest("check-3", "DOWN");
+        stale.setTimestamp(now.minusDays(2));
+        dashboardService.apply(List.of(createCheckResult("check-1", "UP", now)));
+        when(latestCheckResultRepository.findAll(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(createLatest("check-2", "DOWN"), stale)));
+
+        dashboardService.resync();
+
+        StatisticsRetrievalService.DashboardData data = dashboardService.snapshot();
+        assertEquals(2, data.getTotalChecks());
+        assertEquals(1, data.getUpChecks());
+        assertEquals(1, data.getDownChecks());
+    }
+
+    @Test
+    void testResync_RemovesChecksWithoutRecentResults() {
+        properties.setResync(false);
+        dashboardService.apply(List.of(
+                createCheckResult("check-1", "DOWN", now.minusHours(2)),
+                createCheckResult("check-2", "UP", now)));
+        properties.setStatusTtl(Duration.ofHours(1));
+
+        dashboardService.resync();
+
+        StatisticsRetrievalService.DashboardData data = dashboardService.snapshot();
+        assertEquals(1, data.getTotalChecks());
+        assertEquals(0, data.getDownChecks());
+        assertTrue(dashboardService.currentStatuses(List.of("check-1")).isEmpty());
+        verifyNoInteractions(latestCheckResultRepository);
+    }
+
+    private static CheckResult createCheckResult(String checkId, String status, LocalDateTime timestamp) {
+        CheckResult checkResult = new CheckResult();
+        checkResult.setCheckId(checkId);
+        checkResult.setStatus(status);
+        checkResult.setTimestamp(timestamp);
+        return checkResult;
+    }
+
+    private LatestCheckResult createLatest(String checkId, String status) {
+        LatestCheckResult latest = new LatestCheckResult();
+        latest.setCheckId(checkId);
+        latest.setStatus(status);
+        latest.setTimestamp(now.minusMinutes(5));
+        return latest;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
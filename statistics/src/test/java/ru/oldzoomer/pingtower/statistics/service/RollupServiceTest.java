@@ -0,0 +1,265 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.DeleteOptions;
+import org.springframework.data.cassandra.core.EntityWriteResult;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.cassandra.core.UpdateOptions;
+import ru.oldzoomer.pingtower.statistics.aggregation.AggregationInterval;
+import ru.oldzoomer.pingtower.statistics.aggregation.LatencySketch;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupCheckpoint;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupLateWindow;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.RollupPendingCheck;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.AggregatedCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.RollupCheckpointRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.RollupLateWindowRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.RollupPendingCheckRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.AggregatedCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.RollupProperties;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RollupServiceTest {
+
+    @Mock
+    private AggregatedCheckResultRepository aggregatedCheckResultRepository;
+
+    @Mock
+    private RollupPendingCheckRepository rollupPendingCheckRepository;
+
+    @Mock
+    private RollupCheckpointRepository rollupCheckpointRepository;
+
+    @Mock
+    private RollupLateWindowRepository rollupLateWindowRepository;
+
+    @Mock
+    private CassandraOperations cassandraOperations;
+
+    @Mock
+    private AggregatedCheckResultWriter aggregatedCheckResultWriter;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RollupService rollupService;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        rollupService = new RollupService(aggregatedCheckResultRepository, rollupPendingCheckRepository,
+                rollupCheckpointRepository, rollupLateWindowRepository, cassandraOperations, aggregatedCheckResultWriter, new RollupProperties(),
+                meterRegistry, clock);
+    }
+
+    @Test
+    void testMerge_SumsCountsAndWeightsAverage() {
+        LatencySketch first = new LatencySketch();
+        first.add(100);
+        LatencySketch second = new LatencySketch();
+        second.add(300);
+        second.add(300);
+        second.add(300);
+
+        AggregatedCheckResult result = RollupService.merge("check-1", AggregationInterval.HOUR, now.withMinute(0),
+                List.of(createRow(1, 0, 0, 100.0, 100, 100, first), createRow(2, 1, 0, 300.0, 300, 300, second)));
+
+        assertEquals("HOUR", result.getKey().getAggregationInterval());
+        assertEquals(now.withMinute(0), result.getKey().getTimestamp());
+        assertEquals(3, result.getUpCount());
+        assertEquals(1, result.getDownCount());
+        assertEquals(0, result.getUnknownCount());
+        assertEquals(250.0, result.getAvgResponseTime());
+        assertEquals(100, result.getMinResponseTime());
+        assertEquals(300, result.getMaxResponseTime());
+        assertEquals(4, LatencySketch.fromBytes(result.getLatencySketch()).getCount());
+    }
+
+    @Test
+    void testMerge_DropsSketchWhenSomeRowsHaveNone() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(100);
+
+        AggregatedCheckResult result = RollupService.merge("check-1", AggregationInterval.HOUR, now.withMinute(0),
+                List.of(createRow(1, 0, 0, 100.0, 100, 100, sketch), createRow(1, 0, 0, 200.0, 200, 200, null)));
+
+        assertNull(result.getLatencySketch());
+        assertEquals(150.0, result.getAvgResponseTime());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRollUpLevel_BuildsCompleteWindowsAndAdvancesCheckpoint() {
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 15, 9, 0);
+        when(rollupCheckpointRepository.findById("HOUR")).thenReturn(Optional.of(createCheckpoint("HOUR", hour)));
+        when(rollupPendingCheckRepository.findByKeyLevelAndKeyWindowStart("HOUR", hour))
+                .thenReturn(List.of(createPending("HOUR", hour, "check-1")));
+        when(aggregatedCheckResultRepository
+                .findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampGreaterThanEqualAndKeyTimestampLessThan(
+                        "check-1", "MINUTE", hour, hour.plusHours(1)))
+                .thenReturn(List.of(createRow(1, 0, 0, 100.0, 100, 100, null), createRow(0, 1, 0, 300.0, 300, 300, null)));
+        when(aggregatedCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        EntityWriteResult<RollupCheckpoint> applied = mock(EntityWriteResult.class);
+        when(applied.wasApplied()).thenReturn(true);
+        when(cassandraOperations.update(any(RollupCheckpoint.class), any(UpdateOptions.class))).thenReturn(applied);
+
+        LocalDateTime checkpoint = rollupService.rollUpLevel(AggregationInterval.HOUR, null);
+
+        // Окно 10:00-11:00 еще не завершено
+        assertEquals(hour.plusHours(1), checkpoint);
+        ArgumentCaptor<List<AggregatedCheckResult>> captor = ArgumentCaptor.forClass(List.class);
+        verify(aggregatedCheckResultWriter).writeAll(captor.capture());
+        AggregatedCheckResult row = captor.getValue().get(0);
+        assertEquals(hour, row.getKey().getTimestamp());
+        assertEquals(1, row.getUpCount());
+        assertEquals(1, row.getDownCount());
+        assertEquals(1.0, meterRegistry.get("statistics.rollup.windows").tag("level", "HOUR").counter().count());
+    }
+
+    @Test
+    void testRollUpLevel_WaitsForFinerLevel() {
+        LocalDateTime day = LocalDateTime.of(2024, 1, 14, 0, 0);
+        when(rollupCheckpointRepository.findById("DAY")).thenReturn(Optional.of(createCheckpoint("DAY", day)));
+
+        LocalDateTime checkpoint = rollupService.rollUpLevel(AggregationInterval.DAY, LocalDateTime.of(2024, 1, 14, 23, 0));
+
+        assertEquals(day, checkpoint);
+        verifyNoInteractions(rollupPendingCheckRepository, aggregatedCheckResultWriter, cassandraOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRollUpLevel_StopsWhenCheckpointMovedByAnotherInstance() {
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 15, 8, 0);
+        when(rollupCheckpointRepository.findById("HOUR"))
+                .thenReturn(Optional.of(createCheckpoint("HOUR", hour)))
+                .thenReturn(Optional.of(createCheckpoint("HOUR", hour.plusHours(2))));
+        when(rollupPendingCheckRepository.findByKeyLevelAndKeyWindowStart("HOUR", hour)).thenReturn(List.of());
+        when(aggregatedCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        EntityWriteResult<RollupCheckpoint> rejected = mock(EntityWriteResult.class);
+        when(rejected.wasApplied()).thenReturn(false);
+        when(cassandraOperations.update(any(RollupCheckpoint.class), any(UpdateOptions.class))).thenReturn(rejected);
+
+        LocalDateTime checkpoint = rollupService.rollUpLevel(AggregationInterval.HOUR, null);
+
+        assertEquals(hour.plusHours(2), checkpoint);
+        verify(cassandraOperations, times(1)).update(any(RollupCheckpoint.class), any(UpdateOptions.class));
+    }
+
+    @Test
+    void testRebuildLateWindows_RebuildsBuiltWindowAndMarksCoarserWindow() {
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 14, 23, 0);
+        UUID marker = UUID.randomUUID();
+        when(rollupCheckpointRepository.findById("HOUR"))
+                .thenReturn(Optional.of(createCheckpoint("HOUR", LocalDateTime.of(2024, 1, 15, 9, 0))));
+        when(rollupCheckpointRepository.findById("DAY"))
+                .thenReturn(Optional.of(createCheckpoint("DAY", LocalDateTime.of(2024, 1, 15, 0, 0))));
+        when(rollupLateWindowRepository.findByKeyLevel("HOUR")).thenReturn(List.of(createLate("HOUR", hour, marker)));
+        when(rollupPendingCheckRepository.findByKeyLevelAndKeyWindowStart("HOUR", hour))
+                .thenReturn(List.of(createPending("HOUR", hour, "check-1")));
+        when(aggregatedCheckResultRepository
+                .findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampGreaterThanEqualAndKeyTimestampLessThan(
+                        "check-1", "MINUTE", hour, hour.plusHours(1)))
+                .thenReturn(List.of(createRow(1, 0, 0, 100.0, 100, 100, null)));
+        when(aggregatedCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        rollupService.rebuildLateWindows(AggregationInterval.HOUR);
+
+        verify(aggregatedCheckResultWriter).writeAll(anyList());
+        // Окно DAY 14.01 уже построено и тоже отмечается
+        ArgumentCaptor<RollupLateWindow> captor = ArgumentCaptor.forClass(RollupLateWindow.class);
+        verify(cassandraOperations).insert(captor.capture(), any(InsertOptions.class));
+        assertEquals("DAY", captor.getValue().getKey().getLevel());
+        assertEquals(LocalDateTime.of(2024, 1, 14, 0, 0), captor.getValue().getKey().getWindowStart());
+        verify(cassandraOperations).delete(argThat(late -> late instanceof RollupLateWindow window
+                && marker.equals(window.getMarker())), any(DeleteOptions.class));
+        assertEquals(1.0, meterRegistry.get("statistics.rollup.windows.rebuilt").tag("level", "HOUR").counter().count());
+    }
+
+    @Test
+    void testRebuildLateWindows_LeavesWindowsAfterCheckpoint() {
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 15, 9, 0);
+        when(rollupCheckpointRepository.findById("HOUR")).thenReturn(Optional.of(createCheckpoint("HOUR", hour)));
+        when(rollupLateWindowRepository.findByKeyLevel("HOUR"))
+                .thenReturn(List.of(createLate("HOUR", hour, UUID.randomUUID())));
+
+        rollupService.rebuildLateWindows(AggregationInterval.HOUR);
+
+        verifyNoInteractions(rollupPendingCheckRepository, aggregatedCheckResultWriter, cassandraOperations);
+    }
+
+    @Test
+    void testRollUp_DisabledDoesNothing() {
+        RollupProperties properties = new RollupProperties();
+        properties.setEnabled(false);
+        rollupService = new RollupService(aggregatedCheckResultRepository, rollupPendingCheckRepository,
+                rollupCheckpointRepository, rollupLateWindowRepository, cassandraOperations, aggregatedCheckResultWriter, properties, meterRegistry);
+
+        rollupService.rollUp();
+
+        verifyNoInteractions(rollupCheckpointRepository, cassandraOperations, aggregatedCheckResultWriter);
+    }
+
+    private static AggregatedCheckResult createRow(int up, int down, int unknown, double avg, int min, int max,
+                                                   LatencySketch sketch) {
+        AggregatedCheckResult row = new AggregatedCheckResult();
+        row.setUpCount(up);
+        row.setDownCount(down);
+        row.setUnknownCount(unknown);
+        row.setAvgResponseTime(avg);
+        row.setMinResponseTime(min);
+        row.setMaxResponseTime(max);
+        if (sketch != null) {
+            row.setLatencySketch(ByteBuffer.wrap(sketch.toBytes()));
+        }
+        return row;
+    }
+
+    private static RollupCheckpoint createCheckpoint(String level, LocalDateTime completedUntil) {
+        RollupCheckpoint checkpoint = new RollupCheckpoint();
+        checkpoint.setLevel(level);
+        checkpoint.setCompletedUntil(completedUntil);
+        return checkpoint;
+    }
+
+    private static RollupLateWindow createLate(String level, LocalDateTime windowStart, UUID marker) {
+        RollupLateWindow.RollupLateWindowKey key = new RollupLateWindow.RollupLateWindowKey();
+        key.setLevel(level);
+        key.setWindowStart(windowStart);
+        RollupLateWindow late = new RollupLateWindow();
+        late.setKey(key);
+        late.setMarker(marker);
+        return late;
+    }
+
+    private static RollupPendingCheck createPending(String level, LocalDateTime windowStart, String checkId) {
+        RollupPendingCheck.RollupPendingCheckKey key = new RollupPendingCheck.RollupPendingCheckKey();
+        key.setLevel(level);
+        key.setWindowStart(windowStart);
+        key.setCheckId(checkId);
+        RollupPendingCheck pending = new RollupPendingCheck();
+        pending.setKey(key);
+        return pending;
+    }
+}
@@ -3,15 +3,27 @@ package ru.oldzoomer.pingtower.statistics.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.RawCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.LatestCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.cassandra.writer.RawCheckResultWriter;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
 
 import java.time.LocalDateTime;
-
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,9 +32,27 @@ class StatisticsProcessingServiceTest {
     @Mock
     private RawCheckResultRepository rawCheckResultRepository;
 
+    @Mock
+    private RawCheckResultWriter rawCheckResultWriter;
+
+    @Mock
+    private LatestCheckResultWriter latestCheckResultWriter;
+
+    @Mock
+    private LatestCheckResultCache latestCheckResultCache;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private StatusStreamService statusStreamService;
+
     @Mock
     private AggregationService aggregationService;
 
+    @Spy
+    private RawStorageProperties rawStorageProperties = new RawStorageProperties();
+
     @InjectMocks
     private StatisticsProcessingService statisticsProcessingService;
 
@@ -158,6 +188,118 @@ class StatisticsProcessingServiceTest {
         verify(rawCheckResultRepository, times(1)).save(any(RawCheckResult.class));
     }
 
+    @Test
+    void testSaveRawCheckResult_WithPhaseTimings() {
+        // Given
+        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
+        CheckResult.Metrics metrics = new CheckResult.Metrics();
+        metrics.setDnsLookupNanos(1_200_000L);
+        metrics.setTcpConnectNanos(15_000_000L);
+        metrics.setTimeToFirstByteNanos(80_000_000L);
+        metrics.setDownloadNanos(5_000_000L);
+        // tlsHandshakeNanos и requestWriteNanos не измерены
+        checkResult.setMetrics(metrics);
+        ArgumentCaptor<RawCheckResult> captor = ArgumentCaptor.forClass(RawCheckResult.class);
+
+        // When
+        statisticsProcessingService.processCheckResult(checkResult);
+
+        // Then
+        verify(rawCheckResultRepository).save(captor.capture());
+        RawCheckResult saved = captor.getValue();
+        assertEquals(LocalDateTime.of(2024, 1, 15, 0, 0), saved.getKey().getBucket());
+        assertEquals(1_200_000L, saved.getDnsLookupNanos());
+        assertEquals(15_000_000L, saved.getTcpConnectNanos());
+        assertEquals(80_000_000L, saved.getTimeToFirstByteNanos());
+        assertEquals(5_000_000L, saved.getDownloadNanos());
+        assertNull(saved.getTlsHandshakeNanos());
+        assertNull(saved.getRequestWriteNanos());
+        assertNull(saved.getMetrics());
+    }
+
+    @Test
+    void testProcessCheckResults_SavesBatchThenAggregates() {
+        // Given
+        CheckResult first = createTestCheckResult("test-check-1", "UP", 150, 200);
+        CheckResult second = createTestCheckResult("test-check-2", "DOWN", 3000, 503);
+        when(rawCheckResultWriter.writeAll(List.of(first, second))).thenReturn(CompletableFuture.completedFuture(null));
+        when(latestCheckResultWriter.writeAll(List.of(first, second))).thenReturn(CompletableFuture.completedFuture(null));
+        List<StatusTransition> transitions = List.of(new StatusTransition("test-check-2", "UP", "DOWN", testTimestamp,
+                testTimestamp.minusHours(1)));
+        when(dashboardService.apply(List.of(first, second))).thenReturn(transitions);
+
+        // When
+        statisticsProcessingService.processCheckResults(Map.of(0, List.of(first, second)));
+
+        // Then
+        verify(rawCheckResultWriter, times(1)).writeAll(List.of(first, second));
+        verify(latestCheckResultWriter, times(1)).writeAll(List.of(first, second));
+        verify(rawCheckResultRepository, never()).save(any(RawCheckResult.class));
+        verify(latestCheckResultCache).update(first);
+        verify(latestCheckResultCache).update(second);
+        verify(statusStreamService).publish(transitions);
+        verify(aggregationService).processCheckResultForAggregation(first, 0);
+        verify(aggregationService).processCheckResultForAggregation(second, 0);
+    }
+
+    @Test
+    void testProcessCheckResults_WriteFailureIsPropagated() {
+        // Given
+        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
+        when(rawCheckResultWriter.writeAll(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Write timeout")));
+        when(latestCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When / Then
+        assertThrows(RuntimeException.class, () -> statisticsProcessingService.processCheckResults(Map.of(0, List.of(checkResult))));
+        verify(latestCheckResultCache, never()).update(any());
+        verify(dashboardService, never()).apply(any());
+        verify(aggregationService, never()).processCheckResultForAggregation(any(), anyInt());
+    }
+
+    @Test
+    void testProcessCheckResults_LatestWriteFailureIsPropagated() {
+        // Given
+        CheckResult checkResult = createTestCheckResult("test-check-1", "UP", 150, 200);
+        when(rawCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        when(latestCheckResultWriter.writeAll(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Write timeout")));
+
+        // When / Then
+        assertThrows(RuntimeException.class, () -> statisticsProcessingService.processCheckResults(Map.of(0, List.of(checkResult))));
+        verify(latestCheckResultCache, never()).update(any());
+        verify(dashboardService, never()).apply(any());
+        verify(aggregationService, never()).processCheckResultForAggregation(any(), anyInt());
+    }
+
+    @Test
+    void testProcessCheckResults_FailureAfterWriteIsNotPropagated() {
+        // Given
+        CheckResult first = createTestCheckResult("test-check-1", "UP", 150, 200);
+        CheckResult second = createTestCheckResult("test-check-2", "UP", 150, 200);
+        when(rawCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        when(latestCheckResultWriter.writeAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        when(dashboardService.apply(anyList())).thenThrow(new IllegalStateException("Dashboard failure"));
+        doThrow(new IllegalStateException("Aggregation failure"))
+                .when(aggregationService).processCheckResultForAggregation(first, 0);
+
+        // When: пакет уже записан, повтор учел бы результаты в агрегатах дважды
+        assertDoesNotThrow(() -> statisticsProcessingService.processCheckResults(Map.of(0, List.of(first, second))));
+
+        // Then
+        verify(aggregationService).processCheckResultForAggregation(second, 0);
+    }
+
+    @Test
+    void testProcessCheckResults_EmptyBatch() {
+        // When
+        statisticsProcessingService.processCheckResults(Map.of());
+
+        // Then
+        verifyNoInteractions(rawCheckResultWriter, latestCheckResultWriter, latestCheckResultCache, dashboardService,
+                statusStreamService, aggregationService);
+    }
+
     private CheckResult createTestCheckResult(String checkId, String status, long responseTime, int httpStatusCode) {
         CheckResult checkResult = new CheckResult();
         checkResult.setCheckId(checkId);
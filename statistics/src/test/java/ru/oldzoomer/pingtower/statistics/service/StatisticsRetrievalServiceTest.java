@@ -1,24 +1,53 @@
 package ru.oldzoomer.pingtower.statistics.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.oldzoomer.pingtower.statistics.aggregation.LatencySketch;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.AggregatedCheckResult;
+import ru.oldzoomer.pingtower.statistics.cassandra.entity.LatestCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.entity.RawCheckResult;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.AggregatedCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.cassandra.repository.LatestCheckResultRepository;
 import ru.oldzoomer.pingtower.statistics.cassandra.repository.RawCheckResultRepository;
+import ru.oldzoomer.pingtower.statistics.config.BulkReadProperties;
+import ru.oldzoomer.pingtower.statistics.config.DashboardProperties;
+import ru.oldzoomer.pingtower.statistics.config.LatestResultProperties;
+import ru.oldzoomer.pingtower.statistics.config.RawStorageProperties;
+import ru.oldzoomer.pingtower.statistics.dto.AggregatedStatistics;
+import ru.oldzoomer.pingtower.statistics.dto.CheckHistoryPage;
 import ru.oldzoomer.pingtower.statistics.dto.CheckResult;
+import ru.oldzoomer.pingtower.statistics.dto.CheckStatistics;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,14 +59,41 @@ class StatisticsRetrievalServiceTest {
     @Mock
     private AggregatedCheckResultRepository aggregatedCheckResultRepository;
 
-    @InjectMocks
+    @Mock
+    private LatestCheckResultRepository latestCheckResultRepository;
+
+    @Mock
+    private AsyncCassandraOperations asyncCassandraOperations;
+
+    private BulkReadProperties bulkReadProperties;
+
+    private LatestResultProperties latestResultProperties;
+
+    private RawStorageProperties rawStorageProperties;
+
     private StatisticsRetrievalService statisticsRetrievalService;
 
     private LocalDateTime testTimestamp;
 
+    private LocalDateTime testBucket;
+
+    private static final List<Double> PERCENTILES = List.of(50.0, 99.0);
+
     @BeforeEach
     void setUp() {
+        rawStorageProperties = new RawStorageProperties();
+        latestResultProperties = new LatestResultProperties();
+        bulkReadProperties = new BulkReadProperties();
+        LatestCheckResultCache latestCheckResultCache =
+                new LatestCheckResultCache(latestResultProperties, new SimpleMeterRegistry());
+        // Интервалы читаются в вызывающем потоке, чтобы порядок вызовов был детерминированным
+        statisticsRetrievalService = new StatisticsRetrievalService(
+                rawCheckResultRepository, aggregatedCheckResultRepository, Runnable::run, rawStorageProperties,
+                latestCheckResultRepository, latestCheckResultCache, latestResultProperties,
+                new DashboardService(latestCheckResultRepository, new DashboardProperties(), new SimpleMeterRegistry()),
+                asyncCassandraOperations, bulkReadProperties);
         testTimestamp = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+        testBucket = LocalDateTime.of(2024, 1, 15, 0, 0, 0);
     }
 
     @Test
@@ -46,8 +102,8 @@ class StatisticsRetrievalServiceTest {
         String checkId = "test-check-1";
         RawCheckResult rawCheckResult = createTestRawCheckResult(checkId, "UP", 150, 200);
         
-        when(rawCheckResultRepository.findByKeyCheckIdOrderByKeyTimestampDesc(checkId))
-                .thenReturn(List.of(rawCheckResult));
+        when(rawCheckResultRepository.findFirstByKeyCheckIdAndKeyBucket(eq(checkId), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty(), Optional.of(rawCheckResult));
 
         // When
         CheckResult result = statisticsRetrievalService.getLatestCheckResult(checkId);
@@ -58,27 +114,31 @@ class StatisticsRetrievalServiceTest {
         assertThat(result.getStatus()).isEqualTo("UP");
         assertThat(result.getResponseTime()).isEqualTo(150);
         assertThat(result.getHttpStatusCode()).isEqualTo(200);
+        // Текущий интервал пуст, результат найден в предыдущем
+        verify(rawCheckResultRepository, times(2)).findFirstByKeyCheckIdAndKeyBucket(eq(checkId), any(LocalDateTime.class));
     }
 
     @Test
     void testGetLatestCheckResult_NoResults() {
         // Given
         String checkId = "test-check-1";
-        when(rawCheckResultRepository.findByKeyCheckIdOrderByKeyTimestampDesc(checkId))
-                .thenReturn(Collections.emptyList());
+        when(rawCheckResultRepository.findFirstByKeyCheckIdAndKeyBucket(eq(checkId), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
 
         // When
         CheckResult result = statisticsRetrievalService.getLatestCheckResult(checkId);
 
         // Then
         assertThat(result).isNull();
+        // Поиск ограничен глубиной latest-lookback: текущий день и 7 предыдущих
+        verify(rawCheckResultRepository, times(8)).findFirstByKeyCheckIdAndKeyBucket(eq(checkId), any(LocalDateTime.class));
     }
 
     @Test
     void testGetLatestCheckResult_Exception() {
         // Given
         String checkId = "test-check-1";
-        when(rawCheckResultRepository.findByKeyCheckIdOrderByKeyTimestampDesc(checkId))
+        when(rawCheckResultRepository.findFirstByKeyCheckIdAndKeyBucket(eq(checkId), any(LocalDateTime.class)))
                 .thenThrow(new RuntimeException("Database error"));
 
         // When
@@ -88,6 +148,64 @@ class StatisticsRetrievalServiceTest {
         assertThat(result).isNull();
     }
 
+    @Test
+    void testGetLatestCheckResult_FromLatestTable() {
+        // Given
+        String checkId = "test-check-1";
+        when(latestCheckResultRepository.findById(checkId))
+                .thenReturn(Optional.of(createTestLatestCheckResult(checkId, "DOWN", 3000, 503)));
+
+        // When
+        CheckResult result = statisticsRetrievalService.getLatestCheckResult(checkId);
+
+        // Then
+        assertThat(result).isNotNull();
+        assertThat(result.getStatus()).isEqualTo("DOWN");
+        assertThat(result.getResponseTime()).isEqualTo(3000);
+        assertThat(result.getHttpStatusCode()).isEqualTo(503);
+        assertThat(result.getTimestamp()).isEqualTo(testTimestamp);
+        verify(rawCheckResultRepository, never()).findFirstByKeyCheckIdAndKeyBucket(any(), any());
+    }
+
+    @Test
+    void testGetLatestCheckResult_ServedFromCache() {
+        // Given
+        String checkId = "test-check-1";
+        when(latestCheckResultRepository.findById(checkId))
+                .thenReturn(Optional.of(createTestLatestCheckResult(checkId, "UP", 150, 200)));
+
+        // When
+        statisticsRetrievalService.getLatestCheckResult(checkId);
+        CheckResult result = statisticsRetrievalService.getLatestCheckResult(checkId);
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo("UP");
+        verify(latestCheckResultRepository, times(1)).findById(checkId);
+    }
+
+    @Test
+    void testGetLatestCheckResults_LoadsMissingInBatches() {
+        // Given
+        latestResultProperties.setLoadBatchSize(2);
+        when(latestCheckResultRepository.findAllById(List.of("check-1", "check-2")))
+                .thenReturn(List.of(createTestLatestCheckResult("check-1", "UP", 150, 200)));
+        when(latestCheckResultRepository.findAllById(List.of("check-3")))
+                .thenReturn(List.of(createTestLatestCheckResult("check-3", "DOWN", 0, 503)));
+
+        // When
+        Map<String, CheckResult> results =
+                statisticsRetrievalService.getLatestCheckResults(List.of("check-1", "check-2", "check-3"));
+        Map<String, CheckResult> cached =
+                statisticsRetrievalService.getLatestCheckResults(List.of("check-1", "check-2", "check-3"));
+
+        // Then
+        assertThat(results).containsOnlyKeys("check-1", "check-3");
+        assertThat(results.get("check-3").getStatus()).isEqualTo("DOWN");
+        // Отсутствие результата у check-2 тоже кэшируется, повторный вызов не обращается к таблице
+        assertThat(cached).containsOnlyKeys("check-1", "check-3");
+        verify(latestCheckResultRepository, times(2)).findAllById(any());
+    }
+
     @Test
     void testGetCheckHistory_WithResults() {
         // Given
@@ -98,16 +216,18 @@ class StatisticsRetrievalServiceTest {
         RawCheckResult result1 = createTestRawCheckResult(checkId, "UP", 100, 200);
         RawCheckResult result2 = createTestRawCheckResult(checkId, "DOWN", 500, 500);
         
-        when(rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(checkId, from, to))
-                .thenReturn(List.of(result1, result2));
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(lastSlice(result1, result2));
 
         // When
-        List<CheckResult> results = statisticsRetrievalService.getCheckHistory(checkId, from, to, 10, 0);
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, to, 10, 0, null);
 
         // Then
-        assertThat(results).hasSize(2);
-        assertThat(results.get(0).getStatus()).isEqualTo("UP");
-        assertThat(results.get(1).getStatus()).isEqualTo("DOWN");
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getItems().get(0).getStatus()).isEqualTo("UP");
+        assertThat(page.getItems().get(1).getStatus()).isEqualTo("DOWN");
+        assertThat(page.getNextCursor()).isNull();
     }
 
     @Test
@@ -121,16 +241,63 @@ class StatisticsRetrievalServiceTest {
         RawCheckResult result2 = createTestRawCheckResult(checkId, "DOWN", 500, 500);
         RawCheckResult result3 = createTestRawCheckResult(checkId, "UP", 150, 200);
         
-        when(rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(checkId, from, to))
-                .thenReturn(List.of(result1, result2, result3));
+        // Пропускаемая строка читается отдельной страницей, чтобы следующая начиналась с нужной строки
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(slice(pagingState(1), result1), lastSlice(result2, result3));
 
         // When - limit 2, offset 1
-        List<CheckResult> results = statisticsRetrievalService.getCheckHistory(checkId, from, to, 2, 1);
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, to, 2, 1, null);
 
         // Then
-        assertThat(results).hasSize(2);
-        assertThat(results.get(0).getStatus()).isEqualTo("DOWN");
-        assertThat(results.get(1).getStatus()).isEqualTo("UP");
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getItems().get(0).getStatus()).isEqualTo("DOWN");
+        assertThat(page.getItems().get(1).getStatus()).isEqualTo("UP");
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(rawCheckResultRepository, times(2)).findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), captor.capture());
+        assertThat(captor.getAllValues()).extracting(Pageable::getPageSize).containsExactly(1, 2);
+        assertThat(((CassandraPageRequest) captor.getAllValues().get(1)).getPagingState()).isEqualTo(pagingState(1));
+    }
+
+    @Test
+    void testGetCheckHistory_CursorContinuesFromPagingState() {
+        // Given
+        String checkId = "test-check-1";
+        LocalDateTime from = testTimestamp.minusHours(1);
+        LocalDateTime to = testTimestamp;
+
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(slice(pagingState(1), createTestRawCheckResult(checkId, "UP", 100, 200)),
+                        lastSlice(createTestRawCheckResult(checkId, "DOWN", 500, 500)));
+
+        // When
+        CheckHistoryPage first = statisticsRetrievalService.getCheckHistory(checkId, from, to, 1, 0, null);
+        CheckHistoryPage second = statisticsRetrievalService.getCheckHistory(checkId, from, to, 1, 0, first.getNextCursor());
+
+        // Then
+        assertThat(first.getItems()).extracting(CheckResult::getStatus).containsExactly("UP");
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(second.getItems()).extracting(CheckResult::getStatus).containsExactly("DOWN");
+        assertThat(second.getNextCursor()).isNull();
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(rawCheckResultRepository, times(2)).findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), captor.capture());
+        assertThat(((CassandraPageRequest) captor.getAllValues().get(1)).getPagingState()).isEqualTo(pagingState(1));
+    }
+
+    @Test
+    void testGetCheckHistory_InvalidCursor() {
+        // Given
+        LocalDateTime from = testTimestamp.minusHours(1);
+        String otherRange = new HistoryCursor(testBucket.minusDays(30), null).encode();
+
+        // When & Then
+        assertThatThrownBy(() -> statisticsRetrievalService.getCheckHistory("test-check-1", from, testTimestamp, 10, 0, "%%%"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> statisticsRetrievalService.getCheckHistory("test-check-1", from, testTimestamp, 10, 0, otherRange))
+                .isInstanceOf(IllegalArgumentException.class);
     }
 
     @Test
@@ -140,14 +307,16 @@ class StatisticsRetrievalServiceTest {
         LocalDateTime from = testTimestamp.minusHours(1);
         LocalDateTime to = testTimestamp;
         
-        when(rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(checkId, from, to))
-                .thenReturn(Collections.emptyList());
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(lastSlice());
 
         // When
-        List<CheckResult> results = statisticsRetrievalService.getCheckHistory(checkId, from, to, 10, 0);
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, to, 10, 0, null);
 
         // Then
-        assertThat(results).isEmpty();
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
     }
 
     @Test
@@ -156,15 +325,109 @@ class StatisticsRetrievalServiceTest {
         String checkId = "test-check-1";
         RawCheckResult result = createTestRawCheckResult(checkId, "UP", 100, 200);
         
-        when(rawCheckResultRepository.findByKeyCheckIdAndKeyTimestampBetween(eq(checkId), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(List.of(result));
+        // Последние 24 часа попадают в два суточных интервала, читаются от нового к старому
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(lastSlice(result), lastSlice());
 
         // When - null dates should use defaults
-        List<CheckResult> results = statisticsRetrievalService.getCheckHistory(checkId, null, null, 10, 0);
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, null, null, 10, 0, null);
 
         // Then
-        assertThat(results).hasSize(1);
-        assertThat(results.getFirst().getStatus()).isEqualTo("UP");
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getItems().getFirst().getStatus()).isEqualTo("UP");
+    }
+
+    @Test
+    void testGetCheckHistory_ContinuesAcrossBuckets() {
+        // Given
+        String checkId = "test-check-1";
+        LocalDateTime from = LocalDateTime.of(2024, 1, 14, 22, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 15, 2, 0, 0);
+
+        RawCheckResult newer = createTestRawCheckResult(checkId, "DOWN", 500, 500);
+        RawCheckResult older = createTestRawCheckResult(checkId, "UP", 100, 200);
+
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(lastSlice(newer));
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket.minusDays(1)), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(lastSlice(older));
+
+        // When
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, to, 10, 0, null);
+
+        // Then
+        assertThat(page.getItems()).extracting(CheckResult::getStatus).containsExactly("DOWN", "UP");
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testGetCheckHistory_FullPageEndsOnBucketBoundary() {
+        // Given
+        String checkId = "test-check-1";
+        LocalDateTime from = LocalDateTime.of(2024, 1, 14, 22, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 15, 2, 0, 0);
+
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(lastSlice(createTestRawCheckResult(checkId, "DOWN", 500, 500)));
+
+        // When
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, to, 1, 0, null);
+
+        // Then - следующая страница начинается с предыдущего интервала
+        HistoryCursor cursor = HistoryCursor.decode(page.getNextCursor());
+        assertThat(cursor.getBucket()).isEqualTo(testBucket.minusDays(1));
+        assertThat(cursor.getPagingState()).isNull();
+    }
+
+    @Test
+    void testGetCheckHistory_LimitsBucketsPerQuery() {
+        // Given
+        String checkId = "test-check-1";
+        rawStorageProperties.setMaxBucketsPerQuery(2);
+        LocalDateTime from = testTimestamp.minusDays(5);
+
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), any(LocalDateTime.class), eq(from), eq(testTimestamp), any(Pageable.class)))
+                .thenReturn(lastSlice());
+
+        // When
+        CheckHistoryPage page = statisticsRetrievalService.getCheckHistory(checkId, from, testTimestamp, 10, 0, null);
+        CheckHistoryPage next = statisticsRetrievalService.getCheckHistory(checkId, from, testTimestamp, 10, 0,
+                page.getNextCursor());
+
+        // Then - более старые интервалы читаются по курсору следующей страницы
+        assertThat(HistoryCursor.decode(page.getNextCursor()).getBucket()).isEqualTo(testBucket.minusDays(2));
+        assertThat(HistoryCursor.decode(next.getNextCursor()).getBucket()).isEqualTo(testBucket.minusDays(4));
+        verify(rawCheckResultRepository, times(4)).findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), any(LocalDateTime.class), eq(from), eq(testTimestamp), any(Pageable.class));
+    }
+
+    @Test
+    void testStreamCheckHistory_ReadsAllPagesInOrder() {
+        // Given
+        String checkId = "test-check-1";
+        rawStorageProperties.setHistoryFetchSize(1);
+        LocalDateTime from = LocalDateTime.of(2024, 1, 14, 22, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 15, 2, 0, 0);
+
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(slice(pagingState(1), createTestRawCheckResult(checkId, "DOWN", 500, 500)),
+                        lastSlice(createTestRawCheckResult(checkId, "UP", 100, 200)));
+        when(rawCheckResultRepository.findByKeyCheckIdAndKeyBucketAndKeyTimestampBetween(
+                eq(checkId), eq(testBucket.minusDays(1)), eq(from), eq(to), any(Pageable.class)))
+                .thenReturn(lastSlice(createTestRawCheckResult(checkId, "UNKNOWN", 0, 0)));
+
+        // When
+        List<CheckResult> streamed = new ArrayList<>();
+        statisticsRetrievalService.streamCheckHistory(checkId, from, to, streamed::add);
+
+        // Then
+        assertThat(streamed).extracting(CheckResult::getStatus).containsExactly("DOWN", "UP", "UNKNOWN");
     }
 
     @Test
@@ -182,12 +445,15 @@ class StatisticsRetrievalServiceTest {
                 .thenReturn(List.of(aggregatedResult));
 
         // When
-        Object result = statisticsRetrievalService.getAggregatedData(checkId, interval, from, to);
+        AggregatedStatistics result = statisticsRetrievalService.getAggregatedData(checkId, interval, from, to, PERCENTILES);
 
         // Then
-        assertThat(result).isInstanceOf(List.class);
-        List<?> results = (List<?>) result;
-        assertThat(results).hasSize(1);
+        assertThat(result.getWindows()).hasSize(1);
+        assertThat(result.getUpCount()).isEqualTo(5);
+        assertThat(result.getDownCount()).isEqualTo(2);
+        assertThat(result.getAvgResponseTime()).isEqualTo(120.5);
+        // Строки без эскиза не дают перцентилей
+        assertThat(result.getPercentiles()).isEmpty();
     }
 
     @Test
@@ -202,12 +468,10 @@ class StatisticsRetrievalServiceTest {
                 .thenReturn(List.of(aggregatedResult));
 
         // When - null dates should use defaults
-        Object result = statisticsRetrievalService.getAggregatedData(checkId, interval, null, null);
+        AggregatedStatistics result = statisticsRetrievalService.getAggregatedData(checkId, interval, null, null, PERCENTILES);
 
         // Then
-        assertThat(result).isInstanceOf(List.class);
-        List<?> results = (List<?>) result;
-        assertThat(results).hasSize(1);
+        assertThat(result.getWindows()).hasSize(1);
     }
 
     @Test
@@ -223,12 +487,139 @@ class StatisticsRetrievalServiceTest {
                 .thenReturn(Collections.emptyList());
 
         // When
-        Object result = statisticsRetrievalService.getAggregatedData(checkId, interval, from, to);
+        AggregatedStatistics result = statisticsRetrievalService.getAggregatedData(checkId, interval, from, to, PERCENTILES);
 
         // Then
-        assertThat(result).isInstanceOf(List.class);
-        List<?> results = (List<?>) result;
-        assertThat(results).isEmpty();
+        assertThat(result.getWindows()).isEmpty();
+        assertThat(result.getAvgResponseTime()).isNull();
+    }
+
+    @Test
+    void testGetAggregatedData_MergesWindowSketchesIntoPeriodPercentiles() {
+        // Given
+        String checkId = "test-check-1";
+        LocalDateTime from = testTimestamp.minusDays(1);
+        LocalDateTime to = testTimestamp;
+
+        LatencySketch fast = new LatencySketch();
+        LatencySketch slow = new LatencySketch();
+        for (int i = 1; i <= 100; i++) {
+            fast.add(100);
+            slow.add(i == 100 ? 5000 : 200);
+        }
+        AggregatedCheckResult first = createTestAggregatedCheckResult(checkId, "HOUR");
+        first.setLatencySketch(ByteBuffer.wrap(fast.toBytes()));
+        AggregatedCheckResult second = createTestAggregatedCheckResult(checkId, "HOUR");
+        second.setLatencySketch(ByteBuffer.wrap(slow.toBytes()));
+
+        when(aggregatedCheckResultRepository.findByKeyCheckIdAndKeyAggregationIntervalAndKeyTimestampBetween(
+                checkId, "HOUR", from, to))
+                .thenReturn(List.of(first, second));
+
+        // When
+        AggregatedStatistics result = statisticsRetrievalService.getAggregatedData(
+                checkId, "hourly", from, to, List.of(25.0, 75.0, 100.0));
+
+        // Then
+        assertThat(result.getInterval()).isEqualTo("HOUR");
+        assertThat(result.getWindows().get(0).getPercentiles().get("p75")).isCloseTo(100, within(1.0));
+        assertThat(result.getWindows().get(1).getPercentiles().get("p75")).isCloseTo(200, within(2.0));
+        assertThat(result.getPercentiles().get("p25")).isCloseTo(100, within(1.0));
+        assertThat(result.getPercentiles().get("p75")).isCloseTo(200, within(2.0));
+        assertThat(result.getPercentiles().get("p100")).isCloseTo(5000, within(50.0));
+    }
+
+    @Test
+    void testGetAggregatedData_InvalidIntervalOrPercentile() {
+        assertThatThrownBy(() -> statisticsRetrievalService.getAggregatedData(
+                "test-check-1", "fortnightly", null, null, PERCENTILES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> statisticsRetrievalService.getAggregatedData(
+                "test-check-1", "HOUR", null, null, List.of(150.0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testGetBulkStatistics_ReturnsLatestAndAggregatesInRequestOrder() {
+        // Given
+        LocalDateTime from = testTimestamp.minusDays(1);
+        when(latestCheckResultRepository.findAllById(any()))
+                .thenReturn(List.of(createTestLatestCheckResult("check-2", "DOWN", 3000, 503)));
+        when(asyncCassandraOperations.select(any(Query.class), eq(AggregatedCheckResult.class)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(createTestAggregatedCheckResult("check-1", "HOUR"))),
+                        CompletableFuture.completedFuture(List.of()));
+
+        // When
+        List<CheckStatistics> results = statisticsRetrievalService.getBulkStatistics(
+                List.of("check-1", "check-2", "check-1"), "hourly", from, testTimestamp, PERCENTILES);
+
+        // Then
+        assertThat(results).extracting(CheckStatistics::getCheckId).containsExactly("check-1", "check-2");
+        assertThat(results.get(0).getLatest()).isNull();
+        assertThat(results.get(0).getAggregated().getUpCount()).isEqualTo(5);
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(1).getLatest().getStatus()).isEqualTo("DOWN");
+        assertThat(results.get(1).getAggregated().getWindows()).isEmpty();
+        verify(asyncCassandraOperations, times(2)).select(any(Query.class), eq(AggregatedCheckResult.class));
+    }
+
+    @Test
+    void testGetBulkStatistics_ReportsPerCheckErrors() {
+        // Given
+        when(latestCheckResultRepository.findAllById(any())).thenReturn(List.of());
+        when(asyncCassandraOperations.select(any(Query.class), eq(AggregatedCheckResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Read timeout")),
+                        CompletableFuture.completedFuture(List.of(createTestAggregatedCheckResult("check-2", "HOUR"))));
+
+        // When
+        List<CheckStatistics> results = statisticsRetrievalService.getBulkStatistics(
+                List.of("check-1", "check-2"), "HOUR", null, null, PERCENTILES);
+
+        // Then
+        assertThat(results.get(0).getAggregated()).isNull();
+        assertThat(results.get(0).getError()).isEqualTo("Aggregated data unavailable");
+        assertThat(results.get(1).getAggregated().getUpCount()).isEqualTo(5);
+        assertThat(results.get(1).getError()).isNull();
+    }
+
+    @Test
+    void testGetBulkStatistics_LimitsConcurrentQueries() {
+        // Given
+        bulkReadProperties.setMaxConcurrency(2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(latestCheckResultRepository.findAllById(any())).thenReturn(List.of());
+        when(asyncCassandraOperations.select(any(Query.class), eq(AggregatedCheckResult.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                sleep(20);
+                inFlight.decrementAndGet();
+                return List.of();
+            });
+        });
+
+        // When
+        List<CheckStatistics> results = statisticsRetrievalService.getBulkStatistics(
+                List.of("c-1", "c-2", "c-3", "c-4", "c-5"), "HOUR", null, null, PERCENTILES);
+
+        // Then
+        assertThat(results).hasSize(5).allSatisfy(result -> assertThat(result.getError()).isNull());
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        verify(asyncCassandraOperations, times(5)).select(any(Query.class), eq(AggregatedCheckResult.class));
+    }
+
+    @Test
+    void testGetBulkStatistics_RejectsInvalidRequests() {
+        bulkReadProperties.setMaxChecks(2);
+
+        assertThatThrownBy(() -> statisticsRetrievalService.getBulkStatistics(List.of(), "HOUR", null, null, PERCENTILES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> statisticsRetrievalService.getBulkStatistics(
+                List.of("check-1", "check-2", "check-3"), "HOUR", null, null, PERCENTILES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> statisticsRetrievalService.getBulkStatistics(
+                List.of("check-1"), "WEEK", null, null, PERCENTILES))
+                .isInstanceOf(IllegalArgumentException.class);
     }
 
     @Test
@@ -247,6 +638,7 @@ class StatisticsRetrievalServiceTest {
         
         RawCheckResult.RawCheckResultKey key = new RawCheckResult.RawCheckResultKey();
         key.setCheckId(checkId);
+        key.setBucket(testBucket);
         key.setTimestamp(testTimestamp);
         rawCheckResult.setKey(key);
         
@@ -258,6 +650,16 @@ class StatisticsRetrievalServiceTest {
         return rawCheckResult;
     }
 
+    private LatestCheckResult createTestLatestCheckResult(String checkId, String status, int responseTime, int httpStatusCode) {
+        LatestCheckResult latest = new LatestCheckResult();
+        latest.setCheckId(checkId);
+        latest.setTimestamp(testTimestamp);
+        latest.setStatus(status);
+        latest.setResponseTime(responseTime);
+        latest.setHttpStatusCode(httpStatusCode);
+        return latest;
+    }
+
     private AggregatedCheckResult createTestAggregatedCheckResult(String checkId, String interval) {
         AggregatedCheckResult aggregatedResult = new AggregatedCheckResult();
         
@@ -276,4 +678,24 @@ class StatisticsRetrievalServiceTest {
         
         return aggregatedResult;
     }
-}
\ No newline at end of file
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Slice<RawCheckResult> lastSlice(RawCheckResult... rows) {
+        return new SliceImpl<>(List.of(rows), CassandraPageRequest.first(Math.max(1, rows.length)), false);
+    }
+
+    private static Slice<RawCheckResult> slice(ByteBuffer nextPagingState, RawCheckResult... rows) {
+        return new SliceImpl<>(List.of(rows), CassandraPageRequest.of(PageRequest.of(0, rows.length), nextPagingState), true);
+    }
+
+    private static ByteBuffer pagingState(int page) {
+        return ByteBuffer.wrap(new byte[]{0x0A, (byte) page});
+    }
+}
@@ -0,0 +1,213 @@
+package ru.oldzoomer.pingtower.statistics.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.oldzoomer.pingtower.statistics.config.StatusStreamProperties;
+import ru.oldzoomer.pingtower.statistics.dto.StatusEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatusStreamServiceTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private StatusStreamProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    // Отправка выполняется вручную, чтобы накопить события в буфере подписчика
+    private final List<Runnable> dispatches = new ArrayList<>();
+
+    private StatusStreamService statusStreamService;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+
+    @BeforeEach
+    void setUp() {
+        properties = new StatusStreamProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        statusStreamService = new StatusStreamService(dashboardService, properties, dispatches::add, meterRegistry);
+    }
+
+    @Test
+    void testPublish_SendsOnlySubscribedChecks() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        statusStreamService.register(emitter, Set.of());
+        RecordingEmitter filtered = new RecordingEmitter();
+        when(dashboardService.currentStatuses(Set.of("check-2"))).thenReturn(List.of());
+        statusStreamService.register(filtered, Set.of("check-2"));
+        runDispatches();
+
+        statusStreamService.publish(List.of(transition("check-1", "UP", "DOWN"), transition("check-2", null, "UP")));
+        runDispatches();
+
+        assertEquals(List.of("check-1", "check-2"), emitter.events().stream().map(StatusEvent::getCheckId).toList());
+        assertEquals(List.of("check-2"), filtered.events().stream().map(StatusEvent::getCheckId).toList());
+        assertEquals(3.0, meterRegistry.counter("statistics.stream.events.sent").count());
+    }
+
+    @Test
+    void testPublish_CoalescesPendingTransitionsOfCheck() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        statusStreamService.register(emitter, Set.of());
+
+        statusStreamService.publish(List.of(transition("check-1", "UP", "DOWN")));
+        statusStreamService.publish(List.of(transition("check-1", "DOWN", "UNKNOWN")));
+        statusStreamService.publish(List.of(transition("check-2", "UP", "DOWN")));
+        statusStreamService.publish(List.of(transition("check-2", "DOWN", "UP")));
+
+        // Отправка подписчику запланирована один раз
+        assertEquals(1, dispatches.size());
+        runDispatches();
+        List<StatusEvent> events = emitter.events();
+        assertEquals(1, events.size());
+        assertEquals("check-1", events.get(0).getCheckId());
+        assertEquals("UP", events.get(0).getPreviousStatus());
+        assertEquals("UNKNOWN", events.get(0).getStatus());
+    }
+
+    @Test
+    void testPublish_OverflowDisconnectsSubscriber() {
+        properties.setBufferSize(2);
+        RecordingEmitter emitter = new RecordingEmitter();
+        statusStreamService.register(emitter, Set.of());
+
+        statusStreamService.publish(List.of(transition("check-1", "UP", "DOWN"), transition("check-2", "UP", "DOWN"),
+                transition("check-3", "UP", "DOWN")));
+        runDispatches();
+        statusStreamService.publish(List.of(transition("check-4", "UP", "DOWN")));
+
+        assertEquals(List.of(StatusStreamService.OVERFLOW_EVENT), emitter.names);
+        assertTrue(emitter.completed);
+        assertTrue(dispatches.isEmpty());
+        assertEquals(1.0, meterRegistry.counter("statistics.stream.overflows").count());
+        assertEquals(0.0, meterRegistry.get("statistics.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void testRegister_SendsCurrentStatusesOfSelectedChecks() {
+        when(dashboardService.currentStatuses(Set.of("check-1")))
+                .thenReturn(List.of(new StatusTransition("check-1", null, "DOWN", now.minusMinutes(5), null)));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        statusStreamService.register(emitter, Set.of("check-1"));
+        runDispatches();
+
+        List<StatusEvent> events = emitter.events();
+        assertEquals(1, events.size());
+        assertEquals("DOWN", events.get(0).getStatus());
+        assertNull(events.get(0).getPreviousStatus());
+    }
+
+    @Test
+    void testDispatch_RemovesDisconnectedSubscriber() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failure = new IOException("Broken pipe");
+        statusStreamService.register(emitter, Set.of());
+
+        statusStreamService.publish(List.of(transition("check-1", "UP", "DOWN")));
+        runDispatches();
+        statusStreamService.publish(List.of(transition("check-1", "DOWN", "UP")));
+
+        assertTrue(dispatches.isEmpty());
+        assertEquals(0.0, meterRegistry.get("statistics.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void testHeartbeat_SendsComment() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        statusStreamService.register(emitter, Set.of());
+
+        statusStreamService.heartbeat();
+        runDispatches();
+
+        assertEquals(1, emitter.comments);
+        assertTrue(emitter.events().isEmpty());
+    }
+
+    @Test
+    void testHeartbeat_DisconnectsSubscriberWithStalledSend() {
+        properties.setSendTimeout(Duration.ZERO);
+        RecordingEmitter emitter = new RecordingEmitter();
+        statusStreamService.register(emitter, Set.of());
+        // Отправка запланирована, но не завершена
+        statusStreamService.publish(List.of(transition("check-1", "UP", "DOWN")));
+
+        statusStreamService.heartbeat();
+        runDispatches();
+
+        assertTrue(emitter.completed);
+        assertTrue(emitter.events().isEmpty());
+        assertEquals(0, emitter.comments);
+        assertEquals(1.0, meterRegistry.counter("statistics.stream.slow").count());
+        assertEquals(0.0, meterRegistry.get("statistics.stream.subscribers").gauge().value());
+    }
+
+    private void runDispatches() {
+        while (!dispatches.isEmpty()) {
+            dispatches.remove(0).run();
+        }
+    }
+
+    private StatusTransition transition(String checkId, String previousStatus, String status) {
+        return new StatusTransition(checkId, previousStatus, status, now, previousStatus != null ? now.minusMinutes(1) : null);
+    }
+
+    /**
+     * Поток, запоминающий отправленные события
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> names = new ArrayList<>();
+        private final List<Object> data = new ArrayList<>();
+        private int comments;
+        private boolean completed;
+        private IOException failure;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            String name = null;
+            for (DataWithMediaType item : builder.build()) {
+                Object value = item.getData();
+                if (value instanceof String text) {
+                    if (text.startsWith(":")) {
+                        comments++;
+                    } else if (text.startsWith("event:")) {
+                        name = text.substring("event:".length(), text.indexOf('\n'));
+                    }
+                } else {
+                    data.add(value);
+                }
+            }
+            if (name != null) {
+                names.add(name);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        List<StatusEvent> events() {
+            return data.stream().filter(StatusEvent.class::isInstance).map(StatusEvent.class::cast).toList();
+        }
+    }
+}